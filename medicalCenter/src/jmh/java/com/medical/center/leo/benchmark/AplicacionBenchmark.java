@@ -0,0 +1,160 @@
+package com.medical.center.leo.benchmark;
+
+import com.medical.center.leo.MedicalCenterApplication;
+import com.medical.center.leo.entity.Paciente;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arranca la aplicación completa sobre H2 en modo SQL Server y la siembra con un volumen
+ * de citas parecido al de producción, para los benchmarks que pasan por JPA o HTTP.
+ *
+ * Cada médico tiene {@link #CITAS_POR_MEDICO_Y_DIA} citas diarias desde las 08:00, una por
+ * hora, en consultorios rotativos; así se respetan las cuatro reglas de negocio y a cada
+ * médico le quedan horas libres por la tarde.
+ */
+public final class AplicacionBenchmark implements AutoCloseable {
+
+    public static final int MEDICOS = 40;
+    public static final int CONSULTORIOS = 40;
+    public static final int CITAS_POR_MEDICO_Y_DIA = 6;
+    public static final int PRIMERA_HORA = 8;
+
+    private static final String[] ESPECIALIDADES = { "General", "Cardiología", "Pediatría", "Dermatología",
+            "Neurología", "Oftalmología", "Ginecología", "Traumatología" };
+
+    private final ConfigurableApplicationContext contexto;
+    private final LocalDate primerDia;
+    private final int dias;
+    private final List<Integer> medicos;
+    private final List<Integer> consultorios;
+
+    private AplicacionBenchmark(ConfigurableApplicationContext contexto, LocalDate primerDia, int dias,
+            List<Integer> medicos, List<Integer> consultorios) {
+        this.contexto = contexto;
+        this.primerDia = primerDia;
+        this.dias = dias;
+        this.medicos = medicos;
+        this.consultorios = consultorios;
+    }
+
+    /**
+     * Arranca la aplicación en un puerto aleatorio y siembra {@code dias} días de citas a partir
+     * de mañana.
+     *
+     * @param propiedadesExtra Argumentos adicionales de Spring Boot (--clave=valor)
+     */
+    public static AplicacionBenchmark iniciar(int dias, String... propiedadesExtra) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MSSQLServer;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"));
+        argumentos.addAll(List.of(propiedadesExtra));
+        // DevTools relanzaría la aplicación si se arranca desde el hilo main (prueba de carga)
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MedicalCenterApplication.class)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(String[]::new));
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        LocalDate primerDia = LocalDate.now().plusDays(1);
+
+        List<Object[]> filasMedicos = new ArrayList<>();
+        for (int m = 0; m < MEDICOS; m++) {
+            filasMedicos.add(new Object[] { "Medico" + m, "Apellido" + m, "Materno" + m,
+                    ESPECIALIDADES[m % ESPECIALIDADES.length] });
+        }
+        jdbc.batchUpdate("INSERT INTO Doctores (nombre, apellido_paterno, apellido_materno, especialidad) "
+                + "VALUES (?, ?, ?, ?)", filasMedicos);
+
+        List<Object[]> filasConsultorios = new ArrayList<>();
+        for (int c = 0; c < CONSULTORIOS; c++) {
+            filasConsultorios.add(new Object[] { 100 + c, c / 10 + 1 });
+        }
+        jdbc.batchUpdate("INSERT INTO Consultorios (numero_consultorio, piso) VALUES (?, ?)", filasConsultorios);
+
+        List<Integer> medicos = jdbc.queryForList("SELECT id_medico FROM Doctores ORDER BY id_medico",
+                Integer.class);
+        List<Integer> consultorios = jdbc.queryForList(
+                "SELECT id_consultorio FROM Consultorios ORDER BY id_consultorio", Integer.class);
+
+        // Un paciente distinto por cita
+        int totalCitas = dias * MEDICOS * CITAS_POR_MEDICO_Y_DIA;
+        List<Object[]> filasPacientes = new ArrayList<>(totalCitas);
+        for (int p = 0; p < totalCitas; p++) {
+            String nombre = "Paciente " + p;
+            filasPacientes.add(new Object[] { nombre, Paciente.claveBusqueda(nombre) });
+        }
+        jdbc.batchUpdate("INSERT INTO Pacientes (nombre, clave_busqueda) VALUES (?, ?)", filasPacientes);
+        List<Integer> pacientes = jdbc.queryForList("SELECT id_paciente FROM Pacientes ORDER BY id_paciente",
+                Integer.class);
+
+        List<Object[]> filasCitas = new ArrayList<>();
+        int paciente = 0;
+        for (int d = 0; d < dias; d++) {
+            for (int m = 0; m < MEDICOS; m++) {
+                for (int h = 0; h < CITAS_POR_MEDICO_Y_DIA; h++) {
+                    filasCitas.add(new Object[] {
+                            consultorios.get((m + h) % CONSULTORIOS),
+                            medicos.get(m),
+                            Timestamp.valueOf(primerDia.plusDays(d).atTime(PRIMERA_HORA + h, 0)),
+                            "Paciente " + paciente,
+                            pacientes.get(paciente++) });
+                }
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO Citas (consultorio_id, medico_id, horario_consulta, nombre_paciente, "
+                + "paciente_id, version) VALUES (?, ?, ?, ?, ?, 0)", filasCitas);
+
+        return new AplicacionBenchmark(contexto, primerDia, dias, medicos, consultorios);
+    }
+
+    public <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    public int puerto() {
+        return contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public LocalDate primerDia() {
+        return primerDia;
+    }
+
+    public int dias() {
+        return dias;
+    }
+
+    public List<Integer> medicos() {
+        return medicos;
+    }
+
+    public List<Integer> consultorios() {
+        return consultorios;
+    }
+
+    /**
+     * Consultorio que el médico de índice {@code medico} ocupa en la hora {@code hora} (0 = 08:00)
+     * de cualquier día sembrado.
+     */
+    public Integer consultorioSembrado(int medico, int hora) {
+        return consultorios.get((medico + hora) % CONSULTORIOS);
+    }
+
+    @Override
+    public void close() {
+        contexto.close();
+    }
+}
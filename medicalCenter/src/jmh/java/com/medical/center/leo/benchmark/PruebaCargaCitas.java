@@ -0,0 +1,333 @@
+package com.medical.center.leo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de extremo a extremo sobre /api/citas: arranca la aplicación en un puerto
+ * aleatorio con la base sembrada de {@link AplicacionBenchmark} y lanza N clientes HTTP que
+ * mezclan altas, consultas, ediciones y cancelaciones, pasando por HTTP Basic, validación,
+ * CitaService y JPA.
+ *
+ * Al terminar imprime, por operación y en total, peticiones por segundo, latencias p50/p99/p999
+ * y el porcentaje de rechazos por reglas de negocio (400). Las altas eligen horarios y
+ * pacientes al azar, así que una parte choca con citas existentes a propósito.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.clase=com.medical.center.leo.benchmark.PruebaCargaCitas
+ *     -Dbenchmark.args="clientes=32 duracion=60 mezcla=post:30,get:50,put:15,delete:5"
+ *
+ * Parámetros (clave=valor): clientes, duracion y calentamiento en segundos, dias sembrados,
+ * pacientes distintos para las altas, mezcla de operaciones con sus pesos, y cualquier
+ * argumento --clave=valor de Spring Boot que se quiera pasar a la aplicación. Por ejemplo,
+ * para comparar hilos de plataforma con hilos virtuales en altas y listados se ejecuta dos veces
+ * con {@code mezcla=post:40,get:60} y {@code --spring.threads.virtual.enabled=false|true}.
+ */
+public final class PruebaCargaCitas {
+
+    enum Operacion {
+        POST, GET, PUT, DELETE
+    }
+
+    private static final DateTimeFormatter FORMATO_HORARIO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int ULTIMA_HORA = 19;
+
+    private final AplicacionBenchmark aplicacion;
+    private final HttpClient cliente;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String base;
+    private final String autorizacion;
+    private final Map<Operacion, Integer> mezcla;
+    private final int pesoTotal;
+    private final int pacientes;
+    // Citas creadas durante la prueba, candidatas a editarse o cancelarse
+    private final ConcurrentLinkedQueue<Integer> citasCreadas = new ConcurrentLinkedQueue<>();
+
+    private PruebaCargaCitas(AplicacionBenchmark aplicacion, Map<Operacion, Integer> mezcla, int pacientes) {
+        this.aplicacion = aplicacion;
+        this.cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.base = "http://localhost:" + aplicacion.puerto() + "/api/citas";
+        this.autorizacion = "Basic " + Base64.getEncoder()
+                .encodeToString("user:password".getBytes(StandardCharsets.UTF_8));
+        this.mezcla = mezcla;
+        this.pesoTotal = mezcla.values().stream().mapToInt(Integer::intValue).sum();
+        this.pacientes = pacientes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> parametros = new HashMap<>();
+        List<String> propiedadesSpring = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                propiedadesSpring.add(arg);
+            } else if (arg.contains("=")) {
+                parametros.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        int clientes = Integer.parseInt(parametros.getOrDefault("clientes", "16"));
+        int duracion = Integer.parseInt(parametros.getOrDefault("duracion", "30"));
+        int calentamiento = Integer.parseInt(parametros.getOrDefault("calentamiento", "5"));
+        int dias = Integer.parseInt(parametros.getOrDefault("dias", "30"));
+        int pacientes = Integer.parseInt(parametros.getOrDefault("pacientes", "5000"));
+        Map<Operacion, Integer> mezcla = leerMezcla(parametros.getOrDefault("mezcla", "post:30,get:50,put:15,delete:5"));
+
+        try (AplicacionBenchmark aplicacion = AplicacionBenchmark.iniciar(dias,
+                propiedadesSpring.toArray(String[]::new))) {
+            PruebaCargaCitas prueba = new PruebaCargaCitas(aplicacion, mezcla, pacientes);
+            System.out.printf(Locale.ROOT, "Prueba de carga: %d clientes, %ds de calentamiento, %ds de medición, mezcla %s%n",
+                    clientes, calentamiento, duracion, mezcla);
+            if (calentamiento > 0) {
+                prueba.ejecutar(clientes, calentamiento);
+            }
+            Resultado resultado = prueba.ejecutar(clientes, duracion);
+            resultado.imprimir();
+        }
+    }
+
+    private static Map<Operacion, Integer> leerMezcla(String texto) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            String[] operacionYPeso = parte.split(":");
+            int peso = Integer.parseInt(operacionYPeso[1].trim());
+            if (peso > 0) {
+                mezcla.put(Operacion.valueOf(operacionYPeso[0].trim().toUpperCase(Locale.ROOT)), peso);
+            }
+        }
+        if (mezcla.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos una operación con peso positivo: " + texto);
+        }
+        return mezcla;
+    }
+
+    private Resultado ejecutar(int clientes, int segundos) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clientes);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Registro> registros = new ArrayList<>();
+        long[] fin = new long[1];
+
+        for (int i = 0; i < clientes; i++) {
+            Registro registro = new Registro();
+            registros.add(registro);
+            executor.execute(() -> {
+                try {
+                    salida.await();
+                    while (System.nanoTime() < fin[0]) {
+                        ejecutarOperacion(registro);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long inicio = System.nanoTime();
+        fin[0] = inicio + TimeUnit.SECONDS.toNanos(segundos);
+        salida.countDown();
+        executor.shutdown();
+        executor.awaitTermination(segundos + 60L, TimeUnit.SECONDS);
+        return new Resultado(registros, System.nanoTime() - inicio);
+    }
+
+    private void ejecutarOperacion(Registro registro) {
+        Operacion operacion = elegirOperacion();
+        Integer idCita = null;
+        if (operacion == Operacion.PUT) {
+            idCita = citasCreadas.peek();
+        } else if (operacion == Operacion.DELETE) {
+            idCita = citasCreadas.poll();
+        }
+        // Sin citas propias que editar o cancelar todavía: se agenda una
+        if ((operacion == Operacion.PUT || operacion == Operacion.DELETE) && idCita == null) {
+            operacion = Operacion.POST;
+        }
+
+        HttpRequest peticion = switch (operacion) {
+            case POST -> peticion(base).POST(cuerpo(solicitudAleatoria())).build();
+            case GET -> peticion(consultaAleatoria()).GET().build();
+            case PUT -> peticion(base + "/" + idCita).PUT(cuerpo(solicitudAleatoria())).build();
+            case DELETE -> peticion(base + "/" + idCita).DELETE().build();
+        };
+
+        long inicio = System.nanoTime();
+        int estado;
+        String respuesta = null;
+        try {
+            HttpResponse<String> http = cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+            estado = http.statusCode();
+            respuesta = http.body();
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            estado = -1;
+        }
+        registro.anotar(operacion, estado, System.nanoTime() - inicio);
+
+        if (operacion == Operacion.POST && estado == 201) {
+            citasCreadas.add(idCreado(respuesta));
+        } else if (operacion == Operacion.DELETE && estado != 204 && estado != 404) {
+            // Cancelación rechazada o fallida: la cita sigue disponible para otras operaciones
+            citasCreadas.add(idCita);
+        }
+    }
+
+    private Operacion elegirOperacion() {
+        int sorteo = ThreadLocalRandom.current().nextInt(pesoTotal);
+        for (Map.Entry<Operacion, Integer> entrada : mezcla.entrySet()) {
+            sorteo -= entrada.getValue();
+            if (sorteo < 0) {
+                return entrada.getKey();
+            }
+        }
+        throw new IllegalStateException("Mezcla de operaciones inválida: " + mezcla);
+    }
+
+    private Map<String, Object> solicitudAleatoria() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        LocalDateTime horario = diaAleatorio()
+                .atTime(aleatorio.nextInt(AplicacionBenchmark.PRIMERA_HORA, ULTIMA_HORA + 1), 0);
+        Map<String, Object> solicitud = new HashMap<>();
+        solicitud.put("consultorioId", elegir(aplicacion.consultorios()));
+        solicitud.put("medicoId", elegir(aplicacion.medicos()));
+        solicitud.put("horarioConsulta", horario.format(FORMATO_HORARIO));
+        solicitud.put("nombrePaciente", "Paciente Carga " + aleatorio.nextInt(pacientes));
+        return solicitud;
+    }
+
+    private String consultaAleatoria() {
+        String consulta = base + "?fecha=" + diaAleatorio();
+        return switch (ThreadLocalRandom.current().nextInt(3)) {
+            case 0 -> consulta;
+            case 1 -> consulta + "&medicoId=" + elegir(aplicacion.medicos());
+            default -> consulta + "&consultorioId=" + elegir(aplicacion.consultorios());
+        };
+    }
+
+    private LocalDate diaAleatorio() {
+        return aplicacion.primerDia().plusDays(ThreadLocalRandom.current().nextInt(aplicacion.dias()));
+    }
+
+    private static Integer elegir(List<Integer> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private HttpRequest.Builder peticion(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", autorizacion)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher cuerpo(Map<String, Object> solicitud) {
+        try {
+            return HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(solicitud));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Integer idCreado(String respuesta) {
+        try {
+            JsonNode cita = objectMapper.readTree(respuesta);
+            return cita.get("idCita").asInt();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Respuesta de alta inesperada: " + respuesta, ex);
+        }
+    }
+
+    /**
+     * Latencias y códigos de estado de un cliente; cada hilo escribe solo en el suyo.
+     */
+    private static final class Registro {
+
+        private final Map<Operacion, long[]> latencias = new EnumMap<>(Operacion.class);
+        private final Map<Operacion, Integer> cantidades = new EnumMap<>(Operacion.class);
+        private final Map<Operacion, Map<Integer, Integer>> estados = new EnumMap<>(Operacion.class);
+
+        void anotar(Operacion operacion, int estado, long nanos) {
+            int cantidad = cantidades.getOrDefault(operacion, 0);
+            long[] valores = latencias.computeIfAbsent(operacion, o -> new long[1024]);
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, cantidad * 2);
+                latencias.put(operacion, valores);
+            }
+            valores[cantidad] = nanos;
+            cantidades.put(operacion, cantidad + 1);
+            estados.computeIfAbsent(operacion, o -> new HashMap<>()).merge(estado, 1, Integer::sum);
+        }
+    }
+
+    private static final class Resultado {
+
+        private final List<Registro> registros;
+        private final long nanosTotales;
+
+        Resultado(List<Registro> registros, long nanosTotales) {
+            this.registros = registros;
+            this.nanosTotales = nanosTotales;
+        }
+
+        void imprimir() {
+            System.out.printf(Locale.ROOT, "%n%-8s %10s %10s %10s %10s %10s %11s  %s%n",
+                    "Op", "Peticiones", "req/s", "p50 ms", "p99 ms", "p999 ms", "Rechazo 400", "Estados");
+            for (Operacion operacion : Operacion.values()) {
+                imprimirFila(operacion.name(), List.of(operacion));
+            }
+            imprimirFila("TOTAL", List.of(Operacion.values()));
+        }
+
+        private void imprimirFila(String etiqueta, List<Operacion> operaciones) {
+            long[] valores = new long[0];
+            Map<Integer, Integer> estados = new HashMap<>();
+            for (Registro registro : registros) {
+                for (Operacion operacion : operaciones) {
+                    int cantidad = registro.cantidades.getOrDefault(operacion, 0);
+                    if (cantidad > 0) {
+                        int previo = valores.length;
+                        valores = Arrays.copyOf(valores, previo + cantidad);
+                        System.arraycopy(registro.latencias.get(operacion), 0, valores, previo, cantidad);
+                        registro.estados.get(operacion).forEach((estado, n) -> estados.merge(estado, n, Integer::sum));
+                    }
+                }
+            }
+            if (valores.length == 0) {
+                return;
+            }
+            Arrays.sort(valores);
+            double segundos = nanosTotales / 1e9;
+            double rechazo = 100.0 * estados.getOrDefault(400, 0) / valores.length;
+            System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%%  %s%n",
+                    etiqueta, valores.length, valores.length / segundos,
+                    percentil(valores, 0.50), percentil(valores, 0.99), percentil(valores, 0.999),
+                    rechazo, estados);
+        }
+
+        private static double percentil(long[] ordenados, double percentil) {
+            int indice = (int) Math.ceil(percentil * ordenados.length) - 1;
+            return ordenados[Math.max(indice, 0)] / 1e6;
+        }
+    }
+}
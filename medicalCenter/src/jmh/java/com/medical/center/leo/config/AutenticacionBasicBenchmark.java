@@ -0,0 +1,66 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de autenticar las credenciales HTTP Basic con los usuarios de
+ * SecurityConfig: el DaoAuthenticationProvider por defecto (bcrypt en cada petición) frente a
+ * AutenticacionCacheada con la verificación ya en cache, que es el caso de régimen estable.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="AutenticacionBasicBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutenticacionBasicBenchmark {
+
+    private DaoAuthenticationProvider sinCache;
+    private AutenticacionCacheada conCache;
+
+    @Setup
+    public void iniciar() {
+        UserDetailsService usuarios = new SecurityConfig().userDetailsService();
+        PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        sinCache = new DaoAuthenticationProvider(passwordEncoder);
+        sinCache.setUserDetailsService(usuarios);
+        conCache = new AutenticacionCacheada(usuarios, passwordEncoder, Duration.ofHours(1), 10_000,
+                new SimpleMeterRegistry());
+        conCache.authenticate(credenciales());
+    }
+
+    @Benchmark
+    public Authentication sinCache() {
+        return sinCache.authenticate(credenciales());
+    }
+
+    @Benchmark
+    public Authentication conCache() {
+        return conCache.authenticate(credenciales());
+    }
+
+    private static UsernamePasswordAuthenticationToken credenciales() {
+        return UsernamePasswordAuthenticationToken.unauthenticated("user", "password");
+    }
+}
@@ -0,0 +1,57 @@
+package com.medical.center.leo.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de listas de CitaResponseDTO con un ObjectMapper configurado como el de
+ * Spring MVC, para distintos tamaños de respuesta.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="CitaResponseDTOSerializacionBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitaResponseDTOSerializacionBenchmark {
+
+    @Param({ "1", "10", "100", "1000", "10000" })
+    public int citas;
+
+    private ObjectMapper objectMapper;
+    private List<CitaResponseDTO> respuesta;
+
+    @Setup
+    public void iniciar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDate dia = LocalDate.now().plusDays(1);
+        respuesta = new ArrayList<>(citas);
+        for (int i = 0; i < citas; i++) {
+            respuesta.add(new CitaResponseDTO(i + 1, 100 + i % 40, i % 40 / 10 + 1, "Medico" + i % 40 + " Apellido",
+                    "Cardiología", dia.atTime(8 + i % 10, 0), "Paciente " + i, 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarLista() throws Exception {
+        return objectMapper.writeValueAsBytes(respuesta);
+    }
+}
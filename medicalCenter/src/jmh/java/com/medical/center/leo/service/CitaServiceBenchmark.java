@@ -0,0 +1,126 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.benchmark.AplicacionBenchmark;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.exception.BusinessRuleException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rutas calientes de CitaService sobre la aplicación completa y una base H2 sembrada:
+ * validación de reglas al agendar, mapeo a DTO y listado diario. El listado de mañana (el
+ * primer día sembrado) se sirve desde AgendaInstantanea; el del día consultado, desde SQL.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="CitaServiceBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitaServiceBenchmark {
+
+    // Días sembrados: 60 días x 40 médicos x 6 citas = 14.400 citas
+    @Param({ "60" })
+    public int dias;
+
+    private AplicacionBenchmark aplicacion;
+    private CitaService citaService;
+
+    private LocalDate diaConsultado;
+    private Integer medicoId;
+    private Integer consultorioOcupado;
+    private Integer consultorioLibre;
+    private LocalDateTime horarioOcupado;
+    private LocalDateTime horarioLibre;
+    private Cita cita;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        aplicacion = AplicacionBenchmark.iniciar(dias);
+        citaService = aplicacion.bean(CitaService.class);
+
+        diaConsultado = aplicacion.primerDia().plusDays(dias / 2);
+        medicoId = aplicacion.medicos().get(0);
+        horarioOcupado = diaConsultado.atTime(AplicacionBenchmark.PRIMERA_HORA, 0);
+        consultorioOcupado = aplicacion.consultorioSembrado(0, 0);
+        // Después de la última cita sembrada del día
+        horarioLibre = diaConsultado.atTime(AplicacionBenchmark.PRIMERA_HORA
+                + AplicacionBenchmark.CITAS_POR_MEDICO_Y_DIA + 1, 0);
+        consultorioLibre = aplicacion.consultorios().get(1);
+
+        cita = new Cita(1, new Consultorio(consultorioLibre, 101, 1),
+                new Doctor(medicoId, "Medico0", "Apellido0", "Materno0", "General"),
+                horarioLibre, "Paciente Benchmark", 0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        aplicacion.close();
+    }
+
+    @Benchmark
+    public void validarReglas_horarioLibre() {
+        citaService.validarReglasNegocio(medicoId, consultorioLibre, horarioLibre, "Paciente Nuevo", null);
+    }
+
+    @Benchmark
+    public Object validarReglas_consultorioOcupado() {
+        try {
+            citaService.validarReglasNegocio(medicoId, consultorioOcupado, horarioOcupado, "Paciente Nuevo", null);
+            throw new IllegalStateException("El horario sembrado debería estar ocupado");
+        } catch (BusinessRuleException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public CitaResponseDTO mapToCitaResponseDTO() {
+        return citaService.mapToCitaResponseDTO(cita);
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> consultarCitas_delDia() {
+        return citaService.consultarCitas(diaConsultado, null, null);
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> consultarCitas_porMedico() {
+        return citaService.consultarCitas(diaConsultado, null, medicoId);
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> consultarCitas_porConsultorio() {
+        return citaService.consultarCitas(diaConsultado, consultorioOcupado, null);
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> consultarCitas_mananaDesdeAgenda() {
+        return citaService.consultarCitas(aplicacion.primerDia(), null, null);
+    }
+
+    @Benchmark
+    public List<CitaResponseDTO> consultarCitas_mananaPorMedicoDesdeAgenda() {
+        return citaService.consultarCitas(aplicacion.primerDia(), null, medicoId);
+    }
+}
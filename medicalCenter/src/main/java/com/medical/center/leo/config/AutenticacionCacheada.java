@@ -0,0 +1,131 @@
+package com.medical.center.leo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Autenticación HTTP Basic con cache de verificaciones correctas. El hash de la contraseña
+ * (bcrypt) es deliberadamente lento y, sin sesiones, se repetía en cada petición; aquí solo se
+ * calcula la primera vez que llega una pareja usuario/contraseña y, durante
+ * {@code medicalcenter.autenticacion.cache-ttl}, las siguientes peticiones con las mismas
+ * credenciales se resuelven con la cache.
+ *
+ * - La clave es un HMAC-SHA256 del usuario y la contraseña con una sal aleatoria generada al
+ *   arrancar: la contraseña en claro no se guarda y la clave no sirve fuera de este proceso.
+ * - Solo se guardan verificaciones correctas; un fallo siempre pasa por el hash.
+ * - Cada acierto vuelve a cargar el usuario (en memoria, sin hash) y descarta la entrada si su
+ *   contraseña codificada ya no es la que se verificó o si la cuenta dejó de estar habilitada,
+ *   así que un cambio de contraseña invalida la cache al momento.
+ * - Como mucho se recuerdan {@code medicalcenter.autenticacion.cache-maximo} verificaciones.
+ */
+public class AutenticacionCacheada implements AuthenticationProvider {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private record Verificacion(String usuario, String passwordCodificado) {
+    }
+
+    private final UserDetailsService userDetailsService;
+    private final DaoAuthenticationProvider verificador;
+    private final AccountStatusUserDetailsChecker estadoCuenta = new AccountStatusUserDetailsChecker();
+    private final SecretKeySpec sal;
+    private final Cache<String, Verificacion> verificaciones;
+    private final Counter aciertos;
+    private final Counter hashes;
+
+    public AutenticacionCacheada(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+            Duration ttl, long maximo, MeterRegistry meterRegistry) {
+        this.userDetailsService = userDetailsService;
+        this.verificador = new DaoAuthenticationProvider(passwordEncoder);
+        this.verificador.setUserDetailsService(userDetailsService);
+        byte[] bytesSal = new byte[32];
+        new SecureRandom().nextBytes(bytesSal);
+        this.sal = new SecretKeySpec(bytesSal, ALGORITMO);
+        this.verificaciones = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maximo).build();
+        this.aciertos = Counter.builder("medicalcenter.autenticacion.cache.aciertos")
+                .description("Autenticaciones resueltas con la cache, sin calcular el hash")
+                .register(meterRegistry);
+        this.hashes = Counter.builder("medicalcenter.autenticacion.hashes")
+                .description("Autenticaciones que calcularon el hash de la contraseña")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String usuario = authentication.getName();
+        Object credenciales = authentication.getCredentials();
+        if (usuario == null || credenciales == null) {
+            return verificador.authenticate(authentication);
+        }
+        String clave = clave(usuario, credenciales.toString());
+
+        Verificacion verificacion = verificaciones.getIfPresent(clave);
+        if (verificacion != null) {
+            UserDetails actual = vigente(verificacion);
+            if (actual != null) {
+                aciertos.increment();
+                return UsernamePasswordAuthenticationToken.authenticated(actual, null, actual.getAuthorities());
+            }
+            verificaciones.invalidate(clave);
+        }
+
+        hashes.increment();
+        Authentication resultado = verificador.authenticate(authentication);
+        // Antes de que ProviderManager borre las credenciales del principal
+        if (resultado != null && resultado.getPrincipal() instanceof UserDetails principal
+                && principal.getPassword() != null) {
+            verificaciones.put(clave, new Verificacion(principal.getUsername(), principal.getPassword()));
+        }
+        return resultado;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    /**
+     * @return El usuario actual si sigue habilitado y con la contraseña verificada, o null
+     */
+    private UserDetails vigente(Verificacion verificacion) {
+        try {
+            UserDetails actual = userDetailsService.loadUserByUsername(verificacion.usuario());
+            estadoCuenta.check(actual);
+            return verificacion.passwordCodificado().equals(actual.getPassword()) ? actual : null;
+        } catch (AuthenticationException ex) {
+            return null;
+        }
+    }
+
+    private String clave(String usuario, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(sal);
+            mac.update(usuario.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return HEX.formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 no disponible", ex);
+        }
+    }
+}
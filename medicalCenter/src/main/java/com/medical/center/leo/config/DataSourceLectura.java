@@ -0,0 +1,73 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * DataSource de las transacciones de solo lectura (ver {@link ReplicaLecturaConfig}): entrega
+ * conexiones de la réplica, salvo en dos casos en los que usa el primario.
+ *
+ * - La réplica no está sana: si no se obtiene una conexión suya (caída, pool agotado hasta el
+ *   connection-timeout), la lectura se atiende con el primario y la réplica no se vuelve a
+ *   intentar hasta pasado {@code medicalcenter.lecturas.pausa-tras-fallo}.
+ * - El usuario está en su ventana de {@link LecturaTrasEscritura}.
+ */
+public class DataSourceLectura extends DelegatingDataSource {
+
+    private final DataSource primario;
+    private final LecturaTrasEscritura lecturaTrasEscritura;
+    private final long pausaTrasFalloNanos;
+    private final Counter respaldos;
+
+    // System.nanoTime() a partir del cual se vuelve a intentar la réplica
+    private volatile long reintentarReplicaDesde;
+    private volatile boolean replicaCaida;
+
+    public DataSourceLectura(DataSource replica, DataSource primario, LecturaTrasEscritura lecturaTrasEscritura,
+            Duration pausaTrasFallo, MeterRegistry meterRegistry) {
+        super(replica);
+        this.primario = primario;
+        this.lecturaTrasEscritura = lecturaTrasEscritura;
+        this.pausaTrasFalloNanos = pausaTrasFallo.toNanos();
+        this.respaldos = Counter.builder("medicalcenter.replica.respaldos")
+                .description("Lecturas atendidas por el primario porque la réplica no respondió")
+                .register(meterRegistry);
+        Gauge.builder("medicalcenter.replica.disponible", this, lectura -> lectura.enPausa() ? 0 : 1)
+                .description("1 si las lecturas van a la réplica, 0 durante la pausa tras un fallo")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (lecturaTrasEscritura.enVentana() || enPausa()) {
+            return primario.getConnection();
+        }
+        try {
+            Connection conexion = obtainTargetDataSource().getConnection();
+            replicaCaida = false;
+            return conexion;
+        } catch (SQLException ex) {
+            reintentarReplicaDesde = System.nanoTime() + pausaTrasFalloNanos;
+            replicaCaida = true;
+            respaldos.increment();
+            return primario.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Las credenciales de cada pool están en su configuración
+        return getConnection();
+    }
+
+    private boolean enPausa() {
+        return replicaCaida && System.nanoTime() - reintentarReplicaDesde < 0;
+    }
+}
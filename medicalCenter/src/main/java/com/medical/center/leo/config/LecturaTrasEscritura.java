@@ -0,0 +1,67 @@
+package com.medical.center.leo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medical.center.leo.service.CitaCambiadaEvent;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Ventana de lectura de las propias escrituras. Durante
+ * {@code medicalcenter.lecturas.lectura-tras-escritura} después de que un usuario crea, edita
+ * o cancela una cita, sus transacciones de solo lectura van al primario en lugar de a la
+ * réplica, que puede no haber recibido todavía el cambio. Con una duración de 0 la ventana
+ * queda desactivada.
+ *
+ * Se registra al confirmarse la transacción, en el hilo de la petición, así que se identifica
+ * al usuario autenticado en ese momento. Como mucho se recuerdan
+ * {@value #MAXIMO_USUARIOS} usuarios.
+ */
+public class LecturaTrasEscritura {
+
+    static final int MAXIMO_USUARIOS = 10_000;
+
+    private final Cache<String, Boolean> escriturasRecientes;
+
+    public LecturaTrasEscritura(Duration ventana) {
+        this.escriturasRecientes = (ventana.isZero() || ventana.isNegative()) ? null
+                : Caffeine.newBuilder().expireAfterWrite(ventana).maximumSize(MAXIMO_USUARIOS).build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarCita(CitaCambiadaEvent evento) {
+        registrarEscritura();
+    }
+
+    /**
+     * Abre (o renueva) la ventana del usuario autenticado en el hilo actual.
+     */
+    public void registrarEscritura() {
+        String usuario = usuarioActual();
+        if (escriturasRecientes != null && usuario != null) {
+            escriturasRecientes.put(usuario, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @return true si el usuario autenticado en el hilo actual escribió dentro de la ventana
+     */
+    public boolean enVentana() {
+        String usuario = usuarioActual();
+        return escriturasRecientes != null && usuario != null
+                && escriturasRecientes.getIfPresent(usuario) != null;
+    }
+
+    private static String usuarioActual() {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion == null || !autenticacion.isAuthenticated()
+                || autenticacion instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return autenticacion.getName();
+    }
+}
@@ -0,0 +1,135 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulkhead para el modo de hilos virtuales: con hilos virtuales Tomcat ya no limita cuántas
+ * peticiones se atienden a la vez, así que este filtro deja pasar a /api/** como mucho tantas
+ * peticiones como conexiones tiene el pool. El resto espera un permiso hasta
+ * {@code medicalcenter.bulkhead.espera-maxima} y, si no lo obtiene, recibe 503 en lugar de
+ * quedarse bloqueada en HikariCP hasta el connection-timeout.
+ *
+ * Las respuestas asíncronas (por ejemplo la exportación NDJSON) conservan el permiso hasta
+ * que terminan de escribirse, porque mantienen una conexión abierta mientras tanto. La agenda
+ * en vivo queda fuera: sus suscripciones duran horas y no usan la base de datos.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final long esperaMaximaNanos;
+    private final Counter rechazos;
+
+    public LimiteConcurrenciaFilter(
+            @Value("${medicalcenter.bulkhead.permisos:${spring.datasource.hikari.maximum-pool-size:10}}") int permisos,
+            @Value("${medicalcenter.bulkhead.espera-maxima:5s}") Duration esperaMaxima,
+            MeterRegistry meterRegistry) {
+        this.permisos = new Semaphore(permisos, true);
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        Gauge.builder("medicalcenter.bulkhead.permisos.disponibles", this.permisos, Semaphore::availablePermits)
+                .description("Permisos libres del bulkhead de /api/**")
+                .register(meterRegistry);
+        this.rechazos = Counter.builder("medicalcenter.bulkhead.rechazos")
+                .description("Peticiones rechazadas con 503 por no obtener permiso a tiempo")
+                .register(meterRegistry);
+    }
+
+    static final String RUTA_AGENDA_EN_VIVO = "/api/citas/eventos";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return !ruta.startsWith("/api/") || ruta.equals(RUTA_AGENDA_EN_VIVO);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean obtenido;
+        try {
+            obtenido = permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            obtenido = false;
+        }
+        if (!obtenido) {
+            rechazos.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"message\":\"El servidor está atendiendo demasiadas peticiones; "
+                    + "intente de nuevo en unos segundos.\"}");
+            return;
+        }
+
+        AtomicBoolean liberado = new AtomicBoolean();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new LiberarAlTerminar(liberado));
+            } else {
+                liberar(liberado);
+            }
+        }
+    }
+
+    private void liberar(AtomicBoolean liberado) {
+        if (liberado.compareAndSet(false, true)) {
+            permisos.release();
+        }
+    }
+
+    private final class LiberarAlTerminar implements AsyncListener {
+
+        private final AtomicBoolean liberado;
+
+        LiberarAlTerminar(AtomicBoolean liberado) {
+            this.liberado = liberado;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar(liberado);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar(liberado);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar(liberado);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo ciclo asíncrono sobre la misma petición: el listener debe seguir registrado
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
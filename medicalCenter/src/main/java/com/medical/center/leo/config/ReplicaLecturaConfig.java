@@ -0,0 +1,76 @@
+package com.medical.center.leo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Envía las transacciones de solo lectura ({@code @Transactional(readOnly = true)}) a una
+ * réplica de lectura y todo lo demás al primario, cada uno con su propio pool de HikariCP.
+ * Se activa al configurar {@code medicalcenter.replica.jdbc-url}; sin ella la aplicación usa
+ * el único DataSource de spring.datasource, como siempre.
+ *
+ * El DataSource de la aplicación es un {@link LazyConnectionDataSourceProxy}: no pide la
+ * conexión física hasta la primera sentencia, cuando la transacción ya marcó la conexión
+ * como de solo lectura, y en ese caso la pide a {@link DataSourceLectura}. Las lecturas que
+ * dependen de estado del proceso, como el horizonte de la sincronización incremental, no
+ * deben ser readOnly: la réplica puede ir por detrás del primario.
+ *
+ * El pool de la réplica no es candidato para la inyección por tipo y DataSourceLectura no es
+ * un bean, así que ninguno entra en el indicador "db" de /actuator/health: una réplica caída
+ * no debe sacar de servicio a la instancia, porque las lecturas ya se atienden con el
+ * primario. Su estado se publica en la métrica medicalcenter.replica.disponible.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "medicalcenter.replica", name = "jdbc-url")
+public class ReplicaLecturaConfig {
+
+    // Pool del primario: spring.datasource.* y spring.datasource.hikari.*, como sin réplica
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties propiedades) {
+        HikariDataSource primario = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primario.setPoolName("primario");
+        return primario;
+    }
+
+    // Pool de la réplica: medicalcenter.replica.jdbc-url, username, password, maximum-pool-size...
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("medicalcenter.replica")
+    public HikariDataSource dataSourceReplica() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public LecturaTrasEscritura lecturaTrasEscritura(
+            @Value("${medicalcenter.lecturas.lectura-tras-escritura:0s}") Duration ventana) {
+        return new LecturaTrasEscritura(ventana);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimario") HikariDataSource primario,
+            LecturaTrasEscritura lecturaTrasEscritura,
+            @Value("${medicalcenter.lecturas.pausa-tras-fallo:30s}") Duration pausaTrasFallo,
+            MeterRegistry meterRegistry) {
+        LazyConnectionDataSourceProxy enrutador = new LazyConnectionDataSourceProxy(primario);
+        // dataSourceReplica() devuelve el bean del contexto (la configuración está proxificada)
+        enrutador.setReadOnlyDataSource(new DataSourceLectura(dataSourceReplica(), primario, lecturaTrasEscritura,
+                pausaTrasFallo, meterRegistry));
+        return enrutador;
+    }
+}
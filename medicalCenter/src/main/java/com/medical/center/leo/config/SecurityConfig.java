@@ -1,5 +1,7 @@
 package com.medical.center.leo.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -8,8 +10,12 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+
+import java.time.Duration;
+
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @Configuration
@@ -32,6 +38,17 @@ public class SecurityConfig {
                 return new InMemoryUserDetailsManager(user, admin);
         }
 
+        // Único AuthenticationProvider: sustituye al DaoAuthenticationProvider por defecto
+        @Bean
+        public AutenticacionCacheada autenticacionCacheada(UserDetailsService userDetailsService,
+                        @Value("${medicalcenter.autenticacion.cache-ttl:60s}") Duration ttl,
+                        @Value("${medicalcenter.autenticacion.cache-maximo:10000}") long maximo,
+                        MeterRegistry meterRegistry) {
+                return new AutenticacionCacheada(userDetailsService,
+                                PasswordEncoderFactories.createDelegatingPasswordEncoder(), ttl, maximo,
+                                meterRegistry);
+        }
+
         @Bean
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
                 http
@@ -49,6 +66,9 @@ public class SecurityConfig {
                                                 .requestMatchers(HttpMethod.DELETE, "/api/doctores/**",
                                                                 "/api/consultorios/**")
                                                 .hasRole("ADMIN")
+                                                .requestMatchers("/api/cache/**").hasRole("ADMIN")
+                                                .requestMatchers("/actuator/health").permitAll()
+                                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                                 .requestMatchers("/api/**").hasAnyRole("USER", "ADMIN")
                                                 .anyRequest().authenticated() // Cualquier otra petición requiere
                                                                               // autenticación
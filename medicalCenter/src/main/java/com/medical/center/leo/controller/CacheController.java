@@ -0,0 +1,30 @@
+package com.medical.center.leo.controller;
+
+import com.medical.center.leo.dto.RegionCacheDTO;
+import com.medical.center.leo.service.CacheEstadisticasService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+@Tag(name = "Cache", description = "Estadísticas de la cache de segundo nivel")
+public class CacheController {
+
+    private final CacheEstadisticasService cacheEstadisticasService;
+
+    public CacheController(CacheEstadisticasService cacheEstadisticasService) {
+        this.cacheEstadisticasService = cacheEstadisticasService;
+    }
+
+    @GetMapping("/estadisticas")
+    @Operation(summary = "Aciertos, fallos y tamaño de cada región de la cache (solo ADMIN)")
+    public ResponseEntity<List<RegionCacheDTO>> obtenerEstadisticas() {
+        return ResponseEntity.ok(cacheEstadisticasService.obtenerEstadisticas());
+    }
+}
@@ -1,10 +1,26 @@
 package com.medical.center.leo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.center.leo.dto.CambiosCitasDTO;
+import com.medical.center.leo.dto.CitaHistorialPaginaDTO;
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
+import com.medical.center.leo.dto.CitaPaginaDTO;
 import com.medical.center.leo.dto.CitaRequestDTO;
 import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.HorarioDisponibleDTO;
+import com.medical.center.leo.dto.ImportacionBloqueDTO;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.service.AgendaEnVivoService;
+import com.medical.center.leo.service.BusquedaHorariosService;
 import com.medical.center.leo.service.CitaService;
+import com.medical.center.leo.service.EscritorCitasCsv;
+import com.medical.center.leo.service.HistorialCitasService;
+import com.medical.center.leo.service.ImportacionCitasService;
+import com.medical.center.leo.service.LectorCitasCsv;
+import com.medical.center.leo.service.SincronizacionCitasService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,11 +29,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -27,10 +53,25 @@ import java.util.List;
 public class CitaController {
 
     private final CitaService citaService;
+    private final BusquedaHorariosService busquedaHorariosService;
+    private final SincronizacionCitasService sincronizacionCitasService;
+    private final AgendaEnVivoService agendaEnVivoService;
+    private final ImportacionCitasService importacionCitasService;
+    private final HistorialCitasService historialCitasService;
+    private final ObjectMapper objectMapper;
 
     // Inyección de dependencias a través del constructor
-    public CitaController(CitaService citaService) {
+    public CitaController(CitaService citaService, BusquedaHorariosService busquedaHorariosService,
+            SincronizacionCitasService sincronizacionCitasService, AgendaEnVivoService agendaEnVivoService,
+            ImportacionCitasService importacionCitasService, HistorialCitasService historialCitasService,
+            ObjectMapper objectMapper) {
         this.citaService = citaService;
+        this.busquedaHorariosService = busquedaHorariosService;
+        this.sincronizacionCitasService = sincronizacionCitasService;
+        this.agendaEnVivoService = agendaEnVivoService;
+        this.importacionCitasService = importacionCitasService;
+        this.historialCitasService = historialCitasService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -48,6 +89,44 @@ public class CitaController {
         return new ResponseEntity<>(nuevaCita, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Crear varias citas en lote", description = "Registra un lote de citas en una sola transacción. Las reglas de negocio se validan también entre las citas del propio lote y cada elemento se acepta o rechaza por separado.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el resultado de cada elemento", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CitaLoteResultadoDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande"),
+            @ApiResponse(responseCode = "401", description = "No autorizado para realizar esta acción")
+    })
+    public ResponseEntity<List<CitaLoteResultadoDTO>> crearCitasEnLote(
+            @Parameter(description = "Citas a crear", required = true) @RequestBody List<CitaRequestDTO> citas) {
+        return ResponseEntity.ok(citaService.crearCitasEnLote(citas));
+    }
+
+    @PostMapping(value = "/importacion", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Importar citas desde un archivo CSV", description = "Lee el CSV (encabezado consultorioId,medicoId,horarioConsulta,nombrePaciente; horario yyyy-MM-dd HH:mm:ss) en bloques de 1000 filas. Cada bloque se valida con las reglas de negocio, se guarda y se confirma por separado, y su resultado se escribe como una línea NDJSON con las filas rechazadas y los totales acumulados. Si la importación se interrumpe, se puede reanudar desde la línea siguiente a ultimaLinea del último bloque recibido.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado de cada bloque en formato NDJSON", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ImportacionBloqueDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Archivo vacío o sin las columnas requeridas"),
+            @ApiResponse(responseCode = "401", description = "No autorizado"),
+            @ApiResponse(responseCode = "403", description = "Solo un administrador puede importar citas")
+    })
+    public ResponseEntity<StreamingResponseBody> importarCitas(
+            @Parameter(description = "Archivo CSV con las citas (cuerpo de la petición)", required = true) InputStream csv)
+            throws IOException {
+        // Validar el encabezado antes de empezar a escribir; después ya no se puede responder 400
+        LectorCitasCsv lector = importacionCitasService.abrir(csv);
+        StreamingResponseBody cuerpo = salida -> {
+            try (lector) {
+                importacionCitasService.importar(lector, bloque -> {
+                    escribirLinea(salida, bloque);
+                    vaciar(salida);
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
+    }
+
     @GetMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     @Operation(summary = "Consultar citas", description = "Obtiene una lista de citas filtradas por fecha y opcionalmente por ID de consultorio y/o ID de médico.")
@@ -66,6 +145,190 @@ public class CitaController {
         return ResponseEntity.ok(citas);
     }
 
+    @GetMapping("/disponibles")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Buscar los próximos horarios disponibles", description = "Devuelve los primeros horarios, a partir de una fecha y dentro de un horizonte de días, en los que se puede agendar con un médico o con cualquier médico de una especialidad cumpliendo las cuatro reglas de negocio. Cada horario incluye un consultorio libre.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Horarios disponibles, ordenados por horario", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = HorarioDisponibleDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Parámetros de búsqueda inválidos"),
+            @ApiResponse(responseCode = "401", description = "No autorizado"),
+            @ApiResponse(responseCode = "404", description = "Médico, especialidad o consultorio no encontrado")
+    })
+    public ResponseEntity<List<HorarioDisponibleDTO>> buscarHorariosDisponibles(
+            @Parameter(description = "ID del médico (indique este o la especialidad)", example = "1") @RequestParam(required = false) Integer medicoId,
+
+            @Parameter(description = "Especialidad (indique esta o el médico)", example = "Cardiología") @RequestParam(required = false) String especialidad,
+
+            @Parameter(description = "Primer día de la búsqueda (formato YYYY-MM-DD); hoy si se omite", example = "2024-12-01") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+
+            @Parameter(description = "Días a revisar a partir de la fecha desde (1 a 90, por defecto 14)", example = "14") @RequestParam(required = false) Integer dias,
+
+            @Parameter(description = "Número de horarios a devolver (1 a 50, por defecto 5)", example = "5") @RequestParam(required = false) Integer cantidad,
+
+            @Parameter(description = "Consultorio fijo (opcional); si se omite se propone el primero libre", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "Paciente, para respetar sus otras citas del día (opcional)", example = "Juan Pérez") @RequestParam(required = false) String nombrePaciente) {
+        return ResponseEntity.ok(busquedaHorariosService.buscarHorariosDisponibles(medicoId, especialidad, desde, dias,
+                cantidad, consultorioId, nombrePaciente));
+    }
+
+    @GetMapping("/cambios")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Obtener los cambios de citas desde un token", description = "Sincronización incremental: devuelve las citas creadas o editadas (con su estado actual) y los ids de las canceladas después del token indicado, en orden de cambio. La primera vez se pide con desde=0; después, con el token devuelto en version.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cambios posteriores al token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CambiosCitasDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Token o límite inválidos"),
+            @ApiResponse(responseCode = "401", description = "No autorizado")
+    })
+    public ResponseEntity<CambiosCitasDTO> obtenerCambios(
+            @Parameter(description = "Token devuelto por la sincronización anterior; 0 para la primera", required = true, example = "0") @RequestParam Long desde,
+
+            @Parameter(description = "Máximo de cambios a devolver (opcional, máximo 1000)", example = "500") @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(sincronizacionCitasService.obtenerCambios(desde, limite));
+    }
+
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Suscribirse a la agenda en vivo (Server-Sent Events)", description = "Mantiene la conexión abierta y envía un evento 'cita' (JSON con tipo CREADA, EDITADA o CANCELADA) cada vez que se confirma un cambio que afecta al consultorio, médico y/o fecha indicados; sin filtros se reciben todos. Si el cliente no consume a tiempo, el servidor cierra la conexión: al reconectar debe ponerse al día con /api/citas/cambios.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Flujo de eventos", content = @Content(mediaType = "text/event-stream")),
+            @ApiResponse(responseCode = "401", description = "No autorizado"),
+            @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de suscriptores")
+    })
+    public SseEmitter suscribirAgenda(
+            @Parameter(description = "ID del consultorio para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "ID del médico para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer medicoId,
+
+            @Parameter(description = "Fecha de las citas para filtrar (formato YYYY-MM-DD, opcional)", example = "2024-12-31") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return agendaEnVivoService.suscribir(consultorioId, medicoId, fecha);
+    }
+
+    @GetMapping(value = "/rango", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Consultar citas por rango de fechas", description = "Lista las citas entre dos fechas (ambas incluidas) ordenadas por horario, en páginas. Para pedir la página siguiente se envía el cursor devuelto por la anterior.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de citas", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CitaPaginaDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Rango, límite o cursor inválidos"),
+            @ApiResponse(responseCode = "401", description = "No autorizado")
+    })
+    public ResponseEntity<CitaPaginaDTO> consultarCitasPorRango(
+            @Parameter(description = "Fecha inicial (formato YYYY-MM-DD)", required = true, example = "2024-12-01") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+
+            @Parameter(description = "Fecha final, incluida (formato YYYY-MM-DD)", required = true, example = "2024-12-31") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+
+            @Parameter(description = "ID del consultorio para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "ID del médico para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer medicoId,
+
+            @Parameter(description = "Cursor devuelto por la página anterior (opcional)") @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Tamaño de página (opcional, máximo 500)", example = "50") @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(citaService.consultarCitasPorRango(desde, hasta, consultorioId, medicoId, cursor, limite));
+    }
+
+    @GetMapping(value = "/rango", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Exportar citas por rango de fechas (NDJSON)", description = "Con Accept: application/x-ndjson escribe una cita por línea a medida que se leen de la base de datos, sin paginar.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Citas en formato NDJSON", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = CitaResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Rango de fechas inválido"),
+            @ApiResponse(responseCode = "401", description = "No autorizado")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarCitasPorRango(
+            @Parameter(description = "Fecha inicial (formato YYYY-MM-DD)", required = true, example = "2024-12-01") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+
+            @Parameter(description = "Fecha final, incluida (formato YYYY-MM-DD)", required = true, example = "2024-12-31") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+
+            @Parameter(description = "ID del consultorio para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "ID del médico para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer medicoId) {
+        // Validar antes de empezar a escribir; después ya no se puede responder 400
+        citaService.validarRangoFechas(desde, hasta);
+        StreamingResponseBody cuerpo = salida -> citaService.recorrerCitasPorRango(desde, hasta, consultorioId,
+                medicoId, cita -> escribirLinea(salida, cita));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
+    }
+
+    @GetMapping(value = "/exportacion", produces = "text/csv")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Exportar citas por rango de fechas (CSV)", description = "Descarga las citas entre dos fechas (ambas incluidas) ordenadas por horario, como CSV en UTF-8 que Excel abre directamente. Las filas se escriben a medida que se leen de la base de datos, así que el rango puede abarcar meses.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archivo CSV con una cita por fila", content = @Content(mediaType = "text/csv")),
+            @ApiResponse(responseCode = "400", description = "Rango de fechas o separador inválidos"),
+            @ApiResponse(responseCode = "401", description = "No autorizado")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarCitasCsv(
+            @Parameter(description = "Fecha inicial (formato YYYY-MM-DD)", required = true, example = "2024-12-01") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+
+            @Parameter(description = "Fecha final, incluida (formato YYYY-MM-DD)", required = true, example = "2024-12-31") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+
+            @Parameter(description = "ID del consultorio para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "ID del médico para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer medicoId,
+
+            @Parameter(description = "Separador de campos: ',' (por defecto) o ';' para Excel con configuración regional en español", example = ";") @RequestParam(defaultValue = ",") String separador) {
+        // Validar antes de empezar a escribir; después ya no se puede responder 400
+        citaService.validarRangoFechas(desde, hasta);
+        if (!",".equals(separador) && !";".equals(separador)) {
+            throw new BusinessRuleException("El separador debe ser ',' o ';'.");
+        }
+        StreamingResponseBody cuerpo = salida -> {
+            EscritorCitasCsv csv = new EscritorCitasCsv(salida, separador.charAt(0));
+            csv.escribirEncabezado();
+            citaService.recorrerCitasPorRango(desde, hasta, consultorioId, medicoId, csv::escribir);
+            csv.flush();
+        };
+        String archivo = "citas_" + desde + "_" + hasta + ".csv";
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(archivo).build()
+                        .toString())
+                .body(cuerpo);
+    }
+
+    private void escribirLinea(OutputStream salida, Object valor) {
+        try {
+            salida.write(objectMapper.writeValueAsBytes(valor));
+            salida.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Cada bloque de la importación se envía en cuanto termina, para informar el progreso
+    private static void vaciar(OutputStream salida) {
+        try {
+            salida.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @GetMapping("/historial")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Consultar el historial de citas", description = "Lista, en páginas y ordenadas por horario, las citas archivadas entre dos fechas (ambas incluidas): las atendidas y las canceladas cuyo horario es anterior al horizonte de archivo. Las más recientes se consultan en /api/citas/rango. Para pedir la página siguiente se envía el cursor devuelto por la anterior.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página del historial", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CitaHistorialPaginaDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Rango, límite o cursor inválidos"),
+            @ApiResponse(responseCode = "401", description = "No autorizado")
+    })
+    public ResponseEntity<CitaHistorialPaginaDTO> consultarHistorial(
+            @Parameter(description = "Fecha inicial (formato YYYY-MM-DD)", required = true, example = "2023-01-01") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+
+            @Parameter(description = "Fecha final, incluida (formato YYYY-MM-DD)", required = true, example = "2023-12-31") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+
+            @Parameter(description = "ID del consultorio para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer consultorioId,
+
+            @Parameter(description = "ID del médico para filtrar (opcional)", example = "1") @RequestParam(required = false) Integer medicoId,
+
+            @Parameter(description = "Cursor devuelto por la página anterior (opcional)") @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Tamaño de página (opcional, máximo 500)", example = "50") @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(historialCitasService.consultarHistorial(desde, hasta, consultorioId, medicoId, cursor,
+                limite));
+    }
+
     @PutMapping("/{idCita}")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     @Operation(summary = "Editar una cita existente", description = "Actualiza los datos de una cita existente, respetando las reglas de negocio.")
@@ -73,7 +336,8 @@ public class CitaController {
             @ApiResponse(responseCode = "200", description = "Cita actualizada exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CitaResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos o violación de regla de negocio"),
             @ApiResponse(responseCode = "401", description = "No autorizado"),
-            @ApiResponse(responseCode = "404", description = "Cita, Médico o Consultorio no encontrado")
+            @ApiResponse(responseCode = "404", description = "Cita, Médico o Consultorio no encontrado"),
+            @ApiResponse(responseCode = "409", description = "La cita fue modificada por otro usuario (versión desactualizada o mismos campos)")
     })
     public ResponseEntity<CitaResponseDTO> editarCita(
             @Parameter(description = "ID de la cita a editar", required = true, example = "1") @PathVariable("idCita") Integer idCita,
@@ -85,7 +349,7 @@ public class CitaController {
 
     @DeleteMapping("/{idCita}")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')") // O podría ser solo ADMIN si se decide
-    @Operation(summary = "Cancelar una cita pendiente", description = "Elimina una cita que aún no ha ocurrido.")
+    @Operation(summary = "Cancelar una cita pendiente", description = "Cancela una cita que aún no ha ocurrido y libera su horario. La cita pasa al historial cuando se archiva.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Cita cancelada exitosamente (Sin contenido)"),
             @ApiResponse(responseCode = "400", description = "No se puede cancelar una cita que ya pasó"),
@@ -1,14 +1,20 @@
 package com.medical.center.leo.controller;
 
+import com.medical.center.leo.dto.DisponibilidadMesDTO;
+import com.medical.center.leo.dto.DoctorPaginaDTO;
 import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.service.DisponibilidadService;
 import com.medical.center.leo.service.DoctorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/api/doctores")
@@ -16,9 +22,11 @@ import java.util.List;
 public class DoctorController {
 
     private final DoctorService doctorService; // Inyectar
+    private final DisponibilidadService disponibilidadService;
 
-    public DoctorController(DoctorService doctorService) {
+    public DoctorController(DoctorService doctorService, DisponibilidadService disponibilidadService) {
         this.doctorService = doctorService;
+        this.disponibilidadService = disponibilidadService;
     }
 
     @PostMapping
@@ -28,9 +36,22 @@ public class DoctorController {
     }
 
     @GetMapping
-    @Operation(summary = "Listar todos los doctores")
-    public ResponseEntity<List<Doctor>> listarDoctores() {
-        return ResponseEntity.ok(doctorService.listarDoctores());
+    @Operation(summary = "Listar doctores por páginas", description = "Ordenado por apellido paterno y filtrable por especialidad y por el inicio del apellido paterno. Para la página siguiente se envía el siguienteCursor de la respuesta. El ETag cambia con cada alta, edición o baja de doctores: con If-None-Match y la lista sin cambios responde 304 sin consultar la base de datos.")
+    public ResponseEntity<DoctorPaginaDTO> listarDoctores(
+            @RequestParam(required = false) String especialidad,
+            @RequestParam(required = false) String apellido,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
+        // La versión se lee antes de consultar para que el ETag nunca sea más nuevo que los datos
+        String etag = "\"doctores-" + doctorService.versionListado() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(doctorService.listarDoctores(especialidad, apellido, cursor, limite));
     }
 
     @PutMapping("/{id}")
@@ -39,6 +60,13 @@ public class DoctorController {
         return ResponseEntity.ok(doctorService.actualizarDoctor(id, doctor));
     }
 
+    @GetMapping("/{id}/disponibilidad")
+    @Operation(summary = "Calendario mensual de disponibilidad de un doctor", description = "Citas agendadas por día del mes frente al límite diario, con estado LIBRE, OCUPADO o COMPLETO. Parámetro mes con formato YYYY-MM.")
+    public ResponseEntity<DisponibilidadMesDTO> obtenerDisponibilidad(@PathVariable Integer id,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes) {
+        return ResponseEntity.ok(disponibilidadService.obtenerDisponibilidadMensual(id, mes));
+    }
+
     // Eliminar Doctores (considerando el impacto en Citas existentes)
     // @DeleteMapping("/{id}")
     // public ResponseEntity<Void> eliminarDoctor(@PathVariable Integer id) {
@@ -1,14 +1,19 @@
 package com.medical.center.leo.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
 import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.exception.ConflictoConcurrenciaException;
 import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.exception.ServicioSaturadoException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +36,34 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ConflictoConcurrenciaException.class)
+    public ResponseEntity<?> handleConflictoConcurrenciaException(ConflictoConcurrenciaException ex,
+            WebRequest request) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    // Bloqueo optimista fallido fuera de la edición con reintentos (por ejemplo, al cancelar)
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex,
+            WebRequest request) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", "El registro fue modificado por otro usuario; recárguelo e intente de nuevo.");
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    // Tipo de contenido fijo: la petición puede aceptar solo text/event-stream
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<?> handleServicioSaturadoException(ServicioSaturadoException ex, WebRequest request) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,24 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDateTime;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Cambio de agenda enviado a los suscriptores de GET /api/citas/eventos. Los campos
+ * "anterior" solo vienen en las ediciones; en una cancelación el consultorio, el médico y el
+ * horario son los que tenía la cita.
+ */
+public record AgendaEventoDTO(
+                Tipo tipo,
+                Integer idCita,
+                Integer consultorioId,
+                Integer medicoId,
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsulta,
+                Integer consultorioIdAnterior,
+                Integer medicoIdAnterior,
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsultaAnterior) {
+
+        public enum Tipo {
+                CREADA, EDITADA, CANCELADA
+        }
+}
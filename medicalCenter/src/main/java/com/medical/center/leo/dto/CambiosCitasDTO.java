@@ -0,0 +1,16 @@
+package com.medical.center.leo.dto;
+
+import java.util.List;
+
+/**
+ * Cambios de citas posteriores a un token de versión. El cliente aplica {@code actualizadas}
+ * (altas y ediciones, con el estado actual de la cita) y elimina las {@code canceladas} de
+ * su copia local; después pide los siguientes cambios con {@code desde = version}.
+ * Si {@code hayMas} es true, hay más cambios y conviene pedirlos de inmediato.
+ */
+public record CambiosCitasDTO(
+                Long version,
+                boolean hayMas,
+                List<CitaResponseDTO> actualizadas,
+                List<Integer> canceladas) {
+}
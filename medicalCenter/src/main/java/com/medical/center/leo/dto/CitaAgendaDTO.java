@@ -0,0 +1,20 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita de la agenda en memoria con los IDs de consultorio y médico por los que se agrupa.
+ * El constructor plano lo usa la proyección JPQL de CitaRepository.findAgendaEnRango.
+ */
+public record CitaAgendaDTO(
+                Integer consultorioId,
+                Integer medicoId,
+                CitaResponseDTO cita) {
+
+        public CitaAgendaDTO(Integer consultorioId, Integer medicoId, Integer idCita, Integer consultorioNumero,
+                        Integer consultorioPiso, String medicoNombreCompleto, String medicoEspecialidad,
+                        LocalDateTime horarioConsulta, String nombrePaciente, Long version) {
+                this(consultorioId, medicoId, new CitaResponseDTO(idCita, consultorioNumero, consultorioPiso,
+                                medicoNombreCompleto, medicoEspecialidad, horarioConsulta, nombrePaciente, version));
+        }
+}
@@ -0,0 +1,19 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita creada o editada junto con la versión de cambio con la que se guardó. El
+ * constructor plano lo usa la proyección JPQL de CitaRepository.findCambiosEntre.
+ */
+public record CitaCambioDTO(
+                Long versionCambio,
+                CitaResponseDTO cita) {
+
+        public CitaCambioDTO(Long versionCambio, Integer idCita, Integer consultorioNumero, Integer consultorioPiso,
+                        String medicoNombreCompleto, String medicoEspecialidad, LocalDateTime horarioConsulta,
+                        String nombrePaciente, Long version) {
+                this(versionCambio, new CitaResponseDTO(idCita, consultorioNumero, consultorioPiso,
+                                medicoNombreCompleto, medicoEspecialidad, horarioConsulta, nombrePaciente, version));
+        }
+}
@@ -0,0 +1,22 @@
+package com.medical.center.leo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.medical.center.leo.entity.Cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita del historial (CitasArchivadas), con el médico y el consultorio que tenía al
+ * archivarse.
+ */
+public record CitaHistorialDTO(
+                Integer idCita,
+                Integer consultorioNumero,
+                Integer consultorioPiso,
+                String medicoNombreCompleto,
+                String medicoEspecialidad,
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsulta,
+                String nombrePaciente,
+                Cita.Estado estado,
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime fechaCancelacion) {
+}
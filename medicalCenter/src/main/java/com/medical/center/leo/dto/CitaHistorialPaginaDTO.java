@@ -0,0 +1,12 @@
+package com.medical.center.leo.dto;
+
+import java.util.List;
+
+/**
+ * Una página del historial de citas. Como en {@link CitaPaginaDTO}, {@code siguienteCursor}
+ * es opaco y es null cuando no hay más resultados.
+ */
+public record CitaHistorialPaginaDTO(
+                List<CitaHistorialDTO> citas,
+                String siguienteCursor) {
+}
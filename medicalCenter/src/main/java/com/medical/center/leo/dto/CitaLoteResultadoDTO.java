@@ -0,0 +1,12 @@
+package com.medical.center.leo.dto;
+
+/**
+ * Resultado de un elemento de POST /api/citas/batch.
+ * Si la cita se creó, {@code cita} trae sus datos; si no, {@code error} explica el motivo.
+ */
+public record CitaLoteResultadoDTO(
+                int indice,
+                boolean creada,
+                CitaResponseDTO cita,
+                String error) {
+}
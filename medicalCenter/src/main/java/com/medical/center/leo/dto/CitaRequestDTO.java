@@ -15,5 +15,13 @@ public record CitaRequestDTO(
 
                 @NotNull(message = "Horario de consulta no puede ser nulo") @Future(message = "La fecha de la cita debe ser en el futuro") @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsulta,
 
-                @NotBlank(message = "Nombre del paciente no puede ser nulo") @Size(max = 100, message = "Nombre del paciente no debe exceder los 100 caracteres") String nombrePaciente) {
-}
\ No newline at end of file
+                @NotBlank(message = "Nombre del paciente no puede ser nulo") @Size(max = 100, message = "Nombre del paciente no debe exceder los 100 caracteres") String nombrePaciente,
+
+                // Opcional al editar: versión de la cita que leyó el cliente; si ya cambió, se responde 409
+                Long version) {
+
+        public CitaRequestDTO(Integer consultorioId, Integer medicoId, LocalDateTime horarioConsulta,
+                        String nombrePaciente) {
+                this(consultorioId, medicoId, horarioConsulta, nombrePaciente, null);
+        }
+}
@@ -10,5 +10,14 @@ public record CitaResponseDTO(
                 String medicoNombreCompleto,
                 String medicoEspecialidad,
                 @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsulta,
-                String nombrePaciente) {
-}
\ No newline at end of file
+                String nombrePaciente,
+                // Versión para el control de concurrencia optimista; se envía de vuelta al editar
+                Long version) {
+
+        public CitaResponseDTO(Integer idCita, Integer consultorioNumero, Integer consultorioPiso,
+                        String medicoNombreCompleto, String medicoEspecialidad, LocalDateTime horarioConsulta,
+                        String nombrePaciente) {
+                this(idCita, consultorioNumero, consultorioPiso, medicoNombreCompleto, medicoEspecialidad,
+                                horarioConsulta, nombrePaciente, null);
+        }
+}
@@ -0,0 +1,9 @@
+package com.medical.center.leo.dto;
+
+/**
+ * Número de citas de un médico en un día del mes, resultado de un GROUP BY sobre Citas.
+ */
+public record CitasPorDiaDTO(
+                Integer dia,
+                Long citas) {
+}
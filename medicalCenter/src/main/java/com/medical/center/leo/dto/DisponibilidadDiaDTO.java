@@ -0,0 +1,22 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Disponibilidad de un médico en un día: citas agendadas frente al límite diario de la regla 4.
+ */
+public record DisponibilidadDiaDTO(
+                LocalDate fecha,
+                int citasAgendadas,
+                int citasDisponibles,
+                Estado estado) {
+
+        public enum Estado {
+                // Sin citas
+                LIBRE,
+                // Con citas, pero por debajo del límite diario
+                OCUPADO,
+                // En el límite diario; no admite más citas
+                COMPLETO
+        }
+}
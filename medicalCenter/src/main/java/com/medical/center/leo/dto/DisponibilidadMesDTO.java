@@ -0,0 +1,16 @@
+package com.medical.center.leo.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Calendario mensual de disponibilidad de un médico, un elemento por cada día del mes.
+ */
+public record DisponibilidadMesDTO(
+                Integer medicoId,
+                @JsonFormat(pattern = "yyyy-MM") YearMonth mes,
+                int limiteDiario,
+                List<DisponibilidadDiaDTO> dias) {
+}
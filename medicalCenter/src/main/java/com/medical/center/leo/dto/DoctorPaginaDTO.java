@@ -0,0 +1,12 @@
+package com.medical.center.leo.dto;
+
+import java.util.List;
+
+/**
+ * Una página del listado de doctores. {@code siguienteCursor} es opaco y se envía tal cual
+ * para pedir la página siguiente; es null cuando no hay más resultados.
+ */
+public record DoctorPaginaDTO(
+                List<DoctorResumenDTO> doctores,
+                String siguienteCursor) {
+}
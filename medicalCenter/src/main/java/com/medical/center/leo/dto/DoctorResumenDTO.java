@@ -0,0 +1,12 @@
+package com.medical.center.leo.dto;
+
+/**
+ * Doctor del listado, proyectado directamente desde la consulta (sin entidades gestionadas).
+ */
+public record DoctorResumenDTO(
+                Integer idMedico,
+                String nombre,
+                String apellidoPaterno,
+                String apellidoMaterno,
+                String especialidad) {
+}
@@ -0,0 +1,22 @@
+package com.medical.center.leo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de cambio de cita entregado a los sistemas externos (facturación, recordatorios,
+ * almacén de datos). La entrega es al menos una vez: un evento puede repetirse tras un fallo,
+ * y los consumidores descartan los repetidos por {@code idEvento}, que también da el orden.
+ *
+ * @param datos JSON con el cambio ({@code cambio}, como en la agenda en vivo) y el estado de la
+ *              cita después del cambio ({@code cita}, null si se canceló)
+ */
+public record EventoCitaDTO(
+                Long idEvento,
+                AgendaEventoDTO.Tipo tipo,
+                Integer idCita,
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime fechaRegistro,
+                @JsonRawValue String datos) {
+}
@@ -0,0 +1,18 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDateTime;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Horario libre en el que se puede agendar una cita con el médico y el consultorio indicados
+ * sin violar ninguna de las reglas de negocio.
+ */
+public record HorarioDisponibleDTO(
+                @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime horarioConsulta,
+                Integer medicoId,
+                String medicoNombreCompleto,
+                String medicoEspecialidad,
+                Integer consultorioId,
+                Integer consultorioNumero,
+                Integer consultorioPiso) {
+}
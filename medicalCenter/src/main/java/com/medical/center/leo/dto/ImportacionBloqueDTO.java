@@ -0,0 +1,26 @@
+package com.medical.center.leo.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de un bloque de POST /api/citas/importacion. Cada bloque se confirma por
+ * separado: si la importación se interrumpe, las filas hasta {@code ultimaLinea} del último
+ * bloque recibido ya están procesadas. Los totales son acumulados, así que el último bloque
+ * resume toda la importación.
+ */
+public record ImportacionBloqueDTO(
+                int bloque,
+                long primeraLinea,
+                long ultimaLinea,
+                int importadas,
+                int rechazadas,
+                long totalImportadas,
+                long totalRechazadas,
+                List<ErrorFila> errores) {
+
+        /**
+         * Fila rechazada, con su número de línea en el archivo (el encabezado es la línea 1).
+         */
+        public record ErrorFila(long linea, String error) {
+        }
+}
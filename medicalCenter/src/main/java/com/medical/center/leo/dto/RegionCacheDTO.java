@@ -0,0 +1,14 @@
+package com.medical.center.leo.dto;
+
+/**
+ * Estadísticas de una región de la cache de segundo nivel de Hibernate,
+ * acumuladas desde el arranque de la aplicación.
+ */
+public record RegionCacheDTO(
+                String region,
+                long aciertos,
+                long fallos,
+                long escrituras,
+                long elementosEnMemoria,
+                double tasaAciertos) {
+}
@@ -0,0 +1,14 @@
+package com.medical.center.leo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección mínima de una cita usada por el índice de ocupación:
+ * solo los datos necesarios para las reglas de consultorio, médico y límite diario.
+ */
+public record SlotOcupadoDTO(
+                Integer idCita,
+                Integer consultorioId,
+                Integer medicoId,
+                LocalDateTime horarioConsulta) {
+}
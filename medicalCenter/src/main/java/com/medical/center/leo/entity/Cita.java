@@ -4,16 +4,32 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Citas")
+// Un consultorio y un médico solo pueden tener una cita activa por horario (reglas 1 y 2).
+// La base de datos las garantiza aunque dos altas concurrentes pasen la validación previa.
+// id_cancelacion forma parte de ambas: vale 0 en todas las citas activas y el id_cita en las
+// canceladas, así que una cancelada no bloquea su horario ni choca con otras canceladas
+@Table(name = "Citas", uniqueConstraints = {
+        @UniqueConstraint(name = Cita.UQ_CONSULTORIO_HORARIO,
+                columnNames = { "consultorio_id", "horario_consulta", "id_cancelacion" }),
+        @UniqueConstraint(name = Cita.UQ_MEDICO_HORARIO,
+                columnNames = { "medico_id", "horario_consulta", "id_cancelacion" })
+})
+// Las canceladas siguen en la tabla hasta que ArchivadorCitas las mueve a CitasArchivadas,
+// pero ninguna consulta JPQL ni carga por id las ve
+@SQLRestriction("estado = 'ACTIVA'")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cita {
 
+    public static final String UQ_CONSULTORIO_HORARIO = "UQ_Cita_Consultorio_Horario";
+    public static final String UQ_MEDICO_HORARIO = "UQ_Cita_Medico_Horario";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_cita")
@@ -31,8 +47,61 @@ public class Cita {
     private LocalDateTime horario_consulta; // Horario de la cita
 
     @Column(name = "nombre_paciente", nullable = false, length = 100)
-    private String nombre_paciente; // Nombre del paciente
+    private String nombre_paciente; // Nombre del paciente, tal como se escribió en esta cita
+
+    // Paciente normalizado para la regla 3. Nullable en el mapeo como version_cambio: la
+    // migración lo rellena en las citas anteriores a Pacientes
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "paciente_id")
+    private Paciente paciente;
+
+    // Control de concurrencia optimista: cada UPDATE comprueba e incrementa la versión
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Versión de cambio para la sincronización incremental (GET /api/citas/cambios).
+    // La asigna CitaService en cada alta o edición con RelojCambiosCita
+    @Column(name = "version_cambio")
+    private Long version_cambio;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 10)
+    private Estado estado = Estado.ACTIVA;
+
+    @Column(name = "fecha_cancelacion")
+    private LocalDateTime fecha_cancelacion;
+
+    @Column(name = "id_cancelacion", nullable = false)
+    private Integer id_cancelacion = 0;
+
+    public enum Estado {
+        ACTIVA, CANCELADA
+    }
+
+    public Cita(Integer id_cita, Consultorio consultorio, Doctor doctor,
+            LocalDateTime horario_consulta, String nombre_paciente) {
+        this(id_cita, consultorio, doctor, horario_consulta, nombre_paciente, null, null, null);
+    }
+
+    public Cita(Integer id_cita, Consultorio consultorio, Doctor doctor,
+            LocalDateTime horario_consulta, String nombre_paciente, Paciente paciente, Long version,
+            Long version_cambio) {
+        this(id_cita, consultorio, doctor, horario_consulta, nombre_paciente, paciente, version, version_cambio,
+                Estado.ACTIVA, null, 0);
+    }
+
+    public Cita(Integer id_cita, Consultorio consultorio, Doctor doctor,
+            LocalDateTime horario_consulta, String nombre_paciente, Long version) {
+        this(id_cita, consultorio, doctor, horario_consulta, nombre_paciente, null, version, null);
+    }
 
-    // public Cita(Integer id_cita, Consultorio consultorio, Doctor doctor,
-    // LocalDateTime horario_consulta, String nombre_paciente)
+    /**
+     * Marca la cita como cancelada y libera su horario (ver id_cancelacion).
+     */
+    public void cancelar(LocalDateTime fecha) {
+        this.estado = Estado.CANCELADA;
+        this.fecha_cancelacion = fecha;
+        this.id_cancelacion = id_cita;
+    }
 }
\ No newline at end of file
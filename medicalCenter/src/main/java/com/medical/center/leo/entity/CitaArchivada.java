@@ -0,0 +1,66 @@
+package com.medical.center.leo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita pasada o cancelada que ArchivadorCitas sacó de Citas. Guarda una copia del médico y
+ * del consultorio tal como eran al archivarla, sin claves foráneas: el historial se sigue
+ * leyendo aunque después se edite o elimine el médico.
+ */
+@Entity
+@Table(name = "CitasArchivadas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitaArchivada {
+
+    @Id
+    @Column(name = "id_cita")
+    private Integer id_cita; // Mismo id que tenía la cita
+
+    @Column(name = "consultorio_id", nullable = false)
+    private Integer consultorio_id;
+
+    @Column(name = "numero_consultorio", nullable = false)
+    private Integer numero_consultorio;
+
+    @Column(name = "piso", nullable = false)
+    private Integer piso;
+
+    @Column(name = "medico_id", nullable = false)
+    private Integer medico_id;
+
+    @Column(name = "medico_nombre_completo", nullable = false, length = 201)
+    private String medico_nombre_completo;
+
+    @Column(name = "medico_especialidad", nullable = false, length = 100)
+    private String medico_especialidad;
+
+    @Column(name = "paciente_id")
+    private Integer paciente_id;
+
+    @Column(name = "nombre_paciente", nullable = false, length = 100)
+    private String nombre_paciente;
+
+    @Column(name = "horario_consulta", nullable = false)
+    private LocalDateTime horario_consulta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 10)
+    private Cita.Estado estado;
+
+    @Column(name = "fecha_cancelacion")
+    private LocalDateTime fecha_cancelacion;
+
+    // Última versión de cambio de la cita; RelojCambiosCita la tiene en cuenta al arrancar
+    @Column(name = "version_cambio")
+    private Long version_cambio;
+
+    @Column(name = "fecha_archivo", nullable = false)
+    private LocalDateTime fecha_archivo;
+}
@@ -0,0 +1,40 @@
+package com.medical.center.leo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lápida de una cita cancelada, para que GET /api/citas/cambios pueda informar la baja a
+ * los clientes que sincronizan de forma incremental.
+ */
+@Entity
+@Table(name = "CitasCanceladas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitaCancelada {
+
+    @Id
+    @Column(name = "id_cita")
+    private Integer id_cita; // Mismo id que tenía la cita
+
+    @Column(name = "consultorio_id", nullable = false)
+    private Integer consultorio_id;
+
+    @Column(name = "medico_id", nullable = false)
+    private Integer medico_id;
+
+    @Column(name = "horario_consulta", nullable = false)
+    private LocalDateTime horario_consulta;
+
+    // Versión de cambio asignada a la cancelación
+    @Column(name = "version_cambio", nullable = false)
+    private Long version_cambio;
+
+    @Column(name = "fecha_cancelacion", nullable = false)
+    private LocalDateTime fecha_cancelacion;
+}
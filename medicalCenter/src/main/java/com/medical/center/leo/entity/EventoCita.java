@@ -0,0 +1,45 @@
+package com.medical.center.leo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del buzón de salida (outbox) de cambios de citas. Se escribe en la misma
+ * transacción que el cambio (BuzonSalidaCitas) y la publica después DrenadorEventosCita,
+ * de modo que un cambio confirmado siempre llega a los sistemas externos y uno revertido
+ * nunca.
+ */
+@Entity
+@Table(name = "EventosCitas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoCita {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_evento")
+    private Long id_evento; // Orden de publicación
+
+    @Column(name = "id_cita", nullable = false)
+    private Integer id_cita;
+
+    // CREADA, EDITADA o CANCELADA
+    @Column(name = "tipo", nullable = false, length = 10)
+    private String tipo;
+
+    // Cambio y estado de la cita en JSON, tal como se publica
+    @Column(name = "datos", nullable = false, length = 4000)
+    private String datos;
+
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fecha_registro;
+
+    // Null mientras está pendiente de publicar
+    @Column(name = "fecha_publicacion")
+    private LocalDateTime fecha_publicacion;
+}
@@ -0,0 +1,72 @@
+package com.medical.center.leo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Paciente identificado por su nombre normalizado. "Juan Perez", "juan  pérez" y
+ * "JUAN PÉREZ" son el mismo paciente: la clave de búsqueda es el SHA-256 del nombre sin
+ * acentos, en minúsculas y con los espacios colapsados, de ancho fijo (32 bytes) para que
+ * el índice único sea estrecho sin importar la longitud del nombre.
+ */
+@Entity
+@Table(name = "Pacientes", uniqueConstraints = {
+        @UniqueConstraint(name = Paciente.UQ_CLAVE_BUSQUEDA, columnNames = { "clave_busqueda" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Paciente {
+
+    public static final String UQ_CLAVE_BUSQUEDA = "UQ_Paciente_ClaveBusqueda";
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_paciente")
+    private Integer id_paciente;
+
+    // Nombre tal como se escribió la primera vez
+    @Column(name = "nombre", nullable = false, length = 100)
+    private String nombre;
+
+    @Column(name = "clave_busqueda", nullable = false, length = 32)
+    private byte[] clave_busqueda;
+
+    public Paciente(String nombre) {
+        this(null, nombre, claveBusqueda(nombre));
+    }
+
+    /**
+     * Nombre sin acentos, en minúsculas y con un solo espacio entre palabras.
+     */
+    public static String normalizar(String nombre) {
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD))
+                .replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * SHA-256 del nombre normalizado. La migración de pacientes existentes
+     * (db.migration.V7__pacientes_de_citas) la calcula con su propia copia; cualquier cambio
+     * aquí exige una migración nueva que vuelva a calcular la clave de todos los pacientes.
+     */
+    public static byte[] claveBusqueda(String nombre) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(normalizar(nombre).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+}
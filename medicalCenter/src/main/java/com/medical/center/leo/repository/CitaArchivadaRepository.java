@@ -0,0 +1,38 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.dto.CitaHistorialDTO;
+import com.medical.center.leo.entity.CitaArchivada;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CitaArchivadaRepository extends JpaRepository<CitaArchivada, Integer> {
+
+        // Paginación keyset sobre (horario_consulta, id_cita), como CitaRepository.findPaginaEnRango
+        @Query("SELECT new com.medical.center.leo.dto.CitaHistorialDTO(a.id_cita, a.numero_consultorio, a.piso, " +
+                        "a.medico_nombre_completo, a.medico_especialidad, a.horario_consulta, a.nombre_paciente, " +
+                        "a.estado, a.fecha_cancelacion) " +
+                        "FROM CitaArchivada a " +
+                        "WHERE a.horario_consulta >= :desde AND a.horario_consulta < :hasta " +
+                        "AND (:consultorioId IS NULL OR a.consultorio_id = :consultorioId) " +
+                        "AND (:medicoId IS NULL OR a.medico_id = :medicoId) " +
+                        "AND (a.horario_consulta > :despuesDeHorario " +
+                        "OR (a.horario_consulta = :despuesDeHorario AND a.id_cita > :despuesDeId)) " +
+                        "ORDER BY a.horario_consulta, a.id_cita")
+        List<CitaHistorialDTO> findPaginaEnRango(@Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta,
+                        @Param("consultorioId") Integer consultorioId,
+                        @Param("medicoId") Integer medicoId,
+                        @Param("despuesDeHorario") LocalDateTime despuesDeHorario,
+                        @Param("despuesDeId") Integer despuesDeId,
+                        Pageable pagina);
+
+        @Query("SELECT MAX(a.version_cambio) FROM CitaArchivada a")
+        Long findUltimaVersionCambio();
+}
@@ -0,0 +1,23 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.CitaCancelada;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CitaCanceladaRepository extends JpaRepository<CitaCancelada, Integer> {
+
+        // Cancelaciones con versión en (desde, hasta], en orden de versión
+        @Query("SELECT c FROM CitaCancelada c WHERE c.version_cambio > :desde AND c.version_cambio <= :hasta " +
+                        "ORDER BY c.version_cambio")
+        List<CitaCancelada> findCambiosEntre(@Param("desde") long desde, @Param("hasta") long hasta,
+                        Pageable pagina);
+
+        @Query("SELECT MAX(c.version_cambio) FROM CitaCancelada c")
+        Long findUltimaVersionCambio();
+}
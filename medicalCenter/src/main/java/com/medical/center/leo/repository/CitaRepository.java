@@ -1,16 +1,35 @@
 package com.medical.center.leo.repository;
 
+import com.medical.center.leo.dto.CitaAgendaDTO;
+import com.medical.center.leo.dto.CitaCambioDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.CitasPorDiaDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
 import com.medical.center.leo.entity.Cita;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CitaRepository extends JpaRepository<Cita, Integer> {
+public interface CitaRepository extends JpaRepository<Cita, Integer>, CitaRepositoryMasivo {
+
+        // Proyección directa a CitaResponseDTO: una sola sentencia con los JOIN a Doctor y
+        // Consultorio, sin cargar entidades ni disparar cargas perezosas por fila
+        String SELECT_CITA_RESPONSE = "SELECT new com.medical.center.leo.dto.CitaResponseDTO(c.id_cita, " +
+                        "co.numero_consultorio, co.piso, CONCAT(d.nombre, ' ', d.apellido_paterno), " +
+                        "d.especialidad, c.horario_consulta, c.nombre_paciente, c.version) " +
+                        "FROM Cita c JOIN c.consultorio co JOIN c.doctor d ";
 
         // --- Métodos para validaciones de reglas de negocio ---
 
@@ -26,45 +45,103 @@ public interface CitaRepository extends JpaRepository<Cita, Integer> {
         boolean existsByMedicoIdAndHorarioConsulta(@Param("medicoId") Integer medicoId,
                         @Param("horarioConsulta") LocalDateTime horarioConsulta);
 
-        // Regla 3: Paciente con citas cercanas el mismo día (esta query ya está bien)
-        @Query("SELECT c FROM Cita c WHERE c.nombre_paciente = :nombrePaciente " +
-                        "AND FUNCTION('CONVERT', DATE, c.horario_consulta) = FUNCTION('CONVERT', DATE, :horarioReferencia) "
-                        +
-                        "AND c.horario_consulta >= :limiteInferior AND c.horario_consulta < :limiteSuperior")
-        List<Cita> findCitasPacienteEnRangoHorario(
-                        @Param("nombrePaciente") String nombrePaciente,
-                        @Param("horarioReferencia") LocalDateTime horarioReferencia,
-                        @Param("limiteInferior") LocalDateTime limiteInferior,
-                        @Param("limiteSuperior") LocalDateTime limiteSuperior);
-
-        // Regla 4: Límite de citas para un médico en un día
+        // Regla 3: Paciente con citas cercanas el mismo día. El "mismo día" se resuelve
+        // recortando el rango a [inicio del día, inicio del día siguiente) en lugar de aplicar
+        // una función sobre la columna, para que la consulta sea una búsqueda por rango sobre
+        // el índice (paciente_id, horario_consulta)
+        default List<Cita> findCitasPacienteEnRangoHorario(Integer pacienteId, LocalDateTime horarioReferencia,
+                        LocalDateTime limiteInferior, LocalDateTime limiteSuperior) {
+                LocalDateTime inicioDia = horarioReferencia.toLocalDate().atStartOfDay();
+                LocalDateTime inicioDiaSiguiente = inicioDia.plusDays(1);
+                LocalDateTime desde = limiteInferior.isAfter(inicioDia) ? limiteInferior : inicioDia;
+                LocalDateTime hasta = limiteSuperior.isBefore(inicioDiaSiguiente) ? limiteSuperior
+                                : inicioDiaSiguiente;
+                if (!desde.isBefore(hasta)) {
+                        return List.of();
+                }
+                return findCitasPacienteEnRango(pacienteId, desde, hasta);
+        }
+
+        @Query("SELECT c FROM Cita c WHERE c.paciente.id_paciente = :pacienteId " +
+                        "AND c.horario_consulta >= :desde AND c.horario_consulta < :hasta")
+        List<Cita> findCitasPacienteEnRango(@Param("pacienteId") Integer pacienteId,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta);
+
+        // Regla 3 para lotes: citas de varios pacientes en el rango cubierto por el lote
+        @Query("SELECT c FROM Cita c WHERE c.paciente.id_paciente IN :pacienteIds " +
+                        "AND c.horario_consulta >= :desde AND c.horario_consulta <= :hasta")
+        List<Cita> findCitasPacientesEnRango(@Param("pacienteIds") Collection<Integer> pacienteIds,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta);
+
+        // Regla 4: Límite de citas para un médico en un día, como rango semiabierto
+        // [inicio del día, inicio del día siguiente) sobre el índice (medico_id, horario_consulta)
+        default long countByMedicoIdAndDia(Integer medicoId, LocalDateTime fecha) {
+                LocalDateTime inicioDia = fecha.toLocalDate().atStartOfDay();
+                return countByMedicoIdEnRango(medicoId, inicioDia, inicioDia.plusDays(1));
+        }
+
         @Query("SELECT COUNT(c) FROM Cita c WHERE c.doctor.id_medico = :medicoId " +
-                        "AND FUNCTION('CONVERT', DATE, c.horario_consulta) = FUNCTION('CONVERT', DATE, :fecha)")
-        long countByMedicoIdAndDia(@Param("medicoId") Integer medicoId, @Param("fecha") LocalDateTime fecha);
+                        "AND c.horario_consulta >= :desde AND c.horario_consulta < :hasta")
+        long countByMedicoIdEnRango(@Param("medicoId") Integer medicoId,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta);
+
+        // Índice de ocupación: slots ocupados en un rango sin cargar Doctor ni Consultorio
+        @Query("SELECT new com.medical.center.leo.dto.SlotOcupadoDTO(c.id_cita, c.consultorio.id_consultorio, " +
+                        "c.doctor.id_medico, c.horario_consulta) FROM Cita c " +
+                        "WHERE c.horario_consulta >= :inicio AND c.horario_consulta < :fin")
+        List<SlotOcupadoDTO> findSlotsOcupadosEnRango(@Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin);
+
+        // Búsqueda de horarios libres con un consultorio fijo: solo las citas de esos médicos
+        // (reglas 2 y 4) o de ese consultorio (regla 1) en el rango
+        @Query("SELECT new com.medical.center.leo.dto.SlotOcupadoDTO(c.id_cita, c.consultorio.id_consultorio, " +
+                        "c.doctor.id_medico, c.horario_consulta) FROM Cita c " +
+                        "WHERE c.horario_consulta >= :inicio AND c.horario_consulta < :fin " +
+                        "AND (c.doctor.id_medico IN :medicoIds OR c.consultorio.id_consultorio = :consultorioId)")
+        List<SlotOcupadoDTO> findSlotsOcupadosDeMedicosOConsultorioEnRango(@Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin, @Param("medicoIds") Collection<Integer> medicoIds,
+                        @Param("consultorioId") Integer consultorioId);
+
+        // Calendario mensual: citas del médico por día del mes en una sola agregación
+        @Query("SELECT new com.medical.center.leo.dto.CitasPorDiaDTO(EXTRACT(DAY FROM c.horario_consulta), COUNT(c)) " +
+                        "FROM Cita c WHERE c.doctor.id_medico = :medicoId " +
+                        "AND c.horario_consulta >= :inicio AND c.horario_consulta < :fin " +
+                        "GROUP BY EXTRACT(DAY FROM c.horario_consulta)")
+        List<CitasPorDiaDTO> countPorDiaDelMedicoEnRango(@Param("medicoId") Integer medicoId,
+                        @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
         // --- Métodos para consulta de citas ---
         // Para que se llame "findByHorarioConsultaBetween"
         // Spring Data JPA debería entender "HorarioConsulta" si el campo es
-        // horario_consulta
-
-        List<Cita> findByHorario_consultaBetween(LocalDateTime inicioDia, LocalDateTime finDia);
+        // horario_consulta. El guion bajo se interpreta como navegación de propiedades,
+        // por eso la consulta se declara explícitamente.
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.horario_consulta BETWEEN :inicioDia AND :finDia")
+        List<Cita> findByHorario_consultaBetween(@Param("inicioDia") LocalDateTime inicioDia,
+                        @Param("finDia") LocalDateTime finDia);
 
         // Para que se llame "findByHorarioConsultaBetweenAndMedicoId"
-        @Query("SELECT c FROM Cita c WHERE c.doctor.id_medico = :medicoId " +
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.doctor.id_medico = :medicoId " +
                         "AND c.horario_consulta BETWEEN :inicioDia AND :finDia")
         List<Cita> findByHorarioConsultaBetweenAndMedicoId(@Param("inicioDia") LocalDateTime inicioDia,
                         @Param("finDia") LocalDateTime finDia,
                         @Param("medicoId") Integer medicoId);
 
         // Para que se llame "findByHorarioConsultaBetweenAndConsultorioId"
-        @Query("SELECT c FROM Cita c WHERE c.consultorio.id_consultorio = :consultorioId " +
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.consultorio.id_consultorio = :consultorioId " +
                         "AND c.horario_consulta BETWEEN :inicioDia AND :finDia")
         List<Cita> findByHorarioConsultaBetweenAndConsultorioId(@Param("inicioDia") LocalDateTime inicioDia,
                         @Param("finDia") LocalDateTime finDia,
                         @Param("consultorioId") Integer consultorioId);
 
         // Para que se llame "findByHorarioConsultaBetweenAndConsultorioIdAndMedicoId"
-        @Query("SELECT c FROM Cita c WHERE c.consultorio.id_consultorio = :consultorioId AND c.doctor.id_medico = :medicoId "
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.consultorio.id_consultorio = :consultorioId AND c.doctor.id_medico = :medicoId "
                         +
                         "AND c.horario_consulta BETWEEN :inicioDia AND :finDia")
         List<Cita> findByHorarioConsultaBetweenAndConsultorioIdAndMedicoId(@Param("inicioDia") LocalDateTime inicioDia,
@@ -72,6 +149,105 @@ public interface CitaRepository extends JpaRepository<Cita, Integer> {
                         @Param("consultorioId") Integer consultorioId,
                         @Param("medicoId") Integer medicoId);
 
+        // --- Listado por rango de fechas, ordenado por (horario_consulta, id_cita) ---
+
+        // Paginación keyset: devuelve las citas posteriores a la última posición entregada
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.horario_consulta >= :desde AND c.horario_consulta < :hasta " +
+                        "AND (:consultorioId IS NULL OR c.consultorio.id_consultorio = :consultorioId) " +
+                        "AND (:medicoId IS NULL OR c.doctor.id_medico = :medicoId) " +
+                        "AND (c.horario_consulta > :despuesDeHorario " +
+                        "OR (c.horario_consulta = :despuesDeHorario AND c.id_cita > :despuesDeId)) " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<Cita> findPaginaEnRango(@Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta,
+                        @Param("consultorioId") Integer consultorioId,
+                        @Param("medicoId") Integer medicoId,
+                        @Param("despuesDeHorario") LocalDateTime despuesDeHorario,
+                        @Param("despuesDeId") Integer despuesDeId,
+                        Pageable pagina);
+
+        // Lectura secuencial para NDJSON: el llamador debe cerrar el Stream dentro de una transacción
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT c FROM Cita c JOIN FETCH c.doctor JOIN FETCH c.consultorio " +
+                        "WHERE c.horario_consulta >= :desde AND c.horario_consulta < :hasta " +
+                        "AND (:consultorioId IS NULL OR c.consultorio.id_consultorio = :consultorioId) " +
+                        "AND (:medicoId IS NULL OR c.doctor.id_medico = :medicoId) " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        Stream<Cita> streamEnRango(@Param("desde") LocalDateTime desde,
+                        @Param("hasta") LocalDateTime hasta,
+                        @Param("consultorioId") Integer consultorioId,
+                        @Param("medicoId") Integer medicoId);
+
+        // --- Consultas proyectadas a CitaResponseDTO ---
+        // Los listados por día usan el rango semiabierto [inicioDia, inicioDiaSiguiente):
+        // un límite superior como 23:59:59.999999999 se redondea en una columna DATETIME
+        // a la medianoche siguiente e incluiría citas del otro día
+
+        @Query(SELECT_CITA_RESPONSE + "WHERE c.id_cita = :idCita")
+        Optional<CitaResponseDTO> findResponseById(@Param("idCita") Integer idCita);
+
+        @Query(SELECT_CITA_RESPONSE +
+                        "WHERE c.horario_consulta >= :inicioDia AND c.horario_consulta < :inicioDiaSiguiente " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<CitaResponseDTO> findResponseDelDia(@Param("inicioDia") LocalDateTime inicioDia,
+                        @Param("inicioDiaSiguiente") LocalDateTime inicioDiaSiguiente);
+
+        @Query(SELECT_CITA_RESPONSE + "WHERE d.id_medico = :medicoId " +
+                        "AND c.horario_consulta >= :inicioDia AND c.horario_consulta < :inicioDiaSiguiente " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<CitaResponseDTO> findResponseDelDiaPorMedico(
+                        @Param("inicioDia") LocalDateTime inicioDia,
+                        @Param("inicioDiaSiguiente") LocalDateTime inicioDiaSiguiente,
+                        @Param("medicoId") Integer medicoId);
+
+        @Query(SELECT_CITA_RESPONSE + "WHERE co.id_consultorio = :consultorioId " +
+                        "AND c.horario_consulta >= :inicioDia AND c.horario_consulta < :inicioDiaSiguiente " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<CitaResponseDTO> findResponseDelDiaPorConsultorio(
+                        @Param("inicioDia") LocalDateTime inicioDia,
+                        @Param("inicioDiaSiguiente") LocalDateTime inicioDiaSiguiente,
+                        @Param("consultorioId") Integer consultorioId);
+
+        @Query(SELECT_CITA_RESPONSE + "WHERE co.id_consultorio = :consultorioId AND d.id_medico = :medicoId " +
+                        "AND c.horario_consulta >= :inicioDia AND c.horario_consulta < :inicioDiaSiguiente " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<CitaResponseDTO> findResponseDelDiaPorConsultorioYMedico(
+                        @Param("inicioDia") LocalDateTime inicioDia,
+                        @Param("inicioDiaSiguiente") LocalDateTime inicioDiaSiguiente,
+                        @Param("consultorioId") Integer consultorioId,
+                        @Param("medicoId") Integer medicoId);
+
+        // --- Agenda en memoria ---
+
+        // Citas de un rango con los IDs por los que AgendaInstantanea las agrupa
+        @Query("SELECT new com.medical.center.leo.dto.CitaAgendaDTO(co.id_consultorio, d.id_medico, c.id_cita, " +
+                        "co.numero_consultorio, co.piso, CONCAT(d.nombre, ' ', d.apellido_paterno), " +
+                        "d.especialidad, c.horario_consulta, c.nombre_paciente, c.version) " +
+                        "FROM Cita c JOIN c.consultorio co JOIN c.doctor d " +
+                        "WHERE c.horario_consulta >= :inicio AND c.horario_consulta < :fin " +
+                        "ORDER BY c.horario_consulta, c.id_cita")
+        List<CitaAgendaDTO> findAgendaEnRango(@Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin);
+
+        // --- Sincronización incremental ---
+
+        // Citas creadas o editadas con versión de cambio en (desde, hasta], en orden de versión
+        @Query("SELECT new com.medical.center.leo.dto.CitaCambioDTO(c.version_cambio, c.id_cita, " +
+                        "co.numero_consultorio, co.piso, CONCAT(d.nombre, ' ', d.apellido_paterno), " +
+                        "d.especialidad, c.horario_consulta, c.nombre_paciente, c.version) " +
+                        "FROM Cita c JOIN c.consultorio co JOIN c.doctor d " +
+                        "WHERE c.version_cambio > :desde AND c.version_cambio <= :hasta " +
+                        "ORDER BY c.version_cambio")
+        List<CitaCambioDTO> findCambiosEntre(@Param("desde") long desde, @Param("hasta") long hasta,
+                        Pageable pagina);
+
+        @Query("SELECT MAX(c.version_cambio) FROM Cita c")
+        Long findUltimaVersionCambio();
+
         // Metodos para verificar si existen citas asociadas a un medico o consultorio
         @Query("SELECT CASE WHEN COUNT(c) > 0 THEN TRUE ELSE FALSE END FROM Cita c WHERE c.doctor.id_medico = :medicoId")
         boolean medicoTieneCitas(@Param("medicoId") Integer medicoId);
@@ -0,0 +1,43 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Cita;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Alta masiva de citas para la importación de agendas (ver ImportacionCitasService) y
+ * traslado de citas al historial (ver ArchivadorCitas).
+ *
+ * Cita usa GenerationType.IDENTITY, y con ese generador Hibernate envía un INSERT por
+ * cita: necesita leer la clave generada de cada fila. Aquí las filas se envían en un solo
+ * lote JDBC y los id_cita se leen después con una consulta por version_cambio, que es
+ * único (UQ_Cita_VersionCambio).
+ */
+public interface CitaRepositoryMasivo {
+
+        /**
+         * Inserta citas nuevas en un lote JDBC dentro de la transacción en curso. Cada cita
+         * debe traer consultorio, doctor y version_cambio.
+         *
+         * @return Las mismas citas, con id_cita asignado y versión 0
+         */
+        List<Cita> insertarEnLote(List<Cita> citas);
+
+        /**
+         * Mueve a CitasArchivadas, dentro de la transacción en curso, hasta {@code tamanoLote}
+         * citas activas o canceladas con horario anterior a {@code limite}, las más antiguas
+         * primero.
+         *
+         * @return Número de citas archivadas; menos que tamanoLote si ya no quedan más
+         */
+        int archivarAnterioresA(LocalDateTime limite, int tamanoLote, LocalDateTime fechaArchivo);
+
+        /**
+         * Mueve a CitasArchivadas las citas canceladas del médico, que de otro modo impedirían
+         * eliminarlo por la clave foránea de Citas.
+         *
+         * @return Número de citas archivadas
+         */
+        int archivarCanceladasDeMedico(Integer medicoId, LocalDateTime fechaArchivo);
+}
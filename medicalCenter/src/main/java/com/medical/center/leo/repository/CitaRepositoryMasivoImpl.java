@@ -0,0 +1,113 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Cita;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación de {@link CitaRepositoryMasivo} con JdbcTemplate. Spring Data la combina
+ * con CitaRepository por el sufijo Impl.
+ */
+class CitaRepositoryMasivoImpl implements CitaRepositoryMasivo {
+
+        private static final String INSERT_CITA = "INSERT INTO Citas (consultorio_id, medico_id, horario_consulta, "
+                        + "nombre_paciente, paciente_id, version, version_cambio, estado, id_cancelacion) "
+                        + "VALUES (?, ?, ?, ?, ?, 0, ?, 'ACTIVA', 0)";
+        // Las versiones del lote son consecutivas salvo por las de escrituras concurrentes,
+        // así que el rango apenas lee filas de más
+        private static final String SELECT_IDS = "SELECT id_cita, version_cambio FROM Citas "
+                        + "WHERE version_cambio BETWEEN ? AND ?";
+
+        // Recorre IDX_Cita_Horario desde el principio; sin filtro por estado porque las
+        // canceladas también se archivan
+        private static final String SELECT_LOTE_ANTERIOR = "SELECT id_cita FROM Citas WHERE horario_consulta < ? "
+                        + "ORDER BY horario_consulta, id_cita OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+        private static final String SELECT_CANCELADAS_MEDICO = "SELECT id_cita FROM Citas "
+                        + "WHERE medico_id = ? AND estado = 'CANCELADA'";
+        private static final String INSERT_ARCHIVO = "INSERT INTO CitasArchivadas (id_cita, consultorio_id, "
+                        + "numero_consultorio, piso, medico_id, medico_nombre_completo, medico_especialidad, "
+                        + "paciente_id, nombre_paciente, horario_consulta, estado, fecha_cancelacion, version_cambio, "
+                        + "fecha_archivo) "
+                        + "SELECT c.id_cita, c.consultorio_id, co.numero_consultorio, co.piso, c.medico_id, "
+                        + "CONCAT(d.nombre, ' ', d.apellido_paterno), d.especialidad, c.paciente_id, c.nombre_paciente, "
+                        + "c.horario_consulta, c.estado, c.fecha_cancelacion, c.version_cambio, ? "
+                        + "FROM Citas c JOIN Consultorios co ON co.id_consultorio = c.consultorio_id "
+                        + "JOIN Doctores d ON d.id_medico = c.medico_id WHERE c.id_cita IN (%s)";
+        private static final String DELETE_CITAS = "DELETE FROM Citas WHERE id_cita IN (%s)";
+
+        private final JdbcTemplate jdbcTemplate;
+
+        CitaRepositoryMasivoImpl(JdbcTemplate jdbcTemplate) {
+                this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public List<Cita> insertarEnLote(List<Cita> citas) {
+                if (citas.isEmpty()) {
+                        return citas;
+                }
+                jdbcTemplate.batchUpdate(INSERT_CITA, citas, citas.size(), (sentencia, cita) -> {
+                        sentencia.setInt(1, cita.getConsultorio().getId_consultorio());
+                        sentencia.setInt(2, cita.getDoctor().getId_medico());
+                        sentencia.setTimestamp(3, Timestamp.valueOf(cita.getHorario_consulta()));
+                        sentencia.setString(4, cita.getNombre_paciente());
+                        sentencia.setObject(5, cita.getPaciente() != null ? cita.getPaciente().getId_paciente() : null,
+                                        Types.INTEGER);
+                        sentencia.setLong(6, cita.getVersion_cambio());
+                });
+
+                Map<Long, Cita> porVersion = new HashMap<>();
+                long primera = Long.MAX_VALUE;
+                long ultima = Long.MIN_VALUE;
+                for (Cita cita : citas) {
+                        porVersion.put(cita.getVersion_cambio(), cita);
+                        primera = Math.min(primera, cita.getVersion_cambio());
+                        ultima = Math.max(ultima, cita.getVersion_cambio());
+                }
+                jdbcTemplate.query(SELECT_IDS, fila -> {
+                        Cita cita = porVersion.get(fila.getLong(2));
+                        if (cita != null) {
+                                cita.setId_cita(fila.getInt(1));
+                                cita.setVersion(0L);
+                        }
+                }, primera, ultima);
+                return citas;
+        }
+
+        @Override
+        public int archivarAnterioresA(LocalDateTime limite, int tamanoLote, LocalDateTime fechaArchivo) {
+                List<Integer> ids = jdbcTemplate.queryForList(SELECT_LOTE_ANTERIOR, Integer.class,
+                                Timestamp.valueOf(limite), tamanoLote);
+                return archivar(ids, fechaArchivo);
+        }
+
+        @Override
+        public int archivarCanceladasDeMedico(Integer medicoId, LocalDateTime fechaArchivo) {
+                return archivar(jdbcTemplate.queryForList(SELECT_CANCELADAS_MEDICO, Integer.class, medicoId),
+                                fechaArchivo);
+        }
+
+        /**
+         * Copia las citas con su médico y consultorio a CitasArchivadas y las borra de Citas.
+         * Ambas sentencias van por clave primaria, así que solo bloquean las filas del lote.
+         */
+        private int archivar(List<Integer> ids, LocalDateTime fechaArchivo) {
+                if (ids.isEmpty()) {
+                        return 0;
+                }
+                String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+                List<Object> parametros = new ArrayList<>(ids.size() + 1);
+                parametros.add(Timestamp.valueOf(fechaArchivo));
+                parametros.addAll(ids);
+                jdbcTemplate.update(INSERT_ARCHIVO.formatted(marcadores), parametros.toArray());
+                return jdbcTemplate.update(DELETE_CITAS.formatted(marcadores), ids.toArray());
+        }
+}
@@ -2,6 +2,8 @@ package com.medical.center.leo.repository;
 
 import com.medical.center.leo.entity.Consultorio;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,10 +12,13 @@ import java.util.Optional;
 public interface ConsultorioRepository extends JpaRepository<Consultorio, Integer> {
 
     // Metodo para buscar un consultorio por su numero, que se espera sea unico
-    Optional<Consultorio> findByNumero_consultorio(Integer numeroConsultorio);
+    @Query("SELECT c FROM Consultorio c WHERE c.numero_consultorio = :numeroConsultorio")
+    Optional<Consultorio> findByNumero_consultorio(@Param("numeroConsultorio") Integer numeroConsultorio);
 
     // Metodo para verificar si existe un consultorio con un número especifico
-    boolean existsByNumero_consultorio(Integer numeroConsultorio);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN TRUE ELSE FALSE END FROM Consultorio c " +
+            "WHERE c.numero_consultorio = :numeroConsultorio")
+    boolean existsByNumero_consultorio(@Param("numeroConsultorio") Integer numeroConsultorio);
 
     // List<Consultorio> findByPiso(Integer piso);
 }
\ No newline at end of file
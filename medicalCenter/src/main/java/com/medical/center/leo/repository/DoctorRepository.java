@@ -1,7 +1,14 @@
 package com.medical.center.leo.repository;
 
+import com.medical.center.leo.dto.DoctorResumenDTO;
 import com.medical.center.leo.entity.Doctor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,17 +17,49 @@ import java.util.Optional;
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Integer> {
 
-    // Metodo para buscar doctores por especialidad
+    // Listado completo desde la cache de consultas; se invalida con cualquier escritura en Doctores
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Doctor> findAll();
+
+    // Metodo para buscar doctores por especialidad (resultado en la cache de consultas)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Doctor> findByEspecialidad(String especialidad);
 
+    // Los campos con guion bajo no se pueden derivar del nombre del metodo (Spring Data
+    // lo interpreta como navegacion), por eso estas consultas se declaran con @Query
+
     // Metodo para buscar doctores por apellido paterno
-    List<Doctor> findByApellido_paternoIgnoreCase(String apellidoPaterno);
+    @Query("SELECT d FROM Doctor d WHERE UPPER(d.apellido_paterno) = UPPER(:apellidoPaterno)")
+    List<Doctor> findByApellido_paternoIgnoreCase(@Param("apellidoPaterno") String apellidoPaterno);
 
     // Metodo para buscar un doctor por nombre completo
+    @Query("SELECT d FROM Doctor d WHERE d.nombre = :nombre AND d.apellido_paterno = :apellidoPaterno " +
+            "AND d.apellido_materno = :apellidoMaterno")
     Optional<Doctor> findByNombreAndApellido_paternoAndApellido_materno(
-            String nombre, String apellidoPaterno, String apellidoMaterno);
+            @Param("nombre") String nombre, @Param("apellidoPaterno") String apellidoPaterno,
+            @Param("apellidoMaterno") String apellidoMaterno);
+
+    // Listado paginado por (apellido_paterno, id_medico), filtrado por especialidad y prefijo del
+    // apellido paterno (con los comodines escapados con '\'); proyecta al DTO sin cargar entidades
+    @Query("SELECT new com.medical.center.leo.dto.DoctorResumenDTO(d.id_medico, d.nombre, d.apellido_paterno, " +
+            "d.apellido_materno, d.especialidad) FROM Doctor d " +
+            "WHERE (:especialidad IS NULL OR d.especialidad = :especialidad) " +
+            "AND (:prefijoApellido IS NULL OR d.apellido_paterno LIKE :prefijoApellido ESCAPE '\\') " +
+            "AND (d.apellido_paterno > :despuesDeApellido " +
+            "OR (d.apellido_paterno = :despuesDeApellido AND d.id_medico > :despuesDeId)) " +
+            "ORDER BY d.apellido_paterno, d.id_medico")
+    List<DoctorResumenDTO> findPagina(@Param("especialidad") String especialidad,
+            @Param("prefijoApellido") String prefijoApellido,
+            @Param("despuesDeApellido") String despuesDeApellido,
+            @Param("despuesDeId") Integer despuesDeId,
+            Pageable pagina);
 
     // Verificar si existe un doctor con una combinacion especifica
+    @Query("SELECT CASE WHEN COUNT(d) > 0 THEN TRUE ELSE FALSE END FROM Doctor d WHERE d.nombre = :nombre " +
+            "AND d.apellido_paterno = :apellidoPaterno AND d.apellido_materno = :apellidoMaterno " +
+            "AND d.especialidad = :especialidad")
     boolean existsByNombreAndApellido_paternoAndApellido_maternoAndEspecialidad(
-            String nombre, String apellidoPaterno, String apellidoMaterno, String especialidad);
+            @Param("nombre") String nombre, @Param("apellidoPaterno") String apellidoPaterno,
+            @Param("apellidoMaterno") String apellidoMaterno, @Param("especialidad") String especialidad);
 }
\ No newline at end of file
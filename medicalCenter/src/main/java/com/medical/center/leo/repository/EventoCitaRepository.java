@@ -0,0 +1,28 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.EventoCita;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoCitaRepository extends JpaRepository<EventoCita, Long>, EventoCitaRepositoryMasivo {
+
+        // Pendientes en orden de registro; usa el índice filtrado IDX_EventoCita_Pendientes
+        @Query("SELECT e FROM EventoCita e WHERE e.fecha_publicacion IS NULL ORDER BY e.id_evento")
+        List<EventoCita> findPendientes(Pageable pagina);
+
+        // Un solo UPDATE para todo el lote publicado
+        @Transactional
+        @Modifying
+        @Query("UPDATE EventoCita e SET e.fecha_publicacion = :fecha WHERE e.id_evento IN :ids")
+        int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+}
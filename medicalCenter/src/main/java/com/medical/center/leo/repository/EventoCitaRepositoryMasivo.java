@@ -0,0 +1,28 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.EventoCita;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Alta de eventos del buzón de salida en un lote JDBC: EventoCita usa
+ * GenerationType.IDENTITY y Hibernate enviaría un INSERT por evento. También la depuración
+ * por lotes de los eventos antiguos.
+ */
+public interface EventoCitaRepositoryMasivo {
+
+        /**
+         * Inserta los eventos en un lote JDBC dentro de la transacción en curso. No asigna
+         * id_evento a las entidades.
+         */
+        void insertarEnLote(List<EventoCita> eventos);
+
+        /**
+         * Borra hasta {@code tamanoLote} eventos, publicados o no, registrados antes de
+         * {@code limite}, los más antiguos primero.
+         *
+         * @return Número de eventos borrados; menos que tamanoLote si ya no quedan más
+         */
+        int eliminarAnterioresA(LocalDateTime limite, int tamanoLote);
+}
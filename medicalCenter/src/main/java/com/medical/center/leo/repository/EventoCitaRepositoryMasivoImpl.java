@@ -0,0 +1,53 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.EventoCita;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementación de {@link EventoCitaRepositoryMasivo} con JdbcTemplate.
+ */
+class EventoCitaRepositoryMasivoImpl implements EventoCitaRepositoryMasivo {
+
+        private static final String INSERT_EVENTO = "INSERT INTO EventosCitas (id_cita, tipo, datos, fecha_registro) "
+                        + "VALUES (?, ?, ?, ?)";
+        // Recorre IDX_EventoCita_Registro desde el principio
+        private static final String SELECT_LOTE_ANTERIOR = "SELECT id_evento FROM EventosCitas "
+                        + "WHERE fecha_registro < ? ORDER BY fecha_registro, id_evento OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+        private static final String DELETE_EVENTOS = "DELETE FROM EventosCitas WHERE id_evento IN (%s)";
+
+        private final JdbcTemplate jdbcTemplate;
+
+        EventoCitaRepositoryMasivoImpl(JdbcTemplate jdbcTemplate) {
+                this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void insertarEnLote(List<EventoCita> eventos) {
+                if (eventos.isEmpty()) {
+                        return;
+                }
+                jdbcTemplate.batchUpdate(INSERT_EVENTO, eventos, eventos.size(), (sentencia, evento) -> {
+                        sentencia.setInt(1, evento.getId_cita());
+                        sentencia.setString(2, evento.getTipo());
+                        sentencia.setString(3, evento.getDatos());
+                        sentencia.setTimestamp(4, Timestamp.valueOf(evento.getFecha_registro()));
+                });
+        }
+
+        @Override
+        public int eliminarAnterioresA(LocalDateTime limite, int tamanoLote) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_LOTE_ANTERIOR, Long.class, Timestamp.valueOf(limite),
+                                tamanoLote);
+                if (ids.isEmpty()) {
+                        return 0;
+                }
+                // Por clave primaria: solo bloquea las filas del lote
+                String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+                return jdbcTemplate.update(DELETE_EVENTOS.formatted(marcadores), ids.toArray());
+        }
+}
@@ -0,0 +1,22 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Paciente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PacienteRepository extends JpaRepository<Paciente, Integer>, PacienteRepositoryMasivo {
+
+        // Búsqueda por igualdad sobre el índice único de clave_busqueda
+        @Query("SELECT p FROM Paciente p WHERE p.clave_busqueda = :clave")
+        Optional<Paciente> findByClaveBusqueda(@Param("clave") byte[] clave);
+
+        @Query("SELECT p FROM Paciente p WHERE p.clave_busqueda IN :claves")
+        List<Paciente> findByClavesBusqueda(@Param("claves") Collection<byte[]> claves);
+}
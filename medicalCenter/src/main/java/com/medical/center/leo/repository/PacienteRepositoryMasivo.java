@@ -0,0 +1,18 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Paciente;
+
+import java.util.List;
+
+/**
+ * Alta de pacientes en un lote JDBC para la importación de citas: Paciente usa
+ * GenerationType.IDENTITY y Hibernate enviaría un INSERT por paciente.
+ */
+public interface PacienteRepositoryMasivo {
+
+        /**
+         * Inserta los pacientes en un lote JDBC dentro de la transacción en curso. No asigna
+         * id_paciente a las entidades: se leen después por clave de búsqueda.
+         */
+        void insertarEnLote(List<Paciente> pacientes);
+}
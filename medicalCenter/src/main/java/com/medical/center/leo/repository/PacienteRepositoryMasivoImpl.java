@@ -0,0 +1,31 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Paciente;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Implementación de {@link PacienteRepositoryMasivo} con JdbcTemplate.
+ */
+class PacienteRepositoryMasivoImpl implements PacienteRepositoryMasivo {
+
+        private static final String INSERT_PACIENTE = "INSERT INTO Pacientes (nombre, clave_busqueda) VALUES (?, ?)";
+
+        private final JdbcTemplate jdbcTemplate;
+
+        PacienteRepositoryMasivoImpl(JdbcTemplate jdbcTemplate) {
+                this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void insertarEnLote(List<Paciente> pacientes) {
+                if (pacientes.isEmpty()) {
+                        return;
+                }
+                jdbcTemplate.batchUpdate(INSERT_PACIENTE, pacientes, pacientes.size(), (sentencia, paciente) -> {
+                        sentencia.setString(1, paciente.getNombre());
+                        sentencia.setBytes(2, paciente.getClave_busqueda());
+                });
+        }
+}
@@ -0,0 +1,249 @@
+package com.medical.center.leo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.center.leo.dto.AgendaEventoDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agenda en vivo para pantallas de sala de espera y recepciones (GET /api/citas/eventos).
+ *
+ * Cada suscriptor filtra por consultorio, médico y/o fecha. Los cambios llegan después del
+ * commit ({@link CitaCambiadaEvent}); el evento se serializa una sola vez y se encola en el
+ * buffer acotado de cada suscriptor interesado, sin escribir en ningún socket desde el hilo
+ * que confirmó la cita. El envío lo hace un hilo virtual por suscriptor con eventos
+ * pendientes, de modo que un cliente lento solo se bloquea a sí mismo; si su buffer se
+ * llena, se le desaloja y el cliente debe reconectar y ponerse al día con
+ * GET /api/citas/cambios. Un latido periódico mantiene abiertas las conexiones inactivas y
+ * detecta las que se cerraron.
+ *
+ * Un suscriptor inactivo no ocupa hilos: solo su SseEmitter y su buffer.
+ */
+@Service
+public class AgendaEnVivoService {
+
+    static final String NOMBRE_EVENTO = "cita";
+
+    private final ObjectMapper objectMapper;
+    private final int capacidadBuffer;
+    private final int maxSuscriptores;
+    private final long duracionMaximaMillis;
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService latidos = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "agenda-latidos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final Counter desalojos;
+
+    public AgendaEnVivoService(ObjectMapper objectMapper,
+            @Value("${medicalcenter.agenda.buffer-eventos:64}") int capacidadBuffer,
+            @Value("${medicalcenter.agenda.max-suscriptores:5000}") int maxSuscriptores,
+            @Value("${medicalcenter.agenda.duracion-maxima:30m}") Duration duracionMaxima,
+            @Value("${medicalcenter.agenda.latido:25s}") Duration latido,
+            MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.capacidadBuffer = capacidadBuffer;
+        this.maxSuscriptores = maxSuscriptores;
+        this.duracionMaximaMillis = duracionMaxima.toMillis();
+        Gauge.builder("medicalcenter.agenda.suscriptores", suscriptores, Set::size)
+                .description("Suscriptores conectados a la agenda en vivo")
+                .register(meterRegistry);
+        this.desalojos = Counter.builder("medicalcenter.agenda.desalojos")
+                .description("Suscriptores desconectados por no consumir sus eventos a tiempo")
+                .register(meterRegistry);
+        latidos.scheduleAtFixedRate(this::enviarLatidos, latido.toMillis(), latido.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param consultorioId Solo cambios de este consultorio (opcional)
+     * @param medicoId      Solo cambios de este médico (opcional)
+     * @param fecha         Solo cambios de citas en esta fecha (opcional)
+     * @throws ServicioSaturadoException Si se alcanzó el máximo de suscriptores
+     */
+    public SseEmitter suscribir(Integer consultorioId, Integer medicoId, LocalDate fecha) {
+        if (suscriptores.size() >= maxSuscriptores) {
+            throw new ServicioSaturadoException("La agenda en vivo alcanzó el máximo de " + maxSuscriptores
+                    + " suscriptores; intente de nuevo más tarde.");
+        }
+        SseEmitter emitter = crearEmitter(duracionMaximaMillis);
+        Suscriptor suscriptor = new Suscriptor(emitter, consultorioId, medicoId, fecha);
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onTimeout(suscriptor::cerrar);
+        emitter.onError(error -> suscriptor.cerrar());
+        suscriptores.add(suscriptor);
+        // Envía las cabeceras de inmediato para que el cliente sepa que quedó conectado
+        suscriptor.publicar(SseEmitter.event().comment("conectado").build());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarCita(CitaCambiadaEvent evento) {
+        Set<DataWithMediaType> datos = null;
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.interesado(evento)) {
+                if (datos == null) {
+                    // JSON ya serializado: se escribe tal cual en cada suscriptor
+                    datos = SseEmitter.event().name(NOMBRE_EVENTO).data(serializar(aEventoDTO(evento))).build();
+                }
+                suscriptor.publicar(datos);
+            }
+        }
+    }
+
+    SseEmitter crearEmitter(long duracionMaximaMillis) {
+        return new SseEmitter(duracionMaximaMillis);
+    }
+
+    int suscriptoresConectados() {
+        return suscriptores.size();
+    }
+
+    private void enviarLatidos() {
+        Set<DataWithMediaType> latido = SseEmitter.event().comment("").build();
+        suscriptores.forEach(suscriptor -> suscriptor.publicar(latido));
+    }
+
+    private String serializar(AgendaEventoDTO evento) {
+        try {
+            return objectMapper.writeValueAsString(evento);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static AgendaEventoDTO aEventoDTO(CitaCambiadaEvent evento) {
+        SlotOcupadoDTO anterior = evento.anterior();
+        SlotOcupadoDTO nuevo = evento.nuevo();
+        if (anterior == null) {
+            return new AgendaEventoDTO(AgendaEventoDTO.Tipo.CREADA, nuevo.idCita(), nuevo.consultorioId(),
+                    nuevo.medicoId(), nuevo.horarioConsulta(), null, null, null);
+        }
+        if (nuevo == null) {
+            return new AgendaEventoDTO(AgendaEventoDTO.Tipo.CANCELADA, anterior.idCita(), anterior.consultorioId(),
+                    anterior.medicoId(), anterior.horarioConsulta(), null, null, null);
+        }
+        return new AgendaEventoDTO(AgendaEventoDTO.Tipo.EDITADA, nuevo.idCita(), nuevo.consultorioId(),
+                nuevo.medicoId(), nuevo.horarioConsulta(), anterior.consultorioId(), anterior.medicoId(),
+                anterior.horarioConsulta());
+    }
+
+    @PreDestroy
+    void cerrar() {
+        latidos.shutdownNow();
+        suscriptores.forEach(Suscriptor::cerrar);
+        envios.shutdown();
+    }
+
+    private final class Suscriptor {
+
+        private final SseEmitter emitter;
+        private final Integer consultorioId;
+        private final Integer medicoId;
+        private final LocalDate fecha;
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> pendientes;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+
+        Suscriptor(SseEmitter emitter, Integer consultorioId, Integer medicoId, LocalDate fecha) {
+            this.emitter = emitter;
+            this.consultorioId = consultorioId;
+            this.medicoId = medicoId;
+            this.fecha = fecha;
+            this.pendientes = new ArrayBlockingQueue<>(capacidadBuffer);
+        }
+
+        boolean interesado(CitaCambiadaEvent evento) {
+            return coincide(evento.anterior()) || coincide(evento.nuevo());
+        }
+
+        private boolean coincide(SlotOcupadoDTO slot) {
+            return slot != null
+                    && (consultorioId == null || consultorioId.equals(slot.consultorioId()))
+                    && (medicoId == null || medicoId.equals(slot.medicoId()))
+                    && (fecha == null || fecha.equals(slot.horarioConsulta().toLocalDate()));
+        }
+
+        /**
+         * Encola sin bloquear. Con el buffer lleno el suscriptor no está consumiendo: se le
+         * desaloja.
+         */
+        void publicar(Set<DataWithMediaType> datos) {
+            if (cerrado.get()) {
+                return;
+            }
+            if (!pendientes.offer(datos)) {
+                desalojos.increment();
+                cerrar();
+                return;
+            }
+            programarEnvio();
+        }
+
+        private void programarEnvio() {
+            if (enviando.compareAndSet(false, true)) {
+                try {
+                    envios.execute(this::enviarPendientes);
+                } catch (RuntimeException ex) {
+                    // Ejecutor detenido durante el apagado
+                    enviando.set(false);
+                }
+            }
+        }
+
+        private void enviarPendientes() {
+            try {
+                Set<DataWithMediaType> datos;
+                while (!cerrado.get() && (datos = pendientes.poll()) != null) {
+                    emitter.send(datos);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // Conexión cerrada por el cliente o emitter ya completado
+                cerrar();
+            } finally {
+                enviando.set(false);
+            }
+            // Un evento encolado justo después del último poll necesita otro envío
+            if (!cerrado.get() && !pendientes.isEmpty()) {
+                programarEnvio();
+            }
+        }
+
+        void cerrar() {
+            if (cerrado.compareAndSet(false, true)) {
+                suscriptores.remove(this);
+                pendientes.clear();
+                try {
+                    emitter.complete();
+                } catch (RuntimeException ex) {
+                    // La respuesta ya no se puede completar; no queda nada por liberar
+                }
+            }
+        }
+    }
+}
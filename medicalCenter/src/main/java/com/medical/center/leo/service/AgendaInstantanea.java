@@ -0,0 +1,334 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaAgendaDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.repository.CitaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Vista materializada en memoria de la agenda de hoy y de mañana, que
+ * {@link CitaService#consultarCitas} sirve sin consultar la base de datos.
+ *
+ * Cada día guarda sus citas ya convertidas a CitaResponseDTO, en orden de horario, completas
+ * y agrupadas por consultorio, por médico y por ambos. Las estructuras son inmutables y se
+ * publican en un campo volatile: las lecturas no toman ningún bloqueo. Las altas, ediciones
+ * y cancelaciones de CitaService la parchean después del commit copiando solo el día
+ * afectado (copy-on-write); los escritores se serializan entre sí.
+ *
+ * La vista se reconstruye con una consulta la primera vez que se usa y en el primer acceso
+ * después del cambio de día. Mientras un hilo la reconstruye, las demás lecturas van a la
+ * base de datos en lugar de esperar, y los parches que llegan durante la carga se vuelven a
+ * aplicar sobre ella antes de publicarla.
+ *
+ * Como {@link OcupacionIndex}, la vista es local a la instancia: asume que todas las
+ * escrituras de citas pasan por este proceso.
+ */
+@Component
+public class AgendaInstantanea {
+
+    private static final Comparator<Entrada> ORDEN = Comparator
+            .comparing((Entrada entrada) -> entrada.cita().horarioConsulta())
+            .thenComparing(entrada -> entrada.cita().idCita());
+
+    private final CitaRepository citaRepository;
+    private final Clock reloj;
+    private final ReentrantLock reconstruccion = new ReentrantLock();
+
+    private volatile Instantanea actual;
+
+    // Protegidos por el monitor de la instancia
+    private List<UnaryOperator<Instantanea>> parchesDuranteCarga;
+    private boolean cargaDescartada;
+
+    @Autowired
+    public AgendaInstantanea(CitaRepository citaRepository) {
+        this(citaRepository, Clock.systemDefaultZone());
+    }
+
+    AgendaInstantanea(CitaRepository citaRepository, Clock reloj) {
+        this.citaRepository = citaRepository;
+        this.reloj = reloj;
+    }
+
+    /**
+     * @return Las citas del día en orden de horario, o vacío si la fecha no es hoy ni mañana
+     *         o si la vista se está reconstruyendo
+     */
+    public Optional<List<CitaResponseDTO>> consultar(LocalDate fecha, Integer consultorioId, Integer medicoId) {
+        LocalDate hoy = LocalDate.now(reloj);
+        if (!fecha.equals(hoy) && !fecha.equals(hoy.plusDays(1))) {
+            return Optional.empty();
+        }
+        Instantanea instantanea = vigente(hoy);
+        if (instantanea == null) {
+            return Optional.empty();
+        }
+        AgendaDia dia = instantanea.dias().get(fecha);
+        return dia != null ? Optional.of(dia.consultar(consultorioId, medicoId)) : Optional.empty();
+    }
+
+    /**
+     * Agrega una cita nueva al confirmarse la transacción.
+     */
+    public void registrar(SlotOcupadoDTO slot, CitaResponseDTO cita) {
+        alConfirmar(instantanea -> instantanea.con(new Entrada(slot, cita)));
+    }
+
+    /**
+     * Refleja una edición al confirmarse la transacción; la cita puede cambiar de día.
+     */
+    public void mover(SlotOcupadoDTO nuevo, CitaResponseDTO cita) {
+        registrar(nuevo, cita);
+    }
+
+    /**
+     * Quita una cita cancelada al confirmarse la transacción.
+     */
+    public void quitar(SlotOcupadoDTO slot) {
+        alConfirmar(instantanea -> instantanea.sin(slot.idCita()));
+    }
+
+    /**
+     * Descarta la vista, por ejemplo cuando cambian datos de un médico que aparecen en las
+     * citas. La siguiente lectura la reconstruye.
+     */
+    public void invalidar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar();
+                }
+            });
+        } else {
+            descartar();
+        }
+    }
+
+    private synchronized void descartar() {
+        actual = null;
+        if (parchesDuranteCarga != null) {
+            cargaDescartada = true;
+        }
+    }
+
+    private Instantanea vigente(LocalDate hoy) {
+        Instantanea instantanea = actual;
+        if (instantanea != null && instantanea.hoy().equals(hoy)) {
+            return instantanea;
+        }
+        if (!reconstruccion.tryLock()) {
+            return null;
+        }
+        try {
+            instantanea = actual;
+            if (instantanea != null && instantanea.hoy().equals(hoy)) {
+                return instantanea;
+            }
+            return reconstruir(hoy);
+        } finally {
+            reconstruccion.unlock();
+        }
+    }
+
+    private Instantanea reconstruir(LocalDate hoy) {
+        synchronized (this) {
+            parchesDuranteCarga = new ArrayList<>();
+            cargaDescartada = false;
+        }
+        List<CitaAgendaDTO> filas;
+        try {
+            filas = citaRepository.findAgendaEnRango(hoy.atStartOfDay(), hoy.plusDays(2).atStartOfDay());
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                parchesDuranteCarga = null;
+            }
+            throw ex;
+        }
+
+        Map<LocalDate, List<Entrada>> entradasPorDia = new HashMap<>();
+        entradasPorDia.put(hoy, new ArrayList<>());
+        entradasPorDia.put(hoy.plusDays(1), new ArrayList<>());
+        for (CitaAgendaDTO fila : filas) {
+            Entrada entrada = new Entrada(fila.consultorioId(), fila.medicoId(), fila.cita());
+            entradasPorDia.get(entrada.fecha()).add(entrada);
+        }
+        Map<LocalDate, AgendaDia> dias = new HashMap<>();
+        entradasPorDia.forEach((fecha, entradas) -> dias.put(fecha, AgendaDia.de(entradas)));
+
+        synchronized (this) {
+            Instantanea nueva = new Instantanea(hoy, Map.copyOf(dias), Set.of());
+            for (UnaryOperator<Instantanea> parche : parchesDuranteCarga) {
+                nueva = parche.apply(nueva);
+            }
+            parchesDuranteCarga = null;
+            if (cargaDescartada) {
+                return null;
+            }
+            actual = nueva;
+            return nueva;
+        }
+    }
+
+    private void alConfirmar(UnaryOperator<Instantanea> parche) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(parche);
+                }
+            });
+        } else {
+            aplicar(parche);
+        }
+    }
+
+    private synchronized void aplicar(UnaryOperator<Instantanea> parche) {
+        if (parchesDuranteCarga != null) {
+            parchesDuranteCarga.add(parche);
+        }
+        Instantanea instantanea = actual;
+        if (instantanea != null) {
+            actual = parche.apply(instantanea);
+        }
+    }
+
+    private record Entrada(Integer consultorioId, Integer medicoId, CitaResponseDTO cita) {
+
+        Entrada(SlotOcupadoDTO slot, CitaResponseDTO cita) {
+            this(slot.consultorioId(), slot.medicoId(), cita);
+        }
+
+        LocalDate fecha() {
+            return cita.horarioConsulta().toLocalDate();
+        }
+    }
+
+    private record ConsultorioMedico(Integer consultorioId, Integer medicoId) {
+    }
+
+    /**
+     * Citas de un día con sus agrupaciones precalculadas. Inmutable.
+     */
+    private record AgendaDia(List<Entrada> entradas, List<CitaResponseDTO> todas,
+            Map<Integer, List<CitaResponseDTO>> porConsultorio, Map<Integer, List<CitaResponseDTO>> porMedico,
+            Map<ConsultorioMedico, List<CitaResponseDTO>> porConsultorioYMedico) {
+
+        static AgendaDia de(List<Entrada> entradas) {
+            List<Entrada> ordenadas = new ArrayList<>(entradas);
+            ordenadas.sort(ORDEN);
+            Map<Integer, List<CitaResponseDTO>> porConsultorio = new HashMap<>();
+            Map<Integer, List<CitaResponseDTO>> porMedico = new HashMap<>();
+            Map<ConsultorioMedico, List<CitaResponseDTO>> porAmbos = new HashMap<>();
+            for (Entrada entrada : ordenadas) {
+                porConsultorio.computeIfAbsent(entrada.consultorioId(), id -> new ArrayList<>()).add(entrada.cita());
+                porMedico.computeIfAbsent(entrada.medicoId(), id -> new ArrayList<>()).add(entrada.cita());
+                porAmbos.computeIfAbsent(new ConsultorioMedico(entrada.consultorioId(), entrada.medicoId()),
+                        clave -> new ArrayList<>()).add(entrada.cita());
+            }
+            return new AgendaDia(List.copyOf(ordenadas),
+                    ordenadas.stream().map(Entrada::cita).toList(),
+                    inmutable(porConsultorio), inmutable(porMedico), inmutable(porAmbos));
+        }
+
+        private static <K> Map<K, List<CitaResponseDTO>> inmutable(Map<K, List<CitaResponseDTO>> grupos) {
+            Map<K, List<CitaResponseDTO>> copia = new HashMap<>();
+            grupos.forEach((clave, citas) -> copia.put(clave, List.copyOf(citas)));
+            return Map.copyOf(copia);
+        }
+
+        List<CitaResponseDTO> consultar(Integer consultorioId, Integer medicoId) {
+            if (consultorioId != null && medicoId != null) {
+                return porConsultorioYMedico.getOrDefault(new ConsultorioMedico(consultorioId, medicoId), List.of());
+            } else if (consultorioId != null) {
+                return porConsultorio.getOrDefault(consultorioId, List.of());
+            } else if (medicoId != null) {
+                return porMedico.getOrDefault(medicoId, List.of());
+            }
+            return todas;
+        }
+
+        Entrada buscar(Integer idCita) {
+            for (Entrada entrada : entradas) {
+                if (entrada.cita().idCita().equals(idCita)) {
+                    return entrada;
+                }
+            }
+            return null;
+        }
+
+        AgendaDia sin(Integer idCita) {
+            List<Entrada> restantes = new ArrayList<>(entradas.size());
+            for (Entrada entrada : entradas) {
+                if (!entrada.cita().idCita().equals(idCita)) {
+                    restantes.add(entrada);
+                }
+            }
+            return restantes.size() == entradas.size() ? this : de(restantes);
+        }
+
+        AgendaDia con(Entrada nueva) {
+            List<Entrada> resultado = new ArrayList<>(sin(nueva.cita().idCita()).entradas());
+            resultado.add(nueva);
+            return de(resultado);
+        }
+    }
+
+    /**
+     * Hoy y mañana, más las citas canceladas desde la última carga (para no revivir una
+     * cita si un parche de edición llega después de su cancelación).
+     */
+    private record Instantanea(LocalDate hoy, Map<LocalDate, AgendaDia> dias, Set<Integer> canceladas) {
+
+        Instantanea con(Entrada entrada) {
+            Integer idCita = entrada.cita().idCita();
+            if (canceladas.contains(idCita)) {
+                return this;
+            }
+            Map<LocalDate, AgendaDia> nuevos = new HashMap<>(dias);
+            for (Map.Entry<LocalDate, AgendaDia> dia : dias.entrySet()) {
+                Entrada existente = dia.getValue().buscar(idCita);
+                // Un parche de una edición anterior que llega tarde no pisa la versión más nueva
+                if (existente != null && esMasNueva(existente.cita(), entrada.cita())) {
+                    return this;
+                }
+                nuevos.put(dia.getKey(), dia.getValue().sin(idCita));
+            }
+            AgendaDia destino = nuevos.get(entrada.fecha());
+            if (destino != null) {
+                nuevos.put(entrada.fecha(), destino.con(entrada));
+            }
+            return new Instantanea(hoy, Map.copyOf(nuevos), canceladas);
+        }
+
+        Instantanea sin(Integer idCita) {
+            Map<LocalDate, AgendaDia> nuevos = new HashMap<>();
+            dias.forEach((fecha, dia) -> nuevos.put(fecha, dia.sin(idCita)));
+            Set<Integer> nuevasCanceladas = new HashSet<>(canceladas);
+            nuevasCanceladas.add(idCita);
+            return new Instantanea(hoy, Map.copyOf(nuevos), Set.copyOf(nuevasCanceladas));
+        }
+
+        private static boolean esMasNueva(CitaResponseDTO existente, CitaResponseDTO entrante) {
+            return existente.version() != null && entrante.version() != null
+                    && existente.version() > entrante.version();
+        }
+    }
+}
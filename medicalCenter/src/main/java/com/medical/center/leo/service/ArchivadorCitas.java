@@ -0,0 +1,99 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.repository.CitaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mueve a CitasArchivadas las citas, activas o canceladas, cuyo horario quedó más atrás de
+ * medicalcenter.archivo.horizonte. Así Citas solo contiene la agenda reciente y futura, y sus
+ * índices y las consultas de las reglas no crecen con los años de historial.
+ *
+ * Cada lote de medicalcenter.archivo.tamano-lote citas se copia y se borra en su propia
+ * transacción, con sentencias por clave primaria. Con lotes muy por debajo de los 5000
+ * bloqueos a partir de los cuales SQL Server escala a un bloqueo de tabla, el archivo no
+ * detiene las altas ni las consultas de la agenda, y si una pasada se interrumpe, la
+ * siguiente continúa donde quedó.
+ *
+ * Como {@link DrenadorEventosCita}, usa su propio hilo y asume una sola instancia.
+ */
+@Component
+public class ArchivadorCitas {
+
+    private final CitaRepository citaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizonte;
+    private final int tamanoLote;
+    private final Counter archivadas;
+    private final Counter fallos;
+    private final ScheduledExecutorService pasadas = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "archivo-citas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public ArchivadorCitas(CitaRepository citaRepository, PlatformTransactionManager transactionManager,
+            @Value("${medicalcenter.archivo.horizonte:365d}") Duration horizonte,
+            @Value("${medicalcenter.archivo.tamano-lote:1000}") int tamanoLote,
+            @Value("${medicalcenter.archivo.intervalo:1h}") Duration intervalo,
+            MeterRegistry meterRegistry) {
+        if (horizonte.isNegative() || horizonte.isZero()) {
+            throw new IllegalArgumentException("medicalcenter.archivo.horizonte debe ser positivo: " + horizonte);
+        }
+        this.citaRepository = citaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonte = horizonte;
+        this.tamanoLote = tamanoLote;
+        this.archivadas = Counter.builder("medicalcenter.archivo.citas")
+                .description("Citas movidas de Citas a CitasArchivadas")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("medicalcenter.archivo.fallos")
+                .description("Pasadas del archivo de citas interrumpidas por un error")
+                .register(meterRegistry);
+        pasadas.scheduleWithFixedDelay(this::pasadaProgramada, intervalo.toMillis(), intervalo.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archiva todas las citas anteriores al horizonte, un lote por transacción.
+     *
+     * @return Número de citas archivadas
+     */
+    public int archivar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime limite = ahora.minus(horizonte);
+        int total = 0;
+        int lote;
+        do {
+            lote = transactionTemplate.execute(status -> citaRepository.archivarAnterioresA(limite, tamanoLote, ahora));
+            archivadas.increment(lote);
+            total += lote;
+        } while (lote == tamanoLote);
+        return total;
+    }
+
+    private void pasadaProgramada() {
+        try {
+            archivar();
+        } catch (RuntimeException ex) {
+            // Los lotes confirmados quedan archivados; la siguiente pasada sigue con el resto
+            fallos.increment();
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        pasadas.shutdownNow();
+    }
+}
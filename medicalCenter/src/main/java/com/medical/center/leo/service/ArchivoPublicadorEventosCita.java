@@ -0,0 +1,47 @@
+package com.medical.center.leo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.center.leo.dto.EventoCitaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Publica los eventos de citas como líneas NDJSON al final de un archivo local
+ * (medicalcenter.outbox.archivo), para integraciones que leen archivos o para pruebas.
+ */
+@Component
+@ConditionalOnProperty("medicalcenter.outbox.archivo")
+public class ArchivoPublicadorEventosCita implements PublicadorEventosCita {
+
+    private final Path archivo;
+    private final ObjectMapper objectMapper;
+
+    public ArchivoPublicadorEventosCita(@Value("${medicalcenter.outbox.archivo}") Path archivo,
+            ObjectMapper objectMapper) {
+        this.archivo = archivo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoCitaDTO> eventos) {
+        try (BufferedWriter escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (EventoCitaDTO evento : eventos) {
+                escritor.write(objectMapper.writeValueAsString(evento));
+                escritor.newLine();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
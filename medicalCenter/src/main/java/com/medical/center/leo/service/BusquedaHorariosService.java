@@ -0,0 +1,226 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.HorarioDisponibleDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaRepository;
+import com.medical.center.leo.repository.ConsultorioRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Busca los primeros horarios libres de un médico, o de cualquier médico de una
+ * especialidad, que cumplen las cuatro reglas de negocio de {@link CitaService}.
+ *
+ * Toda la ocupación del horizonte se lee con una sola consulta por rango (más otra para las
+ * citas del paciente, si se indica) y se vuelca en BitSets de minutos por día; después los
+ * huecos se recorren en memoria en orden de horario y de médico.
+ */
+@Service
+public class BusquedaHorariosService {
+
+    // Jornada en la que se ofrecen horarios y separación entre horarios consecutivos
+    static final LocalTime INICIO_JORNADA = LocalTime.of(8, 0);
+    static final LocalTime FIN_JORNADA = LocalTime.of(20, 0);
+    static final int MINUTOS_POR_HORARIO = 30;
+    // Horizonte de búsqueda en días y número de horarios devueltos
+    static final int DIAS_POR_DEFECTO = 14;
+    static final int DIAS_MAXIMO = 90;
+    static final int CANTIDAD_POR_DEFECTO = 5;
+    static final int CANTIDAD_MAXIMA = 50;
+    // Regla 3: separación mínima entre dos citas del mismo paciente en el mismo día
+    private static final int MINUTOS_SEPARACION_PACIENTE = 120;
+    private static final int MINUTOS_POR_DIA = 24 * 60;
+
+    private final CitaRepository citaRepository;
+    private final DoctorRepository doctorRepository;
+    private final ConsultorioRepository consultorioRepository;
+    private final PacienteService pacienteService;
+
+    public BusquedaHorariosService(CitaRepository citaRepository, DoctorRepository doctorRepository,
+            ConsultorioRepository consultorioRepository, PacienteService pacienteService) {
+        this.citaRepository = citaRepository;
+        this.doctorRepository = doctorRepository;
+        this.consultorioRepository = consultorioRepository;
+        this.pacienteService = pacienteService;
+    }
+
+    /**
+     * @param medicoId       Médico concreto (excluyente con {@code especialidad})
+     * @param especialidad   Cualquier médico de la especialidad (excluyente con {@code medicoId})
+     * @param desde          Primer día de la búsqueda; hoy si es null
+     * @param dias           Días a revisar a partir de {@code desde}
+     * @param cantidad       Número máximo de horarios a devolver
+     * @param consultorioId  Consultorio fijo, o null para proponer el primero libre
+     * @param nombrePaciente Paciente para aplicar la regla 3, o null para omitirla
+     * @return Los horarios libres más próximos, ordenados por horario y médico
+     */
+    @Transactional(readOnly = true)
+    public List<HorarioDisponibleDTO> buscarHorariosDisponibles(Integer medicoId, String especialidad,
+            LocalDate desde, Integer dias, Integer cantidad, Integer consultorioId, String nombrePaciente) {
+        boolean porEspecialidad = especialidad != null && !especialidad.isBlank();
+        if ((medicoId == null) == !porEspecialidad) {
+            throw new BusinessRuleException("Indique un médico o una especialidad, pero no ambos.");
+        }
+        LocalDate hoy = LocalDate.now();
+        LocalDate primerDia = desde != null ? desde : hoy;
+        if (primerDia.isBefore(hoy)) {
+            throw new BusinessRuleException("La fecha desde (" + primerDia + ") no puede ser anterior a hoy.");
+        }
+        int horizonte = dias != null ? dias : DIAS_POR_DEFECTO;
+        if (horizonte < 1 || horizonte > DIAS_MAXIMO) {
+            throw new BusinessRuleException("El horizonte de búsqueda debe estar entre 1 y " + DIAS_MAXIMO + " días.");
+        }
+        int limite = cantidad != null ? cantidad : CANTIDAD_POR_DEFECTO;
+        if (limite < 1 || limite > CANTIDAD_MAXIMA) {
+            throw new BusinessRuleException("La cantidad de horarios debe estar entre 1 y " + CANTIDAD_MAXIMA + ".");
+        }
+
+        List<Doctor> medicos = porEspecialidad ? medicosDeEspecialidad(especialidad) : List.of(
+                doctorRepository.findById(medicoId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Doctor no encontrado con ID: " + medicoId)));
+        List<Consultorio> consultorios = consultorioId != null ? List.of(
+                consultorioRepository.findById(consultorioId)
+                        .orElseThrow(() -> new ResourceNotFoundException(
+                                "Consultorio no encontrado con ID: " + consultorioId)))
+                : consultorioRepository.findAll().stream()
+                        .sorted(Comparator.comparing(Consultorio::getId_consultorio))
+                        .toList();
+        if (consultorios.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime inicio = primerDia.atStartOfDay();
+        LocalDateTime fin = primerDia.plusDays(horizonte).atStartOfDay();
+        List<SlotOcupadoDTO> ocupados = consultorioId == null
+                ? citaRepository.findSlotsOcupadosEnRango(inicio, fin)
+                : citaRepository.findSlotsOcupadosDeMedicosOConsultorioEnRango(inicio, fin,
+                        medicos.stream().map(Doctor::getId_medico).toList(), consultorioId);
+        List<Cita> citasPaciente = nombrePaciente != null && !nombrePaciente.isBlank()
+                ? pacienteService.buscar(nombrePaciente)
+                        .map(paciente -> citaRepository.findCitasPacienteEnRango(paciente.getId_paciente(), inicio, fin))
+                        .orElse(List.of())
+                : List.of();
+
+        Map<LocalDate, OcupacionDia> ocupacion = new HashMap<>();
+        for (SlotOcupadoDTO slot : ocupados) {
+            ocupacion.computeIfAbsent(slot.horarioConsulta().toLocalDate(), d -> new OcupacionDia()).ocupar(slot);
+        }
+        for (Cita cita : citasPaciente) {
+            ocupacion.computeIfAbsent(cita.getHorario_consulta().toLocalDate(), d -> new OcupacionDia())
+                    .bloquearPaciente(cita.getHorario_consulta());
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        OcupacionDia diaLibre = new OcupacionDia();
+        List<HorarioDisponibleDTO> disponibles = new ArrayList<>(limite);
+        for (LocalDate dia = primerDia; dia.isBefore(primerDia.plusDays(horizonte)); dia = dia.plusDays(1)) {
+            OcupacionDia ocupacionDia = ocupacion.getOrDefault(dia, diaLibre);
+            for (LocalTime hora = INICIO_JORNADA; hora.isBefore(FIN_JORNADA); hora = hora.plusMinutes(MINUTOS_POR_HORARIO)) {
+                LocalDateTime horario = dia.atTime(hora);
+                int minuto = hora.getHour() * 60 + hora.getMinute();
+                if (!horario.isAfter(ahora) || ocupacionDia.pacienteBloqueado(minuto)) {
+                    continue;
+                }
+                for (Doctor medico : medicos) {
+                    if (!ocupacionDia.medicoDisponible(medico.getId_medico(), minuto)) {
+                        continue;
+                    }
+                    Consultorio consultorio = ocupacionDia.primerConsultorioLibre(consultorios, minuto);
+                    if (consultorio == null) {
+                        // Ningún consultorio libre a esta hora, para ningún médico
+                        break;
+                    }
+                    disponibles.add(new HorarioDisponibleDTO(horario, medico.getId_medico(),
+                            medico.getNombre() + " " + medico.getApellido_paterno(), medico.getEspecialidad(),
+                            consultorio.getId_consultorio(), consultorio.getNumero_consultorio(),
+                            consultorio.getPiso()));
+                    if (disponibles.size() == limite) {
+                        return disponibles;
+                    }
+                }
+            }
+        }
+        return disponibles;
+    }
+
+    private List<Doctor> medicosDeEspecialidad(String especialidad) {
+        List<Doctor> medicos = doctorRepository.findByEspecialidad(especialidad).stream()
+                .sorted(Comparator.comparing(Doctor::getId_medico))
+                .toList();
+        if (medicos.isEmpty()) {
+            throw new ResourceNotFoundException("No hay doctores con la especialidad: " + especialidad);
+        }
+        return medicos;
+    }
+
+    /**
+     * Ocupación de un día dentro del horizonte de búsqueda: minutos ocupados por consultorio
+     * y por médico, citas por médico (regla 4) y minutos vetados para el paciente (regla 3).
+     */
+    private static final class OcupacionDia {
+
+        private final Map<Integer, BitSet> consultorios = new HashMap<>();
+        private final Map<Integer, BitSet> medicos = new HashMap<>();
+        private final Map<Integer, Integer> citasPorMedico = new HashMap<>();
+        private final BitSet paciente = new BitSet(MINUTOS_POR_DIA);
+
+        void ocupar(SlotOcupadoDTO slot) {
+            int minuto = minutoDelDia(slot.horarioConsulta());
+            citasPorMedico.merge(slot.medicoId(), 1, Integer::sum);
+            // Las reglas 1 y 2 comparan el horario exacto; uno con segundos no choca con la cuadrícula
+            if (slot.horarioConsulta().getSecond() == 0 && slot.horarioConsulta().getNano() == 0) {
+                consultorios.computeIfAbsent(slot.consultorioId(), id -> new BitSet(MINUTOS_POR_DIA)).set(minuto);
+                medicos.computeIfAbsent(slot.medicoId(), id -> new BitSet(MINUTOS_POR_DIA)).set(minuto);
+            }
+        }
+
+        void bloquearPaciente(LocalDateTime horario) {
+            int minuto = minutoDelDia(horario);
+            // Menos de 120 minutos de diferencia, en cualquier dirección, dentro del mismo día
+            paciente.set(Math.max(0, minuto - MINUTOS_SEPARACION_PACIENTE + 1),
+                    Math.min(MINUTOS_POR_DIA, minuto + MINUTOS_SEPARACION_PACIENTE));
+        }
+
+        boolean pacienteBloqueado(int minuto) {
+            return paciente.get(minuto);
+        }
+
+        boolean medicoDisponible(Integer medicoId, int minuto) {
+            if (citasPorMedico.getOrDefault(medicoId, 0) >= CitaService.MAX_CITAS_POR_MEDICO_Y_DIA) {
+                return false;
+            }
+            BitSet ocupados = medicos.get(medicoId);
+            return ocupados == null || !ocupados.get(minuto);
+        }
+
+        Consultorio primerConsultorioLibre(List<Consultorio> candidatos, int minuto) {
+            for (Consultorio consultorio : candidatos) {
+                BitSet ocupados = consultorios.get(consultorio.getId_consultorio());
+                if (ocupados == null || !ocupados.get(minuto)) {
+                    return consultorio;
+                }
+            }
+            return null;
+        }
+
+        private static int minutoDelDia(LocalDateTime horario) {
+            return horario.getHour() * 60 + horario.getMinute();
+        }
+    }
+}
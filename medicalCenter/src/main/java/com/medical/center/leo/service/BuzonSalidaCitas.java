@@ -0,0 +1,87 @@
+package com.medical.center.leo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.center.leo.dto.AgendaEventoDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.EventoCita;
+import com.medical.center.leo.repository.EventoCitaRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buzón de salida (outbox) de los cambios de citas: registra cada {@link CitaCambiadaEvent}
+ * como un {@link EventoCita} en la misma transacción que el cambio.
+ *
+ * Los eventos de una transacción se acumulan y se insertan juntos, en un lote JDBC, justo
+ * antes del commit: un alta suma un INSERT y un lote de importación también uno, sin
+ * importar cuántas citas tenga. Si la transacción se revierte, los eventos se descartan con
+ * ella. La entrega a los sistemas externos la hace después {@link DrenadorEventosCita}, fuera
+ * de la transacción, así que sumar consumidores no alarga las escrituras de citas.
+ */
+@Component
+public class BuzonSalidaCitas {
+
+    private final EventoCitaRepository eventoCitaRepository;
+    private final ObjectMapper objectMapper;
+
+    public BuzonSalidaCitas(EventoCitaRepository eventoCitaRepository, ObjectMapper objectMapper) {
+        this.eventoCitaRepository = eventoCitaRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Contenido de {@code datos} en {@link com.medical.center.leo.dto.EventoCitaDTO}.
+     */
+    record Datos(AgendaEventoDTO cambio, CitaResponseDTO cita) {
+    }
+
+    // Síncrono, en el hilo y la transacción de CitaService
+    @EventListener
+    public void alCambiarCita(CitaCambiadaEvent evento) {
+        EventoCita registro = aEventoCita(evento);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventoCitaRepository.insertarEnLote(List.of(registro));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<EventoCita> pendientes = (List<EventoCita>) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            pendientes = new ArrayList<>();
+            registrarEnTransaccion(pendientes);
+        }
+        pendientes.add(registro);
+    }
+
+    private void registrarEnTransaccion(List<EventoCita> pendientes) {
+        TransactionSynchronizationManager.bindResource(this, pendientes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                eventoCitaRepository.insertarEnLote(pendientes);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(BuzonSalidaCitas.this);
+            }
+        });
+    }
+
+    private EventoCita aEventoCita(CitaCambiadaEvent evento) {
+        AgendaEventoDTO cambio = AgendaEnVivoService.aEventoDTO(evento);
+        try {
+            String datos = objectMapper.writeValueAsString(new Datos(cambio, evento.cita()));
+            return new EventoCita(null, cambio.idCita(), cambio.tipo().name(), datos, LocalDateTime.now(), null);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
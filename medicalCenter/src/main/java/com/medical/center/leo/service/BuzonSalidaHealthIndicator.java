@@ -0,0 +1,30 @@
+package com.medical.center.leo.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica en /actuator/health (componente buzonSalida) el último error de las pasadas de
+ * {@link DrenadorEventosCita}, que solo lo cuentan en medicalcenter.outbox.fallos y siguen
+ * reintentando. El estado es siempre UP: un publicador caído no se arregla reiniciando la
+ * aplicación, y los eventos esperan en la tabla mientras tanto.
+ */
+@Component
+public class BuzonSalidaHealthIndicator implements HealthIndicator {
+
+    private final DrenadorEventosCita drenador;
+
+    public BuzonSalidaHealthIndicator(DrenadorEventosCita drenador) {
+        this.drenador = drenador;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder salud = Health.up();
+        drenador.ultimoFallo().ifPresent(fallo -> salud
+                .withDetail("ultimoFallo", fallo.fecha().toString())
+                .withDetail("error", fallo.error()));
+        return salud.build();
+    }
+}
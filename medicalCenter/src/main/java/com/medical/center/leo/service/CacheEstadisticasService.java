@@ -0,0 +1,54 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.RegionCacheDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Expone los aciertos y fallos de cada región de la cache de segundo nivel
+ * (entidades y consultas) para poder dimensionarlas.
+ *
+ * Hibernate solo cuenta con el perfil {@code estadisticas} activo; sin él, todas las
+ * regiones aparecen con los contadores a cero.
+ */
+@Service
+public class CacheEstadisticasService {
+
+    private final Statistics statistics;
+
+    public CacheEstadisticasService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<RegionCacheDTO> obtenerEstadisticas() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(this::estadisticasDeRegion)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private RegionCacheDTO estadisticasDeRegion(String region) {
+        CacheRegionStatistics estadisticas = statistics.getCacheRegionStatistics(region);
+        if (estadisticas == null) {
+            return null;
+        }
+        long aciertos = estadisticas.getHitCount();
+        long fallos = estadisticas.getMissCount();
+        long consultas = aciertos + fallos;
+        return new RegionCacheDTO(
+                region,
+                aciertos,
+                fallos,
+                estadisticas.getPutCount(),
+                estadisticas.getElementCountInMemory(),
+                consultas == 0 ? 0.0 : (double) aciertos / consultas);
+    }
+}
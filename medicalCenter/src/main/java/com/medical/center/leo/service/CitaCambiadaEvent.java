@@ -0,0 +1,21 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+
+/**
+ * Se publica dentro de la transacción cada vez que CitaService crea, edita o cancela una
+ * cita. Los oyentes que mantienen datos derivados (caches, notificaciones) deben usar
+ * {@code @TransactionalEventListener} para actuar solo si la transacción confirma; los que
+ * escriben en la misma transacción (BuzonSalidaCitas), {@code @EventListener}.
+ *
+ * @param anterior Slot que ocupaba la cita antes del cambio, o null si se acaba de crear
+ * @param nuevo    Slot que ocupa después del cambio, o null si se canceló
+ * @param cita     Estado de la cita después del cambio, o null si se canceló
+ */
+public record CitaCambiadaEvent(SlotOcupadoDTO anterior, SlotOcupadoDTO nuevo, CitaResponseDTO cita) {
+
+    public CitaCambiadaEvent(SlotOcupadoDTO anterior, SlotOcupadoDTO nuevo) {
+        this(anterior, nuevo, null);
+    }
+}
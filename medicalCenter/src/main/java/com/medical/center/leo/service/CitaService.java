@@ -1,40 +1,118 @@
 package com.medical.center.leo.service;
 
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
+import com.medical.center.leo.dto.CitaPaginaDTO;
 import com.medical.center.leo.dto.CitaRequestDTO;
 import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
 import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.CitaCancelada;
 import com.medical.center.leo.entity.Consultorio;
 import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.entity.Paciente;
 import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.exception.ConflictoConcurrenciaException;
 import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
 import com.medical.center.leo.repository.CitaRepository;
 import com.medical.center.leo.repository.ConsultorioRepository;
 import com.medical.center.leo.repository.DoctorRepository;
+import com.medical.center.leo.service.MetricasCitas.Regla;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CitaService {
 
+        // Intentos de una edición que choca con otra edición concurrente de la misma cita
+        static final int MAX_INTENTOS_EDICION = 3;
+        // Regla 4: citas que un médico puede tener en un mismo día
+        static final int MAX_CITAS_POR_MEDICO_Y_DIA = 8;
+        // Tamaño máximo de un lote en POST /api/citas/batch
+        static final int MAX_CITAS_POR_LOTE = 200;
+        // Tamaños de página del listado por rango
+        static final int LIMITE_PAGINA_POR_DEFECTO = 50;
+        static final int LIMITE_PAGINA_MAXIMO = 500;
+        // Cada cuántas filas se limpia el contexto de persistencia al recorrer un Stream
+        private static final int TAMANO_BLOQUE_STREAM = 500;
+
         private final CitaRepository citaRepository;
         private final DoctorRepository doctorRepository;
         private final ConsultorioRepository consultorioRepository;
+        private final CitaCanceladaRepository citaCanceladaRepository;
+        private final OcupacionIndex ocupacionIndex;
+        private final RelojCambiosCita relojCambios;
+        private final AgendaInstantanea agendaInstantanea;
+        private final PacienteService pacienteService;
+        private final Validator validator;
+        private final MetricasCitas metricasCitas;
+        private final ApplicationEventPublisher eventPublisher;
+        private final TransactionTemplate transactionTemplate;
+        private final TransactionTemplate transaccionLectura;
+
+        @PersistenceContext
+        private EntityManager entityManager;
 
         public CitaService(CitaRepository citaRepository, DoctorRepository doctorRepository,
-                        ConsultorioRepository consultorioRepository) {
+                        ConsultorioRepository consultorioRepository, CitaCanceladaRepository citaCanceladaRepository,
+                        OcupacionIndex ocupacionIndex, RelojCambiosCita relojCambios, AgendaInstantanea agendaInstantanea,
+                        PacienteService pacienteService, Validator validator, MetricasCitas metricasCitas, ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager) {
                 this.citaRepository = citaRepository;
                 this.doctorRepository = doctorRepository;
                 this.consultorioRepository = consultorioRepository;
+                this.citaCanceladaRepository = citaCanceladaRepository;
+                this.ocupacionIndex = ocupacionIndex;
+                this.relojCambios = relojCambios;
+                this.agendaInstantanea = agendaInstantanea;
+                this.pacienteService = pacienteService;
+                this.validator = validator;
+                this.metricasCitas = metricasCitas;
+                this.eventPublisher = eventPublisher;
+                this.transactionTemplate = new TransactionTemplate(transactionManager);
+                this.transaccionLectura = new TransactionTemplate(transactionManager);
+                this.transaccionLectura.setReadOnly(true);
         }
 
-        @Transactional
+        /**
+         * Crea una cita. El paciente se resuelve, y se registra si es nuevo, antes de abrir la
+         * transacción de la cita (ver {@link PacienteService#obtenerORegistrar}).
+         */
         public CitaResponseDTO crearCita(CitaRequestDTO request) {
+                Paciente paciente = pacienteService.obtenerORegistrar(request.nombrePaciente());
+                return transactionTemplate.execute(status -> registrarCita(request, paciente));
+        }
+
+        private CitaResponseDTO registrarCita(CitaRequestDTO request, Paciente paciente) {
                 Doctor doctor = doctorRepository.findById(request.medicoId())
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                                 "Doctor no encontrado con ID: " + request.medicoId()));
@@ -43,23 +121,62 @@ public class CitaService {
                                                 "Consultorio no encontrado con ID: " + request.consultorioId()));
 
                 validarReglasNegocio(request.medicoId(), request.consultorioId(), request.horarioConsulta(),
-                                request.nombrePaciente(), null);
+                                request.nombrePaciente(), null,
+                                () -> citasCercanasDelPaciente(idDe(paciente), request.horarioConsulta()), null);
 
                 Cita nuevaCita = new Cita();
                 nuevaCita.setDoctor(doctor);
                 nuevaCita.setConsultorio(consultorio);
                 nuevaCita.setHorario_consulta(request.horarioConsulta());
                 nuevaCita.setNombre_paciente(request.nombrePaciente());
-
-                Cita citaGuardada = citaRepository.save(nuevaCita);
-                return mapToCitaResponseDTO(citaGuardada);
+                nuevaCita.setPaciente(paciente);
+                nuevaCita.setVersion_cambio(relojCambios.siguiente());
+
+                Cita citaGuardada = guardar(nuevaCita);
+                SlotOcupadoDTO slot = toSlotOcupado(citaGuardada);
+                ocupacionIndex.registrar(slot);
+                CitaResponseDTO respuesta = mapToCitaResponseDTO(citaGuardada);
+                agendaInstantanea.registrar(slot, respuesta);
+                eventPublisher.publishEvent(new CitaCambiadaEvent(null, slot, respuesta));
+                return respuesta;
         }
 
-        @Transactional
+        /**
+         * Edita una cita con bloqueo optimista. Si otra transacción guarda la misma cita entre
+         * la lectura y el UPDATE, la edición se reintenta (hasta {@link #MAX_INTENTOS_EDICION}
+         * veces) sobre el estado nuevo, siempre que ambas ediciones cambien campos distintos;
+         * las reglas de negocio se validan de nuevo en cada intento. El paciente de la petición
+         * se resuelve una vez, antes de la primera transacción.
+         *
+         * @throws ConflictoConcurrenciaException Si la versión enviada ya no es la actual, si la
+         *                                        otra edición cambió los mismos campos o si se
+         *                                        agotan los reintentos
+         */
         public CitaResponseDTO editarCita(Integer citaId, CitaRequestDTO request) {
+                Paciente paciente = pacienteService.obtenerORegistrar(request.nombrePaciente());
+                AtomicReference<EstadoCita> estadoBase = new AtomicReference<>();
+                for (int intento = 1;; intento++) {
+                        try {
+                                return transactionTemplate.execute(
+                                                status -> aplicarEdicion(citaId, request, paciente, estadoBase));
+                        } catch (ObjectOptimisticLockingFailureException ex) {
+                                if (intento >= MAX_INTENTOS_EDICION) {
+                                        throw new ConflictoConcurrenciaException("La cita " + citaId
+                                                        + " se está modificando de forma concurrente; vuelva a intentarlo.");
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Un intento de edición dentro de su propia transacción.
+         */
+        private CitaResponseDTO aplicarEdicion(Integer citaId, CitaRequestDTO peticion, Paciente pacientePeticion,
+                        AtomicReference<EstadoCita> estadoBase) {
                 Cita citaExistente = citaRepository.findById(citaId)
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                                 "Cita no encontrada con ID: " + citaId));
+                CitaRequestDTO request = resolverEdicion(citaExistente, peticion, estadoBase);
 
                 Doctor doctor = doctorRepository.findById(request.medicoId())
                                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -68,89 +185,458 @@ public class CitaService {
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                                 "Consultorio no encontrado con ID: " + request.consultorioId()));
 
+                // En un reintento el nombre puede ser el que guardó la otra edición, y con él su paciente
+                Paciente paciente = Paciente.normalizar(request.nombrePaciente())
+                                .equals(Paciente.normalizar(peticion.nombrePaciente())) ? pacientePeticion
+                                                : citaExistente.getPaciente();
                 validarReglasNegocio(request.medicoId(), request.consultorioId(), request.horarioConsulta(),
-                                request.nombrePaciente(), citaId);
+                                request.nombrePaciente(), citaExistente,
+                                () -> citasCercanasDelPaciente(idDe(paciente), request.horarioConsulta()), null);
 
+                SlotOcupadoDTO slotAnterior = toSlotOcupado(citaExistente);
                 citaExistente.setDoctor(doctor);
                 citaExistente.setConsultorio(consultorio);
                 citaExistente.setHorario_consulta(request.horarioConsulta());
                 citaExistente.setNombre_paciente(request.nombrePaciente());
+                citaExistente.setPaciente(paciente);
+                citaExistente.setVersion_cambio(relojCambios.siguiente());
+
+                Cita citaActualizada = guardar(citaExistente);
+                SlotOcupadoDTO slotNuevo = toSlotOcupado(citaActualizada);
+                ocupacionIndex.mover(slotAnterior, slotNuevo);
+                CitaResponseDTO respuesta = mapToCitaResponseDTO(citaActualizada);
+                agendaInstantanea.mover(slotNuevo, respuesta);
+                eventPublisher.publishEvent(new CitaCambiadaEvent(slotAnterior, slotNuevo, respuesta));
+                return respuesta;
+        }
+
+        /**
+         * Decide qué valores aplicar en este intento. En el primero guarda en {@code estadoBase}
+         * el estado leído y aplica la petición tal cual; en los reintentos aplica sobre el estado
+         * actual solo los campos que la petición cambia respecto a ese estado base.
+         */
+        private CitaRequestDTO resolverEdicion(Cita citaExistente, CitaRequestDTO peticion,
+                        AtomicReference<EstadoCita> estadoBase) {
+                Integer citaId = citaExistente.getId_cita();
+                EstadoCita estadoActual = EstadoCita.de(citaExistente);
+                EstadoCita base = estadoBase.get();
+                if (base == null) {
+                        if (peticion.version() != null && !peticion.version().equals(citaExistente.getVersion())) {
+                                throw new ConflictoConcurrenciaException("La cita " + citaId
+                                                + " fue modificada por otro usuario (versión actual "
+                                                + citaExistente.getVersion() + "); recárguela antes de editarla.");
+                        }
+                        estadoBase.set(estadoActual);
+                        return peticion;
+                }
+
+                EstadoCita editado = EstadoCita.de(peticion);
+                Set<String> mismosCampos = base.camposDistintos(estadoActual);
+                mismosCampos.retainAll(base.camposDistintos(editado));
+                if (!mismosCampos.isEmpty()) {
+                        throw new ConflictoConcurrenciaException("La cita " + citaId
+                                        + " fue modificada por otro usuario en los mismos campos: "
+                                        + String.join(", ", mismosCampos));
+                }
+                return estadoActual.conCambios(base, editado).comoRequest(citaExistente.getVersion());
+        }
+
+        /**
+         * Crea varias citas en una sola transacción. Doctores, consultorios y citas de los
+         * pacientes se cargan una vez para todo el lote; las reglas se validan también entre
+         * las citas del propio lote. Cada elemento se acepta o se rechaza por separado. Los
+         * pacientes del lote se resuelven antes de abrir la transacción.
+         *
+         * @param requests Citas a crear, en el orden en que se reportarán los resultados
+         * @return Un resultado por cada elemento del lote, en el mismo orden
+         */
+        public List<CitaLoteResultadoDTO> crearCitasEnLote(List<CitaRequestDTO> requests) {
+                if (requests == null || requests.isEmpty()) {
+                        throw new BusinessRuleException("El lote de citas no puede estar vacío.");
+                }
+                if (requests.size() > MAX_CITAS_POR_LOTE) {
+                        throw new BusinessRuleException("El lote no puede tener más de " + MAX_CITAS_POR_LOTE
+                                        + " citas.");
+                }
+                return procesarLote(requests, this::guardarLote);
+        }
+
+        /**
+         * Crea un bloque de citas de una importación (ver {@link ImportacionCitasService}).
+         * Valida igual que {@link #crearCitasEnLote}, sin su límite de tamaño, y guarda las
+         * citas aceptadas con un INSERT en lote JDBC ({@link CitaRepository#insertarEnLote})
+         * en lugar de un INSERT por cita.
+         *
+         * @return Un resultado por cada elemento del bloque, en el mismo orden
+         */
+        public List<CitaLoteResultadoDTO> importarBloque(List<CitaRequestDTO> requests) {
+                if (requests.isEmpty()) {
+                        return List.of();
+                }
+                return procesarLote(requests, citaRepository::insertarEnLote);
+        }
+
+        /**
+         * @param guardarCitas Guarda las citas aceptadas y las devuelve con su id, en el mismo orden
+         */
+        private List<CitaLoteResultadoDTO> procesarLote(List<CitaRequestDTO> requests,
+                        Function<List<Cita>, List<Cita>> guardarCitas) {
+                CitaLoteResultadoDTO[] resultados = new CitaLoteResultadoDTO[requests.size()];
+                List<CitaRequestDTO> validas = new ArrayList<>();
+                List<Integer> indicesValidas = new ArrayList<>();
+                for (int i = 0; i < requests.size(); i++) {
+                        String errores = erroresDeValidacion(requests.get(i));
+                        if (errores == null) {
+                                validas.add(requests.get(i));
+                                indicesValidas.add(i);
+                        } else {
+                                resultados[i] = new CitaLoteResultadoDTO(i, false, null, errores);
+                        }
+                }
+
+                Map<String, Paciente> pacientes = pacienteService.obtenerORegistrarTodos(
+                                validas.stream().map(CitaRequestDTO::nombrePaciente).collect(Collectors.toSet()));
+                return transactionTemplate.execute(
+                                status -> crearLote(resultados, validas, indicesValidas, pacientes, guardarCitas));
+        }
+
+        private List<CitaLoteResultadoDTO> crearLote(CitaLoteResultadoDTO[] resultados, List<CitaRequestDTO> validas,
+                        List<Integer> indicesValidas, Map<String, Paciente> pacientes,
+                        Function<List<Cita>, List<Cita>> guardarCitas) {
+                Map<Integer, Doctor> doctores = porId(doctorRepository.findAllById(
+                                validas.stream().map(CitaRequestDTO::medicoId).collect(Collectors.toSet())),
+                                Doctor::getId_medico);
+                Map<Integer, Consultorio> consultorios = porId(consultorioRepository.findAllById(
+                                validas.stream().map(CitaRequestDTO::consultorioId).collect(Collectors.toSet())),
+                                Consultorio::getId_consultorio);
+                Map<String, List<Cita>> citasPorPaciente = citasDePacientes(validas, pacientes.values());
+
+                ReservasLote reservas = new ReservasLote();
+                List<Cita> nuevasCitas = new ArrayList<>();
+                List<Integer> indicesNuevas = new ArrayList<>();
+                for (int v = 0; v < validas.size(); v++) {
+                        CitaRequestDTO request = validas.get(v);
+                        int indice = indicesValidas.get(v);
+                        try {
+                                Doctor doctor = doctores.get(request.medicoId());
+                                if (doctor == null) {
+                                        throw new ResourceNotFoundException(
+                                                        "Doctor no encontrado con ID: " + request.medicoId());
+                                }
+                                Consultorio consultorio = consultorios.get(request.consultorioId());
+                                if (consultorio == null) {
+                                        throw new ResourceNotFoundException(
+                                                        "Consultorio no encontrado con ID: " + request.consultorioId());
+                                }
+
+                                String clavePaciente = Paciente.normalizar(request.nombrePaciente());
+                                List<Cita> citasPaciente = citasPorPaciente.computeIfAbsent(clavePaciente,
+                                                clave -> new ArrayList<>());
+                                validarReglasNegocio(request.medicoId(), request.consultorioId(),
+                                                request.horarioConsulta(), request.nombrePaciente(), null,
+                                                () -> citasPaciente, reservas);
+
+                                Cita nuevaCita = new Cita();
+                                nuevaCita.setDoctor(doctor);
+                                nuevaCita.setConsultorio(consultorio);
+                                nuevaCita.setHorario_consulta(request.horarioConsulta());
+                                nuevaCita.setNombre_paciente(request.nombrePaciente());
+                                nuevaCita.setPaciente(pacientes.get(clavePaciente));
+                                nuevaCita.setVersion_cambio(relojCambios.siguiente());
+
+                                // Reservar en el lote y en la lista del paciente para que las
+                                // siguientes citas del lote vean esta como ocupada
+                                reservas.reservar(toSlotOcupado(nuevaCita));
+                                citasPaciente.add(nuevaCita);
+                                nuevasCitas.add(nuevaCita);
+                                indicesNuevas.add(indice);
+                        } catch (BusinessRuleException | ResourceNotFoundException ex) {
+                                resultados[indice] = new CitaLoteResultadoDTO(indice, false, null, ex.getMessage());
+                        }
+                }
+
+                List<Cita> citasGuardadas;
+                try {
+                        citasGuardadas = guardarCitas.apply(nuevasCitas);
+                } catch (DataIntegrityViolationException ex) {
+                        // Otra transacción ocupó uno de los horarios después de validar el lote;
+                        // el lote se revierte completo
+                        if (esViolacionDeHorario(ex)) {
+                                throw new BusinessRuleException("Uno de los horarios del lote fue ocupado por otra"
+                                                + " cita mientras se procesaba; no se guardó ninguna cita del lote.");
+                        }
+                        throw ex;
+                }
+                for (int n = 0; n < citasGuardadas.size(); n++) {
+                        int indice = indicesNuevas.get(n);
+                        SlotOcupadoDTO slot = toSlotOcupado(citasGuardadas.get(n));
+                        // Como en registrarCita, el índice se toca solo después del flush
+                        ocupacionIndex.registrar(slot);
+                        CitaResponseDTO respuesta = mapToCitaResponseDTO(citasGuardadas.get(n));
+                        agendaInstantanea.registrar(slot, respuesta);
+                        eventPublisher.publishEvent(new CitaCambiadaEvent(null, slot, respuesta));
+                        resultados[indice] = new CitaLoteResultadoDTO(indice, true, respuesta, null);
+                }
+                return List.of(resultados);
+        }
+
+        private List<Cita> guardarLote(List<Cita> citas) {
+                List<Cita> citasGuardadas = citaRepository.saveAll(citas);
+                citaRepository.flush();
+                return citasGuardadas;
+        }
+
+        /**
+         * Valida las anotaciones de CitaRequestDTO, ya que en un lote no se aplica @Valid
+         * elemento por elemento.
+         *
+         * @return Los errores separados por comas, o null si el elemento es válido
+         */
+        private String erroresDeValidacion(CitaRequestDTO request) {
+                if (request == null) {
+                        return "La cita no puede ser nula";
+                }
+                Set<ConstraintViolation<CitaRequestDTO>> violaciones = validator.validate(request);
+                if (violaciones.isEmpty()) {
+                        return null;
+                }
+                return violaciones.stream()
+                                .map(violacion -> violacion.getPropertyPath() + ": " + violacion.getMessage())
+                                .sorted()
+                                .collect(Collectors.joining(", "));
+        }
+
+        /**
+         * Carga en una sola consulta las citas de los pacientes ya registrados del lote que caen
+         * en el rango cubierto por el lote (más el margen de 2 horas de la regla 3), agrupadas
+         * por nombre normalizado.
+         */
+        private Map<String, List<Cita>> citasDePacientes(List<CitaRequestDTO> requests,
+                        Collection<Paciente> pacientes) {
+                Map<String, List<Cita>> citasPorPaciente = new HashMap<>();
+                if (requests.isEmpty() || pacientes.isEmpty()) {
+                        return citasPorPaciente;
+                }
+                Set<Integer> pacienteIds = pacientes.stream().map(Paciente::getId_paciente)
+                                .collect(Collectors.toSet());
+                LocalDateTime desde = requests.stream().map(CitaRequestDTO::horarioConsulta)
+                                .min(LocalDateTime::compareTo).orElseThrow().minusHours(2);
+                LocalDateTime hasta = requests.stream().map(CitaRequestDTO::horarioConsulta)
+                                .max(LocalDateTime::compareTo).orElseThrow().plusHours(2);
+                for (Cita cita : citaRepository.findCitasPacientesEnRango(pacienteIds, desde, hasta)) {
+                        // El nombre de cada cita se normaliza al de su paciente
+                        citasPorPaciente.computeIfAbsent(Paciente.normalizar(cita.getNombre_paciente()),
+                                        clave -> new ArrayList<>()).add(cita);
+                }
+                return citasPorPaciente;
+        }
+
+        private static Integer idDe(Paciente paciente) {
+                return paciente != null ? paciente.getId_paciente() : null;
+        }
+
+        private static <T> Map<Integer, T> porId(Collection<T> entidades, Function<T, Integer> id) {
+                return entidades.stream().collect(Collectors.toMap(id, Function.identity()));
+        }
 
-                Cita citaActualizada = citaRepository.save(citaExistente);
-                return mapToCitaResponseDTO(citaActualizada);
+        /**
+         * Valida las cuatro reglas de negocio. Las reglas 1, 2 y 4 se responden con el
+         * índice de ocupación en memoria; la regla 3 consulta la base de datos.
+         *
+         * Visible en el paquete para los benchmarks JMH (src/jmh/java).
+         *
+         * @param citaOriginal Estado actual de la cita que se está editando, o null al crear
+         */
+        void validarReglasNegocio(Integer medicoId, Integer consultorioId, LocalDateTime horarioConsulta,
+                        String nombrePaciente, Cita citaOriginal) {
+                validarReglasNegocio(medicoId, consultorioId, horarioConsulta, nombrePaciente, citaOriginal,
+                                () -> citasCercanasDelPaciente(pacienteService.buscar(nombrePaciente)
+                                                .map(Paciente::getId_paciente).orElse(null), horarioConsulta),
+                                null);
         }
 
+        /**
+         * Citas del paciente que pueden chocar con la regla 3: una búsqueda por rango sobre
+         * (paciente_id, horario_consulta).
+         *
+         * @param pacienteId null si el paciente aún no existe, y por tanto no tiene citas
+         */
+        private List<Cita> citasCercanasDelPaciente(Integer pacienteId, LocalDateTime horarioConsulta) {
+                if (pacienteId == null) {
+                        return List.of();
+                }
+                return citaRepository.findCitasPacienteEnRangoHorario(pacienteId,
+                                horarioConsulta, horarioConsulta.minusHours(2).plusMinutes(1),
+                                horarioConsulta.plusHours(2).minusMinutes(1));
+        }
+
+        /**
+         * Igual que {@link #validarReglasNegocio(Integer, Integer, LocalDateTime, String, Cita)},
+         * pero las citas del paciente para la regla 3 las aporta quien llama (por ejemplo, ya
+         * precargadas para todo un lote). Solo se piden si las reglas 1 y 2 se cumplen.
+         * La duración y los rechazos de cada regla se registran en {@link MetricasCitas}.
+         *
+         * @param reservas Citas ya aceptadas del lote en curso, que aún no están en el índice;
+         *                 null fuera de un lote
+         */
         private void validarReglasNegocio(Integer medicoId, Integer consultorioId, LocalDateTime horarioConsulta,
-                        String nombrePaciente, Integer citaIdExcluir) {
+                        String nombrePaciente, Cita citaOriginal, Supplier<List<Cita>> citasDelPaciente,
+                        ReservasLote reservas) {
+                Integer citaIdExcluir = (citaOriginal != null) ? citaOriginal.getId_cita() : null;
 
                 // Regla 1: No se puede agendar cita en un mismo consultorio a la misma hora.
-                if (citaRepository.existsByConsultorioIdAndHorarioConsulta(consultorioId, horarioConsulta)) {
-
-                        // Necesitamos verificar si la cita existente es la misma que estamos editando
-                        if (citaIdExcluir == null || !esMismaCitaConflictiva(consultorioId, null, horarioConsulta,
-                                        citaIdExcluir)) {
-                                throw new BusinessRuleException("Ya existe otra cita en el consultorio " + consultorioId
-                                                + " a las " + horarioConsulta);
+                long inicio = System.nanoTime();
+                try {
+                        if (ocupacionIndex.consultorioOcupado(consultorioId, horarioConsulta)
+                                        || reservas != null && reservas.consultorioOcupado(consultorioId, horarioConsulta)) {
+
+                                // Necesitamos verificar si la cita existente es la misma que estamos editando
+                                if (citaOriginal == null || !esMismaCitaConflictiva(consultorioId, null,
+                                                horarioConsulta, citaOriginal)) {
+                                        metricasCitas.rechazo(Regla.CONSULTORIO_OCUPADO);
+                                        throw consultorioOcupado(consultorioId, horarioConsulta);
+                                }
                         }
+                } finally {
+                        metricasCitas.medir(Regla.CONSULTORIO_OCUPADO, inicio);
                 }
 
                 // Regla 2: No se puede agendar cita para un mismo doctor a la misma hora.
-                if (citaRepository.existsByMedicoIdAndHorarioConsulta(medicoId, horarioConsulta)) {
-                        if (citaIdExcluir == null
-                                        || !esMismaCitaConflictiva(null, medicoId, horarioConsulta, citaIdExcluir)) {
-                                throw new BusinessRuleException("El doctor " + medicoId + " ya tiene otra cita a las "
-                                                + horarioConsulta);
+                inicio = System.nanoTime();
+                try {
+                        if (ocupacionIndex.medicoOcupado(medicoId, horarioConsulta)
+                                        || reservas != null && reservas.medicoOcupado(medicoId, horarioConsulta)) {
+                                if (citaOriginal == null
+                                                || !esMismaCitaConflictiva(null, medicoId, horarioConsulta, citaOriginal)) {
+                                        metricasCitas.rechazo(Regla.MEDICO_OCUPADO);
+                                        throw medicoOcupado(medicoId, horarioConsulta);
+                                }
                         }
+                } finally {
+                        metricasCitas.medir(Regla.MEDICO_OCUPADO, inicio);
                 }
 
                 // Regla 3: Paciente con citas cercanas el mismo dia
-                LocalDateTime rangoInicioPaciente = horarioConsulta.minusHours(2).plusMinutes(1);
-                LocalDateTime rangoFinPaciente = horarioConsulta.plusHours(2).minusMinutes(1);
-
-                List<Cita> citasPacienteConflictivas = citaRepository.findCitasPacienteEnRangoHorario(
-                                nombrePaciente,
-                                horarioConsulta,
-                                rangoInicioPaciente,
-                                rangoFinPaciente);
-
-                for (Cita citaExistentePaciente : citasPacienteConflictivas) {
-                        if (citaIdExcluir == null || !citaExistentePaciente.getId_cita().equals(citaIdExcluir)) {
-                                if (Math.abs(java.time.Duration
-                                                .between(citaExistentePaciente.getHorario_consulta(), horarioConsulta)
-                                                .toMinutes()) < 120) {
-                                        throw new BusinessRuleException("El paciente " + nombrePaciente
-                                                        + " ya tiene otra cita programada dentro de las 2 horas en el mismo día.");
+                inicio = System.nanoTime();
+                try {
+                        for (Cita citaExistentePaciente : citasDelPaciente.get()) {
+                                if (citaIdExcluir == null || !citaIdExcluir.equals(citaExistentePaciente.getId_cita())) {
+                                        if (citaExistentePaciente.getHorario_consulta().toLocalDate()
+                                                        .equals(horarioConsulta.toLocalDate())
+                                                        && Math.abs(java.time.Duration
+                                                        .between(citaExistentePaciente.getHorario_consulta(), horarioConsulta)
+                                                        .toMinutes()) < 120) {
+                                                metricasCitas.rechazo(Regla.PACIENTE_CITA_CERCANA);
+                                                throw new BusinessRuleException("El paciente " + nombrePaciente
+                                                                + " ya tiene otra cita programada dentro de las 2 horas en el mismo día.");
+                                        }
                                 }
                         }
+                } finally {
+                        metricasCitas.medir(Regla.PACIENTE_CITA_CERCANA, inicio);
                 }
 
                 // Regla 4: Un mismo doctor no puede tener más de 8 citas en un dia.
-                long citasDelDoctorEnDia = citaRepository.countByMedicoIdAndDia(medicoId, horarioConsulta);
-
-                boolean estaEditandoMismaCitaMismoDiaDoctor = false;
-                if (citaIdExcluir != null) {
-                        Cita citaOriginal = citaRepository.findById(citaIdExcluir).orElse(null);
-                        if (citaOriginal != null &&
-                                        citaOriginal.getDoctor().getId_medico().equals(medicoId) &&
-                                        citaOriginal.getHorario_consulta().toLocalDate()
-                                                        .equals(horarioConsulta.toLocalDate())) {
-                                estaEditandoMismaCitaMismoDiaDoctor = true;
+                inicio = System.nanoTime();
+                try {
+                        long citasDelDoctorEnDia = ocupacionIndex.citasDelMedico(medicoId, horarioConsulta.toLocalDate());
+                        if (reservas != null) {
+                                citasDelDoctorEnDia += reservas.citasDelMedico(medicoId, horarioConsulta.toLocalDate());
                         }
-                }
 
-                if (estaEditandoMismaCitaMismoDiaDoctor) {
-                        if (citasDelDoctorEnDia > 8) {
-                                throw new BusinessRuleException(
-                                                "El doctor " + medicoId + " excedería el límite de 8 citas para el "
-                                                                + horarioConsulta.toLocalDate() + " con esta edición.");
+                        boolean estaEditandoMismaCitaMismoDiaDoctor = false;
+                        if (citaOriginal != null) {
+                                if (citaOriginal.getDoctor().getId_medico().equals(medicoId) &&
+                                                citaOriginal.getHorario_consulta().toLocalDate()
+                                                                .equals(horarioConsulta.toLocalDate())) {
+                                        estaEditandoMismaCitaMismoDiaDoctor = true;
+                                }
+                        }
+
+                        if (estaEditandoMismaCitaMismoDiaDoctor) {
+                                if (citasDelDoctorEnDia > MAX_CITAS_POR_MEDICO_Y_DIA) {
+                                        metricasCitas.rechazo(Regla.MEDICO_LIMITE_DIARIO);
+                                        throw new BusinessRuleException(
+                                                        "El doctor " + medicoId + " excedería el límite de " + MAX_CITAS_POR_MEDICO_Y_DIA
+                                                                        + " citas para el "
+                                                                        + horarioConsulta.toLocalDate() + " con esta edición.");
+                                }
+                        } else {
+                                if (citasDelDoctorEnDia >= MAX_CITAS_POR_MEDICO_Y_DIA) {
+                                        metricasCitas.rechazo(Regla.MEDICO_LIMITE_DIARIO);
+                                        throw new BusinessRuleException(
+                                                        "El doctor " + medicoId + " ya tiene " + MAX_CITAS_POR_MEDICO_Y_DIA
+                                                                        + " citas agendadas para el "
+                                                                        + horarioConsulta.toLocalDate());
+                                }
                         }
-                } else {
-                        if (citasDelDoctorEnDia >= 8) {
-                                throw new BusinessRuleException(
-                                                "El doctor " + medicoId + " ya tiene 8 citas agendadas para el "
-                                                                + horarioConsulta.toLocalDate());
+                } finally {
+                        metricasCitas.medir(Regla.MEDICO_LIMITE_DIARIO, inicio);
+                }
+        }
+
+        private static BusinessRuleException consultorioOcupado(Integer consultorioId, LocalDateTime horario) {
+                return new BusinessRuleException("Ya existe otra cita en el consultorio " + consultorioId
+                                + " a las " + horario);
+        }
+
+        private static BusinessRuleException medicoOcupado(Integer medicoId, LocalDateTime horario) {
+                return new BusinessRuleException("El doctor " + medicoId + " ya tiene otra cita a las " + horario);
+        }
+
+        /**
+         * Guarda la cita y fuerza el INSERT/UPDATE para que las restricciones únicas de
+         * (consultorio, horario) y (médico, horario) se comprueben aquí. Así, si otra transacción
+         * ocupó el horario después de la validación, el error es el mismo de las reglas 1 y 2.
+         */
+        private Cita guardar(Cita cita) {
+                try {
+                        Cita citaGuardada = citaRepository.save(cita);
+                        citaRepository.flush();
+                        return citaGuardada;
+                } catch (DataIntegrityViolationException ex) {
+                        throw traducirViolacionDeHorario(ex, cita);
+                }
+        }
+
+        /**
+         * Convierte la violación de una restricción única de horario en la BusinessRuleException
+         * de la regla correspondiente. Otras violaciones de integridad se propagan sin cambios.
+         */
+        private RuntimeException traducirViolacionDeHorario(DataIntegrityViolationException ex, Cita cita) {
+                String restriccion = nombreRestriccion(ex);
+                if (contieneRestriccion(restriccion, Cita.UQ_CONSULTORIO_HORARIO)) {
+                        metricasCitas.rechazoPorRestriccion(Regla.CONSULTORIO_OCUPADO);
+                        return consultorioOcupado(cita.getConsultorio().getId_consultorio(),
+                                        cita.getHorario_consulta());
+                }
+                if (contieneRestriccion(restriccion, Cita.UQ_MEDICO_HORARIO)) {
+                        metricasCitas.rechazoPorRestriccion(Regla.MEDICO_OCUPADO);
+                        return medicoOcupado(cita.getDoctor().getId_medico(), cita.getHorario_consulta());
+                }
+                return ex;
+        }
+
+        private static boolean esViolacionDeHorario(DataIntegrityViolationException ex) {
+                String restriccion = nombreRestriccion(ex);
+                return contieneRestriccion(restriccion, Cita.UQ_CONSULTORIO_HORARIO)
+                                || contieneRestriccion(restriccion, Cita.UQ_MEDICO_HORARIO);
+        }
+
+        private static boolean contieneRestriccion(String texto, String restriccion) {
+                return texto.toUpperCase(Locale.ROOT).contains(restriccion.toUpperCase(Locale.ROOT));
+        }
+
+        private static String nombreRestriccion(DataIntegrityViolationException ex) {
+                for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+                        if (causa instanceof ConstraintViolationException violacion
+                                        && violacion.getConstraintName() != null) {
+                                return violacion.getConstraintName();
                         }
                 }
+                // Sin nombre extraído por el dialecto, el mensaje del driver incluye el del índice
+                String mensaje = ex.getMostSpecificCause().getMessage();
+                return mensaje != null ? mensaje : "";
         }
 
         /**
@@ -159,17 +645,13 @@ public class CitaService {
          * @param consultorioId  ID del consultorio
          * @param medicoId       ID del médico
          * @param horario        Horario de la cita
-         * @param citaIdEditando ID de la cita que se está editando
+         * @param citaEditada    Cita que se está editando, tal como está guardada
          * @return true si es la misma cita, false en caso contrario
          */
         private boolean esMismaCitaConflictiva(Integer consultorioId, Integer medicoId, LocalDateTime horario,
-                        Integer citaIdEditando) {
-                if (citaIdEditando == null)
-                        return false;
-
-                Cita citaEditada = citaRepository.findById(citaIdEditando).orElse(null);
+                        Cita citaEditada) {
                 if (citaEditada == null)
-                        return false; // Cita no encontrada
+                        return false;
                 boolean mismoHorario = citaEditada.getHorario_consulta().equals(horario);
                 boolean mismoConsultorio = consultorioId != null
                                 && citaEditada.getConsultorio().getId_consultorio().equals(consultorioId);
@@ -184,38 +666,125 @@ public class CitaService {
                 return false;
         }
 
-        @Transactional(readOnly = true)
+        /**
+         * Lista las citas de un día. Hoy y mañana se sirven desde {@link AgendaInstantanea} sin
+         * tocar la base de datos; el resto de los días (o mientras la agenda se reconstruye)
+         * usa una proyección directa a CitaResponseDTO, una sola sentencia SQL. Sin
+         * {@code @Transactional}, para que una lectura desde memoria no tome una conexión; la
+         * consulta sí va en una transacción de solo lectura, que se atiende con la réplica si
+         * está configurada (ver ReplicaLecturaConfig).
+         */
         public List<CitaResponseDTO> consultarCitas(LocalDate fecha, Integer consultorioId, Integer medicoId) {
+                Optional<List<CitaResponseDTO>> enMemoria = agendaInstantanea.consultar(fecha, consultorioId,
+                                medicoId);
+                if (enMemoria.isPresent()) {
+                        return enMemoria.get();
+                }
+                return transaccionLectura.execute(status -> consultarCitasDelDia(fecha, consultorioId, medicoId));
+        }
+
+        private List<CitaResponseDTO> consultarCitasDelDia(LocalDate fecha, Integer consultorioId,
+                        Integer medicoId) {
                 LocalDateTime inicioDia = fecha.atStartOfDay();
-                LocalDateTime finDia = fecha.atTime(LocalTime.MAX);
-                List<Cita> citas;
+                LocalDateTime inicioDiaSiguiente = fecha.plusDays(1).atStartOfDay();
 
                 // Verificar si se pasan ambos IDs
                 if (consultorioId != null && medicoId != null) {
-                        citas = citaRepository.findByHorarioConsultaBetweenAndConsultorioIdAndMedicoId(
-                                        inicioDia, finDia, consultorioId, medicoId);
+                        return citaRepository.findResponseDelDiaPorConsultorioYMedico(
+                                        inicioDia, inicioDiaSiguiente, consultorioId, medicoId);
                 } else if (consultorioId != null) {
-                        citas = citaRepository.findByHorarioConsultaBetweenAndConsultorioId(inicioDia,
-                                        finDia, consultorioId);
+                        return citaRepository.findResponseDelDiaPorConsultorio(inicioDia, inicioDiaSiguiente,
+                                        consultorioId);
                 } else if (medicoId != null) {
-                        citas = citaRepository.findByHorarioConsultaBetweenAndMedicoId(inicioDia, finDia,
+                        return citaRepository.findResponseDelDiaPorMedico(inicioDia, inicioDiaSiguiente,
                                         medicoId);
-                } else {
-                        citas = citaRepository.findByHorario_consultaBetween(inicioDia, finDia);
                 }
-                return citas.stream().map(this::mapToCitaResponseDTO).collect(Collectors.toList());
+                return citaRepository.findResponseDelDia(inicioDia, inicioDiaSiguiente);
+        }
+
+        /**
+         * Lista las citas de un rango de días con paginación keyset sobre
+         * (horario_consulta, id_cita): cada página se lee con una consulta acotada, sin
+         * importar cuántas páginas se hayan recorrido antes.
+         *
+         * @param desde         Primer día del rango (incluido)
+         * @param hasta         Último día del rango (incluido)
+         * @param consultorioId Filtro opcional por consultorio
+         * @param medicoId      Filtro opcional por médico
+         * @param cursor        Cursor devuelto por la página anterior, o null para la primera
+         * @param limite        Tamaño de página, o null para el valor por defecto
+         * @return La página y el cursor de la siguiente, si la hay
+         */
+        @Transactional(readOnly = true)
+        public CitaPaginaDTO consultarCitasPorRango(LocalDate desde, LocalDate hasta, Integer consultorioId,
+                        Integer medicoId, String cursor, Integer limite) {
+                validarRangoFechas(desde, hasta);
+                int tamanoPagina = (limite != null) ? limite : LIMITE_PAGINA_POR_DEFECTO;
+                if (tamanoPagina < 1 || tamanoPagina > LIMITE_PAGINA_MAXIMO) {
+                        throw new BusinessRuleException("El límite de página debe estar entre 1 y "
+                                        + LIMITE_PAGINA_MAXIMO + ".");
+                }
+                CursorCita posicion = (cursor != null) ? CursorCita.decodificar(cursor)
+                                : new CursorCita(desde.atStartOfDay(), Integer.MIN_VALUE);
+
+                // Se pide un elemento de más para saber si existe una página siguiente
+                List<Cita> citas = citaRepository.findPaginaEnRango(desde.atStartOfDay(),
+                                hasta.plusDays(1).atStartOfDay(), consultorioId, medicoId, posicion.horario(),
+                                posicion.idCita(), PageRequest.of(0, tamanoPagina + 1));
+                boolean hayMas = citas.size() > tamanoPagina;
+                List<Cita> pagina = hayMas ? citas.subList(0, tamanoPagina) : citas;
+
+                String siguienteCursor = hayMas ? CursorCita.de(pagina.get(pagina.size() - 1)).codificar() : null;
+                return new CitaPaginaDTO(pagina.stream().map(this::mapToCitaResponseDTO).collect(Collectors.toList()),
+                                siguienteCursor);
+        }
+
+        /**
+         * Recorre todas las citas de un rango de días en orden y entrega cada una al
+         * consumidor a medida que se leen, sin acumularlas. El contexto de persistencia se
+         * limpia periódicamente para que la memoria no crezca con el tamaño del rango.
+         */
+        @Transactional(readOnly = true)
+        public void recorrerCitasPorRango(LocalDate desde, LocalDate hasta, Integer consultorioId, Integer medicoId,
+                        Consumer<CitaResponseDTO> consumidor) {
+                validarRangoFechas(desde, hasta);
+                try (Stream<Cita> citas = citaRepository.streamEnRango(desde.atStartOfDay(),
+                                hasta.plusDays(1).atStartOfDay(), consultorioId, medicoId)) {
+                        Iterator<Cita> iterador = citas.iterator();
+                        int leidas = 0;
+                        while (iterador.hasNext()) {
+                                consumidor.accept(mapToCitaResponseDTO(iterador.next()));
+                                if (++leidas % TAMANO_BLOQUE_STREAM == 0) {
+                                        entityManager.clear();
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Verifica que el rango de fechas sea válido. Se expone para que el listado en
+         * streaming pueda rechazar el rango antes de empezar a escribir la respuesta.
+         */
+        public void validarRangoFechas(LocalDate desde, LocalDate hasta) {
+                if (desde == null || hasta == null) {
+                        throw new BusinessRuleException("Las fechas desde y hasta son obligatorias.");
+                }
+                if (hasta.isBefore(desde)) {
+                        throw new BusinessRuleException("La fecha hasta (" + hasta
+                                        + ") no puede ser anterior a la fecha desde (" + desde + ").");
+                }
         }
 
         @Transactional(readOnly = true)
         public CitaResponseDTO obtenerCitaPorId(Integer idCita) {
-                Cita cita = citaRepository.findById(idCita)
+                return citaRepository.findResponseById(idCita)
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                                 "Cita no encontrada con ID: " + idCita));
-                return mapToCitaResponseDTO(cita);
         }
 
         /**
-         * Cancela una cita existente.
+         * Cancela una cita existente. La fila no se borra: queda con estado CANCELADA, fuera
+         * de todas las consultas de citas, hasta que ArchivadorCitas la mueve al historial.
          * 
          * @param citaId ID de la cita a cancelar
          */
@@ -228,7 +797,21 @@ public class CitaService {
                 if (cita.getHorario_consulta().isBefore(LocalDateTime.now())) {
                         throw new BusinessRuleException("No se puede cancelar una cita que ya ha pasado.");
                 }
-                citaRepository.delete(cita);
+                LocalDateTime ahora = LocalDateTime.now();
+                cita.cancelar(ahora);
+                citaRepository.save(cita);
+                SlotOcupadoDTO slot = toSlotOcupado(cita);
+                // Lápida para los clientes que sincronizan con GET /api/citas/cambios
+                citaCanceladaRepository.save(new CitaCancelada(citaId, slot.consultorioId(), slot.medicoId(),
+                                slot.horarioConsulta(), relojCambios.siguiente(), ahora));
+                ocupacionIndex.liberar(slot);
+                agendaInstantanea.quitar(slot);
+                eventPublisher.publishEvent(new CitaCambiadaEvent(slot, null));
+        }
+
+        private SlotOcupadoDTO toSlotOcupado(Cita cita) {
+                return new SlotOcupadoDTO(cita.getId_cita(), cita.getConsultorio().getId_consultorio(),
+                                cita.getDoctor().getId_medico(), cita.getHorario_consulta());
         }
 
         /**
@@ -237,7 +820,7 @@ public class CitaService {
          * @param cita La entidad Cita a mapear
          * @return Un DTO de respuesta con los datos de la cita
          */
-        private CitaResponseDTO mapToCitaResponseDTO(Cita cita) {
+        CitaResponseDTO mapToCitaResponseDTO(Cita cita) {
                 String nombreCompletoMedico = (cita.getDoctor() != null)
                                 ? cita.getDoctor().getNombre() + " " + cita.getDoctor().getApellido_paterno()
                                 : "N/A";
@@ -254,6 +837,7 @@ public class CitaService {
                                 nombreCompletoMedico,
                                 especialidadMedico,
                                 cita.getHorario_consulta(),
-                                cita.getNombre_paciente());
+                                cita.getNombre_paciente(),
+                                cita.getVersion());
         }
 }
\ No newline at end of file
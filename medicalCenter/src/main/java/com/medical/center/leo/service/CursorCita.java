@@ -0,0 +1,41 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.exception.BusinessRuleException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de la paginación keyset sobre (horario_consulta, id_cita).
+ * Se entrega al cliente codificada en Base64 para que la trate como un valor opaco.
+ */
+record CursorCita(LocalDateTime horario, Integer idCita) {
+
+    private static final String SEPARADOR = "|";
+
+    static CursorCita de(Cita cita) {
+        return new CursorCita(cita.getHorario_consulta(), cita.getId_cita());
+    }
+
+    String codificar() {
+        String valor = horario + SEPARADOR + idCita;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorCita decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            if (separador < 0) {
+                throw new BusinessRuleException("Cursor de paginación inválido: " + cursor);
+            }
+            return new CursorCita(LocalDateTime.parse(valor.substring(0, separador)),
+                    Integer.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BusinessRuleException("Cursor de paginación inválido: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.DoctorResumenDTO;
+import com.medical.center.leo.exception.BusinessRuleException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición de la paginación keyset sobre (apellido_paterno, id_medico).
+ * Se entrega al cliente codificada en Base64 para que la trate como un valor opaco.
+ */
+record CursorDoctor(String apellidoPaterno, Integer idMedico) {
+
+    // El id va primero: el apellido puede contener el separador
+    private static final String SEPARADOR = "|";
+
+    static final CursorDoctor INICIO = new CursorDoctor("", Integer.MIN_VALUE);
+
+    static CursorDoctor de(DoctorResumenDTO doctor) {
+        return new CursorDoctor(doctor.apellidoPaterno(), doctor.idMedico());
+    }
+
+    String codificar() {
+        String valor = idMedico + SEPARADOR + apellidoPaterno;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorDoctor decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            if (separador < 0) {
+                throw new BusinessRuleException("Cursor de paginación inválido: " + cursor);
+            }
+            return new CursorDoctor(valor.substring(separador + 1), Integer.valueOf(valor.substring(0, separador)));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessRuleException("Cursor de paginación inválido: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.medical.center.leo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medical.center.leo.dto.CitasPorDiaDTO;
+import com.medical.center.leo.dto.DisponibilidadDiaDTO;
+import com.medical.center.leo.dto.DisponibilidadMesDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calendario mensual de disponibilidad por médico para el portal de pacientes.
+ *
+ * Cada mes se calcula con un único GROUP BY sobre Citas y se guarda en una cache local por
+ * médico y mes. Al confirmarse una transacción que crea, edita o cancela una cita
+ * ({@link CitaCambiadaEvent}) se invalidan los meses afectados, el de antes y el de después
+ * del cambio. Caffeine espera a que termine un cálculo en curso antes de invalidar su
+ * entrada, así que un mes leído antes del commit no sobrevive a la invalidación.
+ */
+@Service
+public class DisponibilidadService {
+
+    // Entradas médico/mes; cada una ocupa unos pocos KB
+    static final int MAX_MESES_EN_CACHE = 10_000;
+    // Red de seguridad por si una escritura no pasó por CitaService
+    static final Duration EXPIRACION = Duration.ofHours(1);
+
+    private final CitaRepository citaRepository;
+    private final DoctorRepository doctorRepository;
+    private final Cache<ClaveMes, DisponibilidadMesDTO> meses;
+
+    private record ClaveMes(Integer medicoId, YearMonth mes) {
+    }
+
+    public DisponibilidadService(CitaRepository citaRepository, DoctorRepository doctorRepository,
+            MeterRegistry meterRegistry) {
+        this.citaRepository = citaRepository;
+        this.doctorRepository = doctorRepository;
+        this.meses = Caffeine.newBuilder()
+                .maximumSize(MAX_MESES_EN_CACHE)
+                .expireAfterWrite(EXPIRACION)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, meses, "disponibilidad");
+    }
+
+    /**
+     * @throws ResourceNotFoundException Si el médico no existe
+     */
+    public DisponibilidadMesDTO obtenerDisponibilidadMensual(Integer medicoId, YearMonth mes) {
+        return meses.get(new ClaveMes(medicoId, mes), this::calcular);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarCita(CitaCambiadaEvent evento) {
+        invalidar(evento.anterior());
+        invalidar(evento.nuevo());
+    }
+
+    private void invalidar(SlotOcupadoDTO slot) {
+        if (slot != null) {
+            meses.invalidate(new ClaveMes(slot.medicoId(), YearMonth.from(slot.horarioConsulta())));
+        }
+    }
+
+    private DisponibilidadMesDTO calcular(ClaveMes clave) {
+        Integer medicoId = clave.medicoId();
+        YearMonth mes = clave.mes();
+        doctorRepository.findById(medicoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Doctor no encontrado con ID: " + medicoId));
+
+        LocalDateTime inicio = mes.atDay(1).atStartOfDay();
+        LocalDateTime fin = mes.plusMonths(1).atDay(1).atStartOfDay();
+        int[] citasPorDia = new int[mes.lengthOfMonth() + 1];
+        for (CitasPorDiaDTO fila : citaRepository.countPorDiaDelMedicoEnRango(medicoId, inicio, fin)) {
+            citasPorDia[fila.dia()] = fila.citas().intValue();
+        }
+
+        int limite = CitaService.MAX_CITAS_POR_MEDICO_Y_DIA;
+        List<DisponibilidadDiaDTO> dias = new ArrayList<>(mes.lengthOfMonth());
+        for (int dia = 1; dia <= mes.lengthOfMonth(); dia++) {
+            int citas = citasPorDia[dia];
+            DisponibilidadDiaDTO.Estado estado = citas == 0 ? DisponibilidadDiaDTO.Estado.LIBRE
+                    : citas >= limite ? DisponibilidadDiaDTO.Estado.COMPLETO
+                            : DisponibilidadDiaDTO.Estado.OCUPADO;
+            dias.add(new DisponibilidadDiaDTO(mes.atDay(dia), citas, Math.max(0, limite - citas), estado));
+        }
+        return new DisponibilidadMesDTO(medicoId, mes, limite, List.copyOf(dias));
+    }
+}
@@ -1,34 +1,77 @@
 package com.medical.center.leo.service;
 
+import com.medical.center.leo.dto.DoctorPaginaDTO;
+import com.medical.center.leo.dto.DoctorResumenDTO;
 import com.medical.center.leo.entity.Doctor;
 import com.medical.center.leo.exception.BusinessRuleException;
 import com.medical.center.leo.exception.ResourceNotFoundException;
 import com.medical.center.leo.repository.CitaRepository;
 import com.medical.center.leo.repository.DoctorRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class DoctorService {
 
+    static final int LIMITE_PAGINA_POR_DEFECTO = 50;
+    static final int LIMITE_PAGINA_MAXIMO = 200;
+
     private final DoctorRepository doctorRepository;
     private final CitaRepository citaRepository;
+    private final AgendaInstantanea agendaInstantanea;
+    private final VersionDoctores versionDoctores;
 
-    public DoctorService(DoctorRepository doctorRepository, CitaRepository citaRepository) {
+    public DoctorService(DoctorRepository doctorRepository, CitaRepository citaRepository,
+            AgendaInstantanea agendaInstantanea, VersionDoctores versionDoctores) {
         this.doctorRepository = doctorRepository;
         this.citaRepository = citaRepository;
+        this.agendaInstantanea = agendaInstantanea;
+        this.versionDoctores = versionDoctores;
     }
 
     @Transactional
     public Doctor registrarDoctor(Doctor doctor) {
+        versionDoctores.registrarCambio();
         return doctorRepository.save(doctor);
     }
 
-    @Transactional(readOnly = true)
-    public List<Doctor> listarDoctores() {
-        return doctorRepository.findAll();
+    /**
+     * Versión actual del listado de doctores, para el ETag de GET /api/doctores. Se consulta
+     * antes de {@link #listarDoctores} y no toca la base de datos.
+     */
+    public String versionListado() {
+        return versionDoctores.actual();
+    }
+
+    /**
+     * Página del listado de doctores ordenada por apellido paterno, filtrada opcionalmente
+     * por especialidad (exacta) y por el inicio del apellido paterno. Mayúsculas y acentos
+     * se comparan según la intercalación de la base de datos.
+     */
+    // Sin readOnly: VersionDoctores avanza al confirmarse el cambio en el primario, así que el
+    // listado se lee del primario. Una réplica retrasada devolvería la lista anterior con el
+    // ETag nuevo, y los 304 la mantendrían hasta el siguiente cambio
+    @Transactional
+    public DoctorPaginaDTO listarDoctores(String especialidad, String apellido, String cursor, Integer limite) {
+        int tamanoPagina = (limite != null) ? limite : LIMITE_PAGINA_POR_DEFECTO;
+        if (tamanoPagina < 1 || tamanoPagina > LIMITE_PAGINA_MAXIMO) {
+            throw new BusinessRuleException("El límite de página debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO + ".");
+        }
+        CursorDoctor posicion = (cursor != null) ? CursorDoctor.decodificar(cursor) : CursorDoctor.INICIO;
+
+        // Un elemento de más para saber si existe una página siguiente
+        List<DoctorResumenDTO> doctores = doctorRepository.findPagina(sinVacio(especialidad),
+                prefijoLike(sinVacio(apellido)), posicion.apellidoPaterno(), posicion.idMedico(),
+                PageRequest.of(0, tamanoPagina + 1));
+        boolean hayMas = doctores.size() > tamanoPagina;
+        List<DoctorResumenDTO> pagina = hayMas ? doctores.subList(0, tamanoPagina) : doctores;
+
+        String siguienteCursor = hayMas ? CursorDoctor.de(pagina.get(pagina.size() - 1)).codificar() : null;
+        return new DoctorPaginaDTO(List.copyOf(pagina), siguienteCursor);
     }
 
     @Transactional(readOnly = true)
@@ -49,6 +92,9 @@ public class DoctorService {
         doctorExistente.setApellido_materno(doctorActualizado.getApellido_materno());
         doctorExistente.setEspecialidad(doctorActualizado.getEspecialidad());
 
+        // El nombre y la especialidad van copiados en las citas de la agenda en memoria
+        agendaInstantanea.invalidar();
+        versionDoctores.registrarCambio();
         return doctorRepository.save(doctorExistente);
     }
 
@@ -64,6 +110,21 @@ public class DoctorService {
                     " porque tiene citas médicas asociadas. Cancele o reasigne las citas primero.");
         }
 
+        // Las canceladas siguen en Citas y su clave foránea impediría el borrado
+        citaRepository.archivarCanceladasDeMedico(idMedico, LocalDateTime.now());
         doctorRepository.delete(doctor);
+        versionDoctores.registrarCambio();
+    }
+
+    private static String sinVacio(String valor) {
+        return (valor == null || valor.isBlank()) ? null : valor.strip();
+    }
+
+    // Patrón LIKE "empieza por", con los comodines del texto escapados
+    private static String prefijoLike(String prefijo) {
+        if (prefijo == null) {
+            return null;
+        }
+        return prefijo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.AgendaEventoDTO;
+import com.medical.center.leo.dto.EventoCitaDTO;
+import com.medical.center.leo.entity.EventoCita;
+import com.medical.center.leo.repository.EventoCitaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrega los eventos pendientes del buzón de salida ({@link BuzonSalidaCitas}) a los
+ * {@link PublicadorEventosCita} registrados.
+ *
+ * Cada pasada lee los pendientes en lotes de medicalcenter.outbox.tamano-lote, en orden de
+ * id_evento, entrega cada lote a todos los publicadores y lo marca como publicado con un
+ * solo UPDATE. Un evento cuya transacción confirmó después que la de otros posteriores
+ * sigue pendiente y sale en la pasada siguiente, nunca se salta. Si un publicador falla, la
+ * pasada se detiene y el lote se reintenta en la siguiente (entrega al menos una vez).
+ *
+ * Sin publicadores registrados no se programa ninguna pasada y los eventos esperan en la
+ * tabla. Como {@link OcupacionIndex}, asume una sola instancia de la aplicación.
+ *
+ * Cada medicalcenter.outbox.depuracion-intervalo, y haya publicadores o no, se borran por
+ * lotes los eventos registrados hace más de medicalcenter.outbox.retencion. Los pendientes
+ * también: un evento que no se entregó en ese tiempo se descarta en lugar de crecer la tabla
+ * sin límite. El último error de una pasada se publica en /actuator/health
+ * ({@link BuzonSalidaHealthIndicator}).
+ */
+@Component
+public class DrenadorEventosCita {
+
+    private final EventoCitaRepository eventoCitaRepository;
+    private final List<PublicadorEventosCita> publicadores;
+    private final int tamanoLote;
+    private final Duration retencion;
+    private final Counter publicados;
+    private final Counter eliminados;
+    private final Counter fallos;
+    private volatile Fallo ultimoFallo;
+    private final ScheduledExecutorService pasadas = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "outbox-citas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public DrenadorEventosCita(EventoCitaRepository eventoCitaRepository,
+            ObjectProvider<PublicadorEventosCita> publicadores,
+            @Value("${medicalcenter.outbox.tamano-lote:500}") int tamanoLote,
+            @Value("${medicalcenter.outbox.intervalo:1s}") Duration intervalo,
+            @Value("${medicalcenter.outbox.retencion:7d}") Duration retencion,
+            @Value("${medicalcenter.outbox.depuracion-intervalo:1h}") Duration intervaloDepuracion,
+            MeterRegistry meterRegistry) {
+        if (retencion.isNegative() || retencion.isZero()) {
+            throw new IllegalArgumentException("medicalcenter.outbox.retencion debe ser positiva: " + retencion);
+        }
+        this.eventoCitaRepository = eventoCitaRepository;
+        this.publicadores = publicadores.orderedStream().toList();
+        this.tamanoLote = tamanoLote;
+        this.retencion = retencion;
+        this.publicados = Counter.builder("medicalcenter.outbox.publicados")
+                .description("Eventos de citas entregados a los publicadores")
+                .register(meterRegistry);
+        this.eliminados = Counter.builder("medicalcenter.outbox.eliminados")
+                .description("Eventos de citas borrados al cumplir su retención")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("medicalcenter.outbox.fallos")
+                .description("Pasadas del buzón de salida interrumpidas por un error")
+                .register(meterRegistry);
+        if (!this.publicadores.isEmpty()) {
+            pasadas.scheduleWithFixedDelay(() -> programada(this::drenar), intervalo.toMillis(),
+                    intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        pasadas.scheduleWithFixedDelay(() -> programada(this::eliminarAntiguos), intervaloDepuracion.toMillis(),
+                intervaloDepuracion.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Error de la última pasada programada que falló.
+     *
+     * @param error Tipo y mensaje de la excepción
+     */
+    public record Fallo(LocalDateTime fecha, String error) {
+    }
+
+    /**
+     * Entrega todos los eventos pendientes. Sin publicadores no marca nada.
+     *
+     * @return Número de eventos entregados
+     */
+    public int drenar() {
+        if (publicadores.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        List<EventoCita> lote;
+        do {
+            lote = eventoCitaRepository.findPendientes(PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<EventoCitaDTO> eventos = lote.stream().map(DrenadorEventosCita::aEventoDTO).toList();
+            for (PublicadorEventosCita publicador : publicadores) {
+                publicador.publicar(eventos);
+            }
+            eventoCitaRepository.marcarPublicados(eventos.stream().map(EventoCitaDTO::idEvento).toList(),
+                    LocalDateTime.now());
+            publicados.increment(eventos.size());
+            total += eventos.size();
+        } while (lote.size() == tamanoLote);
+        return total;
+    }
+
+    /**
+     * Borra, por lotes, los eventos registrados hace más de medicalcenter.outbox.retencion.
+     *
+     * @return Número de eventos borrados
+     */
+    public int eliminarAntiguos() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        int total = 0;
+        int lote;
+        do {
+            lote = eventoCitaRepository.eliminarAnterioresA(limite, tamanoLote);
+            eliminados.increment(lote);
+            total += lote;
+        } while (lote == tamanoLote);
+        return total;
+    }
+
+    /**
+     * @return El último fallo de una pasada programada, aunque las siguientes hayan ido bien
+     */
+    public Optional<Fallo> ultimoFallo() {
+        return Optional.ofNullable(ultimoFallo);
+    }
+
+    // Visible en el paquete para las pruebas
+    void programada(Runnable pasada) {
+        try {
+            pasada.run();
+        } catch (RuntimeException ex) {
+            // Los pendientes siguen en la tabla; la siguiente pasada los reintenta
+            ultimoFallo = new Fallo(LocalDateTime.now(), ex.getClass().getSimpleName() + ": " + ex.getMessage());
+            fallos.increment();
+        }
+    }
+
+    private static EventoCitaDTO aEventoDTO(EventoCita evento) {
+        return new EventoCitaDTO(evento.getId_evento(), AgendaEventoDTO.Tipo.valueOf(evento.getTipo()),
+                evento.getId_cita(), evento.getFecha_registro(), evento.getDatos());
+    }
+
+    @PreDestroy
+    void cerrar() {
+        pasadas.shutdownNow();
+    }
+}
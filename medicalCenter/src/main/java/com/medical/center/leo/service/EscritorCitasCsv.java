@@ -0,0 +1,89 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaResponseDTO;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Escribe citas como CSV a medida que llegan, con un búfer de tamaño fijo.
+ *
+ * El archivo empieza con la marca de orden de bytes para que Excel lo abra como UTF-8 y
+ * usa fin de línea CRLF (RFC 4180). Los campos con el separador, comillas o saltos de
+ * línea van entre comillas, y los que empiezan como una fórmula (=, +, -, @) llevan un
+ * apóstrofo delante para que la hoja de cálculo no los evalúe. El horario usa el formato
+ * de la API, el mismo que lee {@link LectorCitasCsv}.
+ */
+public class EscritorCitasCsv implements Flushable {
+
+    static final List<String> COLUMNAS = List.of("idCita", "horarioConsulta", "consultorioNumero", "consultorioPiso",
+            "medicoNombreCompleto", "medicoEspecialidad", "nombrePaciente");
+
+    private static final DateTimeFormatter FORMATO_HORARIO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String FIN_DE_LINEA = "\r\n";
+
+    private final BufferedWriter escritor;
+    private final char separador;
+
+    /**
+     * @param separador ',' o ';' (el que espera Excel con configuración regional en español)
+     */
+    public EscritorCitasCsv(OutputStream salida, char separador) {
+        this.escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        this.separador = separador;
+    }
+
+    public void escribirEncabezado() {
+        try {
+            escritor.write('\uFEFF');
+            escribirFila(COLUMNAS.toArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void escribir(CitaResponseDTO cita) {
+        try {
+            escribirFila(cita.idCita(), cita.horarioConsulta() != null ? FORMATO_HORARIO.format(cita.horarioConsulta())
+                    : null, cita.consultorioNumero(), cita.consultorioPiso(), cita.medicoNombreCompleto(),
+                    cita.medicoEspecialidad(), cita.nombrePaciente());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        escritor.flush();
+    }
+
+    private void escribirFila(Object... valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                escritor.write(separador);
+            }
+            if (valores[i] != null) {
+                escritor.write(campo(valores[i].toString()));
+            }
+        }
+        escritor.write(FIN_DE_LINEA);
+    }
+
+    private String campo(String valor) {
+        if (!valor.isEmpty() && "=+-@".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+        if (valor.indexOf(separador) >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0
+                || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+}
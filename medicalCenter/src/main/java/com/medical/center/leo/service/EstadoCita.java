@@ -0,0 +1,63 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.entity.Cita;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Campos editables de una cita, usados para decidir si dos ediciones concurrentes
+ * se pueden combinar (cambian campos distintos) o están en conflicto.
+ */
+record EstadoCita(Integer consultorioId, Integer medicoId, LocalDateTime horarioConsulta, String nombrePaciente) {
+
+    static EstadoCita de(Cita cita) {
+        return new EstadoCita(cita.getConsultorio().getId_consultorio(), cita.getDoctor().getId_medico(),
+                cita.getHorario_consulta(), cita.getNombre_paciente());
+    }
+
+    static EstadoCita de(CitaRequestDTO request) {
+        return new EstadoCita(request.consultorioId(), request.medicoId(), request.horarioConsulta(),
+                request.nombrePaciente());
+    }
+
+    /**
+     * Nombres de los campos cuyo valor difiere entre este estado y el otro.
+     */
+    Set<String> camposDistintos(EstadoCita otro) {
+        Set<String> campos = new LinkedHashSet<>();
+        if (!Objects.equals(consultorioId, otro.consultorioId)) {
+            campos.add("consultorioId");
+        }
+        if (!Objects.equals(medicoId, otro.medicoId)) {
+            campos.add("medicoId");
+        }
+        if (!Objects.equals(horarioConsulta, otro.horarioConsulta)) {
+            campos.add("horarioConsulta");
+        }
+        if (!Objects.equals(nombrePaciente, otro.nombrePaciente)) {
+            campos.add("nombrePaciente");
+        }
+        return campos;
+    }
+
+    /**
+     * Aplica sobre este estado (el más reciente) solo los campos que {@code editado}
+     * cambió respecto a {@code base}.
+     */
+    EstadoCita conCambios(EstadoCita base, EstadoCita editado) {
+        Set<String> cambios = base.camposDistintos(editado);
+        return new EstadoCita(
+                cambios.contains("consultorioId") ? editado.consultorioId : consultorioId,
+                cambios.contains("medicoId") ? editado.medicoId : medicoId,
+                cambios.contains("horarioConsulta") ? editado.horarioConsulta : horarioConsulta,
+                cambios.contains("nombrePaciente") ? editado.nombrePaciente : nombrePaciente);
+    }
+
+    CitaRequestDTO comoRequest(Long version) {
+        return new CitaRequestDTO(consultorioId, medicoId, horarioConsulta, nombrePaciente, version);
+    }
+}
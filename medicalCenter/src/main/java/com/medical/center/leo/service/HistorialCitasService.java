@@ -0,0 +1,58 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaHistorialDTO;
+import com.medical.center.leo.dto.CitaHistorialPaginaDTO;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.repository.CitaArchivadaRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consulta del historial de citas: las que {@link ArchivadorCitas} movió a CitasArchivadas.
+ * Las citas dentro del horizonte de archivo se consultan con CitaService, como siempre.
+ */
+@Service
+public class HistorialCitasService {
+
+    private final CitaArchivadaRepository citaArchivadaRepository;
+    private final CitaService citaService;
+
+    public HistorialCitasService(CitaArchivadaRepository citaArchivadaRepository, CitaService citaService) {
+        this.citaArchivadaRepository = citaArchivadaRepository;
+        this.citaService = citaService;
+    }
+
+    /**
+     * Página del historial entre dos días, ambos incluidos, ordenada por horario. Mismo
+     * cursor y límites que CitaService.consultarCitasPorRango.
+     */
+    @Transactional(readOnly = true)
+    public CitaHistorialPaginaDTO consultarHistorial(LocalDate desde, LocalDate hasta, Integer consultorioId,
+            Integer medicoId, String cursor, Integer limite) {
+        citaService.validarRangoFechas(desde, hasta);
+        int tamanoPagina = (limite != null) ? limite : CitaService.LIMITE_PAGINA_POR_DEFECTO;
+        if (tamanoPagina < 1 || tamanoPagina > CitaService.LIMITE_PAGINA_MAXIMO) {
+            throw new BusinessRuleException("El límite de página debe estar entre 1 y "
+                    + CitaService.LIMITE_PAGINA_MAXIMO + ".");
+        }
+        CursorCita posicion = (cursor != null) ? CursorCita.decodificar(cursor)
+                : new CursorCita(desde.atStartOfDay(), Integer.MIN_VALUE);
+
+        // Un elemento de más para saber si existe una página siguiente
+        List<CitaHistorialDTO> citas = citaArchivadaRepository.findPaginaEnRango(desde.atStartOfDay(),
+                hasta.plusDays(1).atStartOfDay(), consultorioId, medicoId, posicion.horario(), posicion.idCita(),
+                PageRequest.of(0, tamanoPagina + 1));
+        boolean hayMas = citas.size() > tamanoPagina;
+        List<CitaHistorialDTO> pagina = hayMas ? citas.subList(0, tamanoPagina) : citas;
+
+        CitaHistorialDTO ultima = hayMas ? pagina.get(pagina.size() - 1) : null;
+        String siguienteCursor = (ultima != null)
+                ? new CursorCita(ultima.horarioConsulta(), ultima.idCita()).codificar()
+                : null;
+        return new CitaHistorialPaginaDTO(List.copyOf(pagina), siguienteCursor);
+    }
+}
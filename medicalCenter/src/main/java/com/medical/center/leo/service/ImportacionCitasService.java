@@ -0,0 +1,112 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.dto.ImportacionBloqueDTO;
+import com.medical.center.leo.dto.ImportacionBloqueDTO.ErrorFila;
+import com.medical.center.leo.exception.BusinessRuleException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Importa agendas de otras clínicas desde un CSV (ver {@link LectorCitasCsv}).
+ *
+ * El archivo se lee en bloques de {@link #TAMANO_BLOQUE} filas. Cada bloque se valida con
+ * las mismas reglas que POST /api/citas/batch, se guarda con un INSERT en lote JDBC y se
+ * confirma en su propia transacción ({@link CitaService#importarBloque}); después se
+ * informa su resultado y se descarta. La memoria depende del tamaño del bloque, no del
+ * archivo.
+ */
+@Service
+public class ImportacionCitasService {
+
+    static final int TAMANO_BLOQUE = 1000;
+
+    private final CitaService citaService;
+
+    public ImportacionCitasService(CitaService citaService) {
+        this.citaService = citaService;
+    }
+
+    /**
+     * Abre el CSV y valida su encabezado, para poder rechazar el archivo antes de empezar
+     * a responder.
+     *
+     * @throws BusinessRuleException Si falta el encabezado o alguna de sus columnas
+     */
+    public LectorCitasCsv abrir(InputStream csv) throws IOException {
+        return new LectorCitasCsv(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Importa todas las filas del lector y entrega el resultado de cada bloque a medida que
+     * se confirma. Si la importación se interrumpe, los bloques ya entregados quedan
+     * guardados.
+     */
+    public void importar(LectorCitasCsv lector, Consumer<ImportacionBloqueDTO> progreso) throws IOException {
+        List<LectorCitasCsv.Fila> filas = new ArrayList<>(TAMANO_BLOQUE);
+        int bloque = 0;
+        long totalImportadas = 0;
+        long totalRechazadas = 0;
+        LectorCitasCsv.Fila fila;
+        while ((fila = lector.siguiente()) != null) {
+            filas.add(fila);
+            if (filas.size() == TAMANO_BLOQUE) {
+                ImportacionBloqueDTO resultado = importarBloque(++bloque, filas, totalImportadas, totalRechazadas);
+                totalImportadas = resultado.totalImportadas();
+                totalRechazadas = resultado.totalRechazadas();
+                progreso.accept(resultado);
+                filas.clear();
+            }
+        }
+        if (!filas.isEmpty() || bloque == 0) {
+            progreso.accept(importarBloque(++bloque, filas, totalImportadas, totalRechazadas));
+        }
+    }
+
+    private ImportacionBloqueDTO importarBloque(int bloque, List<LectorCitasCsv.Fila> filas, long totalImportadas,
+            long totalRechazadas) {
+        List<ErrorFila> errores = new ArrayList<>();
+        List<CitaRequestDTO> requests = new ArrayList<>(filas.size());
+        List<Long> lineas = new ArrayList<>(filas.size());
+        for (LectorCitasCsv.Fila fila : filas) {
+            if (fila.error() != null) {
+                errores.add(new ErrorFila(fila.linea(), fila.error()));
+            } else {
+                requests.add(fila.request());
+                lineas.add(fila.linea());
+            }
+        }
+
+        int importadas = 0;
+        try {
+            for (CitaLoteResultadoDTO resultado : citaService.importarBloque(requests)) {
+                if (resultado.creada()) {
+                    importadas++;
+                } else {
+                    errores.add(new ErrorFila(lineas.get(resultado.indice()), resultado.error()));
+                }
+            }
+        } catch (BusinessRuleException ex) {
+            // Otra transacción ocupó un horario del bloque y se revirtió completo
+            for (Long linea : lineas) {
+                errores.add(new ErrorFila(linea, ex.getMessage()));
+            }
+        }
+        errores.sort(Comparator.comparingLong(ErrorFila::linea));
+
+        long primeraLinea = filas.isEmpty() ? 0 : filas.get(0).linea();
+        long ultimaLinea = filas.isEmpty() ? 0 : filas.get(filas.size() - 1).linea();
+        return new ImportacionBloqueDTO(bloque, primeraLinea, ultimaLinea, importadas, errores.size(),
+                totalImportadas + importadas, totalRechazadas + errores.size(), errores);
+    }
+}
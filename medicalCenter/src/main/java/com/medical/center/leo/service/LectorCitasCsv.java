@@ -0,0 +1,175 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.exception.BusinessRuleException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee citas de un CSV fila por fila, sin cargar el archivo en memoria.
+ *
+ * La primera línea es el encabezado con las columnas consultorioId, medicoId,
+ * horarioConsulta y nombrePaciente, en cualquier orden; las columnas de más se ignoran.
+ * El separador es la coma, o el punto y coma si el encabezado lo usa (como exporta Excel
+ * con configuración regional en español). Los campos pueden ir entre comillas dobles, con
+ * "" para una comilla, pero cada cita ocupa una sola línea. El horario usa el formato de la
+ * API, yyyy-MM-dd HH:mm:ss, con los segundos opcionales.
+ */
+public class LectorCitasCsv implements Closeable {
+
+    static final List<String> COLUMNAS = List.of("consultorioId", "medicoId", "horarioConsulta", "nombrePaciente");
+
+    private static final DateTimeFormatter FORMATO_HORARIO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+    private static final char MARCA_ORDEN_BYTES = '\uFEFF';
+
+    /**
+     * Una fila del archivo: la petición si se pudo leer, o el motivo por el que no.
+     */
+    record Fila(long linea, CitaRequestDTO request, String error) {
+    }
+
+    private final BufferedReader lector;
+    private final char separador;
+    // Posición de cada columna de COLUMNAS en las filas
+    private final int[] posiciones;
+    private long linea = 1;
+
+    /**
+     * Lee y valida el encabezado.
+     *
+     * @throws BusinessRuleException Si el archivo está vacío o le falta alguna columna
+     */
+    LectorCitasCsv(BufferedReader lector) throws IOException {
+        this.lector = lector;
+        String encabezado = lector.readLine();
+        if (encabezado == null || encabezado.isBlank()) {
+            throw new BusinessRuleException("El archivo CSV está vacío; se esperaba el encabezado "
+                    + String.join(",", COLUMNAS) + ".");
+        }
+        if (encabezado.charAt(0) == MARCA_ORDEN_BYTES) {
+            encabezado = encabezado.substring(1);
+        }
+        this.separador = encabezado.indexOf(';') >= 0 && encabezado.indexOf(',') < 0 ? ';' : ',';
+
+        List<String> nombres = campos(encabezado);
+        this.posiciones = new int[COLUMNAS.size()];
+        List<String> faltantes = new ArrayList<>();
+        for (int i = 0; i < COLUMNAS.size(); i++) {
+            posiciones[i] = indiceSinMayusculas(nombres, COLUMNAS.get(i));
+            if (posiciones[i] < 0) {
+                faltantes.add(COLUMNAS.get(i));
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            throw new BusinessRuleException("Al encabezado del CSV le faltan las columnas: "
+                    + String.join(", ", faltantes) + ".");
+        }
+    }
+
+    /**
+     * @return La siguiente fila con datos (las líneas en blanco se omiten), o null al final
+     */
+    Fila siguiente() throws IOException {
+        String texto;
+        do {
+            texto = lector.readLine();
+            linea++;
+            if (texto == null) {
+                return null;
+            }
+        } while (texto.isBlank());
+
+        List<String> valores = campos(texto);
+        List<String> errores = new ArrayList<>();
+        Integer consultorioId = entero(valor(valores, 0), COLUMNAS.get(0), errores);
+        Integer medicoId = entero(valor(valores, 1), COLUMNAS.get(1), errores);
+        LocalDateTime horario = horario(valor(valores, 2), errores);
+        String nombrePaciente = valor(valores, 3);
+        if (!errores.isEmpty()) {
+            return new Fila(linea, null, String.join(", ", errores));
+        }
+        // Los valores vacíos llegan como null y los rechaza la validación de CitaRequestDTO
+        return new Fila(linea, new CitaRequestDTO(consultorioId, medicoId, horario, nombrePaciente), null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lector.close();
+    }
+
+    private String valor(List<String> valores, int columna) {
+        int posicion = posiciones[columna];
+        if (posicion >= valores.size() || valores.get(posicion).isEmpty()) {
+            return null;
+        }
+        return valores.get(posicion);
+    }
+
+    private static Integer entero(String valor, String columna, List<String> errores) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor);
+        } catch (NumberFormatException ex) {
+            errores.add(columna + ": no es un número entero: " + valor);
+            return null;
+        }
+    }
+
+    private static LocalDateTime horario(String valor, List<String> errores) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(valor, FORMATO_HORARIO);
+        } catch (DateTimeParseException ex) {
+            errores.add("horarioConsulta: se esperaba el formato yyyy-MM-dd HH:mm:ss: " + valor);
+            return null;
+        }
+    }
+
+    private static int indiceSinMayusculas(List<String> nombres, String columna) {
+        for (int i = 0; i < nombres.size(); i++) {
+            if (nombres.get(i).equalsIgnoreCase(columna)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private List<String> campos(String texto) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString().strip());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString().strip());
+        return campos;
+    }
+}
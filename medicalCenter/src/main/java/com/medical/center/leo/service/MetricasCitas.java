@@ -0,0 +1,86 @@
+package com.medical.center.leo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de las cuatro reglas de negocio de las citas: cuánto tarda cada regla
+ * ({@code citas.regla.duracion}) y cuántas peticiones rechaza ({@code citas.rechazos}).
+ *
+ * Todos los medidores se registran una sola vez al arrancar y se indexan por la regla,
+ * así que medir una petición no busca en el registro ni reserva memoria.
+ */
+@Component
+public class MetricasCitas {
+
+    enum Regla {
+        CONSULTORIO_OCUPADO("consultorio_ocupado"),
+        MEDICO_OCUPADO("medico_ocupado"),
+        PACIENTE_CITA_CERCANA("paciente_cita_cercana"),
+        MEDICO_LIMITE_DIARIO("medico_limite_diario");
+
+        private final String etiqueta;
+
+        Regla(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+    }
+
+    // Quién detectó el conflicto: la validación previa o la restricción única al guardar
+    private static final String ORIGEN_VALIDACION = "validacion";
+    private static final String ORIGEN_RESTRICCION = "restriccion_unica";
+
+    private final Timer[] duraciones;
+    private final Counter[] rechazosValidacion;
+    private final Counter[] rechazosRestriccion;
+
+    public MetricasCitas(MeterRegistry registry) {
+        Regla[] reglas = Regla.values();
+        duraciones = new Timer[reglas.length];
+        rechazosValidacion = new Counter[reglas.length];
+        rechazosRestriccion = new Counter[reglas.length];
+        for (Regla regla : reglas) {
+            duraciones[regla.ordinal()] = Timer.builder("citas.regla.duracion")
+                    .description("Tiempo de evaluación de cada regla de negocio al agendar o editar una cita")
+                    .tag("regla", regla.etiqueta)
+                    .register(registry);
+            rechazosValidacion[regla.ordinal()] = rechazos(registry, regla, ORIGEN_VALIDACION);
+        }
+        // Solo las reglas 1 y 2 tienen restricción única en la tabla Citas
+        rechazosRestriccion[Regla.CONSULTORIO_OCUPADO.ordinal()] = rechazos(registry, Regla.CONSULTORIO_OCUPADO,
+                ORIGEN_RESTRICCION);
+        rechazosRestriccion[Regla.MEDICO_OCUPADO.ordinal()] = rechazos(registry, Regla.MEDICO_OCUPADO,
+                ORIGEN_RESTRICCION);
+    }
+
+    private static Counter rechazos(MeterRegistry registry, Regla regla, String origen) {
+        return Counter.builder("citas.rechazos")
+                .description("Citas rechazadas por cada regla de negocio")
+                .tag("regla", regla.etiqueta)
+                .tag("origen", origen)
+                .register(registry);
+    }
+
+    /**
+     * Registra la duración de una regla evaluada desde {@code inicioNanos} (System.nanoTime()).
+     */
+    void medir(Regla regla, long inicioNanos) {
+        duraciones[regla.ordinal()].record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void rechazo(Regla regla) {
+        rechazosValidacion[regla.ordinal()].increment();
+    }
+
+    /**
+     * Rechazo detectado por la restricción única al guardar (reglas 1 y 2), es decir, una
+     * carrera con otra transacción que la validación previa no pudo ver.
+     */
+    void rechazoPorRestriccion(Regla regla) {
+        rechazosRestriccion[regla.ordinal()].increment();
+    }
+}
@@ -0,0 +1,221 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.repository.CitaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Índice en memoria de la ocupación por día, usado para responder las reglas 1, 2 y 4
+ * sin consultar la base de datos en cada alta o edición de cita.
+ *
+ * Cada día se carga de forma perezosa con una sola consulta y se guarda como un BitSet
+ * de minutos por consultorio y por médico, más un contador de citas por médico.
+ * Las altas se reflejan de inmediato (y se deshacen si la transacción hace rollback);
+ * las bajas se aplican después del commit, de modo que el índice nunca es más
+ * permisivo que la base de datos. Los días pasados se descartan al cargar uno nuevo.
+ *
+ * El índice es local a la instancia: asume que todas las escrituras de citas pasan por
+ * este proceso.
+ */
+@Component
+public class OcupacionIndex {
+
+    private static final int MINUTOS_POR_DIA = 24 * 60;
+
+    private final CitaRepository citaRepository;
+    private final ConcurrentMap<LocalDate, OcupacionDia> dias = new ConcurrentHashMap<>();
+
+    public OcupacionIndex(CitaRepository citaRepository) {
+        this.citaRepository = citaRepository;
+    }
+
+    /**
+     * Regla 1: indica si el consultorio ya tiene una cita exactamente a ese horario.
+     */
+    public boolean consultorioOcupado(Integer consultorioId, LocalDateTime horario) {
+        if (!esMinutoExacto(horario)) {
+            // Horarios con segundos no caben en el BitSet de minutos
+            return citaRepository.existsByConsultorioIdAndHorarioConsulta(consultorioId, horario);
+        }
+        return dia(horario.toLocalDate()).consultorioOcupado(consultorioId, minutoDelDia(horario));
+    }
+
+    /**
+     * Regla 2: indica si el médico ya tiene una cita exactamente a ese horario.
+     */
+    public boolean medicoOcupado(Integer medicoId, LocalDateTime horario) {
+        if (!esMinutoExacto(horario)) {
+            return citaRepository.existsByMedicoIdAndHorarioConsulta(medicoId, horario);
+        }
+        return dia(horario.toLocalDate()).medicoOcupado(medicoId, minutoDelDia(horario));
+    }
+
+    /**
+     * Regla 4: número de citas del médico en la fecha indicada.
+     */
+    public int citasDelMedico(Integer medicoId, LocalDate fecha) {
+        return dia(fecha).citasDelMedico(medicoId);
+    }
+
+    /**
+     * Marca un slot como ocupado. Si hay una transacción activa y termina sin commit,
+     * la marca se revierte.
+     *
+     * Las marcas no cuentan cuántas citas ocupan el minuto, así que hay que llamarlo después
+     * del flush del INSERT: revertir una marca puesta antes podría borrar la de otra cita
+     * confirmada en el mismo horario (ver {@link ReservasLote}).
+     */
+    public void registrar(SlotOcupadoDTO slot) {
+        reservar(slot, null);
+    }
+
+    /**
+     * Libera un slot ocupado. Con una transacción activa, la liberación espera al commit.
+     */
+    public void liberar(SlotOcupadoDTO slot) {
+        liberarAlConfirmar(slot, null);
+    }
+
+    /**
+     * Refleja la edición de una cita. Lo que ambos slots comparten (mismo consultorio y
+     * horario, mismo médico y horario, mismo médico y día) no se toca, para que liberar
+     * el slot anterior no borre la ocupación del nuevo.
+     */
+    public void mover(SlotOcupadoDTO anterior, SlotOcupadoDTO nuevo) {
+        reservar(nuevo, anterior);
+        liberarAlConfirmar(anterior, nuevo);
+    }
+
+    private void reservar(SlotOcupadoDTO slot, SlotOcupadoDTO compartido) {
+        aplicar(slot, true, compartido);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        aplicar(slot, false, compartido);
+                    }
+                }
+            });
+        }
+    }
+
+    private void liberarAlConfirmar(SlotOcupadoDTO slot, SlotOcupadoDTO compartido) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(slot, false, compartido);
+                }
+            });
+        } else {
+            aplicar(slot, false, compartido);
+        }
+    }
+
+    private void aplicar(SlotOcupadoDTO slot, boolean ocupar, SlotOcupadoDTO compartido) {
+        // Los días que no están cargados se leerán completos de la base de datos
+        OcupacionDia ocupacion = dias.get(slot.horarioConsulta().toLocalDate());
+        if (ocupacion != null) {
+            ocupacion.aplicar(slot, ocupar, compartido);
+        }
+    }
+
+    private OcupacionDia dia(LocalDate fecha) {
+        OcupacionDia ocupacion = dias.get(fecha);
+        if (ocupacion != null) {
+            return ocupacion;
+        }
+        LocalDate hoy = LocalDate.now();
+        dias.keySet().removeIf(f -> f.isBefore(hoy));
+        return dias.computeIfAbsent(fecha, this::cargar);
+    }
+
+    private OcupacionDia cargar(LocalDate fecha) {
+        List<SlotOcupadoDTO> slots = citaRepository.findSlotsOcupadosEnRango(fecha.atStartOfDay(),
+                fecha.plusDays(1).atStartOfDay());
+        OcupacionDia ocupacion = new OcupacionDia();
+        for (SlotOcupadoDTO slot : slots) {
+            ocupacion.aplicar(slot, true, null);
+        }
+        return ocupacion;
+    }
+
+    private static boolean esMinutoExacto(LocalDateTime horario) {
+        return horario.getSecond() == 0 && horario.getNano() == 0;
+    }
+
+    private static int minutoDelDia(LocalDateTime horario) {
+        return horario.getHour() * 60 + horario.getMinute();
+    }
+
+    /**
+     * Ocupación de un único día. Todos los accesos se sincronizan sobre la instancia,
+     * así que días distintos no compiten entre sí.
+     */
+    private static final class OcupacionDia {
+
+        private final Map<Integer, BitSet> consultorios = new HashMap<>();
+        private final Map<Integer, OcupacionMedico> medicos = new HashMap<>();
+
+        synchronized boolean consultorioOcupado(Integer consultorioId, int minuto) {
+            BitSet slots = consultorios.get(consultorioId);
+            return slots != null && slots.get(minuto);
+        }
+
+        synchronized boolean medicoOcupado(Integer medicoId, int minuto) {
+            OcupacionMedico medico = medicos.get(medicoId);
+            return medico != null && medico.slots.get(minuto);
+        }
+
+        synchronized int citasDelMedico(Integer medicoId) {
+            OcupacionMedico medico = medicos.get(medicoId);
+            return medico != null ? medico.citas : 0;
+        }
+
+        /**
+         * Ocupa o libera el slot, omitiendo lo que ya aporta {@code compartido} (puede ser null).
+         */
+        synchronized void aplicar(SlotOcupadoDTO slot, boolean ocupar, SlotOcupadoDTO compartido) {
+            boolean mismoMedicoYDia = compartido != null
+                    && compartido.medicoId().equals(slot.medicoId())
+                    && compartido.horarioConsulta().toLocalDate().equals(slot.horarioConsulta().toLocalDate());
+            boolean mismoHorario = compartido != null
+                    && compartido.horarioConsulta().equals(slot.horarioConsulta());
+
+            OcupacionMedico medico = medicos.computeIfAbsent(slot.medicoId(), id -> new OcupacionMedico());
+            if (!mismoMedicoYDia) {
+                medico.citas = Math.max(0, medico.citas + (ocupar ? 1 : -1));
+            }
+
+            // Solo los horarios en minuto exacto ocupan un bit; el resto solo cuenta para la regla 4
+            if (esMinutoExacto(slot.horarioConsulta())) {
+                int minuto = minutoDelDia(slot.horarioConsulta());
+                if (!(mismoHorario && compartido.consultorioId().equals(slot.consultorioId()))) {
+                    consultorios.computeIfAbsent(slot.consultorioId(), id -> new BitSet(MINUTOS_POR_DIA))
+                            .set(minuto, ocupar);
+                }
+                if (!(mismoHorario && mismoMedicoYDia)) {
+                    medico.slots.set(minuto, ocupar);
+                }
+            }
+        }
+    }
+
+    private static final class OcupacionMedico {
+
+        private final BitSet slots = new BitSet(MINUTOS_POR_DIA);
+        private int citas;
+    }
+}
@@ -0,0 +1,113 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.entity.Paciente;
+import com.medical.center.leo.repository.PacienteRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resuelve el paciente de una cita a partir del nombre escrito, comparando por la clave de
+ * búsqueda normalizada de {@link Paciente}.
+ */
+@Service
+public class PacienteService {
+
+    private final PacienteRepository pacienteRepository;
+    private final TransactionTemplate nuevaTransaccion;
+
+    public PacienteService(PacienteRepository pacienteRepository, PlatformTransactionManager transactionManager) {
+        this.pacienteRepository = pacienteRepository;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Optional<Paciente> buscar(String nombre) {
+        return pacienteRepository.findByClaveBusqueda(Paciente.claveBusqueda(nombre));
+    }
+
+    /**
+     * Busca varios pacientes con una sola consulta.
+     *
+     * @return Los pacientes existentes por nombre normalizado ({@link Paciente#normalizar})
+     */
+    public Map<String, Paciente> buscarTodos(Collection<String> nombres) {
+        Map<String, Paciente> pacientes = new HashMap<>();
+        if (nombres.isEmpty()) {
+            return pacientes;
+        }
+        List<byte[]> claves = nombres.stream().map(Paciente::claveBusqueda).toList();
+        for (Paciente paciente : pacienteRepository.findByClavesBusqueda(claves)) {
+            pacientes.put(Paciente.normalizar(paciente.getNombre()), paciente);
+        }
+        return pacientes;
+    }
+
+    /**
+     * Devuelve el paciente, dándolo de alta si no existe.
+     *
+     * El alta se confirma en su propia transacción: así la violación del índice único por un
+     * alta concurrente del mismo paciente se resuelve leyendo el que ganó, sin invalidar la
+     * transacción de nadie. Por eso CitaService llama a este método antes de abrir la
+     * transacción de la cita, nunca dentro de ella, y cada petición usa una sola conexión a
+     * la vez. Si después la cita se rechaza, el paciente queda registrado sin citas.
+     */
+    public Paciente obtenerORegistrar(String nombre) {
+        return buscar(nombre).orElseGet(() -> registrar(nombre));
+    }
+
+    /**
+     * Como {@link #obtenerORegistrar} para varios nombres (un bloque de la importación): los
+     * existentes se leen con una consulta y los que faltan se dan de alta en un lote JDBC, en
+     * su propia transacción, y se vuelven a leer con otra consulta. Si un alta concurrente
+     * viola el índice único, el lote se deshace y esos nombres se registran uno a uno.
+     *
+     * @return Los pacientes por nombre normalizado ({@link Paciente#normalizar})
+     */
+    public Map<String, Paciente> obtenerORegistrarTodos(Collection<String> nombres) {
+        Map<String, Paciente> pacientes = buscarTodos(nombres);
+        // Primer nombre escrito para cada paciente que falta
+        Map<String, String> faltantes = new LinkedHashMap<>();
+        for (String nombre : nombres) {
+            String normalizado = Paciente.normalizar(nombre);
+            if (!pacientes.containsKey(normalizado)) {
+                faltantes.putIfAbsent(normalizado, nombre);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            pacientes.putAll(registrarTodos(faltantes.values()));
+        }
+        return pacientes;
+    }
+
+    private Map<String, Paciente> registrarTodos(Collection<String> nombres) {
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> pacienteRepository.insertarEnLote(
+                    nombres.stream().map(Paciente::new).toList()));
+        } catch (DataIntegrityViolationException ex) {
+            Map<String, Paciente> pacientes = new HashMap<>();
+            for (String nombre : nombres) {
+                pacientes.put(Paciente.normalizar(nombre), obtenerORegistrar(nombre));
+            }
+            return pacientes;
+        }
+        return buscarTodos(nombres);
+    }
+
+    private Paciente registrar(String nombre) {
+        try {
+            return nuevaTransaccion.execute(status -> pacienteRepository.saveAndFlush(new Paciente(nombre)));
+        } catch (DataIntegrityViolationException ex) {
+            return buscar(nombre).orElseThrow(() -> ex);
+        }
+    }
+}
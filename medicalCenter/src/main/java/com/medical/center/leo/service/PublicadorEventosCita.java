@@ -0,0 +1,20 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.EventoCitaDTO;
+
+import java.util.List;
+
+/**
+ * Destino de los eventos del buzón de salida (cola de mensajes, webhook, archivo...).
+ * {@link DrenadorEventosCita} entrega cada lote a todos los publicadores registrados como
+ * beans.
+ */
+public interface PublicadorEventosCita {
+
+    /**
+     * Publica un lote de eventos en orden de {@code idEvento}. Si lanza una excepción, el lote
+     * completo se vuelve a entregar en la siguiente pasada, también a los publicadores que ya
+     * lo habían recibido.
+     */
+    void publicar(List<EventoCitaDTO> eventos);
+}
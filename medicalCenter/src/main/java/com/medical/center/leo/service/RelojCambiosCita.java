@@ -0,0 +1,97 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.repository.CitaArchivadaRepository;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
+import com.medical.center.leo.repository.CitaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.TreeSet;
+
+/**
+ * Asigna las versiones de cambio de las citas y calcula hasta qué versión es seguro
+ * entregar cambios a los clientes que sincronizan.
+ *
+ * Las versiones se asignan al escribir, pero las transacciones pueden confirmarse en otro
+ * orden: si la versión 10 sigue en curso cuando la 11 ya se confirmó, un cliente que
+ * recibiera la 11 no vería nunca la 10. Por eso el horizonte se detiene antes de la menor
+ * versión en curso y nunca supera la última confirmada, de modo que un token entregado
+ * siempre corresponde a cambios ya guardados.
+ *
+ * Como {@link OcupacionIndex}, el reloj es local a la instancia: asume que todas las
+ * escrituras de citas pasan por este proceso. Al arrancar continúa desde la mayor versión
+ * guardada, incluidas las de citas ya archivadas.
+ */
+@Component
+public class RelojCambiosCita {
+
+    private final CitaRepository citaRepository;
+    private final CitaCanceladaRepository citaCanceladaRepository;
+    private final CitaArchivadaRepository citaArchivadaRepository;
+
+    // Protegidos por el monitor de la instancia
+    private boolean inicializado;
+    private long ultimaAsignada;
+    private long ultimaConfirmada;
+    private final TreeSet<Long> enCurso = new TreeSet<>();
+
+    public RelojCambiosCita(CitaRepository citaRepository, CitaCanceladaRepository citaCanceladaRepository,
+            CitaArchivadaRepository citaArchivadaRepository) {
+        this.citaRepository = citaRepository;
+        this.citaCanceladaRepository = citaCanceladaRepository;
+        this.citaArchivadaRepository = citaArchivadaRepository;
+    }
+
+    /**
+     * Reserva la siguiente versión. Con una transacción activa, la versión cuenta como en
+     * curso hasta que la transacción termina.
+     */
+    public synchronized long siguiente() {
+        inicializar();
+        long version = ++ultimaAsignada;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            enCurso.add(version);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    terminar(version, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            ultimaConfirmada = Math.max(ultimaConfirmada, version);
+        }
+        return version;
+    }
+
+    /**
+     * Mayor versión que se puede entregar: todas las versiones hasta ella están confirmadas
+     * o descartadas.
+     */
+    public synchronized long horizonte() {
+        inicializar();
+        return enCurso.isEmpty() ? ultimaConfirmada : Math.min(ultimaConfirmada, enCurso.first() - 1);
+    }
+
+    private synchronized void terminar(long version, boolean confirmada) {
+        enCurso.remove(version);
+        if (confirmada) {
+            ultimaConfirmada = Math.max(ultimaConfirmada, version);
+        }
+    }
+
+    private void inicializar() {
+        if (!inicializado) {
+            long citas = valorOCero(citaRepository.findUltimaVersionCambio());
+            long canceladas = valorOCero(citaCanceladaRepository.findUltimaVersionCambio());
+            long archivadas = valorOCero(citaArchivadaRepository.findUltimaVersionCambio());
+            ultimaAsignada = Math.max(Math.max(citas, canceladas), archivadas);
+            ultimaConfirmada = ultimaAsignada;
+            inicializado = true;
+        }
+    }
+
+    private static long valorOCero(Long valor) {
+        return valor != null ? valor : 0L;
+    }
+}
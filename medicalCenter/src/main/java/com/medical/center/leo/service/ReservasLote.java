@@ -0,0 +1,51 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Horarios que ocupan las citas ya aceptadas de un lote que aún no se guarda. Las siguientes
+ * citas del mismo lote se validan contra el {@link OcupacionIndex} y contra estas reservas.
+ *
+ * El índice no lleva la cuenta de cuántas citas marcan un minuto: si el lote reservara en él
+ * y después se revirtiera, borraría también la marca de una cita que otra transacción
+ * confirmó en el mismo horario. Por eso el lote solo registra sus citas en el índice después
+ * del flush, cuando las restricciones únicas ya garantizan que esos horarios son suyos.
+ */
+final class ReservasLote {
+
+    private record Horario(Integer id, LocalDateTime horario) {
+    }
+
+    private record DiaMedico(Integer medicoId, LocalDate fecha) {
+    }
+
+    private final Set<Horario> consultorios = new HashSet<>();
+    private final Set<Horario> medicos = new HashSet<>();
+    private final Map<DiaMedico, Integer> citasPorMedico = new HashMap<>();
+
+    boolean consultorioOcupado(Integer consultorioId, LocalDateTime horario) {
+        return consultorios.contains(new Horario(consultorioId, horario));
+    }
+
+    boolean medicoOcupado(Integer medicoId, LocalDateTime horario) {
+        return medicos.contains(new Horario(medicoId, horario));
+    }
+
+    int citasDelMedico(Integer medicoId, LocalDate fecha) {
+        return citasPorMedico.getOrDefault(new DiaMedico(medicoId, fecha), 0);
+    }
+
+    void reservar(SlotOcupadoDTO slot) {
+        consultorios.add(new Horario(slot.consultorioId(), slot.horarioConsulta()));
+        medicos.add(new Horario(slot.medicoId(), slot.horarioConsulta()));
+        citasPorMedico.merge(new DiaMedico(slot.medicoId(), slot.horarioConsulta().toLocalDate()), 1,
+                Integer::sum);
+    }
+}
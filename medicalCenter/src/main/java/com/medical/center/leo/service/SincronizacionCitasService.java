@@ -0,0 +1,93 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CambiosCitasDTO;
+import com.medical.center.leo.dto.CitaCambioDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.CitaCancelada;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
+import com.medical.center.leo.repository.CitaRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sincronización incremental de citas: en lugar de volver a pedir la agenda completa, un
+ * cliente guarda el último token recibido y pide solo las citas creadas, editadas o
+ * canceladas después de él.
+ *
+ * Las altas y ediciones salen de Citas.version_cambio y las cancelaciones de las lápidas
+ * de CitasCanceladas; ambas se leen hasta el horizonte de {@link RelojCambiosCita} y se
+ * mezclan por versión.
+ */
+@Service
+public class SincronizacionCitasService {
+
+    static final int LIMITE_POR_DEFECTO = 500;
+    static final int LIMITE_MAXIMO = 1000;
+
+    private final CitaRepository citaRepository;
+    private final CitaCanceladaRepository citaCanceladaRepository;
+    private final RelojCambiosCita relojCambios;
+
+    public SincronizacionCitasService(CitaRepository citaRepository,
+            CitaCanceladaRepository citaCanceladaRepository, RelojCambiosCita relojCambios) {
+        this.citaRepository = citaRepository;
+        this.citaCanceladaRepository = citaCanceladaRepository;
+        this.relojCambios = relojCambios;
+    }
+
+    /**
+     * @param desde  Último token recibido; 0 para la primera sincronización
+     * @param limite Máximo de cambios a devolver (por defecto {@link #LIMITE_POR_DEFECTO})
+     * @throws BusinessRuleException Si el token o el límite no son válidos
+     */
+    // Sin readOnly: el horizonte lo da el reloj de este proceso, así que los cambios se leen
+    // del primario. En una réplica retrasada el token podría saltarse cambios aún no replicados
+    @Transactional
+    public CambiosCitasDTO obtenerCambios(Long desde, Integer limite) {
+        if (desde == null || desde < 0) {
+            throw new BusinessRuleException("El parámetro desde debe ser 0 o un token devuelto por una"
+                    + " sincronización anterior.");
+        }
+        int tamano = limite != null ? limite : LIMITE_POR_DEFECTO;
+        if (tamano < 1 || tamano > LIMITE_MAXIMO) {
+            throw new BusinessRuleException("El límite debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+
+        long horizonte = relojCambios.horizonte();
+        if (desde >= horizonte) {
+            return new CambiosCitasDTO(desde, false, List.of(), List.of());
+        }
+
+        // Un elemento de más en cada lista para saber si quedan cambios después del límite
+        PageRequest pagina = PageRequest.of(0, tamano + 1);
+        List<CitaCambioDTO> cambios = citaRepository.findCambiosEntre(desde, horizonte, pagina);
+        List<CitaCancelada> lapidas = citaCanceladaRepository.findCambiosEntre(desde, horizonte, pagina);
+
+        List<CitaResponseDTO> actualizadas = new ArrayList<>();
+        List<Integer> canceladas = new ArrayList<>();
+        long version = desde;
+        int a = 0;
+        int c = 0;
+        while (a + c < tamano && (a < cambios.size() || c < lapidas.size())) {
+            if (c >= lapidas.size() || (a < cambios.size()
+                    && cambios.get(a).versionCambio() < lapidas.get(c).getVersion_cambio())) {
+                CitaCambioDTO cambio = cambios.get(a++);
+                actualizadas.add(cambio.cita());
+                version = cambio.versionCambio();
+            } else {
+                CitaCancelada lapida = lapidas.get(c++);
+                canceladas.add(lapida.getId_cita());
+                version = lapida.getVersion_cambio();
+            }
+        }
+
+        boolean hayMas = a < cambios.size() || c < lapidas.size();
+        // Sin más cambios hasta el horizonte, el cliente puede continuar desde él
+        return new CambiosCitasDTO(hayMas ? version : horizonte, hayMas, actualizadas, canceladas);
+    }
+}
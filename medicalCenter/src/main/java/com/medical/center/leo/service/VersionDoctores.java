@@ -0,0 +1,49 @@
+package com.medical.center.leo.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de la tabla Doctores para el ETag del listado: cambia cada vez que se confirma un
+ * alta, edición o baja hecha por DoctorService, de modo que un cliente con la versión actual
+ * puede recibir 304 sin que se consulte la base de datos.
+ *
+ * La versión avanza después del commit y hay que leerla antes de consultar: así una
+ * respuesta nunca lleva una versión más nueva que sus datos (en el peor caso, el cliente
+ * descarga de nuevo una lista que no cambió). Para eso el listado se lee siempre del
+ * primario, nunca de la réplica de lectura, que podría no tener aún el cambio.
+ * Incluye el instante de arranque para que las versiones de un proceso anterior no
+ * coincidan con las de este.
+ *
+ * Como {@link RelojCambiosCita}, es local a la instancia: asume que todas las escrituras de
+ * doctores pasan por este proceso.
+ */
+@Component
+public class VersionDoctores {
+
+    private final String arranque = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong cambios = new AtomicLong();
+
+    public String actual() {
+        return arranque + "-" + cambios.get();
+    }
+
+    /**
+     * Avanza la versión al confirmarse la transacción en curso, o en el acto si no hay.
+     */
+    public void registrarCambio() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambios.incrementAndGet();
+                }
+            });
+        } else {
+            cambios.incrementAndGet();
+        }
+    }
+}
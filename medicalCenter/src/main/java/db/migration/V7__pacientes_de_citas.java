@@ -0,0 +1,170 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Rellena Pacientes y Citas.paciente_id (V6) a partir de Citas.nombre_paciente.
+ *
+ * Las citas se recorren por lotes en orden de id_cita, leyendo solo las que aún no tienen
+ * paciente: cada lote resuelve sus pacientes con una consulta, da de alta los que faltan y
+ * actualiza sus citas, y se confirma por separado. La memoria no depende del tamaño de la
+ * tabla, ningún lote retiene bloqueos sobre el resto y, si la migración se interrumpe, al
+ * repetirla continúa con las citas que quedaron sin paciente.
+ *
+ * La clave se calcula igual que {@code Paciente.claveBusqueda} al escribir esta migración,
+ * con una copia propia: una migración ya aplicada no debe cambiar de resultado si después
+ * cambia la normalización de la aplicación (ese cambio necesita su propia migración).
+ */
+public class V7__pacientes_de_citas extends BaseJavaMigration {
+
+    private static final int TAMANO_LOTE = 1000;
+
+    private static final String SELECT_LOTE = "SELECT TOP (?) id_cita, nombre_paciente FROM Citas "
+            + "WHERE paciente_id IS NULL AND id_cita > ? ORDER BY id_cita";
+    private static final String INSERT_PACIENTE = "INSERT INTO Pacientes (nombre, clave_busqueda) VALUES (?, ?)";
+    private static final String UPDATE_CITA = "UPDATE Citas SET paciente_id = ? WHERE id_cita = ?";
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private record CitaSinPaciente(int idCita, String nombrePaciente, String clave) {
+    }
+
+    // La confirmación por lote no es compatible con una transacción única
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection conexion = context.getConnection();
+        boolean autoCommit = conexion.getAutoCommit();
+        conexion.setAutoCommit(false);
+        try {
+            int ultimaCita = 0;
+            List<CitaSinPaciente> lote;
+            while (!(lote = leerLote(conexion, ultimaCita)).isEmpty()) {
+                Map<String, Integer> pacientes = resolverPacientes(conexion, lote);
+                asignarPacientes(conexion, lote, pacientes);
+                conexion.commit();
+                ultimaCita = lote.get(lote.size() - 1).idCita();
+            }
+        } catch (SQLException ex) {
+            conexion.rollback();
+            throw ex;
+        } finally {
+            conexion.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static List<CitaSinPaciente> leerLote(Connection conexion, int despuesDe) throws SQLException {
+        List<CitaSinPaciente> lote = new ArrayList<>(TAMANO_LOTE);
+        try (PreparedStatement sentencia = conexion.prepareStatement(SELECT_LOTE)) {
+            sentencia.setInt(1, TAMANO_LOTE);
+            sentencia.setInt(2, despuesDe);
+            try (ResultSet filas = sentencia.executeQuery()) {
+                while (filas.next()) {
+                    String nombre = filas.getString(2);
+                    lote.add(new CitaSinPaciente(filas.getInt(1), nombre, HEX.formatHex(claveBusqueda(nombre))));
+                }
+            }
+        }
+        return lote;
+    }
+
+    /**
+     * Nombre sin acentos, en minúsculas y con un solo espacio entre palabras.
+     */
+    private static String normalizar(String nombre) {
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD))
+                .replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] claveBusqueda(String nombre) throws SQLException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(normalizar(nombre).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new SQLException("SHA-256 no disponible", ex);
+        }
+    }
+
+    /**
+     * @return id_paciente por clave (en hexadecimal) para todos los nombres del lote
+     */
+    private static Map<String, Integer> resolverPacientes(Connection conexion, List<CitaSinPaciente> lote)
+            throws SQLException {
+        // Primer nombre escrito para cada clave del lote
+        Map<String, String> nombres = new LinkedHashMap<>();
+        for (CitaSinPaciente cita : lote) {
+            nombres.putIfAbsent(cita.clave(), cita.nombrePaciente());
+        }
+
+        Map<String, Integer> pacientes = buscarPacientes(conexion, nombres.keySet());
+        List<String> nuevos = nombres.keySet().stream().filter(clave -> !pacientes.containsKey(clave)).toList();
+        if (!nuevos.isEmpty()) {
+            try (PreparedStatement sentencia = conexion.prepareStatement(INSERT_PACIENTE)) {
+                for (String clave : nuevos) {
+                    sentencia.setString(1, nombres.get(clave));
+                    sentencia.setBytes(2, HEX.parseHex(clave));
+                    sentencia.addBatch();
+                }
+                sentencia.executeBatch();
+            }
+            pacientes.putAll(buscarPacientes(conexion, nuevos));
+        }
+        return pacientes;
+    }
+
+    private static Map<String, Integer> buscarPacientes(Connection conexion, Iterable<String> claves)
+            throws SQLException {
+        List<String> lista = new ArrayList<>();
+        claves.forEach(lista::add);
+        String marcadores = String.join(", ", Collections.nCopies(lista.size(), "?"));
+        Map<String, Integer> pacientes = new LinkedHashMap<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(
+                "SELECT id_paciente, clave_busqueda FROM Pacientes WHERE clave_busqueda IN (" + marcadores + ")")) {
+            for (int i = 0; i < lista.size(); i++) {
+                sentencia.setBytes(i + 1, HEX.parseHex(lista.get(i)));
+            }
+            try (ResultSet filas = sentencia.executeQuery()) {
+                while (filas.next()) {
+                    pacientes.put(HEX.formatHex(filas.getBytes(2)), filas.getInt(1));
+                }
+            }
+        }
+        return pacientes;
+    }
+
+    private static void asignarPacientes(Connection conexion, List<CitaSinPaciente> lote,
+            Map<String, Integer> pacientes) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(UPDATE_CITA)) {
+            for (CitaSinPaciente cita : lote) {
+                sentencia.setInt(1, pacientes.get(cita.clave()));
+                sentencia.setInt(2, cita.idCita());
+                sentencia.addBatch();
+            }
+            sentencia.executeBatch();
+        }
+    }
+}
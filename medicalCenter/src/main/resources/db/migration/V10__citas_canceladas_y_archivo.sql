@@ -0,0 +1,56 @@
+-- Cancelación lógica de citas e historial archivado.
+--
+-- Cancelar una cita ya no la borra: queda con estado = 'CANCELADA' y fecha_cancelacion, y la
+-- entidad Cita la excluye de todas sus consultas. id_cancelacion vale 0 en las citas activas
+-- y el id_cita en las canceladas; las restricciones únicas de horario (V3) lo incluyen para
+-- que una cancelada no bloquee su horario ni choque con otras canceladas del mismo horario.
+--
+-- ArchivadorCitas mueve a CitasArchivadas, por lotes, las citas con horario anterior al
+-- horizonte de archivo. CitasArchivadas copia el médico y el consultorio de cada cita y no
+-- tiene claves foráneas, para que el historial se conserve aunque se eliminen.
+
+ALTER TABLE Citas ADD
+    estado VARCHAR(10) NOT NULL CONSTRAINT DF_Citas_estado DEFAULT 'ACTIVA',
+    fecha_cancelacion DATETIME2 NULL,
+    id_cancelacion INT NOT NULL CONSTRAINT DF_Citas_id_cancelacion DEFAULT 0;
+GO
+
+ALTER TABLE Citas ADD CONSTRAINT CK_Cita_Estado CHECK (estado IN ('ACTIVA', 'CANCELADA'));
+
+-- Los índices de V2, V3 y V8 incluyen estado para seguir cubriendo las consultas, que ahora
+-- filtran por él
+CREATE UNIQUE INDEX UQ_Cita_Consultorio_Horario ON Citas (consultorio_id, horario_consulta, id_cancelacion)
+    INCLUDE (medico_id, nombre_paciente, estado) WITH (DROP_EXISTING = ON);
+
+CREATE UNIQUE INDEX UQ_Cita_Medico_Horario ON Citas (medico_id, horario_consulta, id_cancelacion)
+    INCLUDE (consultorio_id, nombre_paciente, estado) WITH (DROP_EXISTING = ON);
+
+CREATE INDEX IDX_Cita_Horario ON Citas (horario_consulta)
+    INCLUDE (consultorio_id, medico_id, nombre_paciente, estado) WITH (DROP_EXISTING = ON);
+
+CREATE INDEX IDX_Cita_Paciente_Horario ON Citas (paciente_id, horario_consulta)
+    INCLUDE (consultorio_id, medico_id, estado) WITH (DROP_EXISTING = ON);
+
+CREATE TABLE CitasArchivadas (
+    id_cita INT PRIMARY KEY,
+    consultorio_id INT NOT NULL,
+    numero_consultorio INT NOT NULL,
+    piso INT NOT NULL,
+    medico_id INT NOT NULL,
+    medico_nombre_completo VARCHAR(201) NOT NULL,
+    medico_especialidad VARCHAR(100) NOT NULL,
+    paciente_id INT NULL,
+    nombre_paciente VARCHAR(100) NOT NULL,
+    horario_consulta DATETIME NOT NULL,
+    estado VARCHAR(10) NOT NULL,
+    fecha_cancelacion DATETIME2 NULL,
+    version_cambio BIGINT NULL,
+    fecha_archivo DATETIME2 NOT NULL
+);
+
+-- Historial por rango de fechas, paginado por (horario_consulta, id_cita)
+CREATE INDEX IDX_CitaArchivada_Horario ON CitasArchivadas (horario_consulta)
+    INCLUDE (consultorio_id, medico_id);
+
+-- Historial filtrado por médico
+CREATE INDEX IDX_CitaArchivada_Medico_Horario ON CitasArchivadas (medico_id, horario_consulta);
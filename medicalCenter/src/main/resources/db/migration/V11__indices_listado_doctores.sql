@@ -0,0 +1,11 @@
+-- Índices para el listado paginado de doctores (GET /api/doctores), que ordena por
+-- (apellido_paterno, id_medico) y filtra por especialidad y por el inicio del apellido.
+-- Con las columnas INCLUDE cada página se lee del índice, sin búsquedas en la tabla base.
+
+-- Listado completo y filtrado por prefijo del apellido (LIKE 'prefijo%' usa la búsqueda por rango)
+CREATE INDEX IDX_Doctor_Apellido ON Doctores (apellido_paterno, id_medico)
+    INCLUDE (nombre, apellido_materno, especialidad);
+
+-- Listado filtrado por especialidad, con o sin prefijo del apellido
+CREATE INDEX IDX_Doctor_Especialidad_Apellido ON Doctores (especialidad, apellido_paterno, id_medico)
+    INCLUDE (nombre, apellido_materno);
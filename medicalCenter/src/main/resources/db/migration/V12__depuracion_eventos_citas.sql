@@ -0,0 +1,5 @@
+-- Depuración del buzón de salida: DrenadorEventosCita borra por lotes, los más antiguos
+-- primero, los eventos registrados hace más de medicalcenter.outbox.retencion, publicados o
+-- no. Sin este índice cada lote recorrería la tabla completa.
+
+CREATE INDEX IDX_EventoCita_Registro ON EventosCitas (fecha_registro);
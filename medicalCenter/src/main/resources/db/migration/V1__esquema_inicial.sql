@@ -0,0 +1,26 @@
+-- Esquema inicial de ConsultorioDB (equivalente a ConsultorioDB.sql).
+-- En bases existentes esta versión se marca como línea base y no se ejecuta.
+
+CREATE TABLE Doctores (
+    id_medico INT IDENTITY(1,1) PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    apellido_paterno VARCHAR(100) NOT NULL,
+    apellido_materno VARCHAR(100) NOT NULL,
+    especialidad VARCHAR(100) NOT NULL
+);
+
+CREATE TABLE Consultorios (
+    id_consultorio INT IDENTITY(1,1) PRIMARY KEY,
+    numero_consultorio INT NOT NULL UNIQUE,
+    piso INT NOT NULL
+);
+
+CREATE TABLE Citas (
+    id_cita INT IDENTITY(1,1) PRIMARY KEY,
+    consultorio_id INT NOT NULL,
+    medico_id INT NOT NULL,
+    horario_consulta DATETIME NOT NULL,
+    nombre_paciente VARCHAR(100) NOT NULL,
+    CONSTRAINT FK_Cita_Consultorio FOREIGN KEY (consultorio_id) REFERENCES Consultorios(id_consultorio),
+    CONSTRAINT FK_Cita_Medico FOREIGN KEY (medico_id) REFERENCES Doctores(id_medico)
+);
@@ -0,0 +1,29 @@
+-- Índices compuestos para las consultas por rango de horario de Citas.
+-- Las columnas INCLUDE cubren el listado (id_cita viaja en la clave agrupada), de modo
+-- que las reglas de validación y los listados se resuelven sin búsquedas en la tabla base.
+-- Sustituyen a los índices sin INCLUDE de "Comandos BD.txt", si existen.
+
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IDX_Cita_Horario' AND object_id = OBJECT_ID('Citas'))
+    DROP INDEX IDX_Cita_Horario ON Citas;
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IDX_Cita_Medico_Horario' AND object_id = OBJECT_ID('Citas'))
+    DROP INDEX IDX_Cita_Medico_Horario ON Citas;
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IDX_Cita_Consultorio_Horario' AND object_id = OBJECT_ID('Citas'))
+    DROP INDEX IDX_Cita_Consultorio_Horario ON Citas;
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IDX_Cita_Paciente_Horario' AND object_id = OBJECT_ID('Citas'))
+    DROP INDEX IDX_Cita_Paciente_Horario ON Citas;
+
+-- Listado del día, paginación por (horario_consulta, id_cita) y carga del índice de ocupación
+CREATE INDEX IDX_Cita_Horario ON Citas (horario_consulta)
+    INCLUDE (consultorio_id, medico_id, nombre_paciente);
+
+-- Regla 2, regla 4 y listado filtrado por médico
+CREATE INDEX IDX_Cita_Medico_Horario ON Citas (medico_id, horario_consulta)
+    INCLUDE (consultorio_id, nombre_paciente);
+
+-- Regla 1 y listado filtrado por consultorio
+CREATE INDEX IDX_Cita_Consultorio_Horario ON Citas (consultorio_id, horario_consulta)
+    INCLUDE (medico_id, nombre_paciente);
+
+-- Regla 3: citas del paciente alrededor del horario solicitado
+CREATE INDEX IDX_Cita_Paciente_Horario ON Citas (nombre_paciente, horario_consulta)
+    INCLUDE (consultorio_id, medico_id);
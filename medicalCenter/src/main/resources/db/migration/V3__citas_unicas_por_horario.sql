@@ -0,0 +1,18 @@
+-- Reglas 1 y 2 garantizadas por la base de datos: un consultorio y un médico no pueden
+-- tener dos citas en el mismo horario. Los índices (medico_id, horario_consulta) y
+-- (consultorio_id, horario_consulta) de V2 pasan a ser únicos, con las mismas columnas INCLUDE.
+--
+-- Si la migración falla por duplicados existentes, se pueden localizar con:
+--   SELECT consultorio_id, horario_consulta, COUNT(*) FROM Citas
+--   GROUP BY consultorio_id, horario_consulta HAVING COUNT(*) > 1;
+--   SELECT medico_id, horario_consulta, COUNT(*) FROM Citas
+--   GROUP BY medico_id, horario_consulta HAVING COUNT(*) > 1;
+
+DROP INDEX IDX_Cita_Consultorio_Horario ON Citas;
+DROP INDEX IDX_Cita_Medico_Horario ON Citas;
+
+CREATE UNIQUE INDEX UQ_Cita_Consultorio_Horario ON Citas (consultorio_id, horario_consulta)
+    INCLUDE (medico_id, nombre_paciente);
+
+CREATE UNIQUE INDEX UQ_Cita_Medico_Horario ON Citas (medico_id, horario_consulta)
+    INCLUDE (consultorio_id, nombre_paciente);
@@ -0,0 +1,4 @@
+-- Columna de versión para el bloqueo optimista de Citas (@Version en la entidad).
+-- Las citas existentes empiezan en la versión 0.
+
+ALTER TABLE Citas ADD version BIGINT NOT NULL CONSTRAINT DF_Citas_version DEFAULT 0;
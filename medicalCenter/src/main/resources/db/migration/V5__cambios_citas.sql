@@ -0,0 +1,30 @@
+-- Sincronización incremental de citas (GET /api/citas/cambios).
+-- Cada alta o edición guarda en version_cambio un número creciente; cada cancelación deja
+-- una lápida en CitasCanceladas con su propio número. Un cliente pide los cambios con
+-- version_cambio mayor que el último que recibió.
+
+ALTER TABLE Citas ADD version_cambio BIGINT NULL;
+GO
+
+-- Las citas existentes se numeran en orden de id para que la primera sincronización
+-- (desde=0) las devuelva todas
+WITH numeradas AS (
+    SELECT version_cambio, ROW_NUMBER() OVER (ORDER BY id_cita) AS numero FROM Citas
+)
+UPDATE numeradas SET version_cambio = numero;
+
+ALTER TABLE Citas ALTER COLUMN version_cambio BIGINT NOT NULL;
+GO
+
+CREATE UNIQUE INDEX UQ_Cita_VersionCambio ON Citas (version_cambio);
+
+CREATE TABLE CitasCanceladas (
+    id_cita INT PRIMARY KEY,
+    consultorio_id INT NOT NULL,
+    medico_id INT NOT NULL,
+    horario_consulta DATETIME NOT NULL,
+    version_cambio BIGINT NOT NULL,
+    fecha_cancelacion DATETIME2 NOT NULL
+);
+
+CREATE UNIQUE INDEX UQ_CitaCancelada_VersionCambio ON CitasCanceladas (version_cambio);
@@ -0,0 +1,17 @@
+-- Pacientes normalizados para la regla 3. Hasta ahora la regla comparaba el texto libre
+-- Citas.nombre_paciente por igualdad exacta: "Juan Perez" y "juan pérez" eran pacientes
+-- distintos y el índice (nombre_paciente, horario_consulta) cargaba hasta 100 caracteres
+-- por fila. Cada paciente se identifica ahora por clave_busqueda, el SHA-256 de su nombre
+-- normalizado (ver Paciente.claveBusqueda), y cada cita lo referencia por paciente_id.
+--
+-- La columna se crea sin NOT NULL: V7 la rellena por lotes y V8 la vuelve obligatoria.
+
+CREATE TABLE Pacientes (
+    id_paciente INT IDENTITY(1,1) PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    clave_busqueda BINARY(32) NOT NULL,
+    CONSTRAINT UQ_Paciente_ClaveBusqueda UNIQUE (clave_busqueda)
+);
+
+ALTER TABLE Citas ADD paciente_id INT NULL
+    CONSTRAINT FK_Cita_Paciente FOREIGN KEY REFERENCES Pacientes(id_paciente);
@@ -0,0 +1,12 @@
+-- Cierra la migración a Pacientes después del relleno de V7: toda cita tiene paciente y la
+-- regla 3 se resuelve con una búsqueda por rango sobre (paciente_id, horario_consulta).
+-- El índice por nombre_paciente de V2 deja de usarse.
+
+ALTER TABLE Citas ALTER COLUMN paciente_id INT NOT NULL;
+
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IDX_Cita_Paciente_Horario' AND object_id = OBJECT_ID('Citas'))
+    DROP INDEX IDX_Cita_Paciente_Horario ON Citas;
+
+-- Regla 3: citas del paciente alrededor del horario solicitado
+CREATE INDEX IDX_Cita_Paciente_Horario ON Citas (paciente_id, horario_consulta)
+    INCLUDE (consultorio_id, medico_id);
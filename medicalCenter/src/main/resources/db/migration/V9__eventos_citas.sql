@@ -0,0 +1,16 @@
+-- Buzón de salida (outbox) de cambios de citas para los sistemas externos. Cada alta,
+-- edición o cancelación escribe aquí su evento en la misma transacción que el cambio;
+-- DrenadorEventosCita los lee por lotes en orden de id_evento, los publica y los marca con
+-- fecha_publicacion.
+
+CREATE TABLE EventosCitas (
+    id_evento BIGINT IDENTITY(1,1) PRIMARY KEY,
+    id_cita INT NOT NULL,
+    tipo VARCHAR(10) NOT NULL,
+    datos NVARCHAR(4000) NOT NULL,
+    fecha_registro DATETIME2 NOT NULL,
+    fecha_publicacion DATETIME2 NULL
+);
+
+-- Solo los pendientes: el índice se mantiene pequeño aunque la tabla acumule los publicados
+CREATE INDEX IDX_EventoCita_Pendientes ON EventosCitas (id_evento) WHERE fecha_publicacion IS NULL;
@@ -0,0 +1,54 @@
+package com.medical.center.leo;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MSSQLServerContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aplica todas las migraciones de Flyway sobre una base vacía de SQL Server y arranca la
+ * aplicación con {@code ddl-auto=validate}, de modo que Hibernate comprueba que las entidades
+ * coinciden con el esquema que dejan las migraciones. El resto de pruebas usa H2 con el
+ * esquema creado por Hibernate, porque las migraciones V2 a V11 usan sintaxis propia de
+ * SQL Server.
+ *
+ * Necesita Docker; sin él la prueba se omite.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class MigracionesFlywayTest {
+
+    @Container
+    private static final MSSQLServerContainer<?> SQL_SERVER = new MSSQLServerContainer<>(
+            DockerImageName.parse("mcr.microsoft.com/mssql/server:2022-latest")).acceptLicense();
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", SQL_SERVER::getJdbcUrl);
+        registry.add("spring.datasource.username", SQL_SERVER::getUsername);
+        registry.add("spring.datasource.password", SQL_SERVER::getPassword);
+        registry.add("spring.datasource.driver-class-name", SQL_SERVER::getDriverClassName);
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Test
+    void migraciones_dejanElEsquemaQueEsperanLasEntidades() {
+        // Si el esquema no coincidiera con las entidades, el contexto no habría arrancado
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().applied()).extracting(migracion -> migracion.getVersion().getVersion())
+                .containsExactly("1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12");
+    }
+}
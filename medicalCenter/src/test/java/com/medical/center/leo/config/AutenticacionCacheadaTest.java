@@ -0,0 +1,85 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AutenticacionCacheadaTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordEncoder passwordEncoder;
+    private InMemoryUserDetailsManager usuarios;
+    private AutenticacionCacheada autenticacion;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = spy(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        usuarios = new InMemoryUserDetailsManager(User.withUsername("user")
+                .password(passwordEncoder.encode("password"))
+                .roles("USER")
+                .build());
+        autenticacion = new AutenticacionCacheada(usuarios, passwordEncoder, Duration.ofMinutes(1), 100,
+                meterRegistry);
+        clearInvocations(passwordEncoder);
+    }
+
+    @Test
+    void mismasCredenciales_soloCalculanElHashLaPrimeraVez() {
+        Authentication primera = autenticacion.authenticate(credenciales("user", "password"));
+        Authentication segunda = autenticacion.authenticate(credenciales("user", "password"));
+
+        assertTrue(primera.isAuthenticated());
+        assertTrue(segunda.isAuthenticated());
+        assertEquals("user", segunda.getName());
+        assertEquals(primera.getAuthorities(), segunda.getAuthorities());
+        verify(passwordEncoder, times(1)).matches(any(), anyString());
+        assertEquals(1.0, meterRegistry.get("medicalcenter.autenticacion.hashes").counter().count());
+        assertEquals(1.0, meterRegistry.get("medicalcenter.autenticacion.cache.aciertos").counter().count());
+    }
+
+    @Test
+    void contrasenaIncorrecta_noSeGuardaYSiempreSeVerifica() {
+        autenticacion.authenticate(credenciales("user", "password"));
+
+        assertThrows(BadCredentialsException.class,
+                () -> autenticacion.authenticate(credenciales("user", "otra")));
+        assertThrows(BadCredentialsException.class,
+                () -> autenticacion.authenticate(credenciales("user", "otra")));
+
+        verify(passwordEncoder, times(3)).matches(any(), anyString());
+    }
+
+    @Test
+    void cambioDeContrasena_invalidaLaVerificacionGuardada() {
+        autenticacion.authenticate(credenciales("user", "password"));
+
+        usuarios.updateUser(User.withUsername("user")
+                .password(passwordEncoder.encode("nueva"))
+                .roles("USER")
+                .build());
+
+        assertThrows(BadCredentialsException.class,
+                () -> autenticacion.authenticate(credenciales("user", "password")));
+        assertTrue(autenticacion.authenticate(credenciales("user", "nueva")).isAuthenticated());
+        assertEquals(0.0, meterRegistry.get("medicalcenter.autenticacion.cache.aciertos").counter().count());
+    }
+
+    private static UsernamePasswordAuthenticationToken credenciales(String usuario, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(usuario, password);
+    }
+}
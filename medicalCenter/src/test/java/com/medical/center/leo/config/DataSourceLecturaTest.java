@@ -0,0 +1,84 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DataSourceLecturaTest {
+
+    private final DataSource replica = mock(DataSource.class);
+    private final DataSource primario = mock(DataSource.class);
+    private final Connection conexionReplica = mock(Connection.class);
+    private final Connection conexionPrimario = mock(Connection.class);
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(primario.getConnection()).thenReturn(conexionPrimario);
+    }
+
+    @AfterEach
+    void limpiarSeguridad() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replicaCaida_leeDelPrimarioYNoLaReintentaDuranteLaPausa() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica - timeout"));
+        DataSourceLectura lectura = new DataSourceLectura(replica, primario, new LecturaTrasEscritura(Duration.ZERO),
+                Duration.ofMinutes(5), meterRegistry);
+
+        assertSame(conexionPrimario, lectura.getConnection());
+        assertSame(conexionPrimario, lectura.getConnection());
+
+        verify(replica, times(1)).getConnection();
+        assertEquals(1.0, meterRegistry.get("medicalcenter.replica.respaldos").counter().count());
+        assertEquals(0.0, meterRegistry.get("medicalcenter.replica.disponible").gauge().value());
+    }
+
+    @Test
+    void replicaRecuperada_vuelveALeerDeLaReplicaTrasLaPausa() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica - timeout"))
+                .thenReturn(conexionReplica);
+        DataSourceLectura lectura = new DataSourceLectura(replica, primario, new LecturaTrasEscritura(Duration.ZERO),
+                Duration.ZERO, meterRegistry);
+
+        assertSame(conexionPrimario, lectura.getConnection());
+        assertSame(conexionReplica, lectura.getConnection());
+        assertEquals(1.0, meterRegistry.get("medicalcenter.replica.disponible").gauge().value());
+    }
+
+    @Test
+    void usuarioQueAcabaDeEscribir_leeDelPrimarioYLosDemasDeLaReplica() throws SQLException {
+        when(replica.getConnection()).thenReturn(conexionReplica);
+        LecturaTrasEscritura lecturaTrasEscritura = new LecturaTrasEscritura(Duration.ofMinutes(1));
+        DataSourceLectura lectura = new DataSourceLectura(replica, primario, lecturaTrasEscritura,
+                Duration.ofSeconds(30), meterRegistry);
+
+        autenticar("recepcion");
+        lecturaTrasEscritura.registrarEscritura();
+        assertSame(conexionPrimario, lectura.getConnection());
+
+        autenticar("otro");
+        assertSame(conexionReplica, lectura.getConnection());
+    }
+
+    private static void autenticar(String usuario) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                usuario, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
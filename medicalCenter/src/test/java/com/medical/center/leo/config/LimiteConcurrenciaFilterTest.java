@@ -0,0 +1,61 @@
+package com.medical.center.leo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteConcurrenciaFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LimiteConcurrenciaFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new LimiteConcurrenciaFilter(1, Duration.ofMillis(20), meterRegistry);
+    }
+
+    @Test
+    void sinPermisosLibres_responde503YAlTerminarLiberaElPermiso() throws Exception {
+        MockHttpServletResponse respuestaInterna = new MockHttpServletResponse();
+
+        // La primera petición ocupa el único permiso mientras se atiende la segunda
+        filter.doFilter(peticion("/api/citas"), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(peticion("/api/citas"), respuestaInterna,
+                        new MockFilterChain()));
+
+        assertEquals(503, respuestaInterna.getStatus());
+        assertEquals("1", respuestaInterna.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("medicalcenter.bulkhead.rechazos").counter().count());
+        assertEquals(1.0, meterRegistry.get("medicalcenter.bulkhead.permisos.disponibles").gauge().value());
+
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filter.doFilter(peticion("/api/citas"), respuesta, new MockFilterChain());
+        assertEquals(200, respuesta.getStatus());
+    }
+
+    @Test
+    void rutasFueraDeApi_noConsumenPermisos() throws Exception {
+        MockHttpServletResponse respuestaInterna = new MockHttpServletResponse();
+
+        filter.doFilter(peticion("/api/citas"), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(peticion("/actuator/health"), respuestaInterna,
+                        new MockFilterChain()));
+
+        assertEquals(200, respuestaInterna.getStatus());
+        assertEquals(0.0, meterRegistry.get("medicalcenter.bulkhead.rechazos").counter().count());
+    }
+
+    private static MockHttpServletRequest peticion(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+}
@@ -0,0 +1,46 @@
+package com.medical.center.leo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Réplica configurada pero inalcanzable: las lecturas se atienden con el primario y
+ * /actuator/health sigue UP.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ConsultorioSinReplica;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "medicalcenter.replica.jdbc-url=jdbc:h2:tcp://localhost:1/replica-inexistente",
+        "medicalcenter.replica.username=sa",
+        "medicalcenter.replica.connection-timeout=250",
+        "medicalcenter.replica.initialization-fail-timeout=-1"
+})
+class ReplicaCaidaTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+
+    @Test
+    void replicaInalcanzable_leeDelPrimarioYLaSaludSigueUp() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+
+        assertEquals("CONSULTORIOSINREPLICA",
+                lectura.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class)));
+        assertEquals(Status.UP, healthEndpoint.healthForPath("db").getStatus());
+        assertEquals(Status.UP, healthEndpoint.health().getStatus());
+    }
+}
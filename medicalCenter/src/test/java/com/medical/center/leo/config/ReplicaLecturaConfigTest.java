@@ -0,0 +1,78 @@
+package com.medical.center.leo.config;
+
+import com.medical.center.leo.dto.DoctorResumenDTO;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.service.DoctorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primario y réplica como dos bases H2 en memoria distintas: cada transacción consulta el
+ * nombre de la base a la que quedó conectada.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ConsultorioPrimario;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "medicalcenter.replica.jdbc-url=jdbc:h2:mem:ConsultorioReplica;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "medicalcenter.replica.username=sa",
+        "medicalcenter.replica.maximum-pool-size=2"
+})
+class ReplicaLecturaConfigTest {
+
+    private static final String BASE_ACTUAL = "SELECT DATABASE()";
+    private static final String URL_REPLICA = "jdbc:h2:mem:ConsultorioReplica;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Test
+    void transaccionDeSoloLectura_vaALaReplicaYLasDemasAlPrimario() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        TransactionTemplate escritura = new TransactionTemplate(transactionManager);
+
+        assertEquals("CONSULTORIOREPLICA",
+                lectura.execute(status -> jdbcTemplate.queryForObject(BASE_ACTUAL, String.class)));
+        assertEquals("CONSULTORIOPRIMARIO",
+                escritura.execute(status -> jdbcTemplate.queryForObject(BASE_ACTUAL, String.class)));
+        assertEquals("CONSULTORIOPRIMARIO", jdbcTemplate.queryForObject(BASE_ACTUAL, String.class));
+    }
+
+    @Test
+    void listadoDeDoctores_seLeeDelPrimarioAunqueLaReplicaVayaRetrasada() throws SQLException {
+        // Réplica retrasada: tiene la tabla, pero todavía sin el doctor recién registrado
+        try (Connection conexion = DriverManager.getConnection(URL_REPLICA, "sa", "");
+                Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE TABLE IF NOT EXISTS Doctores (id_medico INT PRIMARY KEY, "
+                    + "nombre VARCHAR(100), apellido_paterno VARCHAR(100), apellido_materno VARCHAR(100), "
+                    + "especialidad VARCHAR(100))");
+        }
+        String versionAnterior = doctorService.versionListado();
+        Doctor doctor = doctorService.registrarDoctor(new Doctor(null, "Rita", "Replica", "Prueba", "Réplica"));
+        try {
+            assertNotEquals(versionAnterior, doctorService.versionListado());
+            assertThat(doctorService.listarDoctores("Réplica", null, null, null).doctores())
+                    .extracting(DoctorResumenDTO::idMedico)
+                    .containsExactly(doctor.getId_medico());
+        } finally {
+            doctorService.eliminarDoctor(doctor.getId_medico());
+        }
+    }
+}
@@ -2,9 +2,23 @@ package com.medical.center.leo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medical.center.leo.dto.CambiosCitasDTO;
+import com.medical.center.leo.dto.CitaHistorialDTO;
+import com.medical.center.leo.dto.CitaHistorialPaginaDTO;
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
+import com.medical.center.leo.dto.CitaPaginaDTO;
 import com.medical.center.leo.dto.CitaRequestDTO;
 import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.HorarioDisponibleDTO;
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.exception.ConflictoConcurrenciaException;
+import com.medical.center.leo.service.AgendaEnVivoService;
+import com.medical.center.leo.service.BusquedaHorariosService;
 import com.medical.center.leo.service.CitaService;
+import com.medical.center.leo.service.HistorialCitasService;
+import com.medical.center.leo.service.ImportacionCitasService;
+import com.medical.center.leo.service.SincronizacionCitasService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,13 +27,22 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -41,6 +64,21 @@ class CitaControllerTest {
     @MockBean
     private CitaService citaService;
 
+    @MockBean
+    private BusquedaHorariosService busquedaHorariosService;
+
+    @MockBean
+    private SincronizacionCitasService sincronizacionCitasService;
+
+    @MockBean
+    private AgendaEnVivoService agendaEnVivoService;
+
+    @MockBean
+    private ImportacionCitasService importacionCitasService;
+
+    @MockBean
+    private HistorialCitasService historialCitasService;
+
     private ObjectMapper objectMapper;
 
     private CitaRequestDTO citaRequestDTO;
@@ -101,6 +139,54 @@ class CitaControllerTest {
                 .andExpect(jsonPath("$[0].nombrePaciente", is(citaResponseDTO.nombrePaciente())));
     }
 
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void buscarHorariosDisponibles_deberiaRetornarOkYHorarios() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 10, 20);
+        HorarioDisponibleDTO horario = new HorarioDisponibleDTO(desde.atTime(9, 30), 1, "Juan Perez",
+                "Cardiología", 2, 102, 1);
+        when(busquedaHorariosService.buscarHorariosDisponibles(eq(null), eq("Cardiología"), eq(desde), eq(7),
+                eq(3), eq(null), eq(null)))
+                .thenReturn(List.of(horario));
+
+        mockMvc.perform(get("/api/citas/disponibles")
+                .param("especialidad", "Cardiología")
+                .param("desde", desde.toString())
+                .param("dias", "7")
+                .param("cantidad", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].horarioConsulta", is("2025-10-20 09:30:00")))
+                .andExpect(jsonPath("$[0].consultorioNumero", is(102)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void obtenerCambios_deberiaRetornarOkConActualizadasYCanceladas() throws Exception {
+        when(sincronizacionCitasService.obtenerCambios(40L, null))
+                .thenReturn(new CambiosCitasDTO(42L, false, List.of(citaResponseDTO), List.of(7)));
+
+        mockMvc.perform(get("/api/citas/cambios").param("desde", "40"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(42)))
+                .andExpect(jsonPath("$.hayMas", is(false)))
+                .andExpect(jsonPath("$.actualizadas[0].idCita", is(citaResponseDTO.idCita())))
+                .andExpect(jsonPath("$.canceladas[0]", is(7)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void suscribirAgenda_deberiaAbrirUnFlujoDeEventos() throws Exception {
+        LocalDate fecha = LocalDate.of(2025, 10, 20);
+        when(agendaEnVivoService.suscribir(3, null, fecha)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/citas/eventos")
+                .param("consultorioId", "3")
+                .param("fecha", fecha.toString())
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+
     @Test
     @WithMockUser(username = "user", roles = { "USER" })
     void editarCita_cuandoDatosValidos_deberiaRetornarOkYResponseDTO() throws Exception {
@@ -116,6 +202,23 @@ class CitaControllerTest {
                 .andExpect(jsonPath("$.nombrePaciente", is(citaResponseDTO.nombrePaciente())));
     }
 
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void editarCita_cuandoHayConflictoDeConcurrencia_deberiaRetornarConflict() throws Exception {
+        Integer citaId = 1;
+        CitaRequestDTO requestFutura = new CitaRequestDTO(1, 1,
+                LocalDate.now().plusDays(1).atTime(10, 0), "Paciente Test Controller", 2L);
+        when(citaService.editarCita(eq(citaId), any(CitaRequestDTO.class)))
+                .thenThrow(new ConflictoConcurrenciaException("La cita 1 fue modificada por otro usuario"));
+
+        mockMvc.perform(put("/api/citas/{id}", citaId)
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestFutura)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message", is("La cita 1 fue modificada por otro usuario")));
+    }
+
     @Test
     @WithMockUser(username = "user", roles = { "USER" })
     void cancelarCita_cuandoCitaExiste_deberiaRetornarNoContent() throws Exception {
@@ -126,4 +229,150 @@ class CitaControllerTest {
                 .with(csrf()))
                 .andExpect(status().isNoContent());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void crearCitasEnLote_deberiaRetornarOkYResultadoPorElemento() throws Exception {
+        when(citaService.crearCitasEnLote(anyList())).thenReturn(List.of(
+                new CitaLoteResultadoDTO(0, true, citaResponseDTO, null),
+                new CitaLoteResultadoDTO(1, false, null, "El doctor 1 ya tiene otra cita a las 2025-10-20T10:00")));
+
+        mockMvc.perform(post("/api/citas/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(citaRequestDTO, citaRequestDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].creada", is(true)))
+                .andExpect(jsonPath("$[0].cita.idCita", is(citaResponseDTO.idCita())))
+                .andExpect(jsonPath("$[1].creada", is(false)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void consultarCitasPorRango_deberiaRetornarPaginaYCursor() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 10, 1);
+        LocalDate hasta = LocalDate.of(2025, 10, 31);
+        when(citaService.consultarCitasPorRango(eq(desde), eq(hasta), any(), any(), any(), eq(1)))
+                .thenReturn(new CitaPaginaDTO(List.of(citaResponseDTO), "siguiente"));
+
+        mockMvc.perform(get("/api/citas/rango")
+                .param("desde", desde.toString())
+                .param("hasta", hasta.toString())
+                .param("limite", "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.citas", hasSize(1)))
+                .andExpect(jsonPath("$.citas[0].idCita", is(citaResponseDTO.idCita())))
+                .andExpect(jsonPath("$.siguienteCursor", is("siguiente")));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void exportarCitasPorRango_deberiaEscribirUnaCitaPorLinea() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 10, 1);
+        LocalDate hasta = LocalDate.of(2025, 10, 31);
+        doAnswer(invocation -> {
+            Consumer<CitaResponseDTO> consumidor = invocation.getArgument(4);
+            consumidor.accept(citaResponseDTO);
+            consumidor.accept(citaResponseDTO);
+            return null;
+        }).when(citaService).recorrerCitasPorRango(eq(desde), eq(hasta), any(), any(), any());
+
+        MvcResult resultado = mockMvc.perform(get("/api/citas/rango")
+                .param("desde", desde.toString())
+                .param("hasta", hasta.toString())
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].contains("\"nombrePaciente\":\"Paciente Test Controller\""));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = { "ADMIN" })
+    void importarCitas_cuandoFaltanColumnas_deberiaRetornarBadRequestSinEmpezarAEscribir() throws Exception {
+        when(importacionCitasService.abrir(any()))
+                .thenThrow(new BusinessRuleException("Al encabezado del CSV le faltan las columnas: medicoId."));
+
+        mockMvc.perform(post("/api/citas/importacion")
+                .with(csrf())
+                .contentType("text/csv")
+                .content("consultorioId,horarioConsulta,nombrePaciente\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(request().asyncNotStarted());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void exportarCitasCsv_deberiaEscribirEncabezadoYFilasEscapadas() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 10, 1);
+        LocalDate hasta = LocalDate.of(2025, 12, 31);
+        CitaResponseDTO conComa = new CitaResponseDTO(2, 101, 1, "Dr. Test", "General",
+                LocalDateTime.of(2025, 10, 20, 11, 0), "Pérez, \"Juan\"", 0L);
+        CitaResponseDTO formula = new CitaResponseDTO(3, 101, 1, "Dr. Test", "General",
+                LocalDateTime.of(2025, 10, 20, 12, 0), "=1+1", 0L);
+        doAnswer(invocation -> {
+            Consumer<CitaResponseDTO> consumidor = invocation.getArgument(4);
+            consumidor.accept(conComa);
+            consumidor.accept(formula);
+            return null;
+        }).when(citaService).recorrerCitasPorRango(eq(desde), eq(hasta), any(), eq(1), any());
+
+        MvcResult resultado = mockMvc.perform(get("/api/citas/exportacion")
+                .param("desde", desde.toString())
+                .param("hasta", hasta.toString())
+                .param("medicoId", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"citas_2025-10-01_2025-12-31.csv\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String[] lineas = cuerpo.split("\r\n");
+        assertEquals(3, lineas.length);
+        assertEquals("\uFEFFidCita,horarioConsulta,consultorioNumero,consultorioPiso,medicoNombreCompleto,"
+                + "medicoEspecialidad,nombrePaciente", lineas[0]);
+        assertEquals("2,2025-10-20 11:00:00,101,1,Dr. Test,General,\"Pérez, \"\"Juan\"\"\"", lineas[1]);
+        assertTrue(lineas[2].endsWith(",'=1+1"));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void exportarCitasCsv_cuandoSeparadorInvalido_deberiaRetornarBadRequest() throws Exception {
+        mockMvc.perform(get("/api/citas/exportacion")
+                .param("desde", "2025-10-01")
+                .param("hasta", "2025-10-31")
+                .param("separador", "|"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    void consultarHistorial_deberiaRetornarCitasArchivadasConSuEstado() throws Exception {
+        LocalDate desde = LocalDate.of(2024, 1, 1);
+        LocalDate hasta = LocalDate.of(2024, 12, 31);
+        CitaHistorialDTO cancelada = new CitaHistorialDTO(7, 101, 1, "Dr. Juan Perez", "Cardiología",
+                LocalDateTime.of(2024, 3, 5, 9, 0), "Paciente Historial", Cita.Estado.CANCELADA,
+                LocalDateTime.of(2024, 3, 1, 18, 30));
+        when(historialCitasService.consultarHistorial(eq(desde), eq(hasta), any(), eq(1), any(), any()))
+                .thenReturn(new CitaHistorialPaginaDTO(List.of(cancelada), null));
+
+        mockMvc.perform(get("/api/citas/historial")
+                .param("desde", desde.toString())
+                .param("hasta", hasta.toString())
+                .param("medicoId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.citas", hasSize(1)))
+                .andExpect(jsonPath("$.citas[0].estado", is("CANCELADA")))
+                .andExpect(jsonPath("$.citas[0].fechaCancelacion", is("2024-03-01 18:30:00")));
+    }
+}
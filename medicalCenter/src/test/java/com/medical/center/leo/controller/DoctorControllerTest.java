@@ -0,0 +1,68 @@
+package com.medical.center.leo.controller;
+
+import com.medical.center.leo.dto.DoctorPaginaDTO;
+import com.medical.center.leo.dto.DoctorResumenDTO;
+import com.medical.center.leo.service.DisponibilidadService;
+import com.medical.center.leo.service.DoctorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DoctorController.class)
+class DoctorControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DoctorService doctorService;
+
+    @MockBean
+    private DisponibilidadService disponibilidadService;
+
+    @Test
+    @WithMockUser
+    void listarDoctores_devuelvePaginaConEtagDeLaVersion() throws Exception {
+        when(doctorService.versionListado()).thenReturn("abc-3");
+        when(doctorService.listarDoctores("Pediatría", "Go", null, 10)).thenReturn(new DoctorPaginaDTO(
+                List.of(new DoctorResumenDTO(2, "Ana", "Gomez", "Lopez", "Pediatría")), "c2lndWllbnRl"));
+
+        mockMvc.perform(get("/api/doctores")
+                .param("especialidad", "Pediatría")
+                .param("apellido", "Go")
+                .param("limite", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"doctores-abc-3\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(jsonPath("$.doctores", hasSize(1)))
+                .andExpect(jsonPath("$.doctores[0].apellidoPaterno", is("Gomez")))
+                .andExpect(jsonPath("$.siguienteCursor", is("c2lndWllbnRl")));
+    }
+
+    @Test
+    @WithMockUser
+    void listarDoctores_sinCambiosDesdeElEtag_responde304SinConsultar() throws Exception {
+        when(doctorService.versionListado()).thenReturn("abc-3");
+
+        mockMvc.perform(get("/api/doctores").header(HttpHeaders.IF_NONE_MATCH, "\"doctores-abc-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(doctorService, never()).listarDoctores(any(), any(), any(), any());
+    }
+}
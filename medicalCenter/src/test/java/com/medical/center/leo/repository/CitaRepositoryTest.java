@@ -1,19 +1,27 @@
 package com.medical.center.leo.repository;
 
+import com.medical.center.leo.dto.CitaCambioDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.CitasPorDiaDTO;
+import com.medical.center.leo.dto.CitaHistorialDTO;
 import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.CitaArchivada;
 import com.medical.center.leo.entity.Consultorio;
 import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.entity.Paciente;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +35,9 @@ class CitaRepositoryTest {
     @Autowired
     private CitaRepository citaRepository;
 
+    @Autowired
+    private CitaArchivadaRepository citaArchivadaRepository;
+
     @Autowired(required = false)
     private ConsultorioRepository consultorioRepository;
 
@@ -118,9 +129,30 @@ class CitaRepositoryTest {
         assertEquals(2, conteo);
     }
 
+    @Test
+    void countPorDiaDelMedicoEnRango_agrupaPorDiaDelMes() {
+        citaRepository.save(cita1);
+        citaRepository.save(cita2);
+        citaRepository.save(new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 1, 31, 23, 30),
+                "PacienteRepo C"));
+        // Fuera del mes
+        citaRepository.save(new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 2, 1, 0, 0),
+                "PacienteRepo D"));
+        entityManager.flush();
+
+        List<CitasPorDiaDTO> conteos = citaRepository.countPorDiaDelMedicoEnRango(doctor1.getId_medico(),
+                LocalDateTime.of(2026, 1, 1, 0, 0), LocalDateTime.of(2026, 2, 1, 0, 0));
+
+        assertThat(conteos).containsExactlyInAnyOrder(new CitasPorDiaDTO(15, 2L), new CitasPorDiaDTO(31, 1L));
+    }
+
     @Test
     void findCitasPacienteEnRangoHorario_deberiaRetornarCitasCorrectas() {
+        Paciente paciente = entityManager.persist(new Paciente("PacienteRepo A"));
+        cita1.setPaciente(paciente);
+        cita2.setPaciente(entityManager.persist(new Paciente("PacienteRepo B")));
         citaRepository.save(cita1);
+        citaRepository.save(cita2);
         entityManager.flush();
 
         LocalDateTime horarioReferencia = LocalDateTime.of(2026, 1, 15, 10, 30);
@@ -128,7 +160,7 @@ class CitaRepositoryTest {
         LocalDateTime limiteSuperior = horarioReferencia.plusHours(2);
 
         List<Cita> encontradas = citaRepository.findCitasPacienteEnRangoHorario(
-                "PacienteRepo A",
+                paciente.getId_paciente(),
                 horarioReferencia,
                 limiteInferior,
                 limiteSuperior);
@@ -136,6 +168,57 @@ class CitaRepositoryTest {
         assertThat(encontradas.get(0).getNombre_paciente()).isEqualTo("PacienteRepo A");
     }
 
+    @Test
+    void countByMedicoIdAndDia_cuentaSoloElDiaCompletoSinLaMedianocheSiguiente() {
+        LocalDate dia = LocalDate.of(2026, 1, 20);
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.atStartOfDay(), "Limite A"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.atTime(23, 59), "Limite B"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.plusDays(1).atStartOfDay(), "Limite C"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.minusDays(1).atTime(23, 59), "Limite D"));
+        entityManager.flush();
+
+        assertEquals(2, citaRepository.countByMedicoIdAndDia(doctor1.getId_medico(), dia.atTime(12, 0)));
+        assertEquals(2, citaRepository.countByMedicoIdAndDia(doctor1.getId_medico(), dia.atStartOfDay()));
+    }
+
+    @Test
+    void findCitasPacienteEnRangoHorario_noCruzaLaMedianoche() {
+        LocalDate dia = LocalDate.of(2026, 1, 20);
+        Paciente paciente = entityManager.persist(new Paciente("Paciente Noche"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.atTime(22, 0), "Paciente Noche", paciente,
+                null, null));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.plusDays(1).atTime(0, 30), "Paciente Noche",
+                paciente, null, null));
+        entityManager.flush();
+
+        LocalDateTime horarioReferencia = dia.atTime(23, 0);
+        List<Cita> encontradas = citaRepository.findCitasPacienteEnRangoHorario(
+                paciente.getId_paciente(),
+                horarioReferencia,
+                horarioReferencia.minusHours(2),
+                horarioReferencia.plusHours(2));
+
+        assertThat(encontradas).extracting(Cita::getHorario_consulta).containsExactly(dia.atTime(22, 0));
+    }
+
+    @Test
+    void findResponseDelDia_incluyeLaMedianocheInicialYExcluyeLaSiguiente() {
+        LocalDate dia = LocalDate.of(2026, 1, 20);
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.atStartOfDay(), "Limite A"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.atTime(23, 59), "Limite B"));
+        citaRepository.save(new Cita(null, consultorio1, doctor1, dia.plusDays(1).atStartOfDay(), "Limite C"));
+        entityManager.flush();
+
+        List<CitaResponseDTO> delDia = citaRepository.findResponseDelDia(dia.atStartOfDay(),
+                dia.plusDays(1).atStartOfDay());
+        List<CitaResponseDTO> delDiaPorMedico = citaRepository.findResponseDelDiaPorMedico(dia.atStartOfDay(),
+                dia.plusDays(1).atStartOfDay(), doctor1.getId_medico());
+
+        assertThat(delDia).extracting(CitaResponseDTO::nombrePaciente).containsExactly("Limite A", "Limite B");
+        assertThat(delDiaPorMedico).extracting(CitaResponseDTO::nombrePaciente)
+                .containsExactly("Limite A", "Limite B");
+    }
+
     @Test
     void findByHorario_consultaBetween_deberiaRetornarCitasEnRango() {
         citaRepository.save(cita1);
@@ -204,4 +287,149 @@ class CitaRepositoryTest {
         assertThat(encontradas).extracting(Cita::getNombre_paciente).containsExactlyInAnyOrder("PacienteRepo A",
                 "PacienteRepo B");
     }
-}
\ No newline at end of file
+
+    @Test
+    void findPaginaEnRango_recorreTodasLasCitasSinRepetirNiSaltar() {
+        // Dos citas con el mismo horario (en otro consultorio y con otro médico, por las
+        // restricciones únicas) para comprobar el desempate por id_cita
+        Doctor doctor2 = new Doctor(null, "PaginaRepo", "Doc", "Dos", "GeneralRepo");
+        Consultorio consultorio2 = new Consultorio(null, 403, 4);
+        entityManager.persist(doctor2);
+        entityManager.persist(consultorio2);
+        Cita cita3 = new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 1, 16, 9, 0), "PacienteRepo C");
+        Cita cita4 = new Cita(null, consultorio2, doctor2, LocalDateTime.of(2026, 1, 16, 9, 0), "PacienteRepo D");
+        Cita fueraDeRango = new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 1, 18, 9, 0),
+                "PacienteRepo E");
+        citaRepository.saveAll(List.of(cita1, cita2, cita3, cita4, fueraDeRango));
+        entityManager.flush();
+        entityManager.clear();
+
+        LocalDateTime desde = LocalDate.of(2026, 1, 15).atStartOfDay();
+        LocalDateTime hasta = LocalDate.of(2026, 1, 17).atStartOfDay();
+
+        List<Cita> primera = citaRepository.findPaginaEnRango(desde, hasta, null, null, desde, Integer.MIN_VALUE,
+                PageRequest.of(0, 3));
+        Cita ultima = primera.get(primera.size() - 1);
+        List<Cita> segunda = citaRepository.findPaginaEnRango(desde, hasta, null, null,
+                ultima.getHorario_consulta(), ultima.getId_cita(), PageRequest.of(0, 3));
+
+        assertThat(primera).extracting(Cita::getNombre_paciente)
+                .containsExactly("PacienteRepo A", "PacienteRepo B", "PacienteRepo C");
+        assertThat(segunda).extracting(Cita::getNombre_paciente).containsExactly("PacienteRepo D");
+    }
+
+    @Test
+    void streamEnRango_filtraPorMedicoYOrdenaPorHorario() {
+        Doctor doctor2 = new Doctor(null, "StreamRepo", "Doc", "Dos", "GeneralRepo");
+        entityManager.persist(doctor2);
+        citaRepository.save(cita2);
+        citaRepository.save(cita1);
+        citaRepository.save(new Cita(null, consultorio1, doctor2, LocalDateTime.of(2026, 1, 15, 12, 0),
+                "PacienteOtroDoc"));
+        entityManager.flush();
+
+        try (Stream<Cita> citas = citaRepository.streamEnRango(LocalDate.of(2026, 1, 15).atStartOfDay(),
+                LocalDate.of(2026, 1, 16).atStartOfDay(), null, doctor1.getId_medico())) {
+            assertThat(citas.map(Cita::getNombre_paciente).toList())
+                    .containsExactly("PacienteRepo A", "PacienteRepo B");
+        }
+    }
+
+    @Test
+    void findCambiosEntre_devuelveLasVersionesDelIntervaloEnOrden() {
+        cita1.setVersion_cambio(12L);
+        cita2.setVersion_cambio(11L);
+        citaRepository.save(cita1);
+        citaRepository.save(cita2);
+        Cita posterior = new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 1, 15, 12, 0), "PacienteRepo C");
+        posterior.setVersion_cambio(13L);
+        citaRepository.save(posterior);
+        entityManager.flush();
+
+        List<CitaCambioDTO> cambios = citaRepository.findCambiosEntre(10L, 12L, PageRequest.of(0, 10));
+
+        assertThat(cambios).extracting(CitaCambioDTO::versionCambio).containsExactly(11L, 12L);
+        assertThat(cambios.get(0).cita().nombrePaciente()).isEqualTo("PacienteRepo B");
+        assertEquals(13L, citaRepository.findUltimaVersionCambio());
+    }
+
+    @Test
+    void insertarEnLote_asignaLosIdsGeneradosPorVersionDeCambio() {
+        Paciente paciente = new Paciente("PacienteRepo A");
+        entityManager.persist(paciente);
+        Cita otra = new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 1, 15, 12, 0), "PacienteRepo C");
+        otra.setVersion_cambio(22L);
+        citaRepository.save(otra);
+        entityManager.flush();
+        cita1.setPaciente(paciente);
+        cita1.setVersion_cambio(23L);
+        cita2.setVersion_cambio(21L);
+
+        citaRepository.insertarEnLote(List.of(cita1, cita2));
+        entityManager.clear();
+
+        assertThat(cita1.getId_cita()).isNotNull().isNotEqualTo(otra.getId_cita());
+        assertEquals(0L, cita2.getVersion());
+        Cita guardada = citaRepository.findById(cita1.getId_cita()).orElseThrow();
+        assertEquals("PacienteRepo A", guardada.getNombre_paciente());
+        assertEquals(paciente.getId_paciente(), guardada.getPaciente().getId_paciente());
+        assertEquals("PacienteRepo B", citaRepository.findById(cita2.getId_cita()).orElseThrow().getNombre_paciente());
+    }
+
+    @Test
+    void cancelar_ocultaLaCitaYLiberaSuHorario() {
+        citaRepository.save(cita1);
+        entityManager.flush();
+        cita1.cancelar(LocalDateTime.of(2026, 1, 10, 8, 0));
+        citaRepository.save(cita1);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(citaRepository.findById(cita1.getId_cita())).isEmpty();
+        assertThat(citaRepository.findResponseDelDia(cita1.getHorario_consulta().toLocalDate().atStartOfDay(),
+                cita1.getHorario_consulta().toLocalDate().plusDays(1).atStartOfDay())).isEmpty();
+
+        // El mismo horario se puede volver a reservar, y cancelar otra vez
+        Cita otra = citaRepository.save(new Cita(null, consultorio1, doctor1, cita1.getHorario_consulta(),
+                "PacienteRepo C"));
+        entityManager.flush();
+        otra.cancelar(LocalDateTime.of(2026, 1, 11, 8, 0));
+        entityManager.flush();
+        citaRepository.save(new Cita(null, consultorio1, doctor1, cita1.getHorario_consulta(), "PacienteRepo D"));
+        entityManager.flush();
+
+        assertTrue(citaRepository.medicoTieneCitas(doctor1.getId_medico()));
+        assertEquals(1, citaRepository.countByMedicoIdAndDia(doctor1.getId_medico(), cita1.getHorario_consulta()));
+    }
+
+    @Test
+    void archivarAnterioresA_mueveLasCitasAlHistorialPorLotes() {
+        citaRepository.save(cita1);
+        citaRepository.save(cita2);
+        Cita futura = citaRepository.save(new Cita(null, consultorio1, doctor1, LocalDateTime.of(2026, 2, 1, 9, 0),
+                "PacienteRepo C"));
+        entityManager.flush();
+        cita2.cancelar(LocalDateTime.of(2026, 1, 10, 8, 0));
+        entityManager.flush();
+        entityManager.clear();
+
+        LocalDateTime limite = LocalDateTime.of(2026, 1, 20, 0, 0);
+        LocalDateTime fechaArchivo = LocalDateTime.of(2026, 6, 1, 3, 0);
+        assertEquals(1, citaRepository.archivarAnterioresA(limite, 1, fechaArchivo));
+        assertEquals(1, citaRepository.archivarAnterioresA(limite, 1, fechaArchivo));
+        assertEquals(0, citaRepository.archivarAnterioresA(limite, 1, fechaArchivo));
+
+        assertThat(citaRepository.findById(futura.getId_cita())).isPresent();
+        CitaArchivada archivada = citaArchivadaRepository.findById(cita2.getId_cita()).orElseThrow();
+        assertEquals(Cita.Estado.CANCELADA, archivada.getEstado());
+        assertEquals("TestRepo DoctorRepo", archivada.getMedico_nombre_completo());
+        assertEquals(401, archivada.getNumero_consultorio());
+        assertEquals(fechaArchivo, archivada.getFecha_archivo());
+
+        List<CitaHistorialDTO> historial = citaArchivadaRepository.findPaginaEnRango(
+                LocalDateTime.of(2026, 1, 1, 0, 0), limite, null, doctor1.getId_medico(),
+                LocalDateTime.of(2026, 1, 1, 0, 0), Integer.MIN_VALUE, PageRequest.of(0, 10));
+        assertThat(historial).extracting(CitaHistorialDTO::nombrePaciente)
+                .containsExactly("PacienteRepo A", "PacienteRepo B");
+    }
+}
@@ -0,0 +1,61 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.dto.DoctorResumenDTO;
+import com.medical.center.leo.entity.Doctor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class DoctorRepositoryTest {
+
+    private static final String ESPECIALIDAD = "Listado Repo";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private Doctor santos;
+    private Doctor sanchez;
+    private Doctor sanGuion;
+
+    @BeforeEach
+    void setUp() {
+        santos = entityManager.persist(new Doctor(null, "Luis", "SantosRepo", "Uno", ESPECIALIDAD));
+        sanchez = entityManager.persist(new Doctor(null, "Ana", "SanchezRepo", "Dos", ESPECIALIDAD));
+        sanGuion = entityManager.persist(new Doctor(null, "Eva", "San_Repo", "Tres", "Otra " + ESPECIALIDAD));
+        entityManager.flush();
+    }
+
+    @Test
+    void findPagina_filtraPorEspecialidadYRecorreEnOrdenDeApellido() {
+        List<DoctorResumenDTO> primera = doctorRepository.findPagina(ESPECIALIDAD, null, "", Integer.MIN_VALUE,
+                PageRequest.of(0, 1));
+        assertThat(primera).extracting(DoctorResumenDTO::idMedico).containsExactly(sanchez.getId_medico());
+
+        DoctorResumenDTO ultima = primera.get(0);
+        List<DoctorResumenDTO> segunda = doctorRepository.findPagina(ESPECIALIDAD, null, ultima.apellidoPaterno(),
+                ultima.idMedico(), PageRequest.of(0, 1));
+        assertThat(segunda).extracting(DoctorResumenDTO::idMedico).containsExactly(santos.getId_medico());
+    }
+
+    @Test
+    void findPagina_porPrefijo_trataLosComodinesEscapadosComoTexto() {
+        assertThat(doctorRepository.findPagina(null, "San\\_%", "", Integer.MIN_VALUE, PageRequest.of(0, 10)))
+                .extracting(DoctorResumenDTO::idMedico)
+                .containsExactly(sanGuion.getId_medico());
+
+        assertThat(doctorRepository.findPagina(null, "San%", "", Integer.MIN_VALUE, PageRequest.of(0, 10)))
+                .extracting(DoctorResumenDTO::apellidoPaterno)
+                .contains("SanchezRepo", "SantosRepo", "San_Repo");
+    }
+}
@@ -0,0 +1,56 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.EventoCita;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class EventoCitaRepositoryTest {
+
+    @Autowired
+    private EventoCitaRepository eventoCitaRepository;
+
+    @Test
+    void insertarEnLote_yMarcarPublicados_dejanPendientesSoloLosNoPublicados() {
+        LocalDateTime ahora = LocalDateTime.of(2026, 3, 2, 9, 0);
+        eventoCitaRepository.insertarEnLote(List.of(evento(1, "CREADA", ahora), evento(1, "EDITADA", ahora),
+                evento(2, "CANCELADA", ahora)));
+
+        List<EventoCita> primeros = eventoCitaRepository.findPendientes(PageRequest.of(0, 2));
+        assertThat(primeros).extracting(EventoCita::getTipo).containsExactly("CREADA", "EDITADA");
+
+        assertEquals(2, eventoCitaRepository.marcarPublicados(
+                primeros.stream().map(EventoCita::getId_evento).toList(), ahora.plusSeconds(1)));
+
+        assertThat(eventoCitaRepository.findPendientes(PageRequest.of(0, 2))).extracting(EventoCita::getId_cita)
+                .containsExactly(2);
+    }
+
+    @Test
+    void eliminarAnterioresA_borraPorLotesSoloLosRegistradosAntesDelLimite() {
+        LocalDateTime limite = LocalDateTime.of(2026, 3, 2, 9, 0);
+        eventoCitaRepository.insertarEnLote(List.of(evento(1, "CREADA", limite.minusDays(3)),
+                evento(2, "CREADA", limite.minusDays(2)), evento(3, "CREADA", limite.minusDays(1)),
+                evento(4, "CREADA", limite)));
+        eventoCitaRepository.marcarPublicados(eventoCitaRepository.findPendientes(PageRequest.of(0, 1)).stream()
+                .map(EventoCita::getId_evento).toList(), limite.minusDays(3));
+
+        assertEquals(2, eventoCitaRepository.eliminarAnterioresA(limite, 2));
+        assertEquals(1, eventoCitaRepository.eliminarAnterioresA(limite, 2));
+        assertEquals(0, eventoCitaRepository.eliminarAnterioresA(limite, 2));
+
+        assertThat(eventoCitaRepository.findAll()).extracting(EventoCita::getId_cita).containsExactly(4);
+    }
+
+    private static EventoCita evento(int idCita, String tipo, LocalDateTime fecha) {
+        return new EventoCita(null, idCita, tipo, "{\"cita\":null}", fecha, null);
+    }
+}
@@ -0,0 +1,55 @@
+package com.medical.center.leo.repository;
+
+import com.medical.center.leo.entity.Paciente;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class PacienteRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Test
+    void findByClaveBusqueda_encuentraElMismoPacienteConAcentosYMayusculasDistintos() {
+        Paciente paciente = entityManager.persist(new Paciente("Juan Perez"));
+        entityManager.flush();
+
+        assertEquals(paciente.getId_paciente(), pacienteRepository
+                .findByClaveBusqueda(Paciente.claveBusqueda("  JUAN   Pérez ")).orElseThrow().getId_paciente());
+        assertTrue(pacienteRepository.findByClaveBusqueda(Paciente.claveBusqueda("Juan Perea")).isEmpty());
+    }
+
+    @Test
+    void findByClavesBusqueda_devuelveSoloLosPacientesExistentes() {
+        entityManager.persist(new Paciente("Ana Lopez"));
+        entityManager.persist(new Paciente("Luis Diaz"));
+        entityManager.flush();
+
+        List<Paciente> encontrados = pacienteRepository.findByClavesBusqueda(List.of(
+                Paciente.claveBusqueda("ana lópez"), Paciente.claveBusqueda("Nadie")));
+
+        assertThat(encontrados).extracting(Paciente::getNombre).containsExactly("Ana Lopez");
+    }
+
+    @Test
+    void insertarEnLote_daDeAltaLosPacientesQueSeLeenDespuesPorClave() {
+        pacienteRepository.insertarEnLote(List.of(new Paciente("Eva Ruiz"), new Paciente("Raul Soto")));
+
+        List<Paciente> insertados = pacienteRepository.findByClavesBusqueda(List.of(
+                Paciente.claveBusqueda("eva ruiz"), Paciente.claveBusqueda("RAÚL SOTO")));
+
+        assertThat(insertados).extracting(Paciente::getNombre).containsExactlyInAnyOrder("Eva Ruiz", "Raul Soto");
+        assertThat(insertados).allSatisfy(paciente -> assertNotNull(paciente.getId_paciente()));
+    }
+}
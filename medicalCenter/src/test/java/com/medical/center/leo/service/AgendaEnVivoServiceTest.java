@@ -0,0 +1,136 @@
+package com.medical.center.leo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgendaEnVivoServiceTest {
+
+    private static final LocalDate DIA = LocalDate.of(2026, 3, 2);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch desbloquear = new CountDownLatch(1);
+    private AgendaEnVivoService agenda;
+
+    @AfterEach
+    void cerrar() {
+        desbloquear.countDown();
+        agenda.cerrar();
+    }
+
+    @Test
+    void alCambiarCita_enviaSoloALosSuscriptoresCuyoFiltroCoincide() throws Exception {
+        agenda = new Agenda(64, 10, false);
+        EmitterGrabador porConsultorio = (EmitterGrabador) agenda.suscribir(1, null, null);
+        EmitterGrabador porMedicoYDia = (EmitterGrabador) agenda.suscribir(null, 7, DIA);
+        EmitterGrabador otroDia = (EmitterGrabador) agenda.suscribir(null, null, DIA.plusDays(1));
+
+        // Edición que saca la cita del consultorio 1 y la pasa al médico 7
+        agenda.alCambiarCita(new CitaCambiadaEvent(
+                new SlotOcupadoDTO(5, 1, 3, DIA.atTime(9, 0)),
+                new SlotOcupadoDTO(5, 2, 7, DIA.atTime(10, 0))));
+
+        assertTrue(porConsultorio.esperarEnvios(2));
+        assertTrue(porMedicoYDia.esperarEnvios(2));
+        String evento = porMedicoYDia.textoEnviado();
+        assertTrue(evento.contains("event:cita"), evento);
+        assertTrue(evento.contains("\"tipo\":\"EDITADA\""), evento);
+        assertTrue(evento.contains("\"horarioConsultaAnterior\":\"2026-03-02 09:00:00\""), evento);
+        // Solo el comentario inicial de conexión
+        assertTrue(otroDia.esperarEnvios(1));
+        assertEquals(1, otroDia.enviados.size());
+    }
+
+    @Test
+    void suscriptorLento_seDesalojaSinBloquearLaPublicacion() throws Exception {
+        agenda = new Agenda(2, 10, true);
+        agenda.suscribir(null, null, null);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            agenda.alCambiarCita(new CitaCambiadaEvent(null, new SlotOcupadoDTO(i, 1, 1, DIA.atTime(8, 0))));
+        }
+
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, agenda.suscriptoresConectados());
+        assertEquals(1.0, registry.counter("medicalcenter.agenda.desalojos").count());
+    }
+
+    @Test
+    void suscribir_conElMaximoAlcanzado_lanzaServicioSaturadoException() {
+        agenda = new Agenda(64, 1, false);
+        agenda.suscribir(null, null, null);
+
+        assertThrows(ServicioSaturadoException.class, () -> agenda.suscribir(1, null, null));
+    }
+
+    /** Agenda con emitters que registran lo enviado o, si {@code bloquear}, no terminan de enviar. */
+    private final class Agenda extends AgendaEnVivoService {
+
+        private final boolean bloquear;
+
+        Agenda(int buffer, int maxSuscriptores, boolean bloquear) {
+            super(new ObjectMapper().registerModule(new JavaTimeModule()), buffer, maxSuscriptores,
+                    Duration.ofMinutes(1), Duration.ofHours(1), registry);
+            this.bloquear = bloquear;
+        }
+
+        @Override
+        SseEmitter crearEmitter(long duracionMaximaMillis) {
+            return new EmitterGrabador(bloquear);
+        }
+    }
+
+    private final class EmitterGrabador extends SseEmitter {
+
+        private final boolean bloquear;
+        private final List<Set<DataWithMediaType>> enviados = new CopyOnWriteArrayList<>();
+
+        EmitterGrabador(boolean bloquear) {
+            this.bloquear = bloquear;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> datos) {
+            if (bloquear) {
+                try {
+                    desbloquear.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            enviados.add(datos);
+        }
+
+        boolean esperarEnvios(int cantidad) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (enviados.size() < cantidad && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            return enviados.size() >= cantidad;
+        }
+
+        String textoEnviado() {
+            StringBuilder texto = new StringBuilder();
+            enviados.forEach(datos -> datos.forEach(dato -> texto.append(dato.getData())));
+            return texto.toString();
+        }
+    }
+}
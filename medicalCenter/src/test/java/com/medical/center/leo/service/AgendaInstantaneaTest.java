@@ -0,0 +1,174 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaAgendaDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.repository.CitaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgendaInstantaneaTest {
+
+    private static final ZoneId ZONA = ZoneOffset.UTC;
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    private final AtomicReference<Instant> ahora = new AtomicReference<>();
+    private AgendaInstantanea agenda;
+    private LocalDate hoy;
+    private LocalDate manana;
+
+    @BeforeEach
+    void setUp() {
+        hoy = LocalDate.of(2026, 3, 2);
+        manana = hoy.plusDays(1);
+        ahora.set(hoy.atTime(8, 0).toInstant(ZoneOffset.UTC));
+        Clock reloj = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZONA;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zona) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return ahora.get();
+            }
+        };
+        agenda = new AgendaInstantanea(citaRepository, reloj);
+    }
+
+    @Test
+    void consultar_cargaHoyYMananaUnaVezYFiltraPorConsultorioYMedico() {
+        when(citaRepository.findAgendaEnRango(hoy.atStartOfDay(), hoy.plusDays(2).atStartOfDay()))
+                .thenReturn(List.of(fila(1, 1, 10, hoy.atTime(9, 0)), fila(2, 2, 10, hoy.atTime(10, 0)),
+                        fila(3, 1, 20, hoy.atTime(11, 0)), fila(4, 1, 10, manana.atTime(9, 0))));
+
+        assertThat(agenda.consultar(hoy, null, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(1, 2, 3);
+        assertThat(agenda.consultar(hoy, 1, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(1, 3);
+        assertThat(agenda.consultar(hoy, null, 10).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(1, 2);
+        assertThat(agenda.consultar(hoy, 1, 20).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(3);
+        assertThat(agenda.consultar(manana, null, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(4);
+        assertTrue(agenda.consultar(manana, 2, null).orElseThrow().isEmpty());
+        // Fuera de la ventana de hoy y mañana se consulta la base de datos
+        assertTrue(agenda.consultar(hoy.plusDays(2), null, null).isEmpty());
+
+        verify(citaRepository, times(1)).findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void parches_registranMuevenYQuitanCitasSinRecargar() {
+        when(citaRepository.findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(fila(1, 1, 10, hoy.atTime(9, 0))));
+        agenda.consultar(hoy, null, null);
+
+        agenda.registrar(new SlotOcupadoDTO(2, 1, 10, hoy.atTime(8, 30)), respuesta(2, hoy.atTime(8, 30), 0L));
+        assertThat(agenda.consultar(hoy, 1, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(2, 1);
+
+        // Edición que cambia la cita de día y de consultorio
+        agenda.mover(new SlotOcupadoDTO(1, 2, 10, manana.atTime(9, 0)), respuesta(1, manana.atTime(9, 0), 1L));
+        assertThat(agenda.consultar(hoy, null, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(2);
+        assertThat(agenda.consultar(manana, 2, 10).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(1);
+
+        agenda.quitar(new SlotOcupadoDTO(1, 2, 10, manana.atTime(9, 0)));
+        assertTrue(agenda.consultar(manana, null, null).orElseThrow().isEmpty());
+
+        // Un parche de edición que llega después de la cancelación no revive la cita
+        agenda.mover(new SlotOcupadoDTO(1, 2, 10, manana.atTime(9, 0)), respuesta(1, manana.atTime(9, 0), 2L));
+        assertTrue(agenda.consultar(manana, null, null).orElseThrow().isEmpty());
+
+        verify(citaRepository, times(1)).findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void mover_conVersionAnteriorALaGuardada_noPisaLaCita() {
+        when(citaRepository.findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new CitaAgendaDTO(1, 10, respuesta(1, hoy.atTime(9, 0), 5L))));
+        agenda.consultar(hoy, null, null);
+
+        agenda.mover(new SlotOcupadoDTO(1, 1, 10, hoy.atTime(12, 0)), respuesta(1, hoy.atTime(12, 0), 4L));
+
+        assertEquals(hoy.atTime(9, 0), agenda.consultar(hoy, null, null).orElseThrow().get(0).horarioConsulta());
+    }
+
+    @Test
+    void consultar_alCambiarDeDia_reconstruyeLaVentana() {
+        when(citaRepository.findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(fila(1, 1, 10, manana.atTime(9, 0))))
+                .thenReturn(List.of(fila(1, 1, 10, manana.atTime(9, 0)),
+                        fila(2, 1, 10, manana.plusDays(1).atTime(9, 0))));
+        assertTrue(agenda.consultar(hoy, null, null).orElseThrow().isEmpty());
+
+        ahora.set(manana.atTime(0, 5).toInstant(ZoneOffset.UTC));
+
+        assertTrue(agenda.consultar(hoy, null, null).isEmpty());
+        assertThat(agenda.consultar(manana.plusDays(1), null, null).orElseThrow())
+                .extracting(CitaResponseDTO::idCita).containsExactly(2);
+        verify(citaRepository).findAgendaEnRango(manana.atStartOfDay(), manana.plusDays(2).atStartOfDay());
+    }
+
+    @Test
+    void parcheDuranteLaReconstruccion_seAplicaSobreLaCarga() {
+        when(citaRepository.findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenAnswer(invocacion -> {
+                    // Una cita se confirma mientras la consulta sigue en curso y no aparece en ella
+                    agenda.registrar(new SlotOcupadoDTO(2, 1, 10, hoy.atTime(10, 0)),
+                            respuesta(2, hoy.atTime(10, 0), 0L));
+                    return List.of(fila(1, 1, 10, hoy.atTime(9, 0)));
+                });
+
+        assertThat(agenda.consultar(hoy, null, null).orElseThrow()).extracting(CitaResponseDTO::idCita)
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    void invalidar_descartaLaVistaYLaSiguienteLecturaLaRecarga() {
+        when(citaRepository.findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(fila(1, 1, 10, hoy.atTime(9, 0))));
+        agenda.consultar(hoy, null, null);
+
+        agenda.invalidar();
+        agenda.consultar(hoy, null, null);
+
+        verify(citaRepository, times(2)).findAgendaEnRango(any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    private static CitaAgendaDTO fila(int idCita, int consultorioId, int medicoId, LocalDateTime horario) {
+        return new CitaAgendaDTO(consultorioId, medicoId, respuesta(idCita, horario, 0L));
+    }
+
+    private static CitaResponseDTO respuesta(int idCita, LocalDateTime horario, Long version) {
+        return new CitaResponseDTO(idCita, 101, 1, "Juan Perez", "General", horario, "Paciente " + idCita, version);
+    }
+}
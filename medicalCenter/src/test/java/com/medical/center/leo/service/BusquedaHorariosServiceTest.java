@@ -0,0 +1,162 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.HorarioDisponibleDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.entity.Paciente;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaRepository;
+import com.medical.center.leo.repository.ConsultorioRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BusquedaHorariosServiceTest {
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private ConsultorioRepository consultorioRepository;
+
+    @Mock
+    private PacienteService pacienteService;
+
+    @InjectMocks
+    private BusquedaHorariosService busquedaHorariosService;
+
+    private LocalDate dia;
+    private Doctor doctor1;
+    private Doctor doctor2;
+    private Consultorio consultorio1;
+    private Consultorio consultorio2;
+
+    @BeforeEach
+    void setUp() {
+        dia = LocalDate.now().plusDays(10);
+        doctor1 = new Doctor(1, "Juan", "Perez", "Gomez", "Cardiología");
+        doctor2 = new Doctor(2, "Ana", "Lopez", "Diaz", "Cardiología");
+        consultorio1 = new Consultorio(10, 101, 1);
+        consultorio2 = new Consultorio(20, 102, 1);
+    }
+
+    @Test
+    void buscar_porMedico_saltaLosHorariosOcupadosDelMedico() {
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(doctor1));
+        when(consultorioRepository.findAll()).thenReturn(List.of(consultorio1, consultorio2));
+        when(citaRepository.findSlotsOcupadosEnRango(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(
+                        new SlotOcupadoDTO(100, 10, 1, dia.atTime(8, 0)),
+                        new SlotOcupadoDTO(101, 20, 1, dia.atTime(8, 30))));
+
+        List<HorarioDisponibleDTO> horarios = busquedaHorariosService.buscarHorariosDisponibles(1, null, dia, 1, 2,
+                null, null);
+
+        assertThat(horarios).extracting(HorarioDisponibleDTO::horarioConsulta)
+                .containsExactly(dia.atTime(9, 0), dia.atTime(9, 30));
+        assertEquals("Juan Perez", horarios.get(0).medicoNombreCompleto());
+        assertEquals(101, horarios.get(0).consultorioNumero());
+        // Una sola lectura del rango completo, no una consulta por horario candidato
+        verify(citaRepository, times(1)).findSlotsOcupadosEnRango(any(), any());
+        verifyNoMoreInteractions(citaRepository);
+    }
+
+    @Test
+    void buscar_porEspecialidad_proponeOtroMedicoYElPrimerConsultorioLibre() {
+        when(doctorRepository.findByEspecialidad("Cardiología")).thenReturn(List.of(doctor2, doctor1));
+        when(consultorioRepository.findAll()).thenReturn(List.of(consultorio2, consultorio1));
+        when(citaRepository.findSlotsOcupadosEnRango(any(), any()))
+                .thenReturn(List.of(new SlotOcupadoDTO(100, 10, 1, dia.atTime(8, 0))));
+
+        List<HorarioDisponibleDTO> horarios = busquedaHorariosService.buscarHorariosDisponibles(null, "Cardiología",
+                dia, 1, 3, null, null);
+
+        // A las 08:00 el médico 1 está ocupado y el consultorio 10 también: el 2 va al 20
+        assertThat(horarios).extracting(HorarioDisponibleDTO::horarioConsulta, HorarioDisponibleDTO::medicoId,
+                HorarioDisponibleDTO::consultorioId)
+                .containsExactly(
+                        tuple(dia.atTime(8, 0), 2, 20),
+                        tuple(dia.atTime(8, 30), 1, 10),
+                        tuple(dia.atTime(8, 30), 2, 10));
+    }
+
+    @Test
+    void buscar_medicoConElLimiteDiarioCompleto_pasaAlDiaSiguiente() {
+        List<SlotOcupadoDTO> ocupados = new ArrayList<>();
+        for (int i = 0; i < CitaService.MAX_CITAS_POR_MEDICO_Y_DIA; i++) {
+            ocupados.add(new SlotOcupadoDTO(100 + i, 10, 1, dia.atTime(12 + i / 2, i % 2 * 30)));
+        }
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(doctor1));
+        when(consultorioRepository.findById(10)).thenReturn(Optional.of(consultorio1));
+        when(citaRepository.findSlotsOcupadosDeMedicosOConsultorioEnRango(dia.atStartOfDay(),
+                dia.plusDays(2).atStartOfDay(), List.of(1), 10)).thenReturn(ocupados);
+
+        List<HorarioDisponibleDTO> horarios = busquedaHorariosService.buscarHorariosDisponibles(1, null, dia, 2, 1,
+                10, null);
+
+        assertEquals(List.of(dia.plusDays(1).atTime(8, 0)),
+                horarios.stream().map(HorarioDisponibleDTO::horarioConsulta).toList());
+    }
+
+    @Test
+    void buscar_conPaciente_respetaLasDosHorasAlrededorDeSusCitas() {
+        Cita citaPaciente = new Cita(50, consultorio2, doctor2, dia.atTime(9, 0), "Paciente Uno");
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(doctor1));
+        when(consultorioRepository.findAll()).thenReturn(List.of(consultorio1));
+        when(citaRepository.findSlotsOcupadosEnRango(any(), any())).thenReturn(List.of());
+        // "paciente  uno" se normaliza al mismo paciente
+        when(pacienteService.buscar("paciente  uno"))
+                .thenReturn(Optional.of(new Paciente(5, "Paciente Uno", Paciente.claveBusqueda("Paciente Uno"))));
+        when(citaRepository.findCitasPacienteEnRango(5, dia.atStartOfDay(),
+                dia.plusDays(1).atStartOfDay())).thenReturn(List.of(citaPaciente));
+
+        List<HorarioDisponibleDTO> horarios = busquedaHorariosService.buscarHorariosDisponibles(1, null, dia, 1, 1,
+                null, "paciente  uno");
+
+        assertEquals(dia.atTime(11, 0), horarios.get(0).horarioConsulta());
+    }
+
+    @Test
+    void buscar_conMedicoYEspecialidad_lanzaBusinessRuleException() {
+        assertThrows(BusinessRuleException.class, () -> busquedaHorariosService.buscarHorariosDisponibles(1,
+                "Cardiología", dia, null, null, null, null));
+        verifyNoInteractions(citaRepository);
+    }
+
+    @Test
+    void buscar_horizonteFueraDeRango_lanzaBusinessRuleException() {
+        assertThrows(BusinessRuleException.class, () -> busquedaHorariosService.buscarHorariosDisponibles(1, null,
+                dia, BusquedaHorariosService.DIAS_MAXIMO + 1, null, null, null));
+    }
+
+    @Test
+    void buscar_especialidadSinMedicos_lanzaResourceNotFoundException() {
+        when(doctorRepository.findByEspecialidad("Geriatría")).thenReturn(List.of());
+
+        assertThrows(ResourceNotFoundException.class, () -> busquedaHorariosService.buscarHorariosDisponibles(null,
+                "Geriatría", dia, null, null, null, null));
+    }
+}
@@ -0,0 +1,80 @@
+package com.medical.center.leo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.entity.EventoCita;
+import com.medical.center.leo.repository.EventoCitaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BuzonSalidaCitasTest {
+
+    private static final LocalDateTime HORARIO = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @Mock
+    private EventoCitaRepository eventoCitaRepository;
+
+    private BuzonSalidaCitas buzon;
+
+    @BeforeEach
+    void setUp() {
+        buzon = new BuzonSalidaCitas(eventoCitaRepository, new ObjectMapper().registerModule(new JavaTimeModule()));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.unbindResourceIfPossible(buzon);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void alCambiarCita_insertaLosEventosDeLaTransaccionEnUnSoloLoteAntesDelCommit() {
+        SlotOcupadoDTO slot = new SlotOcupadoDTO(5, 1, 2, HORARIO);
+        buzon.alCambiarCita(new CitaCambiadaEvent(null, slot,
+                new CitaResponseDTO(5, 101, 1, "Juan Perez", "General", HORARIO, "Ana Lopez", 0L)));
+        buzon.alCambiarCita(new CitaCambiadaEvent(slot, null));
+        verify(eventoCitaRepository, never()).insertarEnLote(anyList());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacion -> sincronizacion
+                .beforeCommit(false));
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacion -> sincronizacion
+                .afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        ArgumentCaptor<List<EventoCita>> lote = ArgumentCaptor.forClass(List.class);
+        verify(eventoCitaRepository, times(1)).insertarEnLote(lote.capture());
+        assertThat(lote.getValue()).extracting(EventoCita::getTipo).containsExactly("CREADA", "CANCELADA");
+        assertTrue(lote.getValue().get(0).getDatos().contains("\"nombrePaciente\":\"Ana Lopez\""));
+        assertFalse(TransactionSynchronizationManager.hasResource(buzon));
+    }
+
+    @Test
+    void alCambiarCita_cuandoLaTransaccionSeRevierte_noInsertaNada() {
+        buzon.alCambiarCita(new CitaCambiadaEvent(null, new SlotOcupadoDTO(5, 1, 2, HORARIO)));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacion -> sincronizacion
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(eventoCitaRepository);
+        assertFalse(TransactionSynchronizationManager.hasResource(buzon));
+    }
+}
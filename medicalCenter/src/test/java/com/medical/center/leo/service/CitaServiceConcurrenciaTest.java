@@ -0,0 +1,161 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.repository.ConsultorioRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import com.medical.center.leo.service.MetricasCitas.Regla;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Lanza cientos de altas simultáneas sobre el mismo horario. La validación previa no es
+ * atómica con el INSERT, así que es la restricción única de la base de datos la que debe
+ * dejar pasar exactamente una, y el resto debe recibir el error de negocio de siempre.
+ */
+@SpringBootTest
+class CitaServiceConcurrenciaTest {
+
+    private static final int ALTAS_SIMULTANEAS = 300;
+    private static final int HILOS = 32;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private ConsultorioRepository consultorioRepository;
+
+    @Autowired
+    private OcupacionIndex ocupacionIndex;
+
+    @SpyBean
+    private MetricasCitas metricasCitas;
+
+    private Doctor doctor;
+    private Consultorio consultorio;
+    private final List<Integer> citasCreadas = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doctor = doctorRepository.save(new Doctor(null, "Concurrencia", "Prueba", "Unica", "General"));
+        consultorio = consultorioRepository.save(new Consultorio(null, 950, 9));
+    }
+
+    @AfterEach
+    void tearDown() {
+        citasCreadas.forEach(citaService::cancelarCita);
+        // Archiva antes las citas canceladas, que siguen referenciando al médico
+        doctorService.eliminarDoctor(doctor.getId_medico());
+        consultorioRepository.delete(consultorio);
+    }
+
+    @Test
+    void crearCita_concurrenteEnElMismoHorario_soloUnaSeGuarda() throws Exception {
+        LocalDateTime horario = LocalDate.now().plusDays(45).atTime(8, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger rechazadas = new AtomicInteger();
+        Map<String, Integer> otrosErrores = new ConcurrentHashMap<>();
+        List<Future<CitaResponseDTO>> altas = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < ALTAS_SIMULTANEAS; i++) {
+                // Pacientes distintos para que solo las reglas 1 y 2 puedan rechazar
+                CitaRequestDTO request = new CitaRequestDTO(consultorio.getId_consultorio(), doctor.getId_medico(),
+                        horario, "Paciente Concurrente " + i);
+                altas.add(executor.submit(() -> {
+                    salida.await();
+                    try {
+                        return citaService.crearCita(request);
+                    } catch (BusinessRuleException ex) {
+                        rechazadas.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        otrosErrores.merge(ex.getClass().getSimpleName(), 1, Integer::sum);
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+
+            for (Future<CitaResponseDTO> alta : altas) {
+                CitaResponseDTO creada = alta.get(60, TimeUnit.SECONDS);
+                if (creada != null) {
+                    citasCreadas.add(creada.idCita());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(otrosErrores).isEmpty();
+        assertEquals(1, citasCreadas.size());
+        assertEquals(ALTAS_SIMULTANEAS - 1, rechazadas.get());
+        assertEquals(1, citaService.consultarCitas(horario.toLocalDate(), consultorio.getId_consultorio(), null)
+                .size());
+    }
+
+    @Test
+    void crearCitasEnLote_cuandoSeRevierteTrasOtraAltaEnElMismoHorario_elIndiceLoSigueMarcandoOcupado()
+            throws Exception {
+        LocalDateTime horario = LocalDate.now().plusDays(46).atTime(9, 0);
+        CitaRequestDTO confirmada = new CitaRequestDTO(consultorio.getId_consultorio(), doctor.getId_medico(),
+                horario, "Paciente Confirmado");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean primeraValidacion = new AtomicBoolean(true);
+        // Otra transacción confirma una cita en el mismo horario después de que el lote lo
+        // validó y antes de su flush, que por eso falla y revierte el lote
+        doAnswer(invocation -> {
+            if (primeraValidacion.getAndSet(false)) {
+                citasCreadas.add(executor.submit(() -> citaService.crearCita(confirmada))
+                        .get(30, TimeUnit.SECONDS).idCita());
+            }
+            return invocation.callRealMethod();
+        }).when(metricasCitas).medir(eq(Regla.MEDICO_LIMITE_DIARIO), anyLong());
+
+        try {
+            assertThrows(BusinessRuleException.class, () -> citaService.crearCitasEnLote(List.of(
+                    new CitaRequestDTO(consultorio.getId_consultorio(), doctor.getId_medico(), horario,
+                            "Paciente Lote"))));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, citasCreadas.size());
+        assertTrue(ocupacionIndex.consultorioOcupado(consultorio.getId_consultorio(), horario));
+        assertTrue(ocupacionIndex.medicoOcupado(doctor.getId_medico(), horario));
+        assertEquals(1, ocupacionIndex.citasDelMedico(doctor.getId_medico(), horario.toLocalDate()));
+    }
+}
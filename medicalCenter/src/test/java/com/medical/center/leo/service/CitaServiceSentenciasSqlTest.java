@@ -0,0 +1,84 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.Cita;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica con las estadísticas de Hibernate que las lecturas de citas se resuelven
+ * en una sola sentencia SQL, sin cargas perezosas de médico o consultorio por fila.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class CitaServiceSentenciasSqlTest {
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private LocalDate fecha;
+    private Cita primeraCita;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        fecha = LocalDate.now().plusDays(3);
+
+        // Varios médicos y consultorios para que un N+1 se notara en el conteo
+        for (int i = 0; i < 3; i++) {
+            Doctor doctor = new Doctor(null, "Sentencias" + i, "Conteo", "Prueba", "General");
+            Consultorio consultorio = new Consultorio(null, 900 + i, 9);
+            entityManager.persist(doctor);
+            entityManager.persist(consultorio);
+            Cita cita = new Cita(null, consultorio, doctor, fecha.atTime(9 + i, 0), "Paciente Conteo " + i);
+            entityManager.persist(cita);
+            if (primeraCita == null) {
+                primeraCita = cita;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void consultarCitas_ejecutaUnaSolaSentencia() {
+        List<CitaResponseDTO> citas = citaService.consultarCitas(fecha, null, null);
+
+        assertEquals(3, citas.size());
+        assertEquals("Sentencias0 Conteo", citas.get(0).medicoNombreCompleto());
+        assertEquals(900, citas.get(0).consultorioNumero());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void obtenerCitaPorId_ejecutaUnaSolaSentencia() {
+        CitaResponseDTO cita = citaService.obtenerCitaPorId(primeraCita.getId_cita());
+
+        assertEquals("Paciente Conteo 0", cita.nombrePaciente());
+        assertEquals("General", cita.medicoEspecialidad());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
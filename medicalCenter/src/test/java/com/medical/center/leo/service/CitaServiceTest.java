@@ -1,34 +1,45 @@
 package com.medical.center.leo.service;
 
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
 import com.medical.center.leo.dto.CitaRequestDTO;
 import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
 import com.medical.center.leo.entity.Cita;
 import com.medical.center.leo.entity.Consultorio;
 import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.entity.Paciente;
 import com.medical.center.leo.exception.BusinessRuleException;
 import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
 import com.medical.center.leo.repository.CitaRepository;
 import com.medical.center.leo.repository.ConsultorioRepository;
 import com.medical.center.leo.repository.DoctorRepository;
 
+import com.medical.center.leo.exception.ConflictoConcurrenciaException;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -44,6 +55,33 @@ class CitaServiceTest {
     @Mock
     private ConsultorioRepository consultorioRepository;
 
+    @Mock
+    private CitaCanceladaRepository citaCanceladaRepository;
+
+    @Mock
+    private OcupacionIndex ocupacionIndex;
+
+    @Mock
+    private RelojCambiosCita relojCambios;
+
+    @Mock
+    private AgendaInstantanea agendaInstantanea;
+
+    @Mock
+    private PacienteService pacienteService;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private MetricasCitas metricasCitas;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private CitaService citaService;
 
@@ -51,6 +89,7 @@ class CitaServiceTest {
     private Consultorio consultorioMock;
     private CitaRequestDTO citaRequestDTOMock;
     private Cita citaMock;
+    private Paciente pacienteMock;
 
     @BeforeEach
     void setUp() {
@@ -70,38 +109,40 @@ class CitaServiceTest {
         citaMock.setConsultorio(consultorioMock);
         citaMock.setHorario_consulta(horarioCita);
         citaMock.setNombre_paciente("Paciente Test");
+        pacienteMock = new Paciente(7, "Paciente Test", Paciente.claveBusqueda("Paciente Test"));
     }
 
     private void mockValidacionesBasicasExitosas(CitaRequestDTO request) {
-        // existsByConsultorioIdAndHorarioConsulta
-        // existsByMedicoIdAndHorarioConsulta
-        // countByMedicoIdAndDia
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(request.consultorioId(), request.horarioConsulta()))
+        // Reglas 1, 2 y 4: índice de ocupación
+        // Regla 3: paciente registrado y findCitasPacienteEnRangoHorario
+        when(ocupacionIndex.consultorioOcupado(request.consultorioId(), request.horarioConsulta()))
                 .thenReturn(false);
-        when(citaRepository.existsByMedicoIdAndHorarioConsulta(request.medicoId(), request.horarioConsulta()))
+        when(ocupacionIndex.medicoOcupado(request.medicoId(), request.horarioConsulta()))
                 .thenReturn(false);
+        when(pacienteService.obtenerORegistrar(request.nombrePaciente())).thenReturn(pacienteMock);
         when(citaRepository.findCitasPacienteEnRangoHorario(
-                eq(request.nombrePaciente()),
+                eq(pacienteMock.getId_paciente()),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class))).thenReturn(Collections.emptyList());
-        when(citaRepository.countByMedicoIdAndDia(request.medicoId(), request.horarioConsulta())).thenReturn(0L);
+        when(ocupacionIndex.citasDelMedico(request.medicoId(), request.horarioConsulta().toLocalDate())).thenReturn(0);
         when(doctorRepository.findById(request.medicoId())).thenReturn(Optional.of(doctorMock));
         when(consultorioRepository.findById(request.consultorioId())).thenReturn(Optional.of(consultorioMock));
     }
 
     private void mockValidacionesBasicasExitosasEdicion(CitaRequestDTO request, Integer citaIdExcluir) {
         when(citaRepository.findById(citaIdExcluir)).thenReturn(Optional.of(citaMock));
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(request.consultorioId(), request.horarioConsulta()))
+        when(ocupacionIndex.consultorioOcupado(request.consultorioId(), request.horarioConsulta()))
                 .thenReturn(false);
-        when(citaRepository.existsByMedicoIdAndHorarioConsulta(request.medicoId(), request.horarioConsulta()))
+        when(ocupacionIndex.medicoOcupado(request.medicoId(), request.horarioConsulta()))
                 .thenReturn(false);
+        when(pacienteService.obtenerORegistrar(request.nombrePaciente())).thenReturn(pacienteMock);
         when(citaRepository.findCitasPacienteEnRangoHorario(
-                eq(request.nombrePaciente()),
+                eq(pacienteMock.getId_paciente()),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class))).thenReturn(Collections.emptyList());
-        when(citaRepository.countByMedicoIdAndDia(request.medicoId(), request.horarioConsulta())).thenReturn(0L);
+        when(ocupacionIndex.citasDelMedico(request.medicoId(), request.horarioConsulta().toLocalDate())).thenReturn(0);
         when(doctorRepository.findById(request.medicoId())).thenReturn(Optional.of(doctorMock));
         when(consultorioRepository.findById(request.consultorioId())).thenReturn(Optional.of(consultorioMock));
     }
@@ -117,6 +158,8 @@ class CitaServiceTest {
         assertEquals(citaRequestDTOMock.nombrePaciente(), response.nombrePaciente());
         assertEquals(doctorMock.getNombre() + " " + doctorMock.getApellido_paterno(), response.medicoNombreCompleto());
         verify(citaRepository, times(1)).save(any(Cita.class));
+        verify(ocupacionIndex, times(1)).registrar(any(SlotOcupadoDTO.class));
+        verify(agendaInstantanea).registrar(any(SlotOcupadoDTO.class), same(response));
     }
 
     @Test
@@ -139,7 +182,7 @@ class CitaServiceTest {
         when(doctorRepository.findById(citaRequestDTOMock.medicoId())).thenReturn(Optional.of(doctorMock));
         when(consultorioRepository.findById(citaRequestDTOMock.consultorioId()))
                 .thenReturn(Optional.of(consultorioMock));
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(citaRequestDTOMock.consultorioId(),
+        when(ocupacionIndex.consultorioOcupado(citaRequestDTOMock.consultorioId(),
                 citaRequestDTOMock.horarioConsulta())).thenReturn(true);
 
         assertThrows(BusinessRuleException.class, () -> citaService.crearCita(citaRequestDTOMock));
@@ -151,9 +194,9 @@ class CitaServiceTest {
         when(doctorRepository.findById(citaRequestDTOMock.medicoId())).thenReturn(Optional.of(doctorMock));
         when(consultorioRepository.findById(citaRequestDTOMock.consultorioId()))
                 .thenReturn(Optional.of(consultorioMock));
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(citaRequestDTOMock.consultorioId(),
+        when(ocupacionIndex.consultorioOcupado(citaRequestDTOMock.consultorioId(),
                 citaRequestDTOMock.horarioConsulta())).thenReturn(false);
-        when(citaRepository.existsByMedicoIdAndHorarioConsulta(citaRequestDTOMock.medicoId(),
+        when(ocupacionIndex.medicoOcupado(citaRequestDTOMock.medicoId(),
                 citaRequestDTOMock.horarioConsulta())).thenReturn(true);
 
         assertThrows(BusinessRuleException.class, () -> citaService.crearCita(citaRequestDTOMock));
@@ -183,13 +226,14 @@ class CitaServiceTest {
         when(consultorioRepository.findById(requestConflictiva.consultorioId()))
                 .thenReturn(Optional.of(consultorioMock));
         // Mockear validaciones que deben pasar
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(requestConflictiva.consultorioId(),
+        when(ocupacionIndex.consultorioOcupado(requestConflictiva.consultorioId(),
                 requestConflictiva.horarioConsulta())).thenReturn(false);
-        when(citaRepository.existsByMedicoIdAndHorarioConsulta(requestConflictiva.medicoId(),
+        when(ocupacionIndex.medicoOcupado(requestConflictiva.medicoId(),
                 requestConflictiva.horarioConsulta())).thenReturn(false);
         // Mockear la condición de fallo
+        when(pacienteService.obtenerORegistrar(requestConflictiva.nombrePaciente())).thenReturn(pacienteMock);
         when(citaRepository.findCitasPacienteEnRangoHorario(
-                eq(requestConflictiva.nombrePaciente()),
+                eq(pacienteMock.getId_paciente()),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class),
                 any(LocalDateTime.class))).thenReturn(Collections.singletonList(citaExistentePaciente));
@@ -218,11 +262,12 @@ class CitaServiceTest {
         when(doctorRepository.findById(requestConflictiva.medicoId())).thenReturn(Optional.of(doctorMock));
         when(consultorioRepository.findById(requestConflictiva.consultorioId()))
                 .thenReturn(Optional.of(consultorioMock));
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(anyInt(), any(LocalDateTime.class)))
+        when(ocupacionIndex.consultorioOcupado(anyInt(), any(LocalDateTime.class)))
                 .thenReturn(false);
-        when(citaRepository.existsByMedicoIdAndHorarioConsulta(anyInt(), any(LocalDateTime.class))).thenReturn(false);
+        when(ocupacionIndex.medicoOcupado(anyInt(), any(LocalDateTime.class))).thenReturn(false);
+        when(pacienteService.obtenerORegistrar(requestConflictiva.nombrePaciente())).thenReturn(pacienteMock);
         when(citaRepository.findCitasPacienteEnRangoHorario(
-                eq(requestConflictiva.nombrePaciente()),
+                eq(pacienteMock.getId_paciente()),
                 any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class)))
                 .thenReturn(Collections.singletonList(citaExistentePaciente));
 
@@ -232,8 +277,9 @@ class CitaServiceTest {
     @Test
     void crearCita_cuandoMedicoTiene8CitasEnDia_lanzaBusinessRuleException() {
         mockValidacionesBasicasExitosas(citaRequestDTOMock);
-        when(citaRepository.countByMedicoIdAndDia(citaRequestDTOMock.medicoId(), citaRequestDTOMock.horarioConsulta()))
-                .thenReturn(8L); // Simulando que ya tiene 8 citas
+        when(ocupacionIndex.citasDelMedico(citaRequestDTOMock.medicoId(),
+                citaRequestDTOMock.horarioConsulta().toLocalDate()))
+                .thenReturn(8); // Simulando que ya tiene 8 citas
 
         assertThrows(BusinessRuleException.class, () -> citaService.crearCita(citaRequestDTOMock));
         verify(citaRepository, never()).save(any(Cita.class));
@@ -288,7 +334,7 @@ class CitaServiceTest {
         // Mockear la cita a editar
         when(citaRepository.findById(citaIdParaEditar)).thenReturn(Optional.of(citaMock));
         // Mockear la condición de fallo (consultorio ocupado por OTRA cita)
-        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(requestEdicionConflictiva.consultorioId(),
+        when(ocupacionIndex.consultorioOcupado(requestEdicionConflictiva.consultorioId(),
                 requestEdicionConflictiva.horarioConsulta())).thenReturn(true);
 
         assertThrows(BusinessRuleException.class,
@@ -296,13 +342,81 @@ class CitaServiceTest {
     }
 
     @Test
-    void cancelarCita_cuandoCitaExisteYEsFutura_deberiaEliminarCita() {
+    void editarCita_cuandoLaVersionEnviadaNoEsLaActual_lanzaConflictoSinGuardar() {
+        citaMock.setVersion(3L);
+        CitaRequestDTO requestDesactualizada = new CitaRequestDTO(consultorioMock.getId_consultorio(),
+                doctorMock.getId_medico(), citaMock.getHorario_consulta().plusHours(1), "Paciente Test", 2L);
+        when(citaRepository.findById(citaMock.getId_cita())).thenReturn(Optional.of(citaMock));
+
+        assertThrows(ConflictoConcurrenciaException.class,
+                () -> citaService.editarCita(citaMock.getId_cita(), requestDesactualizada));
+        verify(citaRepository, never()).save(any(Cita.class));
+    }
+
+    @Test
+    void editarCita_cuandoOtraEdicionCambiaOtroCampo_reintentaYCombinaLosCambios() {
+        LocalDateTime nuevoHorario = citaMock.getHorario_consulta().plusHours(1);
+        Cita citaRenombrada = new Cita(citaMock.getId_cita(), consultorioMock, doctorMock,
+                citaMock.getHorario_consulta(), "Paciente Renombrado", 1L);
+        // El nombre guardado por la otra edición conserva su paciente
+        citaRenombrada.setPaciente(new Paciente(9, "Paciente Renombrado",
+                Paciente.claveBusqueda("Paciente Renombrado")));
+        CitaRequestDTO soloCambiaHorario = new CitaRequestDTO(consultorioMock.getId_consultorio(),
+                doctorMock.getId_medico(), nuevoHorario, citaMock.getNombre_paciente());
+
+        when(citaRepository.findById(citaMock.getId_cita()))
+                .thenReturn(Optional.of(citaMock), Optional.of(citaRenombrada));
+        when(doctorRepository.findById(doctorMock.getId_medico())).thenReturn(Optional.of(doctorMock));
+        when(consultorioRepository.findById(consultorioMock.getId_consultorio()))
+                .thenReturn(Optional.of(consultorioMock));
+        when(citaRepository.save(any(Cita.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cita.class, citaMock.getId_cita()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(pacienteService.obtenerORegistrar(citaMock.getNombre_paciente())).thenReturn(pacienteMock);
+
+        CitaResponseDTO response = citaService.editarCita(citaMock.getId_cita(), soloCambiaHorario);
+
+        assertEquals(nuevoHorario, response.horarioConsulta());
+        assertEquals("Paciente Renombrado", response.nombrePaciente());
+        verify(citaRepository, times(2)).save(any(Cita.class));
+        // Las reglas se validan otra vez con los valores combinados
+        verify(citaRepository).findCitasPacienteEnRangoHorario(eq(9), eq(nuevoHorario),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void editarCita_cuandoOtraEdicionCambiaElMismoCampo_lanzaConflicto() {
+        Cita citaMovida = new Cita(citaMock.getId_cita(), consultorioMock, doctorMock,
+                citaMock.getHorario_consulta().plusHours(3), citaMock.getNombre_paciente(), 1L);
+        CitaRequestDTO cambiaHorario = new CitaRequestDTO(consultorioMock.getId_consultorio(),
+                doctorMock.getId_medico(), citaMock.getHorario_consulta().plusHours(1), citaMock.getNombre_paciente());
+
+        when(citaRepository.findById(citaMock.getId_cita()))
+                .thenReturn(Optional.of(citaMock), Optional.of(citaMovida));
+        when(doctorRepository.findById(doctorMock.getId_medico())).thenReturn(Optional.of(doctorMock));
+        when(consultorioRepository.findById(consultorioMock.getId_consultorio()))
+                .thenReturn(Optional.of(consultorioMock));
+        when(citaRepository.save(any(Cita.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cita.class, citaMock.getId_cita()));
+
+        assertThrows(ConflictoConcurrenciaException.class,
+                () -> citaService.editarCita(citaMock.getId_cita(), cambiaHorario));
+        verify(citaRepository, times(1)).save(any(Cita.class));
+    }
+
+    @Test
+    void cancelarCita_cuandoCitaExisteYEsFutura_deberiaMarcarlaComoCancelada() {
         when(citaRepository.findById(citaMock.getId_cita())).thenReturn(Optional.of(citaMock));
         citaMock.setHorario_consulta(LocalDateTime.now().plusDays(1));
 
         citaService.cancelarCita(citaMock.getId_cita());
 
-        verify(citaRepository, times(1)).delete(citaMock);
+        verify(citaRepository, never()).delete(any(Cita.class));
+        verify(citaRepository, times(1)).save(argThat(cita -> cita.getEstado() == Cita.Estado.CANCELADA
+                && cita.getId_cancelacion().equals(citaMock.getId_cita()) && cita.getFecha_cancelacion() != null));
+        verify(ocupacionIndex, times(1)).liberar(any(SlotOcupadoDTO.class));
+        verify(citaCanceladaRepository, times(1)).save(argThat(lapida ->
+                lapida.getId_cita().equals(citaMock.getId_cita())));
     }
 
     @Test
@@ -319,40 +433,41 @@ class CitaServiceTest {
         citaMock.setHorario_consulta(LocalDateTime.now().minusDays(1));
 
         assertThrows(BusinessRuleException.class, () -> citaService.cancelarCita(citaMock.getId_cita()));
-        verify(citaRepository, never()).delete(any(Cita.class));
+        verify(citaRepository, never()).save(any(Cita.class));
+        assertEquals(Cita.Estado.ACTIVA, citaMock.getEstado());
     }
 
     @Test
     void consultarCitas_porFecha_deberiaDevolverCitasDeEsaFecha() {
         LocalDate fechaConsulta = LocalDate.now().plusDays(1);
         LocalDateTime inicioDia = fechaConsulta.atStartOfDay();
-        LocalDateTime finDia = fechaConsulta.atTime(LocalTime.MAX);
+        LocalDateTime inicioDiaSiguiente = fechaConsulta.plusDays(1).atStartOfDay();
 
-        Cita cita1 = new Cita(1, consultorioMock, doctorMock, fechaConsulta.atTime(10, 0), "Paciente 1");
-        Cita cita2 = new Cita(2, consultorioMock, doctorMock, fechaConsulta.atTime(11, 0), "Paciente 2");
-        List<Cita> citasDelDia = Arrays.asList(cita1, cita2);
+        CitaResponseDTO cita1 = respuestaDe(1, fechaConsulta.atTime(10, 0), "Paciente 1");
+        CitaResponseDTO cita2 = respuestaDe(2, fechaConsulta.atTime(11, 0), "Paciente 2");
+        List<CitaResponseDTO> citasDelDia = Arrays.asList(cita1, cita2);
 
-        when(citaRepository.findByHorario_consultaBetween(inicioDia, finDia)).thenReturn(citasDelDia);
+        when(citaRepository.findResponseDelDia(inicioDia, inicioDiaSiguiente)).thenReturn(citasDelDia);
 
         List<CitaResponseDTO> resultado = citaService.consultarCitas(fechaConsulta, null, null);
 
         assertNotNull(resultado);
         assertEquals(2, resultado.size());
         assertEquals("Paciente 1", resultado.get(0).nombrePaciente());
-        verify(citaRepository, times(1)).findByHorario_consultaBetween(inicioDia, finDia);
+        verify(citaRepository, times(1)).findResponseDelDia(inicioDia, inicioDiaSiguiente);
     }
 
     @Test
     void consultarCitas_porFechaYDoctor_deberiaDevolverCitasCorrectas() {
         LocalDate fechaConsulta = LocalDate.now().plusDays(1);
         LocalDateTime inicioDia = fechaConsulta.atStartOfDay();
-        LocalDateTime finDia = fechaConsulta.atTime(LocalTime.MAX);
+        LocalDateTime inicioDiaSiguiente = fechaConsulta.plusDays(1).atStartOfDay();
         Integer medicoId = doctorMock.getId_medico();
 
-        Cita cita1 = new Cita(1, consultorioMock, doctorMock, fechaConsulta.atTime(10, 0), "Paciente 1");
-        List<Cita> citasFiltradas = Collections.singletonList(cita1);
+        CitaResponseDTO cita1 = respuestaDe(1, fechaConsulta.atTime(10, 0), "Paciente 1");
+        List<CitaResponseDTO> citasFiltradas = Collections.singletonList(cita1);
 
-        when(citaRepository.findByHorarioConsultaBetweenAndMedicoId(inicioDia, finDia, medicoId))
+        when(citaRepository.findResponseDelDiaPorMedico(inicioDia, inicioDiaSiguiente, medicoId))
                 .thenReturn(citasFiltradas);
 
         List<CitaResponseDTO> resultado = citaService.consultarCitas(fechaConsulta, null, medicoId);
@@ -360,20 +475,20 @@ class CitaServiceTest {
         assertNotNull(resultado);
         assertEquals(1, resultado.size());
         assertEquals("Paciente 1", resultado.get(0).nombrePaciente());
-        verify(citaRepository, times(1)).findByHorarioConsultaBetweenAndMedicoId(inicioDia, finDia, medicoId);
+        verify(citaRepository, times(1)).findResponseDelDiaPorMedico(inicioDia, inicioDiaSiguiente, medicoId);
     }
 
     @Test
     void consultarCitas_porFechaYConsultorio_deberiaDevolverCitasCorrectas() {
         LocalDate fechaConsulta = LocalDate.now().plusDays(1);
         LocalDateTime inicioDia = fechaConsulta.atStartOfDay();
-        LocalDateTime finDia = fechaConsulta.atTime(LocalTime.MAX);
+        LocalDateTime inicioDiaSiguiente = fechaConsulta.plusDays(1).atStartOfDay();
         Integer consultorioId = consultorioMock.getId_consultorio();
 
-        Cita cita1 = new Cita(1, consultorioMock, doctorMock, fechaConsulta.atTime(10, 0), "Paciente 1");
-        List<Cita> citasFiltradas = Collections.singletonList(cita1);
+        CitaResponseDTO cita1 = respuestaDe(1, fechaConsulta.atTime(10, 0), "Paciente 1");
+        List<CitaResponseDTO> citasFiltradas = Collections.singletonList(cita1);
 
-        when(citaRepository.findByHorarioConsultaBetweenAndConsultorioId(inicioDia, finDia, consultorioId))
+        when(citaRepository.findResponseDelDiaPorConsultorio(inicioDia, inicioDiaSiguiente, consultorioId))
                 .thenReturn(citasFiltradas);
 
         List<CitaResponseDTO> resultado = citaService.consultarCitas(fechaConsulta, consultorioId, null);
@@ -381,21 +496,21 @@ class CitaServiceTest {
         assertNotNull(resultado);
         assertEquals(1, resultado.size());
         assertEquals("Paciente 1", resultado.get(0).nombrePaciente());
-        verify(citaRepository, times(1)).findByHorarioConsultaBetweenAndConsultorioId(inicioDia, finDia, consultorioId);
+        verify(citaRepository, times(1)).findResponseDelDiaPorConsultorio(inicioDia, inicioDiaSiguiente, consultorioId);
     }
 
     @Test
     void consultarCitas_porFechaYConsultorioYMedico_deberiaDevolverCitasCorrectas() {
         LocalDate fechaConsulta = LocalDate.now().plusDays(1);
         LocalDateTime inicioDia = fechaConsulta.atStartOfDay();
-        LocalDateTime finDia = fechaConsulta.atTime(LocalTime.MAX);
+        LocalDateTime inicioDiaSiguiente = fechaConsulta.plusDays(1).atStartOfDay();
         Integer consultorioId = consultorioMock.getId_consultorio();
         Integer medicoId = doctorMock.getId_medico();
 
-        Cita cita1 = new Cita(1, consultorioMock, doctorMock, fechaConsulta.atTime(10, 0), "Paciente 1");
-        List<Cita> citasFiltradas = Collections.singletonList(cita1);
+        CitaResponseDTO cita1 = respuestaDe(1, fechaConsulta.atTime(10, 0), "Paciente 1");
+        List<CitaResponseDTO> citasFiltradas = Collections.singletonList(cita1);
 
-        when(citaRepository.findByHorarioConsultaBetweenAndConsultorioIdAndMedicoId(inicioDia, finDia, consultorioId,
+        when(citaRepository.findResponseDelDiaPorConsultorioYMedico(inicioDia, inicioDiaSiguiente, consultorioId,
                 medicoId))
                 .thenReturn(citasFiltradas);
 
@@ -404,7 +519,138 @@ class CitaServiceTest {
         assertNotNull(resultado);
         assertEquals(1, resultado.size());
         assertEquals("Paciente 1", resultado.get(0).nombrePaciente());
-        verify(citaRepository, times(1)).findByHorarioConsultaBetweenAndConsultorioIdAndMedicoId(inicioDia, finDia,
+        verify(citaRepository, times(1)).findResponseDelDiaPorConsultorioYMedico(inicioDia, inicioDiaSiguiente,
                 consultorioId, medicoId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerCitaPorId_usaLaProyeccionDelRepositorio() {
+        CitaResponseDTO respuesta = respuestaDe(1, citaMock.getHorario_consulta(), "Paciente Test");
+        when(citaRepository.findResponseById(1)).thenReturn(Optional.of(respuesta));
+
+        assertEquals(respuesta, citaService.obtenerCitaPorId(1));
+        verify(citaRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void obtenerCitaPorId_cuandoNoExiste_lanzaResourceNotFoundException() {
+        when(citaRepository.findResponseById(99)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> citaService.obtenerCitaPorId(99));
+    }
+
+    private CitaResponseDTO respuestaDe(Integer idCita, LocalDateTime horario, String nombrePaciente) {
+        return new CitaResponseDTO(idCita, consultorioMock.getNumero_consultorio(), consultorioMock.getPiso(),
+                doctorMock.getNombre() + " " + doctorMock.getApellido_paterno(), doctorMock.getEspecialidad(),
+                horario, nombrePaciente);
+    }
+
+    @Test
+    void crearCitasEnLote_cuandoPacienteRepiteDentroDelLote_rechazaSoloLaSegunda() {
+        LocalDateTime horario = citaRequestDTOMock.horarioConsulta();
+        CitaRequestDTO primera = new CitaRequestDTO(1, 1, horario, "Paciente Lote");
+        CitaRequestDTO segunda = new CitaRequestDTO(1, 1, horario.plusHours(1), "Paciente Lote");
+
+        when(validator.validate(any(CitaRequestDTO.class))).thenReturn(Collections.emptySet());
+        when(pacienteService.obtenerORegistrarTodos(Set.of("Paciente Lote"))).thenReturn(Map.of("paciente lote",
+                new Paciente(8, "Paciente Lote", Paciente.claveBusqueda("Paciente Lote"))));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctorMock));
+        when(consultorioRepository.findAllById(any())).thenReturn(List.of(consultorioMock));
+        when(citaRepository.findCitasPacientesEnRango(any(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+        when(citaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CitaLoteResultadoDTO> resultados = citaService.crearCitasEnLote(List.of(primera, segunda));
+
+        assertEquals(2, resultados.size());
+        assertTrue(resultados.get(0).creada());
+        assertEquals("Paciente Lote", resultados.get(0).cita().nombrePaciente());
+        assertFalse(resultados.get(1).creada());
+        assertTrue(resultados.get(1).error().contains("Paciente Lote"));
+        verify(ocupacionIndex, times(1)).registrar(any(SlotOcupadoDTO.class));
+        // Una sola consulta por tipo de dato, sin importar el tamaño del lote
+        verify(doctorRepository, never()).findById(anyInt());
+        verify(citaRepository, never()).findCitasPacienteEnRangoHorario(any(), any(), any(), any());
+    }
+
+    @Test
+    void crearCitasEnLote_cuandoDosCitasDelLoteOcupanElMismoConsultorio_rechazaLaSegundaSinTocarElIndice() {
+        LocalDateTime horario = citaRequestDTOMock.horarioConsulta();
+        CitaRequestDTO primera = new CitaRequestDTO(1, 1, horario, "Paciente Test");
+        CitaRequestDTO segunda = new CitaRequestDTO(1, 2, horario, "Otro Paciente");
+
+        when(validator.validate(any(CitaRequestDTO.class))).thenReturn(Collections.emptySet());
+        when(pacienteService.obtenerORegistrarTodos(any())).thenReturn(Map.of("paciente test", pacienteMock,
+                "otro paciente", new Paciente(8, "Otro Paciente", Paciente.claveBusqueda("Otro Paciente"))));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctorMock,
+                new Doctor(2, "Ana", "Lopez", "Ruiz", "Pediatría")));
+        when(consultorioRepository.findAllById(any())).thenReturn(List.of(consultorioMock));
+        when(citaRepository.findCitasPacientesEnRango(any(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+        when(citaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            // Hasta el flush, las citas del lote solo están reservadas dentro del propio lote
+            verify(ocupacionIndex, never()).registrar(any(SlotOcupadoDTO.class));
+            return invocation.getArgument(0);
+        });
+
+        List<CitaLoteResultadoDTO> resultados = citaService.crearCitasEnLote(List.of(primera, segunda));
+
+        assertTrue(resultados.get(0).creada());
+        assertFalse(resultados.get(1).creada());
+        assertEquals("Ya existe otra cita en el consultorio 1 a las " + horario, resultados.get(1).error());
+        verify(ocupacionIndex, times(1)).registrar(any(SlotOcupadoDTO.class));
+    }
+
+    @Test
+    void crearCitasEnLote_cuandoDoctorNoExiste_reportaErrorEnEseElemento() {
+        CitaRequestDTO valida = citaRequestDTOMock;
+        CitaRequestDTO doctorInexistente = new CitaRequestDTO(1, 99, citaRequestDTOMock.horarioConsulta().plusHours(3),
+                "Otro Paciente");
+
+        when(validator.validate(any(CitaRequestDTO.class))).thenReturn(Collections.emptySet());
+        when(pacienteService.obtenerORegistrarTodos(any())).thenReturn(Map.of("paciente test", pacienteMock,
+                "otro paciente", new Paciente(8, "Otro Paciente", Paciente.claveBusqueda("Otro Paciente"))));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctorMock));
+        when(consultorioRepository.findAllById(any())).thenReturn(List.of(consultorioMock));
+        when(citaRepository.findCitasPacientesEnRango(any(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+        when(citaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CitaLoteResultadoDTO> resultados = citaService.crearCitasEnLote(List.of(valida, doctorInexistente));
+
+        assertTrue(resultados.get(0).creada());
+        assertFalse(resultados.get(1).creada());
+        assertEquals("Doctor no encontrado con ID: 99", resultados.get(1).error());
+    }
+
+    @Test
+    void importarBloque_guardaLasCitasAceptadasConUnInsertEnLote() {
+        CitaRequestDTO segunda = new CitaRequestDTO(1, 1, citaRequestDTOMock.horarioConsulta().plusHours(3),
+                "Otro Paciente");
+
+        when(validator.validate(any(CitaRequestDTO.class))).thenReturn(Collections.emptySet());
+        when(pacienteService.obtenerORegistrarTodos(any())).thenReturn(Map.of("paciente test", pacienteMock,
+                "otro paciente", new Paciente(8, "Otro Paciente", Paciente.claveBusqueda("Otro Paciente"))));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctorMock));
+        when(consultorioRepository.findAllById(any())).thenReturn(List.of(consultorioMock));
+        when(citaRepository.insertarEnLote(anyList())).thenAnswer(invocation -> {
+            List<Cita> citas = invocation.getArgument(0);
+            for (int i = 0; i < citas.size(); i++) {
+                citas.get(i).setId_cita(100 + i);
+            }
+            return citas;
+        });
+
+        List<CitaLoteResultadoDTO> resultados = citaService.importarBloque(List.of(citaRequestDTOMock, segunda));
+
+        assertEquals(List.of(100, 101), resultados.stream().map(resultado -> resultado.cita().idCita()).toList());
+        verify(citaRepository, times(1)).insertarEnLote(anyList());
+        verify(citaRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void crearCitasEnLote_cuandoLoteVacio_lanzaBusinessRuleException() {
+        assertThrows(BusinessRuleException.class, () -> citaService.crearCitasEnLote(Collections.emptyList()));
+        verify(citaRepository, never()).saveAll(anyList());
+    }
+}
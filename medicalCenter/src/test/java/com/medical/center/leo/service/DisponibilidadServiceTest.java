@@ -0,0 +1,108 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitasPorDiaDTO;
+import com.medical.center.leo.dto.DisponibilidadDiaDTO;
+import com.medical.center.leo.dto.DisponibilidadMesDTO;
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.exception.ResourceNotFoundException;
+import com.medical.center.leo.repository.CitaRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DisponibilidadServiceTest {
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    private DisponibilidadService disponibilidadService;
+
+    private final YearMonth mes = YearMonth.of(2026, 2);
+
+    @BeforeEach
+    void setUp() {
+        disponibilidadService = new DisponibilidadService(citaRepository, doctorRepository,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void obtenerDisponibilidadMensual_calculaEstadoPorDiaConUnaSolaConsulta() {
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(new Doctor(1, "Juan", "Perez", "Gomez", "General")));
+        when(citaRepository.countPorDiaDelMedicoEnRango(1, LocalDateTime.of(2026, 2, 1, 0, 0),
+                LocalDateTime.of(2026, 3, 1, 0, 0)))
+                .thenReturn(List.of(new CitasPorDiaDTO(3, 2L),
+                        new CitasPorDiaDTO(10, (long) CitaService.MAX_CITAS_POR_MEDICO_Y_DIA)));
+
+        DisponibilidadMesDTO disponibilidad = disponibilidadService.obtenerDisponibilidadMensual(1, mes);
+
+        assertEquals(28, disponibilidad.dias().size());
+        assertEquals(CitaService.MAX_CITAS_POR_MEDICO_Y_DIA, disponibilidad.limiteDiario());
+        assertEquals(DisponibilidadDiaDTO.Estado.LIBRE, disponibilidad.dias().get(0).estado());
+        DisponibilidadDiaDTO dia3 = disponibilidad.dias().get(2);
+        assertEquals(mes.atDay(3), dia3.fecha());
+        assertEquals(DisponibilidadDiaDTO.Estado.OCUPADO, dia3.estado());
+        assertEquals(CitaService.MAX_CITAS_POR_MEDICO_Y_DIA - 2, dia3.citasDisponibles());
+        assertEquals(DisponibilidadDiaDTO.Estado.COMPLETO, disponibilidad.dias().get(9).estado());
+        assertEquals(0, disponibilidad.dias().get(9).citasDisponibles());
+    }
+
+    @Test
+    void obtenerDisponibilidadMensual_segundaLlamadaSaleDeLaCache() {
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(new Doctor(1, "Juan", "Perez", "Gomez", "General")));
+        when(citaRepository.countPorDiaDelMedicoEnRango(eq(1), any(), any())).thenReturn(List.of());
+
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes);
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes);
+
+        verify(citaRepository, times(1)).countPorDiaDelMedicoEnRango(eq(1), any(), any());
+    }
+
+    @Test
+    void alCambiarCita_invalidaLosMesesDeAntesYDespuesDelCambio() {
+        YearMonth otroMes = mes.plusMonths(1);
+        when(doctorRepository.findById(1)).thenReturn(Optional.of(new Doctor(1, "Juan", "Perez", "Gomez", "General")));
+        when(citaRepository.countPorDiaDelMedicoEnRango(eq(1), any(), any())).thenReturn(List.of());
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes);
+        disponibilidadService.obtenerDisponibilidadMensual(1, otroMes);
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes.plusMonths(2));
+
+        // Edición que mueve la cita de un mes al siguiente
+        disponibilidadService.alCambiarCita(new CitaCambiadaEvent(
+                new SlotOcupadoDTO(5, 1, 1, mes.atDay(20).atTime(9, 0)),
+                new SlotOcupadoDTO(5, 1, 1, otroMes.atDay(2).atTime(9, 0))));
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes);
+        disponibilidadService.obtenerDisponibilidadMensual(1, otroMes);
+        disponibilidadService.obtenerDisponibilidadMensual(1, mes.plusMonths(2));
+
+        // Dos meses recalculados; el tercero sigue en la cache
+        verify(citaRepository, times(5)).countPorDiaDelMedicoEnRango(eq(1), any(), any());
+    }
+
+    @Test
+    void obtenerDisponibilidadMensual_cuandoDoctorNoExiste_lanzaResourceNotFoundException() {
+        when(doctorRepository.findById(99)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> disponibilidadService.obtenerDisponibilidadMensual(99, mes));
+        verifyNoInteractions(citaRepository);
+    }
+}
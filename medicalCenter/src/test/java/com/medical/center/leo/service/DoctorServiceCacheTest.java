@@ -0,0 +1,117 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.DoctorResumenDTO;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.repository.DoctorRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la cache de segundo nivel de Doctor y la cache de consultas de
+ * findByEspecialidad, incluida su invalidación al escribir por DoctorService.
+ * Cada llamada al servicio usa su propia transacción, así que los aciertos vienen de la
+ * cache compartida y no del contexto de persistencia.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DoctorServiceCacheTest {
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private CacheEstadisticasService cacheEstadisticasService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Integer> doctoresCreados = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        doctoresCreados.forEach(doctorRepository::deleteById);
+    }
+
+    @Test
+    void obtenerDoctorPorId_seSirveDesdeLaCacheSinConsultarLaBase() {
+        Doctor doctor = registrar("Cache", "Lectura", "Oftalmología Cache");
+        doctorService.obtenerDoctorPorId(doctor.getId_medico());
+        statistics.clear();
+
+        Doctor leido = doctorService.obtenerDoctorPorId(doctor.getId_medico());
+
+        assertEquals("Cache", leido.getNombre());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertThat(cacheEstadisticasService.obtenerEstadisticas())
+                .filteredOn(region -> region.region().equals("doctores"))
+                .singleElement()
+                .satisfies(region -> assertEquals(1, region.aciertos()));
+    }
+
+    @Test
+    void actualizarDoctor_refrescaLaEntradaDeLaCache() {
+        Doctor doctor = registrar("Cache", "Edicion", "Neurología Cache");
+        doctorService.obtenerDoctorPorId(doctor.getId_medico());
+
+        doctorService.actualizarDoctor(doctor.getId_medico(),
+                new Doctor(null, "Cache", "Edicion", "Prueba", "Dermatología Cache"));
+
+        assertEquals("Dermatología Cache", doctorService.obtenerDoctorPorId(doctor.getId_medico()).getEspecialidad());
+    }
+
+    @Test
+    void findByEspecialidad_usaLaCacheDeConsultasYSeInvalidaAlRegistrar() {
+        registrar("Cache", "Consulta Uno", "Geriatría Cache");
+        statistics.clear();
+
+        assertThat(doctorRepository.findByEspecialidad("Geriatría Cache")).hasSize(1);
+        assertThat(doctorRepository.findByEspecialidad("Geriatría Cache")).hasSize(1);
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        registrar("Cache", "Consulta Dos", "Geriatría Cache");
+
+        assertThat(doctorRepository.findByEspecialidad("Geriatría Cache"))
+                .extracting(Doctor::getApellido_paterno)
+                .containsExactlyInAnyOrder("Consulta Uno", "Consulta Dos");
+    }
+
+    @Test
+    void registrarDoctor_cambiaLaVersionDelListadoAlConfirmar() {
+        String antes = doctorService.versionListado();
+
+        registrar("Cache", "Version", "Neumología Cache");
+
+        assertNotEquals(antes, doctorService.versionListado());
+        assertThat(doctorService.listarDoctores("Neumología Cache", "Vers", null, null).doctores())
+                .extracting(DoctorResumenDTO::apellidoPaterno)
+                .containsExactly("Version");
+    }
+
+    private Doctor registrar(String nombre, String apellidoPaterno, String especialidad) {
+        Doctor doctor = doctorService.registrarDoctor(
+                new Doctor(null, nombre, apellidoPaterno, "Prueba", especialidad));
+        doctoresCreados.add(doctor.getId_medico());
+        return doctor;
+    }
+}
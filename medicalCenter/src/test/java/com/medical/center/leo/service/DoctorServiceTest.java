@@ -1,5 +1,7 @@
 package com.medical.center.leo.service;
 
+import com.medical.center.leo.dto.DoctorPaginaDTO;
+import com.medical.center.leo.dto.DoctorResumenDTO;
 import com.medical.center.leo.entity.Doctor;
 import com.medical.center.leo.exception.BusinessRuleException;
 import com.medical.center.leo.exception.ResourceNotFoundException;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.Arrays;
 import java.util.List;
@@ -19,6 +22,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,17 +35,21 @@ class DoctorServiceTest {
     @Mock
     private CitaRepository citaRepository;
 
+    @Mock
+    private AgendaInstantanea agendaInstantanea;
+
+    @Mock
+    private VersionDoctores versionDoctores;
+
     @InjectMocks
     private DoctorService doctorService;
 
     private Doctor doctor1;
-    private Doctor doctor2;
     private Doctor doctorToUpdate;
 
     @BeforeEach
     void setUp() {
         doctor1 = new Doctor(1, "Carlos", "Sanchez", "Rodriguez", "Cardiología");
-        doctor2 = new Doctor(2, "Ana", "Gomez", "Lopez", "Pediatría");
 
         doctorToUpdate = new Doctor(null, "Carlos Alberto", "Sanchez", "Perez", "Cardiología Avanzada");
     }
@@ -60,14 +69,39 @@ class DoctorServiceTest {
     }
 
     @Test
-    void listarDoctores_deberiaRetornarListaDeDoctores() {
-        List<Doctor> listaDoctores = Arrays.asList(doctor1, doctor2);
-        when(doctorRepository.findAll()).thenReturn(listaDoctores);
-        List<Doctor> resultado = doctorService.listarDoctores();
-        assertNotNull(resultado);
-        assertEquals(2, resultado.size());
-        assertEquals(doctor1.getNombre(), resultado.get(0).getNombre());
-        verify(doctorRepository, times(1)).findAll();
+    void listarDoctores_conMasResultadosQueElLimite_devuelveCursorDeLaSiguientePagina() {
+        DoctorResumenDTO gomez = new DoctorResumenDTO(2, "Ana", "Gomez", "Lopez", "Pediatría");
+        DoctorResumenDTO sanchez = new DoctorResumenDTO(1, "Carlos", "Sanchez", "Rodriguez", "Pediatría");
+        when(doctorRepository.findPagina(eq("Pediatría"), isNull(), eq(""), eq(Integer.MIN_VALUE),
+                eq(PageRequest.of(0, 2)))).thenReturn(Arrays.asList(gomez, sanchez));
+
+        DoctorPaginaDTO pagina = doctorService.listarDoctores(" Pediatría ", " ", null, 1);
+
+        assertEquals(List.of(gomez), pagina.doctores());
+        assertNotNull(pagina.siguienteCursor());
+
+        when(doctorRepository.findPagina(isNull(), isNull(), eq("Gomez"), eq(2), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(sanchez));
+        DoctorPaginaDTO siguiente = doctorService.listarDoctores(null, null, pagina.siguienteCursor(), 1);
+
+        assertEquals(List.of(sanchez), siguiente.doctores());
+        assertNull(siguiente.siguienteCursor());
+    }
+
+    @Test
+    void listarDoctores_porPrefijoDeApellido_escapaLosComodines() {
+        when(doctorRepository.findPagina(isNull(), eq("San\\_%"), eq(""), eq(Integer.MIN_VALUE),
+                eq(PageRequest.of(0, DoctorService.LIMITE_PAGINA_POR_DEFECTO + 1)))).thenReturn(List.of());
+
+        assertTrue(doctorService.listarDoctores(null, "San_", null, null).doctores().isEmpty());
+    }
+
+    @Test
+    void listarDoctores_conLimiteFueraDeRango_lanzaBusinessRuleException() {
+        assertThrows(BusinessRuleException.class,
+                () -> doctorService.listarDoctores(null, null, null, DoctorService.LIMITE_PAGINA_MAXIMO + 1));
+        assertThrows(BusinessRuleException.class, () -> doctorService.listarDoctores(null, null, "no-es-cursor", 10));
+        verifyNoInteractions(doctorRepository);
     }
 
     @Test
@@ -107,6 +141,7 @@ class DoctorServiceTest {
         assertEquals(doctorToUpdate.getEspecialidad(), resultado.getEspecialidad());
         verify(doctorRepository, times(1)).findById(idExistente);
         verify(doctorRepository, times(1)).save(any(Doctor.class));
+        verify(agendaInstantanea).invalidar();
     }
 
     @Test
@@ -0,0 +1,122 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.EventoCitaDTO;
+import com.medical.center.leo.entity.EventoCita;
+import com.medical.center.leo.repository.EventoCitaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DrenadorEventosCitaTest {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @Mock
+    private EventoCitaRepository eventoCitaRepository;
+
+    private final List<EventoCitaDTO> enMemoria = new ArrayList<>();
+    private DrenadorEventosCita drenador;
+
+    @AfterEach
+    void cerrar() {
+        drenador.cerrar();
+    }
+
+    @Test
+    void drenar_entregaLosPendientesPorLotesYMarcaCadaLoteConUnUpdate() {
+        drenador = drenador(eventos -> enMemoria.addAll(eventos));
+        when(eventoCitaRepository.findPendientes(any(Pageable.class)))
+                .thenReturn(List.of(evento(1L), evento(2L)))
+                .thenReturn(List.of(evento(3L)));
+
+        assertEquals(3, drenador.drenar());
+
+        assertThat(enMemoria).extracting(EventoCitaDTO::idEvento).containsExactly(1L, 2L, 3L);
+        verify(eventoCitaRepository).marcarPublicados(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(eventoCitaRepository).marcarPublicados(eq(List.of(3L)), any(LocalDateTime.class));
+        verify(eventoCitaRepository, times(2)).findPendientes(any(Pageable.class));
+    }
+
+    @Test
+    void drenar_cuandoElPublicadorFalla_noMarcaElLote() {
+        drenador = drenador(eventos -> {
+            throw new IllegalStateException("cola no disponible");
+        });
+        when(eventoCitaRepository.findPendientes(any(Pageable.class))).thenReturn(List.of(evento(1L)));
+
+        assertThrows(IllegalStateException.class, () -> drenador.drenar());
+
+        verify(eventoCitaRepository, never()).marcarPublicados(anyCollection(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void drenar_sinPublicadores_dejaLosEventosPendientes() {
+        drenador = new DrenadorEventosCita(eventoCitaRepository,
+                new StaticListableBeanFactory().getBeanProvider(PublicadorEventosCita.class), 2, Duration.ofHours(1),
+                Duration.ofDays(7), Duration.ofHours(1), new SimpleMeterRegistry());
+
+        assertEquals(0, drenador.drenar());
+
+        verifyNoInteractions(eventoCitaRepository);
+    }
+
+    @Test
+    void eliminarAntiguos_borraPorLotesLosEventosAnterioresALaRetencion() {
+        drenador = drenador(eventos -> enMemoria.addAll(eventos));
+        when(eventoCitaRepository.eliminarAnterioresA(any(LocalDateTime.class), eq(2))).thenReturn(2).thenReturn(1);
+
+        LocalDateTime antes = LocalDateTime.now().minusDays(7);
+        assertEquals(3, drenador.eliminarAntiguos());
+
+        ArgumentCaptor<LocalDateTime> limite = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(eventoCitaRepository, times(2)).eliminarAnterioresA(limite.capture(), eq(2));
+        assertThat(limite.getValue()).isBetween(antes, LocalDateTime.now().minusDays(7));
+    }
+
+    @Test
+    void programada_cuandoLaPasadaFalla_publicaElUltimoErrorEnLaSalud() {
+        drenador = drenador(eventos -> {
+            throw new IllegalStateException("cola no disponible");
+        });
+        when(eventoCitaRepository.findPendientes(any(Pageable.class))).thenReturn(List.of(evento(1L)));
+        BuzonSalidaHealthIndicator salud = new BuzonSalidaHealthIndicator(drenador);
+        assertThat(salud.health().getDetails()).isEmpty();
+
+        drenador.programada(drenador::drenar);
+
+        assertTrue(drenador.ultimoFallo().isPresent());
+        assertEquals(Status.UP, salud.health().getStatus());
+        assertEquals("IllegalStateException: cola no disponible", salud.health().getDetails().get("error"));
+        assertTrue(salud.health().getDetails().containsKey("ultimoFallo"));
+    }
+
+    private DrenadorEventosCita drenador(PublicadorEventosCita publicador) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("publicador", publicador));
+        return new DrenadorEventosCita(eventoCitaRepository, beans.getBeanProvider(PublicadorEventosCita.class), 2,
+                Duration.ofHours(1), Duration.ofDays(7), Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    private static EventoCita evento(long idEvento) {
+        return new EventoCita(idEvento, 7, "CREADA", "{}", FECHA, null);
+    }
+}
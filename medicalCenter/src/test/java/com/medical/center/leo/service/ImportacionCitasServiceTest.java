@@ -0,0 +1,103 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaLoteResultadoDTO;
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.dto.ImportacionBloqueDTO;
+import com.medical.center.leo.exception.BusinessRuleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacionCitasServiceTest {
+
+    @Mock
+    private CitaService citaService;
+
+    @InjectMocks
+    private ImportacionCitasService importacionCitasService;
+
+    @Test
+    void importar_leeComillasYPuntoYComaYReportaLasFilasRechazadasConSuLinea() throws IOException {
+        String csv = "\uFEFFnombrePaciente;medicoId;consultorioId;horarioConsulta;notas\n"
+                + "\"Pérez; Juan\";1;2;2030-01-15 10:00;primera vez\n"
+                + "\n"
+                + "Ana López;uno;2;2030-01-15 11:00:00;\n"
+                + "Luis Gómez;1;2;2030-01-15 12:00:00;\n";
+        when(citaService.importarBloque(anyList())).thenAnswer(invocacion -> {
+            List<CitaRequestDTO> requests = invocacion.getArgument(0);
+            return List.of(new CitaLoteResultadoDTO(0, true, null, null),
+                    new CitaLoteResultadoDTO(1, false, null, "El doctor 1 ya tiene otra cita a las "
+                            + requests.get(1).horarioConsulta()));
+        });
+
+        List<ImportacionBloqueDTO> bloques = importar(csv);
+
+        verify(citaService).importarBloque(List.of(
+                new CitaRequestDTO(2, 1, LocalDateTime.of(2030, 1, 15, 10, 0), "Pérez; Juan"),
+                new CitaRequestDTO(2, 1, LocalDateTime.of(2030, 1, 15, 12, 0), "Luis Gómez")));
+        assertEquals(1, bloques.size());
+        ImportacionBloqueDTO bloque = bloques.get(0);
+        assertEquals(2, bloque.primeraLinea());
+        assertEquals(5, bloque.ultimaLinea());
+        assertEquals(1, bloque.importadas());
+        assertEquals(2, bloque.rechazadas());
+        assertEquals(List.of(4L, 5L), bloque.errores().stream().map(ImportacionBloqueDTO.ErrorFila::linea).toList());
+        assertTrue(bloque.errores().get(0).error().startsWith("medicoId:"));
+    }
+
+    @Test
+    void importar_divideEnBloquesYUnConflictoRechazaSoloSuBloque() throws IOException {
+        StringBuilder csv = new StringBuilder("consultorioId,medicoId,horarioConsulta,nombrePaciente\n");
+        IntStream.range(0, ImportacionCitasService.TAMANO_BLOQUE + 1).forEach(i -> csv
+                .append("1,1,").append(LocalDateTime.of(2030, 1, 1, 8, 0).plusMinutes(15L * i).toString()
+                        .replace('T', ' '))
+                .append(",Paciente ").append(i).append('\n'));
+        when(citaService.importarBloque(anyList()))
+                .thenThrow(new BusinessRuleException("Uno de los horarios del lote fue ocupado por otra cita"))
+                .thenAnswer(invocacion -> List.of(new CitaLoteResultadoDTO(0, true, null, null)));
+
+        List<ImportacionBloqueDTO> bloques = importar(csv.toString());
+
+        assertEquals(2, bloques.size());
+        assertEquals(ImportacionCitasService.TAMANO_BLOQUE, bloques.get(0).rechazadas());
+        assertEquals(ImportacionCitasService.TAMANO_BLOQUE + 1, bloques.get(0).ultimaLinea());
+        assertEquals(1, bloques.get(1).importadas());
+        assertEquals(1, bloques.get(1).totalImportadas());
+        assertEquals(ImportacionCitasService.TAMANO_BLOQUE, bloques.get(1).totalRechazadas());
+    }
+
+    @Test
+    void abrir_cuandoFaltanColumnas_lanzaBusinessRuleException() {
+        BusinessRuleException ex = assertThrows(BusinessRuleException.class,
+                () -> importacionCitasService.abrir(entrada("consultorioId,horarioConsulta,nombrePaciente\n")));
+
+        assertTrue(ex.getMessage().contains("medicoId"));
+    }
+
+    private List<ImportacionBloqueDTO> importar(String csv) throws IOException {
+        List<ImportacionBloqueDTO> bloques = new ArrayList<>();
+        try (LectorCitasCsv lector = importacionCitasService.abrir(entrada(csv))) {
+            importacionCitasService.importar(lector, bloques::add);
+        }
+        return bloques;
+    }
+
+    private static ByteArrayInputStream entrada(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
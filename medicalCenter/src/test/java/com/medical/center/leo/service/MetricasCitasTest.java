@@ -0,0 +1,127 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CitaRequestDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.Consultorio;
+import com.medical.center.leo.entity.Doctor;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.repository.ConsultorioRepository;
+import com.medical.center.leo.repository.DoctorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.containsString;
+
+/**
+ * Comprueba que las reglas de negocio, los repositorios y el pool de conexiones se publican
+ * en /actuator/prometheus, y que el endpoint queda reservado al rol ADMIN.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricasCitasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CitaService citaService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private ConsultorioRepository consultorioRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Doctor doctor;
+    private Consultorio consultorio;
+    private Integer citaCreada;
+
+    @BeforeEach
+    void setUp() {
+        doctor = doctorRepository.save(new Doctor(null, "Metricas", "Prueba", "Unica", "General"));
+        consultorio = consultorioRepository.save(new Consultorio(null, 960, 9));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (citaCreada != null) {
+            citaService.cancelarCita(citaCreada);
+        }
+        // Archiva antes las citas canceladas, que siguen referenciando al médico
+        doctorService.eliminarDoctor(doctor.getId_medico());
+        consultorioRepository.delete(consultorio);
+    }
+
+    @Test
+    void consultorioOcupado_cuentaElRechazoYMideLaRegla() throws Exception {
+        LocalDateTime horario = LocalDate.now().plusDays(50).atTime(9, 0);
+        double rechazosPrevios = rechazos("consultorio_ocupado");
+        CitaResponseDTO creada = citaService.crearCita(new CitaRequestDTO(consultorio.getId_consultorio(),
+                doctor.getId_medico(), horario, "Paciente Metricas Uno"));
+        citaCreada = creada.idCita();
+
+        assertThrows(BusinessRuleException.class, () -> citaService.crearCita(new CitaRequestDTO(
+                consultorio.getId_consultorio(), doctor.getId_medico(), horario, "Paciente Metricas Dos")));
+
+        assertEquals(rechazosPrevios + 1, rechazos("consultorio_ocupado"));
+        assertTrue(meterRegistry.get("citas.regla.duracion").tag("regla", "consultorio_ocupado").timer()
+                .count() >= 2);
+
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "adminpass")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("citas_rechazos_total{")))
+                .andExpect(content().string(containsString("citas_regla_duracion_seconds_count{")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count{")))
+                .andExpect(content().string(containsString("hikaricp_connections_active{")));
+    }
+
+    @Test
+    void prometheus_requiereRolAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("user", "password")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void autenticacionBasicRepetida_seResuelveConLaCacheSinRepetirElHash() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "adminpass")))
+                .andExpect(status().isOk());
+        double hashesPrevios = meterRegistry.get("medicalcenter.autenticacion.hashes").counter().count();
+        double aciertosPrevios = meterRegistry.get("medicalcenter.autenticacion.cache.aciertos").counter().count();
+
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "adminpass")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "incorrecta")))
+                .andExpect(status().isUnauthorized());
+
+        assertEquals(aciertosPrevios + 1,
+                meterRegistry.get("medicalcenter.autenticacion.cache.aciertos").counter().count());
+        assertEquals(hashesPrevios + 1, meterRegistry.get("medicalcenter.autenticacion.hashes").counter().count());
+    }
+
+    private double rechazos(String regla) {
+        return meterRegistry.get("citas.rechazos").tag("regla", regla).tag("origen", "validacion").counter()
+                .count();
+    }
+}
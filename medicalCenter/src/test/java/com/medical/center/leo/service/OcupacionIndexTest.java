@@ -0,0 +1,95 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.SlotOcupadoDTO;
+import com.medical.center.leo.repository.CitaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OcupacionIndexTest {
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @InjectMocks
+    private OcupacionIndex ocupacionIndex;
+
+    private LocalDate fecha;
+    private LocalDateTime diezAm;
+
+    @BeforeEach
+    void setUp() {
+        fecha = LocalDate.now().plusDays(1);
+        diezAm = fecha.atTime(10, 0);
+    }
+
+    @Test
+    void consultas_carganElDiaUnaSolaVez() {
+        when(citaRepository.findSlotsOcupadosEnRango(fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(new SlotOcupadoDTO(1, 1, 1, diezAm)));
+
+        assertTrue(ocupacionIndex.consultorioOcupado(1, diezAm));
+        assertTrue(ocupacionIndex.medicoOcupado(1, diezAm));
+        assertFalse(ocupacionIndex.consultorioOcupado(2, diezAm));
+        assertFalse(ocupacionIndex.medicoOcupado(1, diezAm.plusMinutes(30)));
+        assertEquals(1, ocupacionIndex.citasDelMedico(1, fecha));
+
+        verify(citaRepository, times(1)).findSlotsOcupadosEnRango(any(LocalDateTime.class),
+                any(LocalDateTime.class));
+    }
+
+    @Test
+    void registrarYLiberar_actualizanElDiaCargado() {
+        when(citaRepository.findSlotsOcupadosEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        SlotOcupadoDTO slot = new SlotOcupadoDTO(5, 2, 3, diezAm);
+
+        assertFalse(ocupacionIndex.consultorioOcupado(2, diezAm));
+        ocupacionIndex.registrar(slot);
+        assertTrue(ocupacionIndex.consultorioOcupado(2, diezAm));
+        assertTrue(ocupacionIndex.medicoOcupado(3, diezAm));
+        assertEquals(1, ocupacionIndex.citasDelMedico(3, fecha));
+
+        ocupacionIndex.liberar(slot);
+        assertFalse(ocupacionIndex.consultorioOcupado(2, diezAm));
+        assertFalse(ocupacionIndex.medicoOcupado(3, diezAm));
+        assertEquals(0, ocupacionIndex.citasDelMedico(3, fecha));
+    }
+
+    @Test
+    void mover_cuandoSoloCambiaElConsultorio_mantieneOcupadoAlMedico() {
+        SlotOcupadoDTO anterior = new SlotOcupadoDTO(5, 1, 3, diezAm);
+        when(citaRepository.findSlotsOcupadosEnRango(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(anterior));
+        assertTrue(ocupacionIndex.medicoOcupado(3, diezAm));
+
+        ocupacionIndex.mover(anterior, new SlotOcupadoDTO(5, 2, 3, diezAm));
+
+        assertFalse(ocupacionIndex.consultorioOcupado(1, diezAm));
+        assertTrue(ocupacionIndex.consultorioOcupado(2, diezAm));
+        assertTrue(ocupacionIndex.medicoOcupado(3, diezAm));
+        assertEquals(1, ocupacionIndex.citasDelMedico(3, fecha));
+    }
+
+    @Test
+    void horarioConSegundos_consultaElRepositorio() {
+        LocalDateTime conSegundos = diezAm.plusSeconds(30);
+        when(citaRepository.existsByConsultorioIdAndHorarioConsulta(1, conSegundos)).thenReturn(true);
+
+        assertTrue(ocupacionIndex.consultorioOcupado(1, conSegundos));
+        verify(citaRepository, never()).findSlotsOcupadosEnRango(any(LocalDateTime.class),
+                any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,77 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.entity.Paciente;
+import com.medical.center.leo.repository.PacienteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PacienteServiceTest {
+
+    @Mock
+    private PacienteRepository pacienteRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private PacienteService pacienteService;
+
+    @Test
+    void obtenerORegistrar_cuandoOtroAltaGanaLaCarrera_devuelveElPacienteExistente() {
+        Paciente existente = new Paciente(3, "Juan Perez", Paciente.claveBusqueda("Juan Perez"));
+        when(pacienteRepository.findByClaveBusqueda(any()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(existente));
+        when(pacienteRepository.saveAndFlush(any(Paciente.class)))
+                .thenThrow(new DataIntegrityViolationException(Paciente.UQ_CLAVE_BUSQUEDA));
+
+        assertSame(existente, pacienteService.obtenerORegistrar("juan pérez"));
+    }
+
+    @Test
+    void obtenerORegistrarTodos_registraLosQueFaltanEnUnLoteYAgrupaPorNombreNormalizado() {
+        Paciente existente = new Paciente(3, "Juan Perez", Paciente.claveBusqueda("Juan Perez"));
+        Paciente nuevo = new Paciente(4, "Ana López", Paciente.claveBusqueda("Ana López"));
+        when(pacienteRepository.findByClavesBusqueda(any()))
+                .thenReturn(List.of(existente))
+                .thenReturn(List.of(nuevo));
+
+        Map<String, Paciente> pacientes = pacienteService.obtenerORegistrarTodos(
+                List.of("JUAN PEREZ", "Ana López", "ana lopez"));
+
+        assertSame(existente, pacientes.get("juan perez"));
+        assertSame(nuevo, pacientes.get("ana lopez"));
+        verify(pacienteRepository).insertarEnLote(argThat(lote -> lote.size() == 1
+                && lote.get(0).getNombre().equals("Ana López")));
+        verify(pacienteRepository, never()).saveAndFlush(any(Paciente.class));
+    }
+
+    @Test
+    void obtenerORegistrarTodos_cuandoUnAltaConcurrenteRompeElLote_registraUnoAUno() {
+        Paciente concurrente = new Paciente(5, "Luis Diaz", Paciente.claveBusqueda("Luis Diaz"));
+        when(pacienteRepository.findByClavesBusqueda(any())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException(Paciente.UQ_CLAVE_BUSQUEDA))
+                .when(pacienteRepository).insertarEnLote(any());
+        when(pacienteRepository.findByClaveBusqueda(any())).thenReturn(Optional.of(concurrente));
+
+        Map<String, Paciente> pacientes = pacienteService.obtenerORegistrarTodos(Set.of("Luis Diaz"));
+
+        assertSame(concurrente, pacientes.get("luis diaz"));
+        verify(pacienteRepository, never()).saveAndFlush(any(Paciente.class));
+    }
+}
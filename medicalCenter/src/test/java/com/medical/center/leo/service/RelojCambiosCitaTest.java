@@ -0,0 +1,102 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.repository.CitaArchivadaRepository;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
+import com.medical.center.leo.repository.CitaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RelojCambiosCitaTest {
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @Mock
+    private CitaCanceladaRepository citaCanceladaRepository;
+
+    @Mock
+    private CitaArchivadaRepository citaArchivadaRepository;
+
+    @InjectMocks
+    private RelojCambiosCita relojCambios;
+
+    @AfterEach
+    void limpiarSincronizacion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void siguiente_continuaDesdeLaMayorVersionGuardada() {
+        when(citaRepository.findUltimaVersionCambio()).thenReturn(7L);
+        when(citaCanceladaRepository.findUltimaVersionCambio()).thenReturn(9L);
+
+        assertEquals(10L, relojCambios.siguiente());
+        assertEquals(11L, relojCambios.siguiente());
+        verify(citaRepository, times(1)).findUltimaVersionCambio();
+    }
+
+    @Test
+    void siguiente_noReutilizaLasVersionesDeCitasArchivadas() {
+        when(citaRepository.findUltimaVersionCambio()).thenReturn(null);
+        when(citaCanceladaRepository.findUltimaVersionCambio()).thenReturn(3L);
+        when(citaArchivadaRepository.findUltimaVersionCambio()).thenReturn(12L);
+
+        assertEquals(13L, relojCambios.siguiente());
+    }
+
+    @Test
+    void horizonte_seDetieneAntesDeLaMenorVersionEnCurso() {
+        when(citaRepository.findUltimaVersionCambio()).thenReturn(null);
+        when(citaCanceladaRepository.findUltimaVersionCambio()).thenReturn(null);
+
+        List<TransactionSynchronization> primera = enTransaccion(() -> assertEquals(1L, relojCambios.siguiente()));
+        List<TransactionSynchronization> segunda = enTransaccion(() -> assertEquals(2L, relojCambios.siguiente()));
+        assertEquals(0L, relojCambios.horizonte());
+
+        // La 2 confirma antes que la 1: todavía no se puede entregar
+        completar(segunda, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(0L, relojCambios.horizonte());
+
+        completar(primera, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(2L, relojCambios.horizonte());
+    }
+
+    @Test
+    void horizonte_noIncluyeVersionesDescartadasPorRollback() {
+        when(citaRepository.findUltimaVersionCambio()).thenReturn(5L);
+        when(citaCanceladaRepository.findUltimaVersionCambio()).thenReturn(null);
+
+        List<TransactionSynchronization> transaccion = enTransaccion(relojCambios::siguiente);
+        completar(transaccion, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(5L, relojCambios.horizonte());
+    }
+
+    private static List<TransactionSynchronization> enTransaccion(Runnable accion) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            accion.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void completar(List<TransactionSynchronization> sincronizaciones, int estado) {
+        sincronizaciones.forEach(sincronizacion -> sincronizacion.afterCompletion(estado));
+    }
+}
@@ -0,0 +1,99 @@
+package com.medical.center.leo.service;
+
+import com.medical.center.leo.dto.CambiosCitasDTO;
+import com.medical.center.leo.dto.CitaCambioDTO;
+import com.medical.center.leo.dto.CitaResponseDTO;
+import com.medical.center.leo.entity.CitaCancelada;
+import com.medical.center.leo.exception.BusinessRuleException;
+import com.medical.center.leo.repository.CitaCanceladaRepository;
+import com.medical.center.leo.repository.CitaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SincronizacionCitasServiceTest {
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @Mock
+    private CitaCanceladaRepository citaCanceladaRepository;
+
+    @Mock
+    private RelojCambiosCita relojCambios;
+
+    @InjectMocks
+    private SincronizacionCitasService sincronizacionCitasService;
+
+    @Test
+    void obtenerCambios_mezclaAltasYCancelacionesPorVersionHastaElHorizonte() {
+        when(relojCambios.horizonte()).thenReturn(20L);
+        when(citaRepository.findCambiosEntre(10L, 20L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(cambio(11L, 1), cambio(14L, 2)));
+        when(citaCanceladaRepository.findCambiosEntre(10L, 20L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(lapida(12L, 3)));
+
+        CambiosCitasDTO cambios = sincronizacionCitasService.obtenerCambios(10L, 2);
+
+        // Límite 2: entran la 11 y la 12; la 14 queda para la siguiente llamada
+        assertThat(cambios.actualizadas()).extracting(CitaResponseDTO::idCita).containsExactly(1);
+        assertEquals(List.of(3), cambios.canceladas());
+        assertEquals(12L, cambios.version());
+        assertTrue(cambios.hayMas());
+    }
+
+    @Test
+    void obtenerCambios_sinMasCambios_avanzaElTokenHastaElHorizonte() {
+        when(relojCambios.horizonte()).thenReturn(20L);
+        when(citaRepository.findCambiosEntre(anyLong(), anyLong(), any())).thenReturn(List.of(cambio(14L, 2)));
+        when(citaCanceladaRepository.findCambiosEntre(anyLong(), anyLong(), any())).thenReturn(List.of());
+
+        CambiosCitasDTO cambios = sincronizacionCitasService.obtenerCambios(10L, null);
+
+        assertEquals(20L, cambios.version());
+        assertFalse(cambios.hayMas());
+        assertEquals(1, cambios.actualizadas().size());
+    }
+
+    @Test
+    void obtenerCambios_tokenAlDia_noConsultaLaBaseDeDatos() {
+        when(relojCambios.horizonte()).thenReturn(20L);
+
+        CambiosCitasDTO cambios = sincronizacionCitasService.obtenerCambios(20L, null);
+
+        assertEquals(20L, cambios.version());
+        assertTrue(cambios.actualizadas().isEmpty());
+        verifyNoInteractions(citaRepository, citaCanceladaRepository);
+    }
+
+    @Test
+    void obtenerCambios_parametrosInvalidos_lanzaBusinessRuleException() {
+        assertThrows(BusinessRuleException.class, () -> sincronizacionCitasService.obtenerCambios(-1L, null));
+        assertThrows(BusinessRuleException.class, () -> sincronizacionCitasService.obtenerCambios(0L,
+                SincronizacionCitasService.LIMITE_MAXIMO + 1));
+        verifyNoInteractions(relojCambios);
+    }
+
+    private static CitaCambioDTO cambio(long version, int idCita) {
+        return new CitaCambioDTO(version, new CitaResponseDTO(idCita, 101, 1, "Juan Perez", "General",
+                LocalDateTime.of(2026, 3, 2, 9, 0), "Paciente " + idCita, 0L));
+    }
+
+    private static CitaCancelada lapida(long version, int idCita) {
+        return new CitaCancelada(idCita, 1, 1, LocalDateTime.of(2026, 3, 2, 10, 0), version,
+                LocalDateTime.of(2026, 3, 1, 8, 0));
+    }
+}
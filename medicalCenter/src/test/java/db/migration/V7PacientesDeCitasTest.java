@@ -0,0 +1,114 @@
+package db.migration;
+
+import com.medical.center.leo.entity.Paciente;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ejecuta el relleno de V7 sobre H2 en modo SQL Server, con el esquema de Citas y Pacientes
+ * que deja V6, y comprueba que cada nombre, escrito como sea, acaba en un único paciente.
+ */
+class V7PacientesDeCitasTest {
+
+    // Más citas que un lote de la migración, para que un mismo paciente aparezca en varios lotes
+    private static final int CITAS = 2500;
+
+    private static final List<String> VARIANTES_JOSE = List.of("José Pérez", "jose perez", "  JOSÉ   PÉREZ ",
+            "Jose\tPerez");
+    private static final List<String> VARIANTES_MARIA = List.of("María Núñez", "MARIA NUNEZ", "maría  núñez");
+
+    private Connection conexion;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conexion = DriverManager.getConnection("jdbc:h2:mem:MigracionV7;MODE=MSSQLServer;DB_CLOSE_DELAY=-1", "sa",
+                "");
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE TABLE Pacientes (id_paciente INT IDENTITY(1,1) PRIMARY KEY, "
+                    + "nombre VARCHAR(100) NOT NULL, clave_busqueda BINARY(32) NOT NULL, "
+                    + "CONSTRAINT UQ_Paciente_ClaveBusqueda UNIQUE (clave_busqueda))");
+            sentencia.execute("CREATE TABLE Citas (id_cita INT IDENTITY(1,1) PRIMARY KEY, "
+                    + "nombre_paciente VARCHAR(100) NOT NULL, "
+                    + "paciente_id INT NULL REFERENCES Pacientes(id_paciente))");
+        }
+        try (PreparedStatement insert = conexion.prepareStatement("INSERT INTO Citas (nombre_paciente) VALUES (?)")) {
+            for (int i = 0; i < CITAS; i++) {
+                List<String> variantes = i % 2 == 0 ? VARIANTES_JOSE : VARIANTES_MARIA;
+                insert.setString(1, variantes.get(i % variantes.size()));
+                insert.addBatch();
+            }
+            insert.setString(1, "Paciente Único");
+            insert.addBatch();
+            insert.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("DROP ALL OBJECTS");
+        }
+        conexion.close();
+    }
+
+    @Test
+    void migrate_creaUnPacientePorClaveYAsignaTodasLasCitas() throws Exception {
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(conexion);
+
+        new V7__pacientes_de_citas().migrate(context);
+
+        Map<String, Integer> pacientesPorClave = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+                ResultSet filas = sentencia.executeQuery("SELECT id_paciente, clave_busqueda FROM Pacientes")) {
+            while (filas.next()) {
+                pacientesPorClave.put(hex(filas.getBytes(2)), filas.getInt(1));
+            }
+        }
+        assertEquals(3, pacientesPorClave.size());
+        assertTrue(pacientesPorClave.containsKey(hex(sha256("jose perez"))));
+        assertTrue(pacientesPorClave.containsKey(hex(sha256("maria nunez"))));
+        assertTrue(pacientesPorClave.containsKey(hex(sha256("paciente unico"))));
+        // La aplicación busca hoy con la misma clave que calculó la migración
+        assertTrue(pacientesPorClave.containsKey(hex(Paciente.claveBusqueda("JOSÉ PÉREZ"))));
+
+        assertEquals(0, contar("SELECT COUNT(*) FROM Citas WHERE paciente_id IS NULL"));
+        assertEquals(CITAS / 2, contar("SELECT COUNT(*) FROM Citas WHERE paciente_id = "
+                + pacientesPorClave.get(hex(sha256("jose perez")))));
+        assertEquals(CITAS / 2, contar("SELECT COUNT(*) FROM Citas WHERE paciente_id = "
+                + pacientesPorClave.get(hex(sha256("maria nunez")))));
+    }
+
+    private int contar(String consulta) throws Exception {
+        try (Statement sentencia = conexion.createStatement(); ResultSet filas = sentencia.executeQuery(consulta)) {
+            filas.next();
+            return filas.getInt(1);
+        }
+    }
+
+    private static byte[] sha256(String nombreNormalizado) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(nombreNormalizado.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}